@@ -23,6 +23,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.pdfbox.io.FileAccessMode;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
@@ -308,13 +309,115 @@ public class Loader
      */
     public static PDDocument loadPDF(File file, String password, InputStream keyStore, String alias,
             MemoryUsageSetting memUsageSetting) throws IOException
+    {
+        return Loader.loadPDF(file, password, keyStore, alias, memUsageSetting,
+                FileAccessMode.BUFFERED);
+    }
+
+    /**
+     * Parses a PDF.
+     * 
+     * @param file file to be loaded
+     * @param password password to be used for decryption
+     * @param keyStore key store to be used for decryption when using public key security
+     * @param alias alias to be used for decryption when using public key security
+     * @param memUsageSetting defines how memory is used for buffering PDF streams
+     * @param fileAccessMode defines how the file is read
+     * 
+     * @return loaded document
+     * 
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadPDF(File file, String password, InputStream keyStore, String alias,
+            MemoryUsageSetting memUsageSetting, FileAccessMode fileAccessMode) throws IOException
+    {
+        return Loader.loadPDF(file, password, keyStore, alias, memUsageSetting, fileAccessMode, null);
+    }
+
+    /**
+     * Parses a PDF. The cross reference information is taken from the given index file, if it was written for the
+     * current version of the pdf. Otherwise the index file is written after the cross reference information was
+     * parsed, so that opening the file the next time is faster. See
+     * {@link org.apache.pdfbox.pdfparser.COSParser#setXrefIndex(File, long)}.
+     * 
+     * @param file file to be loaded
+     * @param password password to be used for decryption
+     * @param keyStore key store to be used for decryption when using public key security
+     * @param alias alias to be used for decryption when using public key security
+     * @param memUsageSetting defines how memory is used for buffering PDF streams
+     * @param fileAccessMode defines how the file is read
+     * @param xrefIndexFile file to store the cross reference information in; <code>null</code> to not use an index
+     * 
+     * @return loaded document
+     * 
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadPDF(File file, String password, InputStream keyStore, String alias,
+            MemoryUsageSetting memUsageSetting, FileAccessMode fileAccessMode, File xrefIndexFile)
+            throws IOException
     {
         RandomAccessRead raFile = null;
         try
         {
             // RandomAccessRead is not closed here, may be needed for signing
-            raFile = new RandomAccessReadBufferedFile(file);
-            return Loader.loadPDF(raFile, password, keyStore, alias, memUsageSetting);
+            raFile = fileAccessMode.open(file);
+            PDFParser parser = new PDFParser(raFile, password, keyStore, alias, memUsageSetting);
+            if (xrefIndexFile != null)
+            {
+                parser.setXrefIndex(xrefIndexFile, file.lastModified());
+            }
+            return parser.parse();
+        }
+        catch (IOException ioe)
+        {
+            IOUtils.closeQuietly(raFile);
+            throw ioe;
+        }
+    }
+
+    /**
+     * Parses a PDF for fast access to its first page. If the pdf is linearized, only the cross reference section of
+     * the first page is read, so that the first page can be retrieved using {@link PDDocument#getPage(int)} without
+     * reading the rest of the file. The remaining cross reference information is read as soon as any other object is
+     * needed. Other pdfs are parsed as usual. Unrestricted main memory will be used for buffering PDF streams.
+     * 
+     * @param file file to be loaded
+     * 
+     * @return loaded document
+     * 
+     * @throws InvalidPasswordException If the file required a non-empty password.
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadPDFForFirstPage(File file) throws IOException
+    {
+        return Loader.loadPDFForFirstPage(file, "", MemoryUsageSetting.setupMainMemoryOnly(),
+                FileAccessMode.BUFFERED);
+    }
+
+    /**
+     * Parses a PDF for fast access to its first page, see {@link #loadPDFForFirstPage(File)}.
+     * 
+     * @param file file to be loaded
+     * @param password password to be used for decryption
+     * @param memUsageSetting defines how memory is used for buffering PDF streams
+     * @param fileAccessMode defines how the file is read
+     * 
+     * @return loaded document
+     * 
+     * @throws InvalidPasswordException If the file required a non-empty password.
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadPDFForFirstPage(File file, String password,
+            MemoryUsageSetting memUsageSetting, FileAccessMode fileAccessMode) throws IOException
+    {
+        RandomAccessRead raFile = null;
+        try
+        {
+            // RandomAccessRead is not closed here, the remaining pdf is read later on
+            raFile = fileAccessMode.open(file);
+            PDFParser parser = new PDFParser(raFile, password, null, null, memUsageSetting);
+            parser.setFirstPageFastPath(true);
+            return parser.parse();
         }
         catch (IOException ioe)
         {
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfparser.PDFStreamParser.OperatorHandler;
+
+/**
+ * A cache for the parsed operators of content streams which are processed many times, e.g. form XObjects painted on
+ * every page, tiling patterns and Type 3 glyphs. Page content streams aren't cached. The cache is bounded by the
+ * estimated memory of the parsed operators, the least recently used streams are evicted first.
+ *
+ * <p>A cache can be shared by several stream engines, e.g. by a {@link org.apache.pdfbox.rendering.PDFRenderer} and
+ * a {@link org.apache.pdfbox.text.PDFTextStripper}, also in different threads. Every engine gets its own copies of
+ * the inline images and of the array and dictionary operands, as these may be changed while they are processed. As
+ * the cache is keyed by the stream objects, it has to be {@link #clear() cleared} if the content of a cached stream
+ * is changed.
+ *
+ * <p>The streams are only referenced weakly, so a cache shared by several documents doesn't keep a closed document
+ * alive. The operators of a document are dropped once its streams are garbage collected, until then they count
+ * towards the maximum size, unless they are evicted earlier.</p>
+ *
+ * @see PDFStreamEngine#setOperatorCache(OperatorCache)
+ */
+public final class OperatorCache
+{
+    private static final Log LOG = LogFactory.getLog(OperatorCache.class);
+
+    // rough estimation of the memory used by a token, including the reference to it
+    private static final int TOKEN_SIZE = 32;
+
+    private final long maxSize;
+    private final Map<StreamKey, Object[]> streams = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<StreamKey, Long> sizes = new HashMap<>();
+    // the keys of the streams which were garbage collected
+    private final ReferenceQueue<COSStream> collectedStreams = new ReferenceQueue<>();
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize the maximum estimated memory in bytes used by the cached operators
+     */
+    public OperatorCache(long maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException("The maximum size must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Passes the operators of the given content stream to the handler, the stream is only parsed if its operators
+     * aren't cached.
+     *
+     * @param stream the stream used as key
+     * @param contentStream the content stream to be parsed
+     * @param handler the handler receiving the operators
+     * @throws IOException if the stream can't be parsed or if the handler throws it
+     */
+    void process(COSStream stream, PDContentStream contentStream, OperatorHandler handler) throws IOException
+    {
+        Object[] tokens = get(stream);
+        if (tokens == null)
+        {
+            tokens = parse(contentStream);
+            if (tokens == null)
+            {
+                // process the damaged stream as far as possible without caching it
+                new PDFStreamParser(contentStream).parse(handler);
+                return;
+            }
+            put(stream, tokens);
+        }
+        List<COSBase> operands = new ArrayList<>();
+        for (Object token : tokens)
+        {
+            if (token instanceof Operator)
+            {
+                handler.processOperator(copy((Operator) token), operands);
+                operands.clear();
+            }
+            else
+            {
+                operands.add(copy((COSBase) token));
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of an inline image operator, as its parameters may be changed while the image is decoded. All
+     * other operators are immutable singletons.
+     */
+    private static Operator copy(Operator operator)
+    {
+        if (operator.getImageParameters() == null && operator.getImageData() == null)
+        {
+            return operator;
+        }
+        Operator copy = Operator.getOperator(operator.getName());
+        copy.setImageParameters(operator.getImageParameters() == null
+                ? null : (COSDictionary) copy(operator.getImageParameters()));
+        copy.setImageData(operator.getImageData());
+        return copy;
+    }
+
+    /**
+     * Returns a copy of an array or dictionary operand, so that the cached operands aren't changed by an engine.
+     * Other operands are shared, they aren't changed by the operators.
+     */
+    private static COSBase copy(COSBase token)
+    {
+        if (token instanceof COSArray)
+        {
+            COSArray array = (COSArray) token;
+            COSArray copy = new COSArray();
+            for (int i = 0; i < array.size(); i++)
+            {
+                copy.add(copy(array.get(i)));
+            }
+            copy.setDirect(array.isDirect());
+            return copy;
+        }
+        if (token instanceof COSDictionary)
+        {
+            COSDictionary dictionary = (COSDictionary) token;
+            COSDictionary copy = new COSDictionary();
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
+            {
+                copy.setItem(entry.getKey(), copy(entry.getValue()));
+            }
+            copy.setDirect(dictionary.isDirect());
+            return copy;
+        }
+        return token;
+    }
+
+    private synchronized Object[] get(COSStream stream)
+    {
+        removeCollectedStreams();
+        Object[] tokens = streams.get(new StreamKey(stream, null));
+        if (tokens != null)
+        {
+            hitCount++;
+        }
+        else
+        {
+            missCount++;
+        }
+        return tokens;
+    }
+
+    private synchronized void put(COSStream stream, Object[] tokens)
+    {
+        removeCollectedStreams();
+        long tokensSize = estimateSize(tokens);
+        StreamKey key = new StreamKey(stream, collectedStreams);
+        if (tokensSize > maxSize || streams.containsKey(key))
+        {
+            return;
+        }
+        Iterator<Map.Entry<StreamKey, Object[]>> iterator = streams.entrySet().iterator();
+        while (size + tokensSize > maxSize && iterator.hasNext())
+        {
+            StreamKey eldest = iterator.next().getKey();
+            iterator.remove();
+            size -= sizes.remove(eldest);
+            evictionCount++;
+        }
+        streams.put(key, tokens);
+        sizes.put(key, tokensSize);
+        size += tokensSize;
+    }
+
+    /**
+     * Removes the operators of the streams which were garbage collected.
+     */
+    private void removeCollectedStreams()
+    {
+        Reference<? extends COSStream> key;
+        while ((key = collectedStreams.poll()) != null)
+        {
+            Long streamSize = sizes.remove(key);
+            if (streamSize != null)
+            {
+                streams.remove(key);
+                size -= streamSize;
+            }
+        }
+    }
+
+    /**
+     * Parses all tokens of the content stream, returns null if the stream is damaged.
+     */
+    private static Object[] parse(PDContentStream contentStream) throws IOException
+    {
+        try
+        {
+            return new PDFStreamParser(contentStream).parse().toArray();
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Content stream couldn't be parsed completely, it isn't cached", e);
+            return null;
+        }
+    }
+
+    private static long estimateSize(Object[] tokens)
+    {
+        long tokensSize = 0;
+        for (Object token : tokens)
+        {
+            tokensSize += estimateSize(token);
+        }
+        return tokensSize;
+    }
+
+    private static long estimateSize(Object token)
+    {
+        long tokenSize = TOKEN_SIZE;
+        if (token instanceof COSString)
+        {
+            tokenSize += ((COSString) token).getBytes().length;
+        }
+        else if (token instanceof COSArray)
+        {
+            for (COSBase element : (COSArray) token)
+            {
+                tokenSize += estimateSize(element);
+            }
+        }
+        else if (token instanceof COSDictionary)
+        {
+            for (COSBase value : ((COSDictionary) token).getValues())
+            {
+                tokenSize += TOKEN_SIZE + estimateSize(value);
+            }
+        }
+        else if (token instanceof Operator)
+        {
+            Operator operator = (Operator) token;
+            if (operator.getImageData() != null)
+            {
+                tokenSize += operator.getImageData().length;
+            }
+            if (operator.getImageParameters() != null)
+            {
+                tokenSize += estimateSize(operator.getImageParameters());
+            }
+        }
+        return tokenSize;
+    }
+
+    /**
+     * Removes all cached operators. The statistics aren't reset.
+     */
+    public synchronized void clear()
+    {
+        streams.clear();
+        sizes.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum estimated memory in bytes used by the cached operators.
+     *
+     * @return the maximum size
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the cached operators.
+     *
+     * @return the current size
+     */
+    public synchronized long getSize()
+    {
+        removeCollectedStreams();
+        return size;
+    }
+
+    /**
+     * Returns the number of cached streams.
+     *
+     * @return the number of cached streams
+     */
+    public synchronized int getStreamCount()
+    {
+        removeCollectedStreams();
+        return streams.size();
+    }
+
+    /**
+     * Returns how often the operators of a stream were found in the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns how often the operators of a stream weren't found in the cache and the stream had to be parsed.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of streams evicted from the cache because the maximum size was reached.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups.
+     *
+     * @return the hit rate between 0 and 1, 0 if there wasn't any lookup
+     */
+    public synchronized double getHitRate()
+    {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "OperatorCache{streams=" + streams.size() + ", size=" + size + ", maxSize=" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * A weak reference to a stream which is compared by the identity of the stream.
+     */
+    private static final class StreamKey extends WeakReference<COSStream>
+    {
+        private final int hash;
+
+        StreamKey(COSStream stream, ReferenceQueue<COSStream> queue)
+        {
+            super(stream, queue);
+            hash = System.identityHashCode(stream);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof StreamKey))
+            {
+                return false;
+            }
+            COSStream stream = get();
+            return stream != null && stream == ((StreamKey) obj).get();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -23,7 +23,6 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
@@ -38,12 +37,14 @@ import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.COSString;
 import org.apache.pdfbox.filter.MissingImageReaderException;
 import org.apache.pdfbox.pdfparser.PDFStreamParser;
 import org.apache.pdfbox.pdmodel.MissingResourceException;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.COSObjectable;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
@@ -75,7 +76,10 @@ public abstract class PDFStreamEngine
 {
     private static final Log LOG = LogFactory.getLog(PDFStreamEngine.class);
 
-    private final Map<String, OperatorProcessor> operators = new HashMap<>(80);
+    // operator processors of the operators defined in OperatorName, indexed by their opcode
+    private final OperatorProcessor[] operators = new OperatorProcessor[Operator.OPCODE_COUNT];
+    // operator processors of all other operators, e.g. custom ones
+    private final Map<String, OperatorProcessor> unknownOperators = new HashMap<>();
 
     private Matrix textMatrix;
     private Matrix textLineMatrix;
@@ -86,6 +90,7 @@ public abstract class PDFStreamEngine
     private PDPage currentPage;
     private boolean isProcessingPage;
     private Matrix initialMatrix;
+    private OperatorCache operatorCache;
 
     // used to monitor potentially recursive operations.
     private int level = 0;
@@ -105,7 +110,36 @@ public abstract class PDFStreamEngine
     public final void addOperator(OperatorProcessor op)
     {
         op.setContext(this);
-        operators.put(op.getName(), op);
+        int opcode = Operator.getOperator(op.getName()).getOpcode();
+        if (opcode == Operator.UNKNOWN_OPCODE)
+        {
+            unknownOperators.put(op.getName(), op);
+        }
+        else
+        {
+            operators[opcode] = op;
+        }
+    }
+
+    /**
+     * Sets the cache used for the parsed operators of form XObjects, tiling patterns and Type 3 glyphs. The cache may
+     * be shared with other stream engines. Default is null, i.e. the operators aren't cached.
+     *
+     * @param operatorCache the operator cache or null
+     */
+    public void setOperatorCache(OperatorCache operatorCache)
+    {
+        this.operatorCache = operatorCache;
+    }
+
+    /**
+     * Returns the cache used for the parsed operators of form XObjects, tiling patterns and Type 3 glyphs.
+     *
+     * @return the operator cache or null if the operators aren't cached
+     */
+    public OperatorCache getOperatorCache()
+    {
+        return operatorCache;
     }
 
     /**
@@ -484,22 +518,17 @@ public abstract class PDFStreamEngine
      */
     private void processStreamOperators(PDContentStream contentStream) throws IOException
     {
-        List<COSBase> arguments = new ArrayList<>();
-        PDFStreamParser parser = new PDFStreamParser(contentStream);
-        Object token = parser.parseNextToken();
-        while (token != null)
+        // page content is processed once, only reused streams are worth caching
+        if (operatorCache != null && !(contentStream instanceof PDPage)
+                && contentStream instanceof COSObjectable
+                && ((COSObjectable) contentStream).getCOSObject() instanceof COSStream)
         {
-            if (token instanceof Operator)
-            {
-                processOperator((Operator) token, arguments);
-                arguments = new ArrayList<>();
-            }
-            else
-            {
-                arguments.add((COSBase) token);
-            }
-            token = parser.parseNextToken();
+            COSStream stream = (COSStream) ((COSObjectable) contentStream).getCOSObject();
+            operatorCache.process(stream, contentStream, this::processOperator);
+            return;
         }
+        PDFStreamParser parser = new PDFStreamParser(contentStream);
+        parser.parse(this::processOperator);
     }
 
     /**
@@ -830,7 +859,8 @@ public abstract class PDFStreamEngine
     }
 
     /**
-     * This is used to handle an operation.
+     * This is used to handle an operation. The list of operands of operators from a content stream is reused for the
+     * next operator, it has to be copied to be kept after this call.
      * 
      * @param operator The operation to perform.
      * @param operands The list of arguments.
@@ -838,8 +868,9 @@ public abstract class PDFStreamEngine
      */
     protected void processOperator(Operator operator, List<COSBase> operands) throws IOException
     {
-        String name = operator.getName();
-        OperatorProcessor processor = operators.get(name);
+        int opcode = operator.getOpcode();
+        OperatorProcessor processor = opcode == Operator.UNKNOWN_OPCODE
+                ? unknownOperators.get(operator.getName()) : operators[opcode];
         if (processor != null)
         {
             processor.setContext(this);
@@ -29,25 +29,91 @@ import java.util.concurrent.ConcurrentMap;
 public final class Operator
 {
     private final String theOperator;
+    private final int opcode;
     private byte[] imageData;
     private COSDictionary imageParameters;
 
+    /** the opcode of all operators which aren't defined in {@link OperatorName} */
+    public static final int UNKNOWN_OPCODE = -1;
+
+    /** the operators defined in {@link OperatorName}, the opcode of an operator is its index */
+    private static final String[] KNOWN_OPERATORS = {
+            OperatorName.NON_STROKING_COLOR, OperatorName.NON_STROKING_COLOR_N, OperatorName.NON_STROKING_RGB,
+            OperatorName.NON_STROKING_GRAY, OperatorName.NON_STROKING_CMYK, OperatorName.NON_STROKING_COLORSPACE,
+            OperatorName.STROKING_COLOR, OperatorName.STROKING_COLOR_N, OperatorName.STROKING_COLOR_RGB,
+            OperatorName.STROKING_COLOR_GRAY, OperatorName.STROKING_COLOR_CMYK, OperatorName.STROKING_COLORSPACE,
+            OperatorName.BEGIN_MARKED_CONTENT_SEQ, OperatorName.BEGIN_MARKED_CONTENT,
+            OperatorName.END_MARKED_CONTENT, OperatorName.MARKED_CONTENT_POINT_WITH_PROPS,
+            OperatorName.MARKED_CONTENT_POINT, OperatorName.DRAW_OBJECT, OperatorName.CONCAT,
+            OperatorName.RESTORE, OperatorName.SAVE, OperatorName.SET_FLATNESS,
+            OperatorName.SET_GRAPHICS_STATE_PARAMS, OperatorName.SET_LINE_CAPSTYLE,
+            OperatorName.SET_LINE_DASHPATTERN, OperatorName.SET_LINE_JOINSTYLE, OperatorName.SET_LINE_MITERLIMIT,
+            OperatorName.SET_LINE_WIDTH, OperatorName.SET_MATRIX, OperatorName.SET_RENDERINGINTENT,
+            OperatorName.APPEND_RECT, OperatorName.BEGIN_INLINE_IMAGE, OperatorName.BEGIN_INLINE_IMAGE_DATA,
+            OperatorName.END_INLINE_IMAGE, OperatorName.CLIP_EVEN_ODD, OperatorName.CLIP_NON_ZERO,
+            OperatorName.CLOSE_AND_STROKE, OperatorName.CLOSE_FILL_EVEN_ODD_AND_STROKE,
+            OperatorName.CLOSE_FILL_NON_ZERO_AND_STROKE, OperatorName.CLOSE_PATH, OperatorName.CURVE_TO,
+            OperatorName.CURVE_TO_REPLICATE_FINAL_POINT, OperatorName.CURVE_TO_REPLICATE_INITIAL_POINT,
+            OperatorName.ENDPATH, OperatorName.FILL_EVEN_ODD_AND_STROKE, OperatorName.FILL_EVEN_ODD,
+            OperatorName.FILL_NON_ZERO_AND_STROKE, OperatorName.FILL_NON_ZERO, OperatorName.LEGACY_FILL_NON_ZERO,
+            OperatorName.LINE_TO, OperatorName.MOVE_TO, OperatorName.SHADING_FILL, OperatorName.STROKE_PATH,
+            OperatorName.BEGIN_TEXT, OperatorName.END_TEXT, OperatorName.MOVE_TEXT,
+            OperatorName.MOVE_TEXT_SET_LEADING, OperatorName.NEXT_LINE, OperatorName.SET_CHAR_SPACING,
+            OperatorName.SET_FONT_AND_SIZE, OperatorName.SET_TEXT_HORIZONTAL_SCALING,
+            OperatorName.SET_TEXT_LEADING, OperatorName.SET_TEXT_RENDERINGMODE, OperatorName.SET_TEXT_RISE,
+            OperatorName.SET_WORD_SPACING, OperatorName.SHOW_TEXT, OperatorName.SHOW_TEXT_ADJUSTED,
+            OperatorName.SHOW_TEXT_LINE, OperatorName.SHOW_TEXT_LINE_AND_SPACE, OperatorName.TYPE3_D0,
+            OperatorName.TYPE3_D1, OperatorName.BEGIN_COMPATIBILITY_SECTION,
+            OperatorName.END_COMPATIBILITY_SECTION };
+
+    /** the number of opcodes, i.e. the opcodes of the known operators are smaller than this */
+    public static final int OPCODE_COUNT = KNOWN_OPERATORS.length;
+
     /** map for singleton operator objects; use {@link ConcurrentHashMap} for better scalability with multiple threads */
     private static final ConcurrentMap<String,Operator> operators = new ConcurrentHashMap<>();
 
+    private static final int BEGIN_INLINE_IMAGE_OPCODE;
+    private static final int BEGIN_INLINE_IMAGE_DATA_OPCODE;
+
+    static
+    {
+        int beginInlineImageOpcode = UNKNOWN_OPCODE;
+        int beginInlineImageDataOpcode = UNKNOWN_OPCODE;
+        for (int opcode = 0; opcode < KNOWN_OPERATORS.length; opcode++)
+        {
+            String name = KNOWN_OPERATORS[opcode];
+            if (OperatorName.BEGIN_INLINE_IMAGE.equals(name))
+            {
+                beginInlineImageOpcode = opcode;
+            }
+            else if (OperatorName.BEGIN_INLINE_IMAGE_DATA.equals(name))
+            {
+                beginInlineImageDataOpcode = opcode;
+            }
+            else
+            {
+                operators.put(name, new Operator(name, opcode));
+            }
+        }
+        BEGIN_INLINE_IMAGE_OPCODE = beginInlineImageOpcode;
+        BEGIN_INLINE_IMAGE_DATA_OPCODE = beginInlineImageDataOpcode;
+    }
+
     /**
      * Constructor.
      *
      * @param aOperator The operator that this object will represent.
+     * @param opcode The opcode of the operator.
      * @throws IllegalArgumentException if the operator starts with "/".
      */
-    private Operator(String aOperator)
+    private Operator(String aOperator, int opcode)
     {
         theOperator = aOperator;
         if( aOperator.startsWith( "/" ) )
         {
             throw new IllegalArgumentException( "Operators are not allowed to start with / '" + aOperator + "'" );
         }
+        this.opcode = opcode;
     }
 
     /**
@@ -60,24 +126,25 @@ public final class Operator
     public static Operator getOperator( String operator )
     {
         Operator operation;
-        if (operator.equals(OperatorName.BEGIN_INLINE_IMAGE_DATA)
-                || OperatorName.BEGIN_INLINE_IMAGE.equals(operator))
+        if (operator.equals(OperatorName.BEGIN_INLINE_IMAGE_DATA))
         {
             //we can't cache the ID operators.
-            operation = new Operator( operator );
+            operation = new Operator( operator, BEGIN_INLINE_IMAGE_DATA_OPCODE );
+        }
+        else if (OperatorName.BEGIN_INLINE_IMAGE.equals(operator))
+        {
+            operation = new Operator( operator, BEGIN_INLINE_IMAGE_OPCODE );
         }
         else
         {
             operation = operators.get( operator );
             if( operation == null )
             {
+                // the known operators are already there, all others share the unknown opcode
                 // another thread may has already added an operator of this kind
                 // make sure that we get the same operator
-                operation = operators.putIfAbsent( operator, new Operator( operator ) );
-                if ( operation == null )
-                {
-                    operation = operators.get( operator );
-                }
+                operation = operators.computeIfAbsent( operator,
+                        name -> new Operator( name, UNKNOWN_OPCODE ) );
             }
         }
 
@@ -94,6 +161,18 @@ public final class Operator
         return theOperator;
     }
 
+    /**
+     * Returns the opcode of the operator. Each operator defined in {@link OperatorName} has a fixed opcode, these are
+     * small non-negative numbers less than {@link #OPCODE_COUNT} which can be used as index for a dispatch table. All
+     * other operators have the opcode {@link #UNKNOWN_OPCODE} and have to be looked up by their name.
+     *
+     * @return the opcode of the operator
+     */
+    public int getOpcode()
+    {
+        return opcode;
+    }
+
     /**
      * This will print a string rep of this class.
      *
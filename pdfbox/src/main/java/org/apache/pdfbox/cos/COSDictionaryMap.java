@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The storage of the entries of a {@link COSDictionary}. The keys and values are kept in one packed array in the order
+ * they were added. Small dictionaries are searched linearly, larger ones get an additional open addressing hash index
+ * of the entries. Keys are compared by identity first, as names are interned, and only by their content if the cached
+ * hash codes are equal.
+ *
+ * <p>The key set, the values and the entry set are unmodifiable snapshots like the ones of
+ * {@link org.apache.pdfbox.util.SmallMap}, so that the dictionary may be changed while iterating over them.</p>
+ *
+ * <p>This class isn't thread safe. Null keys and values aren't supported.</p>
+ */
+final class COSDictionaryMap extends AbstractMap<COSName, COSBase>
+{
+    // dictionaries with more entries get a hash index
+    private static final int INDEX_THRESHOLD = 16;
+
+    private static final Object[] EMPTY = {};
+
+    /**
+     * Keys and values in the order they were added, the key of entry i is at 2 * i, its value at 2 * i + 1. Small
+     * maps are packed exactly, maps with an index may have free room at the end.
+     */
+    private Object[] table = EMPTY;
+    private int size;
+
+    /**
+     * Open addressing hash table holding the entry numbers + 1, 0 marks a free slot. Null for small maps.
+     */
+    private int[] index;
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        if (value != null)
+        {
+            for (int i = 1; i < size << 1; i += 2)
+            {
+                if (value.equals(table[i]))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public COSBase get(Object key)
+    {
+        int entry = find(key);
+        return entry >= 0 ? (COSBase) table[(entry << 1) + 1] : null;
+    }
+
+    @Override
+    public COSBase put(COSName key, COSBase value)
+    {
+        if (key == null || value == null)
+        {
+            throw new NullPointerException("Key or value must not be null.");
+        }
+        int entry = find(key);
+        if (entry >= 0)
+        {
+            COSBase former = (COSBase) table[(entry << 1) + 1];
+            table[(entry << 1) + 1] = value;
+            return former;
+        }
+        if (index == null)
+        {
+            if (size < INDEX_THRESHOLD)
+            {
+                // tiny dictionaries are packed exactly, copying their few entries is cheap
+                table = Arrays.copyOf(table, (size + 1) << 1);
+            }
+            else
+            {
+                table = Arrays.copyOf(table, size << 2);
+                rebuildIndex();
+            }
+        }
+        else if (size << 1 == table.length)
+        {
+            table = Arrays.copyOf(table, (size + (size >> 1)) << 1);
+            rebuildIndex();
+        }
+        table[size << 1] = key;
+        table[(size << 1) + 1] = value;
+        if (index != null)
+        {
+            addToIndex(key, size);
+        }
+        size++;
+        return null;
+    }
+
+    @Override
+    public COSBase remove(Object key)
+    {
+        int entry = find(key);
+        if (entry < 0)
+        {
+            return null;
+        }
+        COSBase former = (COSBase) table[(entry << 1) + 1];
+        size--;
+        if (index == null)
+        {
+            Object[] newTable = new Object[size << 1];
+            System.arraycopy(table, 0, newTable, 0, entry << 1);
+            System.arraycopy(table, (entry + 1) << 1, newTable, entry << 1, (size - entry) << 1);
+            table = newTable;
+        }
+        else
+        {
+            // entries are removed rarely from large dictionaries, the index is built again to keep it simple
+            System.arraycopy(table, (entry + 1) << 1, table, entry << 1, (size - entry) << 1);
+            table[size << 1] = null;
+            table[(size << 1) + 1] = null;
+            if (size <= INDEX_THRESHOLD)
+            {
+                table = Arrays.copyOf(table, size << 1);
+                index = null;
+            }
+            else
+            {
+                rebuildIndex();
+            }
+        }
+        return former;
+    }
+
+    @Override
+    public void putAll(Map<? extends COSName, ? extends COSBase> map)
+    {
+        map.forEach(this::put);
+    }
+
+    @Override
+    public void clear()
+    {
+        table = EMPTY;
+        index = null;
+        size = 0;
+    }
+
+    /**
+     * Calls the action for all entries in the order they were added. The dictionary may be changed by the action, such
+     * changes aren't seen by this iteration.
+     */
+    @Override
+    public void forEach(BiConsumer<? super COSName, ? super COSBase> action)
+    {
+        Object[] entries = snapshot();
+        for (int i = 0; i < entries.length; i += 2)
+        {
+            action.accept((COSName) entries[i], (COSBase) entries[i + 1]);
+        }
+    }
+
+    @Override
+    public Set<COSName> keySet()
+    {
+        if (size == 0)
+        {
+            return Collections.emptySet();
+        }
+        return new SnapshotSet<COSName>(snapshot())
+        {
+            @Override
+            COSName get(int entry)
+            {
+                return (COSName) entries[entry << 1];
+            }
+        };
+    }
+
+    @Override
+    public Collection<COSBase> values()
+    {
+        if (size == 0)
+        {
+            return Collections.emptyList();
+        }
+        COSBase[] values = new COSBase[size];
+        for (int i = 0; i < size; i++)
+        {
+            values[i] = (COSBase) table[(i << 1) + 1];
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    @Override
+    public Set<Map.Entry<COSName, COSBase>> entrySet()
+    {
+        if (size == 0)
+        {
+            return Collections.emptySet();
+        }
+        return new SnapshotSet<Map.Entry<COSName, COSBase>>(snapshot())
+        {
+            @Override
+            Map.Entry<COSName, COSBase> get(int entry)
+            {
+                return new Entry((COSName) entries[entry << 1], (COSBase) entries[(entry << 1) + 1]);
+            }
+        };
+    }
+
+    private Object[] snapshot()
+    {
+        return Arrays.copyOf(table, size << 1);
+    }
+
+    /**
+     * Returns the number of the entry for the given key or -1 if there isn't any.
+     */
+    private int find(Object key)
+    {
+        if (!(key instanceof COSName))
+        {
+            return -1;
+        }
+        int hash = key.hashCode();
+        if (index == null)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (matches(table[i << 1], key, hash))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = spread(hash) & mask; index[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int entry = index[slot] - 1;
+            if (matches(table[entry << 1], key, hash))
+            {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(Object name, Object key, int hash)
+    {
+        // names are interned, but COSName.clearResources() may create a second instance of a name
+        return name == key || (name.hashCode() == hash && name.equals(key));
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Builds the hash index with room for all entries which fit into the table, at most half of the slots are used.
+     */
+    private void rebuildIndex()
+    {
+        int capacity = 16;
+        while (capacity < table.length)
+        {
+            capacity <<= 1;
+        }
+        index = new int[capacity];
+        for (int i = 0; i < size; i++)
+        {
+            addToIndex(table[i << 1], i);
+        }
+    }
+
+    private void addToIndex(Object key, int entry)
+    {
+        int mask = index.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (index[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = entry + 1;
+    }
+
+    /**
+     * An unmodifiable set over a copy of the entries.
+     */
+    private abstract static class SnapshotSet<E> extends AbstractSet<E>
+    {
+        final Object[] entries;
+
+        SnapshotSet(Object[] entries)
+        {
+            this.entries = entries;
+        }
+
+        abstract E get(int entry);
+
+        @Override
+        public int size()
+        {
+            return entries.length >> 1;
+        }
+
+        @Override
+        public Iterator<E> iterator()
+        {
+            return new Iterator<E>()
+            {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next < size();
+                }
+
+                @Override
+                public E next()
+                {
+                    if (!hasNext())
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return get(next++);
+                }
+            };
+        }
+    }
+
+    /**
+     * An entry of the entry set, setting its value changes the map.
+     */
+    private final class Entry extends AbstractMap.SimpleEntry<COSName, COSBase>
+    {
+        private static final long serialVersionUID = 1L;
+
+        Entry(COSName key, COSBase value)
+        {
+            super(key, value);
+        }
+
+        @Override
+        public COSBase setValue(COSBase value)
+        {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
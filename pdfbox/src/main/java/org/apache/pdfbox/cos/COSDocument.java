@@ -20,10 +20,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -54,13 +54,12 @@ public class COSDocument extends COSBase implements Closeable
      * are also stored in COSDictionary objects that map a name to a specific object.
      */
     private final Map<COSObjectKey, COSObject> objectPool =
-        new HashMap<>();
+        new ConcurrentHashMap<>();
 
     /**
      * Maps object and generation id to object byte offsets.
      */
-    private final Map<COSObjectKey, Long> xrefTable =
-        new HashMap<>();
+    private final XrefOffsetMap xrefTable = new XrefOffsetMap();
 
     /**
      * List containing all streams which are created when creating a new pdf. 
@@ -92,6 +91,11 @@ public class COSDocument extends COSBase implements Closeable
 
     private final ICOSParser parser;
 
+    /**
+     * The key of the first page of a linearized pdf, if only the first page section of the xref was read.
+     */
+    private volatile COSObjectKey firstPageKey;
+
     /**
      * Constructor. Uses main memory to buffer PDF streams.
      */
@@ -192,6 +196,7 @@ public class COSDocument extends COSBase implements Closeable
      */
     public COSDictionary getLinearizedDictionary()
     {
+        completeXrefTableQuietly();
         // get all keys with a positive offset in ascending order, as the linearization dictionary shall be the first
         // within the pdf
         List<COSObjectKey> objectKeys = xrefTable.entrySet().stream() //
@@ -237,6 +242,7 @@ public class COSDocument extends COSBase implements Closeable
      */
     public List<COSObject> getObjectsByType(COSName type1, COSName type2)
     {
+        completeXrefTableQuietly();
         List<COSObject> retval = new ArrayList<>();
         for (COSObjectKey objectKey : xrefTable.keySet())
         {
@@ -478,10 +484,60 @@ public class COSDocument extends COSBase implements Closeable
         return obj;
     }
 
+    /**
+     * Releases the loaded object of the given indirect object, it is parsed again when it is used the next time. This
+     * allows to reclaim the memory of objects which aren't needed anymore, e.g. the content streams and fonts of pages
+     * which were processed already. Changes of a released object are lost, so objects which are marked as updated
+     * aren't released, as well as objects which weren't read from the pdf.
+     *
+     * @param object the indirect object of this document to be released
+     * @return true if the object was released
+     */
+    public boolean releaseObject(COSObject object)
+    {
+        return parser != null && containsObject(object) && object.release(parser);
+    }
+
+    /**
+     * Tells whether the given indirect object belongs to this document, i.e. whether it is the object of the pool with
+     * its key. Objects which aren't in the pool yet aren't created by this method.
+     *
+     * @param object the indirect object
+     * @return true if the object is in the pool of this document
+     */
+    public boolean containsObject(COSObject object)
+    {
+        return object.getKey() != null && objectPool.get(object.getKey()) == object;
+    }
+
+    /**
+     * Returns the objects of the pool which are loaded currently, objects which weren't loaded yet aren't loaded by
+     * this method.
+     *
+     * @return a list of the loaded objects
+     */
+    public List<COSObject> getLoadedObjects()
+    {
+        return objectPool.values().stream() //
+                .filter(object -> !object.isObjectNull()) //
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the scratch file holding the data of the streams of this document.
+     *
+     * @return the scratch file
+     */
+    public ScratchFile getScratchFile()
+    {
+        return scratchFile;
+    }
+
     /**
      * Populate XRef HashMap with given values.
      * Each entry maps ObjectKeys to byte offsets in the file.
      * @param xrefTableValues  xref table entries to be added
+     * @throws IllegalArgumentException if one of the keys or offsets is null
      */
     public void addXRefTable( Map<COSObjectKey, Long> xrefTableValues )
     {
@@ -490,7 +546,8 @@ public class COSDocument extends COSBase implements Closeable
 
     /**
      * Returns the xrefTable which is a mapping of ObjectKeys
-     * to byte offsets in the file.
+     * to byte offsets in the file. The table may only contain the first page section of a linearized pdf, see
+     * {@link #completeXrefTable()}. Null keys and offsets can't be put into the table, see {@link XrefOffsetMap}.
      * @return mapping of ObjectsKeys to byte offsets
      */
     public Map<COSObjectKey, Long> getXrefTable()
@@ -498,6 +555,63 @@ public class COSDocument extends COSBase implements Closeable
         return xrefTable;
     }
 
+    /**
+     * Reads the remaining cross reference information, if only the first page section of a linearized pdf was read
+     * so far. Nothing happens if the xref table is complete already.
+     * 
+     * @throws IOException if the remaining cross reference information can't be read
+     */
+    public void completeXrefTable() throws IOException
+    {
+        if (parser != null)
+        {
+            parser.completeXrefTable();
+        }
+    }
+
+    /**
+     * Returns the heap memory used by the caches of the parser of this document, e.g. for decoded object streams.
+     * 
+     * @return the memory used by the caches of the parser in bytes, 0 if the document wasn't parsed
+     */
+    public long getParserCacheMemoryUsed()
+    {
+        return parser != null ? parser.getCacheMemoryUsed() : 0;
+    }
+
+    private void completeXrefTableQuietly()
+    {
+        try
+        {
+            completeXrefTable();
+        }
+        catch (IOException exception)
+        {
+            LOG.error("Can't read the complete xref table", exception);
+        }
+    }
+
+    /**
+     * Sets the key of the first page of a linearized pdf. Not for public use, only COSParser sets the key as long as
+     * only the first page section of the xref was read.
+     * 
+     * @param key the key of the first page or null
+     */
+    public void setFirstPageKey(COSObjectKey key)
+    {
+        firstPageKey = key;
+    }
+
+    /**
+     * Returns the key of the first page of a linearized pdf, if only the first page section of the xref was read.
+     * 
+     * @return the key of the first page or null
+     */
+    public COSObjectKey getFirstPageKey()
+    {
+        return firstPageKey;
+    }
+
     /**
      * This method set the startxref value of the document. This will only 
      * be needed for incremental updates.
@@ -30,6 +30,7 @@ import java.util.Set;
 import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.DecodeResult;
 import org.apache.pdfbox.filter.Filter;
+import org.apache.pdfbox.io.IOUtils;
 
 /**
  * An InputStream which reads from an encoded COS stream.
@@ -75,18 +76,49 @@ public final class COSInputStream extends FilterInputStream
             {
                 throw new IOException("Duplicate");
             }
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            // apply filters
-            for (int i = 0; i < filters.size(); i++)
+            try
             {
-                output.reset();
-                results.add(filters.get(i).decode(input, output, parameters, i, options));
-                input = new ByteArrayInputStream(output.toByteArray());
+                // apply filters
+                for (int i = 0; i < filters.size(); i++)
+                {
+                    Filter filter = filters.get(i);
+                    InputStream decoding = filter.createDecodingStream(input, parameters, i);
+                    if (decoding != null)
+                    {
+                        // the data is decoded while it is read
+                        results.add(DecodeResult.create(parameters));
+                        input = decoding;
+                    }
+                    else
+                    {
+                        // the filter needs all data at once, e.g. to decode an image
+                        DecodedOutputStream output = new DecodedOutputStream();
+                        results.add(filter.decode(input, output, parameters, i, options));
+                        input.close();
+                        input = output.toInputStream();
+                    }
+                }
+            }
+            catch (IOException exception)
+            {
+                IOUtils.closeQuietly(input);
+                throw exception;
             }
         }
         return new COSInputStream(input, results);
     }
 
+    /**
+     * Provides the decoded data of a filter without copying it.
+     */
+    private static final class DecodedOutputStream extends ByteArrayOutputStream
+    {
+        InputStream toInputStream()
+        {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
     private final List<DecodeResult> decodeResults;
 
     /**
@@ -29,11 +29,11 @@ import org.apache.commons.logging.LogFactory;
  */
 public class COSObject extends COSBase implements COSUpdateInfo
 {
-    private COSBase baseObject;
+    private volatile COSBase baseObject;
     private long objectNumber;
     private int generationNumber;
     private boolean needToBeUpdated;
-    private ICOSParser parser;
+    private volatile ICOSParser parser;
     private boolean isDereferenced = false;
 
     private static final Log LOG = LogFactory.getLog(COSObject.class);
@@ -100,30 +100,67 @@ public class COSObject extends COSBase implements COSUpdateInfo
     }
 
     /**
-     * This will get the object that this object encapsulates.
+     * This will get the object that this object encapsulates. The object is loaded on demand, concurrent callers wait
+     * until the object is loaded by the first one.
      *
      * @return The encapsulated object.
      */
     public COSBase getObject()
     {
-        if (!isDereferenced && parser != null)
+        if (parser == null)
         {
-            try
+            // parser is assigned before the object is released, so the object read afterwards is either
+            // the loaded one or null
+            COSBase object = baseObject;
+            if (object != null)
             {
-                // mark as dereferenced to avoid endless recursions
-                isDereferenced = true;
-                baseObject = parser.dereferenceCOSObject(this);
+                return object;
             }
-            catch (IOException e)
-            {
-                LOG.error("Can't dereference " + this, e);
-            }
-            finally
+        }
+        synchronized (this)
+        {
+            ICOSParser currentParser = parser;
+            if (!isDereferenced && currentParser != null)
             {
-                parser = null;
+                try
+                {
+                    // mark as dereferenced to avoid endless recursions
+                    isDereferenced = true;
+                    baseObject = currentParser.dereferenceCOSObject(this);
+                }
+                catch (IOException e)
+                {
+                    LOG.error("Can't dereference " + this, e);
+                }
+                finally
+                {
+                    parser = null;
+                }
             }
+            return baseObject;
+        }
+    }
+
+    /**
+     * Drops the loaded object, so that it is loaded again by the given parser when it is used the next time. Objects
+     * which weren't loaded by a parser, which couldn't be loaded or which are marked as updated aren't released.
+     *
+     * @param reloadParser the parser to be used to load the object again
+     * @return true if the object was released
+     */
+    synchronized boolean release(ICOSParser reloadParser)
+    {
+        COSBase object = baseObject;
+        if (!isDereferenced || object == null || object instanceof COSNull || needToBeUpdated
+                || (object instanceof COSUpdateInfo && ((COSUpdateInfo) object).isNeedToBeUpdated()))
+        {
+            return false;
         }
-        return baseObject;
+        // assign the parser first, so that readers which don't lock either see the old object or take the lock
+        parser = reloadParser;
+        isDereferenced = false;
+        baseObject = null;
+        return true;
     }
 
     /**
@@ -48,6 +48,24 @@ public final class COSObjectKey implements Comparable<COSObjectKey>
      * @param gen The object generation number.
      */
     public COSObjectKey(long num, int gen)
+    {
+        numberAndGeneration = toNumberAndGeneration(num, gen);
+    }
+
+    private COSObjectKey(long numberAndGeneration)
+    {
+        this.numberAndGeneration = numberAndGeneration;
+    }
+
+    /**
+     * Combines the given object number and generation number to a single long value, see
+     * {@link #getNumberAndGeneration()}.
+     *
+     * @param num The object number.
+     * @param gen The object generation number.
+     * @return the combined number and generation
+     */
+    static long toNumberAndGeneration(long num, int gen)
     {
         if (num < 0)
         {
@@ -57,7 +75,29 @@ public final class COSObjectKey implements Comparable<COSObjectKey>
         {
             throw new IllegalArgumentException("Generation number must not be a negative value");
         }
-        numberAndGeneration = (long) gen << GENERATION_OFFSET | (num & NUMBER_MASK);
+        return (long) gen << GENERATION_OFFSET | (num & NUMBER_MASK);
+    }
+
+    /**
+     * Creates a key for a value returned by {@link #getNumberAndGeneration()}.
+     *
+     * @param numberAndGeneration the combined number and generation
+     * @return the key
+     */
+    static COSObjectKey fromNumberAndGeneration(long numberAndGeneration)
+    {
+        return new COSObjectKey(numberAndGeneration);
+    }
+
+    /**
+     * Returns the object number and the generation number combined in a single long value. Two keys are equal if
+     * their combined values are equal.
+     *
+     * @return the combined number and generation
+     */
+    long getNumberAndGeneration()
+    {
+        return numberAndGeneration;
     }
 
     /**
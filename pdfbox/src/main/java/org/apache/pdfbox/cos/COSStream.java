@@ -16,17 +16,13 @@
  */
 package org.apache.pdfbox.cos;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -143,7 +139,7 @@ public class COSStream extends COSDictionary implements Closeable
         {
             if (randomAccessReadView != null)
             {
-                randomAccessReadView.seek(0);
+                // the input stream has its own position, the view is shared by all of them
                 return new RandomAccessInputStream(randomAccessReadView);
             }
             else
@@ -198,31 +194,11 @@ public class COSStream extends COSDictionary implements Closeable
         }
         else
         {
-            Set<Filter> filterSet = new HashSet<>(filterList);
-            if (filterSet.size() != filterList.size())
+            // decode all filters at once, the decoded data is only copied into the buffer
+            try (InputStream input = createInputStream())
             {
-                throw new IOException("Duplicate");
+                return new RandomAccessReadBuffer(input);
             }
-            InputStream input = createRawInputStream();
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            // apply filters
-            for (int i = 0; i < filterList.size(); i++)
-            {
-                if (i > 0)
-                {
-                    input = new ByteArrayInputStream(output.toByteArray());
-                    output.reset();
-                }
-                try
-                {
-                    filterList.get(i).decode(input, output, this, i, DecodeOptions.DEFAULT);
-                }
-                finally
-                {
-                    IOUtils.closeQuietly(input);
-                }
-            }
-            return new RandomAccessReadBuffer(output.toByteArray());
         }
     }
 
@@ -43,4 +43,23 @@ public interface ICOSParser
     RandomAccessReadView createRandomAccessReadView(long startPosition, long streamLength)
             throws IOException;
 
+    /**
+     * Reads the remaining cross reference information, if only a part of it was read when opening the document.
+     * 
+     * @throws IOException if something went wrong when reading the cross reference information
+     */
+    default void completeXrefTable() throws IOException
+    {
+    }
+
+    /**
+     * Returns the heap memory used by the caches of the parser, e.g. for decoded object streams.
+     * 
+     * @return the memory used by the caches in bytes
+     */
+    default long getCacheMemoryUsed()
+    {
+        return 0;
+    }
+
 }
@@ -0,0 +1,504 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map of object keys to byte offsets (or to negated object stream numbers) as used for cross reference tables.
+ *
+ * <p>Contrary to a {@link java.util.HashMap} the keys and values are stored as primitive long values in open
+ * addressing arrays, so that there isn't any object per entry. Keys and values are only boxed if the map is used
+ * by its {@link Map} interface, the primitive methods should be used where many entries are read or written.</p>
+ *
+ * <p>This class isn't thread safe. Null keys and values aren't supported, putting them throws an
+ * {@link IllegalArgumentException}, while looking them up or removing them finds nothing.</p>
+ */
+public final class XrefOffsetMap extends AbstractMap<COSObjectKey, Long>
+{
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final byte REMOVED = 2;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private byte[] states;
+    private int size = 0;
+    private int removedCount = 0;
+    private int modCount = 0;
+    private Set<Map.Entry<COSObjectKey, Long>> entrySet;
+
+    /**
+     * Creates an empty map.
+     */
+    public XrefOffsetMap()
+    {
+        this(0);
+    }
+
+    /**
+     * Creates an empty map with room for the given number of entries.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public XrefOffsetMap(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Tells if there is an entry for the given object.
+     *
+     * @param num the object number
+     * @param gen the generation number
+     * @return true if there is an entry
+     */
+    public boolean containsKey(long num, int gen)
+    {
+        return indexOf(COSObjectKey.toNumberAndGeneration(num, gen)) >= 0;
+    }
+
+    /**
+     * Returns the offset of the given object.
+     *
+     * @param num the object number
+     * @param gen the generation number
+     * @param defaultValue value to be returned if there isn't any entry for the object
+     * @return the offset or the default value
+     */
+    public long getOffset(long num, int gen, long defaultValue)
+    {
+        int index = indexOf(COSObjectKey.toNumberAndGeneration(num, gen));
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /**
+     * Sets the offset of the given object, an existing entry is replaced.
+     *
+     * @param num the object number
+     * @param gen the generation number
+     * @param offset the offset
+     */
+    public void putOffset(long num, int gen, long offset)
+    {
+        int index = insert(COSObjectKey.toNumberAndGeneration(num, gen), offset);
+        if (index >= 0)
+        {
+            values[index] = offset;
+        }
+    }
+
+    /**
+     * Sets the offset of the given object if there isn't any entry for it.
+     *
+     * @param num the object number
+     * @param gen the generation number
+     * @param offset the offset
+     * @return true if the offset was added, false if there is an entry already
+     */
+    public boolean putOffsetIfAbsent(long num, int gen, long offset)
+    {
+        return insert(COSObjectKey.toNumberAndGeneration(num, gen), offset) < 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof COSObjectKey
+                && indexOf(((COSObjectKey) key).getNumberAndGeneration()) >= 0;
+    }
+
+    @Override
+    public Long get(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return null;
+        }
+        int index = indexOf(((COSObjectKey) key).getNumberAndGeneration());
+        return index >= 0 ? values[index] : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the key or the value is null
+     */
+    @Override
+    public Long put(COSObjectKey key, Long value)
+    {
+        if (key == null)
+        {
+            throw new IllegalArgumentException("Null keys aren't supported");
+        }
+        int index = insert(key.getNumberAndGeneration(), checkValue(value));
+        if (index < 0)
+        {
+            return null;
+        }
+        long former = values[index];
+        values[index] = value;
+        return former;
+    }
+
+    @Override
+    public Long remove(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return null;
+        }
+        int index = indexOf(((COSObjectKey) key).getNumberAndGeneration());
+        if (index < 0)
+        {
+            return null;
+        }
+        long value = values[index];
+        removeAt(index);
+        return value;
+    }
+
+    @Override
+    public void putAll(Map<? extends COSObjectKey, ? extends Long> map)
+    {
+        if (map instanceof XrefOffsetMap)
+        {
+            XrefOffsetMap other = (XrefOffsetMap) map;
+            ensureCapacity(size + other.size);
+            for (int i = 0; i < other.states.length; i++)
+            {
+                if (other.states[i] == USED)
+                {
+                    int index = insert(other.keys[i], other.values[i]);
+                    if (index >= 0)
+                    {
+                        values[index] = other.values[i];
+                    }
+                }
+            }
+        }
+        else
+        {
+            super.putAll(map);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        removedCount = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<COSObjectKey, Long>> entrySet()
+    {
+        if (entrySet == null)
+        {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private static long checkValue(Long value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Null values aren't supported");
+        }
+        return value;
+    }
+
+    private static int capacityFor(int expectedSize)
+    {
+        // keep the load factor below 0.75
+        long capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 <= expectedSize)
+        {
+            capacity <<= 1;
+        }
+        if (capacity > 1 << 30)
+        {
+            throw new IllegalStateException("Too many entries: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new long[capacity];
+        states = new byte[capacity];
+    }
+
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int indexOf(long key)
+    {
+        int mask = states.length - 1;
+        int index = hash(key) & mask;
+        while (states[index] != FREE)
+        {
+            if (states[index] == USED && keys[index] == key)
+            {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts an entry if there isn't any entry for the key.
+     *
+     * @return the index of the existing entry for the key, -1 if the entry was added
+     */
+    private int insert(long key, long value)
+    {
+        int mask = states.length - 1;
+        int index = hash(key) & mask;
+        int removedIndex = -1;
+        while (states[index] != FREE)
+        {
+            if (states[index] == USED)
+            {
+                if (keys[index] == key)
+                {
+                    return index;
+                }
+            }
+            else if (removedIndex < 0)
+            {
+                removedIndex = index;
+            }
+            index = (index + 1) & mask;
+        }
+        if (removedIndex >= 0)
+        {
+            index = removedIndex;
+            removedCount--;
+        }
+        keys[index] = key;
+        values[index] = value;
+        states[index] = USED;
+        size++;
+        modCount++;
+        if (size + removedCount > states.length * 3 / 4)
+        {
+            rehash(capacityFor(size));
+        }
+        return -1;
+    }
+
+    private void removeAt(int index)
+    {
+        states[index] = REMOVED;
+        size--;
+        removedCount++;
+        modCount++;
+    }
+
+    private void ensureCapacity(int expectedSize)
+    {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > states.length)
+        {
+            rehash(capacity);
+        }
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldStates.length; i++)
+        {
+            if (oldStates[i] == USED)
+            {
+                int index = hash(oldKeys[i]) & mask;
+                while (states[index] != FREE)
+                {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                states[index] = USED;
+            }
+        }
+        removedCount = 0;
+        modCount++;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<COSObjectKey, Long>>
+    {
+        @Override
+        public Iterator<Map.Entry<COSObjectKey, Long>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public void clear()
+        {
+            XrefOffsetMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<COSObjectKey, Long>>
+    {
+        private int expectedModCount = modCount;
+        private int nextIndex = -1;
+        private int currentIndex = -1;
+
+        EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                nextIndex++;
+            }
+            while (nextIndex < states.length && states[nextIndex] != USED);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return nextIndex < states.length;
+        }
+
+        @Override
+        public Map.Entry<COSObjectKey, Long> next()
+        {
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            currentIndex = nextIndex;
+            advance();
+            return new Entry(currentIndex);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (currentIndex < 0)
+            {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(currentIndex);
+            currentIndex = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class Entry implements Map.Entry<COSObjectKey, Long>
+    {
+        private final int index;
+        private final COSObjectKey key;
+
+        Entry(int index)
+        {
+            this.index = index;
+            this.key = COSObjectKey.fromNumberAndGeneration(keys[index]);
+        }
+
+        @Override
+        public COSObjectKey getKey()
+        {
+            return key;
+        }
+
+        @Override
+        public Long getValue()
+        {
+            return values[index];
+        }
+
+        @Override
+        public Long setValue(Long value)
+        {
+            long newValue = checkValue(value);
+            long former = values[index];
+            values[index] = newValue;
+            return former;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Map.Entry))
+            {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key.hashCode() ^ Long.hashCode(values[index]);
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + values[index];
+        }
+    }
+}
@@ -83,6 +83,7 @@ final class ASCII85InputStream extends FilterInputStream
                 if (zz == -1)
                 {
                     eof = true;
+                    n = 0;
                     return -1;
                 }
                 z = (byte) zz;
@@ -110,7 +111,9 @@ final class ASCII85InputStream extends FilterInputStream
                         int zz = (byte) in.read();
                         if (zz == -1)
                         {
+                            // an incomplete group is dropped
                             eof = true;
+                            n = 0;
                             return -1;
                         }
                         z = (byte) zz;
@@ -194,7 +197,7 @@ final class ASCII85InputStream extends FilterInputStream
                 int t = read();
                 if (t == -1)
                 {
-                    return i;
+                    return i > 0 ? i : -1;
                 }
                 data[i + offset] = (byte) t;
             }
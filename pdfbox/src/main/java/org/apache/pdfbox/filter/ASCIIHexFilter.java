@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.util.Hex;
 
 /**
@@ -67,44 +68,69 @@ final class ASCIIHexFilter extends Filter
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
     {
-        int value, firstByte, secondByte;
-        while ((firstByte = encoded.read()) != -1)
+        IOUtils.copy(createDecodingStream(encoded, parameters, index), decoded);
+        decoded.flush();
+        return new DecodeResult(parameters);
+    }
+
+    @Override
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index)
+    {
+        return new ASCIIHexInputStream(encoded);
+    }
+
+    /**
+     * Decodes the data while it is read.
+     */
+    private static final class ASCIIHexInputStream extends DecodingInputStream
+    {
+        private static final int CHUNK_SIZE = 1024;
+
+        ASCIIHexInputStream(InputStream encoded)
         {
-            // always after first char
-            while (isWhitespace(firstByte))
-            {
-                firstByte = encoded.read();
-            }
-            if (firstByte == -1 || isEOD(firstByte))
-            {
-                break;
-            }
-       
-            if (REVERSE_HEX[firstByte] == -1)
-            {
-                LOG.error("Invalid hex, int: " + firstByte + " char: " + (char)firstByte);
-            }
-            value = REVERSE_HEX[firstByte] * 16;
-            secondByte = encoded.read();
-       
-            if (secondByte == -1 || isEOD(secondByte)) 
-            {
-                // second value behaves like 0 in case of EOD
-                decoded.write(value);
-                break;
-            }
-            if (secondByte >= 0) 
+            super(encoded, CHUNK_SIZE);
+        }
+
+        @Override
+        protected boolean decode() throws IOException
+        {
+            int value, firstByte, secondByte;
+            for (int i = 0; i < CHUNK_SIZE; i++)
             {
+                firstByte = in.read();
+                // always after first char
+                while (isWhitespace(firstByte))
+                {
+                    firstByte = in.read();
+                }
+                if (firstByte == -1 || isEOD(firstByte))
+                {
+                    return false;
+                }
+
+                if (REVERSE_HEX[firstByte] == -1)
+                {
+                    LOG.error("Invalid hex, int: " + firstByte + " char: " + (char)firstByte);
+                }
+                value = REVERSE_HEX[firstByte] * 16;
+                secondByte = in.read();
+
+                if (secondByte == -1 || isEOD(secondByte))
+                {
+                    // second value behaves like 0 in case of EOD
+                    emit(value);
+                    return false;
+                }
                 if (REVERSE_HEX[secondByte] == -1)
                 {
                     LOG.error("Invalid hex, int: " + secondByte + " char: " + (char)secondByte);
                 }
                 value += REVERSE_HEX[secondByte];
+                emit(value);
             }
-            decoded.write(value);
+            return true;
         }
-        decoded.flush();
-        return new DecodeResult(parameters);
     }
 
     // whitespace
@@ -114,12 +140,12 @@ final class ASCIIHexFilter extends Filter
     //  12  0x0C  Form feed (FF)
     //  13  0x0D  Carriage return (CR)
     //  32  0x20  Space (SP)
-    private boolean isWhitespace(int c)
+    private static boolean isWhitespace(int c)
     {
         return c == 0 || c == 9 || c == 10 || c == 12 || c == 13 || c == 32;
     }
 
-    private boolean isEOD(int c)
+    private static boolean isEOD(int c)
     {
         return c == '>';
     }
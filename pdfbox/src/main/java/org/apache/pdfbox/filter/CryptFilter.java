@@ -44,6 +44,19 @@ final class CryptFilter extends Filter
         throw new IOException("Unsupported crypt filter " + encryptionName.getName());
     }
 
+    @Override
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index) throws IOException
+    {
+        COSName encryptionName = parameters.getCOSName(COSName.NAME);
+        if(encryptionName == null || encryptionName.equals(COSName.IDENTITY))
+        {
+            // currently the only supported implementation is the Identity crypt filter
+            return encoded;
+        }
+        throw new IOException("Unsupported crypt filter " + encryptionName.getName());
+    }
+
     @Override
     protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
             throws IOException
@@ -51,6 +51,17 @@ public final class DecodeResult
         return new DecodeResult(new COSDictionary());
     }
 
+    /**
+     * Return a DecodeResult with the given stream parameters, for filters which don't repair them.
+     *
+     * @param parameters the stream parameters
+     * @return the decode result
+     */
+    public static DecodeResult create(COSDictionary parameters)
+    {
+        return new DecodeResult(parameters);
+    }
+
     /**
      * Returns the stream parameters, repaired using the embedded stream data.
      * @return the repaired stream parameters, or an empty dictionary
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Base class of the streams decoding the data of a filter while it is read. Subclasses decode the next part of the
+ * encoded data as soon as all decoded data so far was read, so that only a small part of the decoded data is kept in
+ * memory.
+ */
+abstract class DecodingInputStream extends FilterInputStream
+{
+    private byte[] buffer;
+    private int position = 0;
+    private int count = 0;
+    private boolean finished = false;
+
+    /**
+     * Constructor.
+     *
+     * @param encoded the encoded stream
+     * @param bufferSize the initial size of the buffer for the decoded data
+     */
+    DecodingInputStream(InputStream encoded, int bufferSize)
+    {
+        super(encoded);
+        buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Decodes the next part of the encoded data and adds it to the buffer using {@link #emit(int)} or
+     * {@link #emit(byte[], int, int)}. It is only called if all decoded data was read.
+     *
+     * @return false if there isn't any more data to be decoded after the data added to the buffer by this call
+     * @throws IOException if the data can't be decoded
+     */
+    protected abstract boolean decode() throws IOException;
+
+    /**
+     * Adds a decoded byte to the buffer.
+     *
+     * @param b the decoded byte
+     */
+    protected final void emit(int b)
+    {
+        if (count == buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * Adds decoded bytes to the buffer.
+     *
+     * @param bytes the decoded bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     */
+    protected final void emit(byte[] bytes, int offset, int length)
+    {
+        if (count + length > buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    private boolean fill() throws IOException
+    {
+        while (position == count)
+        {
+            if (finished)
+            {
+                return false;
+            }
+            position = 0;
+            count = 0;
+            if (!decode())
+            {
+                finished = true;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!fill())
+        {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!fill())
+        {
+            return -1;
+        }
+        int length = Math.min(len, count - position);
+        System.arraycopy(buffer, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long skipped = 0;
+        while (skipped < n && fill())
+        {
+            int length = (int) Math.min(n - skipped, count - position);
+            position += length;
+            skipped += length;
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns the number of decoded bytes available, 0 only if all data was read.
+     */
+    @Override
+    public int available() throws IOException
+    {
+        return fill() ? count - position : 0;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit)
+    {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException
+    {
+        throw new IOException("mark/reset not supported");
+    }
+}
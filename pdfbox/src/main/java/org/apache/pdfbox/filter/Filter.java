@@ -87,6 +87,24 @@ public abstract class Filter
         return decode(encoded, decoded, parameters, index);
     }
 
+    /**
+     * Returns a stream decoding the data while it is read, so that the decoded data doesn't have to be kept in memory
+     * as a whole. Filters which need all the encoded data at once, e.g. image filters, return <code>null</code> and
+     * have to be used with {@link #decode(InputStream, OutputStream, COSDictionary, int, DecodeOptions)}. The
+     * {@link DecodeResult} of a decoding stream is always the original parameters dictionary.
+     *
+     * @param encoded the encoded byte stream, it is closed when closing the returned stream
+     * @param parameters the parameters used for decoding
+     * @param index the index to the filter being decoded
+     * @return the stream of the decoded data or <code>null</code> if the filter doesn't support it
+     * @throws IOException if the stream cannot be decoded
+     */
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index) throws IOException
+    {
+        return null;
+    }
+
     /**
      * Encodes data.
      * @param input the byte stream to encode
@@ -26,6 +26,7 @@ import java.util.zip.Inflater;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.io.IOUtils;
 
 /**
  * Decompresses data encoded using the zlib/deflate compression method,
@@ -43,82 +44,113 @@ final class FlateFilter extends Filter
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
     {
-        final COSDictionary decodeParams = getDecodeParams(parameters, index);
+        IOUtils.copy(createDecodingStream(encoded, parameters, index), decoded);
+        decoded.flush();
+        return new DecodeResult(parameters);
+    }
 
-        try
-        {
-            decompress(encoded, Predictor.wrapPredictor(decoded, decodeParams));
-        }
-        catch (DataFormatException e)
-        {
-            // if the stream is corrupt a DataFormatException may occur
-            LOG.error("FlateFilter: stop reading corrupt stream due to a DataFormatException");
+    @Override
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index)
+    {
+        return Predictor.wrapPredictor(new FlateInputStream(encoded),
+                getDecodeParams(parameters, index));
+    }
+
+    /**
+     * Decompresses the data while it is read.
+     * 
+     * Uses Inflater instead of InflaterInputStream to avoid an EOFException due to a probably missing Z_STREAM_END,
+     * see PDFBOX-1232 for details.
+     */
+    private static final class FlateInputStream extends DecodingInputStream
+    {
+        private final byte[] input = new byte[2048];
+        private final byte[] output = new byte[1024];
+        private Inflater inflater = null;
+        private boolean ended = false;
+        private boolean dataWritten = false;
 
-            // re-throw the exception
-            throw new IOException(e);
+        FlateInputStream(InputStream encoded)
+        {
+            super(encoded, 1024);
         }
-        return new DecodeResult(parameters);
-    }
 
-    // Use Inflater instead of InflateInputStream to avoid an EOFException due to a probably
-    // missing Z_STREAM_END, see PDFBOX-1232 for details
-    private void decompress(InputStream in, OutputStream out) throws IOException, DataFormatException 
-    { 
-        byte[] buf = new byte[2048];
-        // skip zlib header
-        in.read();
-        in.read();
-        int read = in.read(buf); 
-        if (read > 0) 
-        { 
-            // use nowrap mode to bypass zlib-header and checksum to avoid a DataFormatException
-            Inflater inflater = new Inflater(true); 
-            inflater.setInput(buf,0,read);
-            byte[] res = new byte[1024];
-            boolean dataWritten = false;
-            try
+        @Override
+        protected boolean decode() throws IOException
+        {
+            if (ended)
             {
-                while (true) 
-                { 
-                    int resRead = 0;
-                    try
-                    {
-                        resRead = inflater.inflate(res);
-                    }
-                    catch(DataFormatException exception)
+                return false;
+            }
+            if (inflater == null)
+            {
+                // skip zlib header
+                in.read();
+                in.read();
+                int read = in.read(input);
+                if (read <= 0)
+                {
+                    ended = true;
+                    return false;
+                }
+                // use nowrap mode to bypass zlib-header and checksum to avoid a DataFormatException
+                inflater = new Inflater(true);
+                inflater.setInput(input, 0, read);
+            }
+            while (true)
+            {
+                int resRead;
+                try
+                {
+                    resRead = inflater.inflate(output);
+                }
+                catch (DataFormatException exception)
+                {
+                    end();
+                    if (dataWritten)
                     {
-                        if (dataWritten)
-                        {
-                            // some data could be read -> don't throw an exception
-                            LOG.warn("FlateFilter: premature end of stream due to a DataFormatException");
-                            break;
-                        }
-                        else
-                        {
-                            // nothing could be read -> re-throw exception
-                            throw exception;
-                        }
+                        // some data could be read -> don't throw an exception
+                        LOG.warn("FlateFilter: premature end of stream due to a DataFormatException");
+                        return false;
                     }
-                    if (resRead != 0) 
-                    { 
-                        out.write(res,0,resRead);
-                        dataWritten = true;
-                        continue; 
-                    } 
-                    if (inflater.finished() || inflater.needsDictionary() || in.available() == 0) 
-                    {
-                        break;
-                    } 
-                    read = in.read(buf); 
-                    inflater.setInput(buf,0,read);
+                    // if the stream is corrupt a DataFormatException may occur
+                    LOG.error("FlateFilter: stop reading corrupt stream due to a DataFormatException");
+                    // nothing could be read -> re-throw exception
+                    throw new IOException(exception);
+                }
+                if (resRead != 0)
+                {
+                    emit(output, 0, resRead);
+                    dataWritten = true;
+                    return true;
+                }
+                int read = inflater.finished() || inflater.needsDictionary() ? -1 : in.read(input);
+                if (read < 0)
+                {
+                    end();
+                    return false;
                 }
+                inflater.setInput(input, 0, read);
             }
-            finally
+        }
+
+        private void end()
+        {
+            ended = true;
+            if (inflater != null)
             {
                 inflater.end();
+                inflater = null;
             }
         }
-        out.flush();
+
+        @Override
+        public void close() throws IOException
+        {
+            end();
+            super.close();
+        }
     }
     
     @Override
@@ -40,6 +40,13 @@ final class IdentityFilter extends Filter
         return new DecodeResult(parameters);
     }
 
+    @Override
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index)
+    {
+        return encoded;
+    }
+
     @Override
     protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
         throws IOException
@@ -23,13 +23,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
 
 /**
  *
@@ -64,6 +64,18 @@ public class LZWFilter extends Filter
     @Override
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
             COSDictionary parameters, int index) throws IOException
+    {
+        IOUtils.copy(createDecodingStream(encoded, parameters, index), decoded);
+        decoded.flush();
+        return new DecodeResult(parameters);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index)
     {
         COSDictionary decodeParams = getDecodeParams(parameters, index);
         int earlyChange = decodeParams.getInt(COSName.EARLY_CHANGE, 1);
@@ -73,79 +85,113 @@ public class LZWFilter extends Filter
             earlyChange = 1;
         }
 
-        doLZWDecode(encoded, Predictor.wrapPredictor(decoded, decodeParams), earlyChange);
-        return new DecodeResult(parameters);
+        return Predictor.wrapPredictor(new LZWInputStream(encoded, earlyChange), decodeParams);
     }
 
-    private void doLZWDecode(InputStream encoded, OutputStream decoded, int earlyChange) throws IOException
+    /**
+     * Decodes the data while it is read, one code at a time.
+     */
+    private static final class LZWInputStream extends DecodingInputStream
     {
-        List<byte[]> codeTable = new ArrayList<>();
-        int chunk = 9;
-        final MemoryCacheImageInputStream in = new MemoryCacheImageInputStream(encoded);
-        long nextCommand;
-        long prevCommand = -1;
+        private final int earlyChange;
+        private List<byte[]> codeTable = new ArrayList<>();
+        private int chunk = 9;
+        private long prevCommand = -1;
+        // bits read but not used yet
+        private long bits = 0;
+        private int bitCount = 0;
+        private long position = 0;
+
+        LZWInputStream(InputStream encoded, int earlyChange)
+        {
+            super(encoded, 4096);
+            this.earlyChange = earlyChange;
+        }
 
-        try
+        @Override
+        protected boolean decode() throws IOException
         {
-            while ((nextCommand = in.readBits(chunk)) != EOD)
+            long nextCommand;
+            try
             {
-                if (nextCommand == CLEAR_TABLE)
+                nextCommand = readBits(chunk);
+                while (nextCommand == CLEAR_TABLE)
                 {
                     chunk = 9;
                     codeTable = createCodeTable();
                     prevCommand = -1;
+                    nextCommand = readBits(chunk);
                 }
-                else
+            }
+            catch (EOFException ex)
+            {
+                LOG.warn("Premature EOF in LZW stream, EOD code missing", ex);
+                return false;
+            }
+            if (nextCommand == EOD)
+            {
+                return false;
+            }
+            if (nextCommand < codeTable.size())
+            {
+                byte[] data = codeTable.get((int) nextCommand);
+                byte firstByte = data[0];
+                emit(data, 0, data.length);
+                if (prevCommand != -1)
                 {
-                    if (nextCommand < codeTable.size())
-                    {
-                        byte[] data = codeTable.get((int) nextCommand);
-                        byte firstByte = data[0];
-                        decoded.write(data);
-                        if (prevCommand != -1)
-                        {
-                            checkIndexBounds(codeTable, prevCommand, in);
-                            data = codeTable.get((int) prevCommand);
-                            byte[] newData = Arrays.copyOf(data, data.length + 1);
-                            newData[data.length] = firstByte;
-                            codeTable.add(newData);
-                        }
-                    }
-                    else
-                    {
-                        checkIndexBounds(codeTable, prevCommand, in);
-                        byte[] data = codeTable.get((int) prevCommand);
-                        byte[] newData = Arrays.copyOf(data, data.length + 1);
-                        newData[data.length] = data[0];
-                        decoded.write(newData);
-                        codeTable.add(newData);
-                    }
-                    
-                    chunk = calculateChunk(codeTable.size(), earlyChange);
-                    prevCommand = nextCommand;
+                    checkIndexBounds(prevCommand);
+                    data = codeTable.get((int) prevCommand);
+                    byte[] newData = Arrays.copyOf(data, data.length + 1);
+                    newData[data.length] = firstByte;
+                    codeTable.add(newData);
                 }
             }
+            else
+            {
+                checkIndexBounds(prevCommand);
+                byte[] data = codeTable.get((int) prevCommand);
+                byte[] newData = Arrays.copyOf(data, data.length + 1);
+                newData[data.length] = data[0];
+                emit(newData, 0, newData.length);
+                codeTable.add(newData);
+            }
+            chunk = calculateChunk(codeTable.size(), earlyChange);
+            prevCommand = nextCommand;
+            return true;
         }
-        catch (EOFException ex)
-        {
-            LOG.warn("Premature EOF in LZW stream, EOD code missing", ex);
-        }
-        decoded.flush();
-    }
 
-    private void checkIndexBounds(List<byte[]> codeTable, long index, MemoryCacheImageInputStream in)
-            throws IOException
-    {
-        if (index < 0)
+        private long readBits(int count) throws IOException
         {
-            throw new IOException("negative array index: " + index + " near offset "
-                    + in.getStreamPosition());
+            while (bitCount < count)
+            {
+                int b = in.read();
+                if (b == -1)
+                {
+                    throw new EOFException();
+                }
+                position++;
+                bits = (bits << 8) | b;
+                bitCount += 8;
+            }
+            bitCount -= count;
+            return (bits >>> bitCount) & ((1L << count) - 1);
         }
-        if (index >= codeTable.size())
+
+        private void checkIndexBounds(long index) throws IOException
         {
-            throw new IOException("array index overflow: " + index +
-                    " >= " + codeTable.size() + " near offset "
-                    + in.getStreamPosition());
+            // the byte containing the remaining bits isn't consumed completely
+            long position = bitCount > 0 ? this.position - 1 : this.position;
+            if (index < 0)
+            {
+                throw new IOException("negative array index: " + index + " near offset "
+                        + position);
+            }
+            if (index >= codeTable.size())
+            {
+                throw new IOException("array index overflow: " + index +
+                        " >= " + codeTable.size() + " near offset "
+                        + position);
+            }
         }
     }
 
@@ -267,7 +313,7 @@ public class LZWFilter extends Filter
      * Init the code table with 1 byte entries and the EOD and CLEAR_TABLE
      * markers.
      */
-    private List<byte[]> createCodeTable()
+    private static List<byte[]> createCodeTable()
     {
         List<byte[]> codeTable = new ArrayList<>(4096);
         for (int i = 0; i < 256; ++i)
@@ -287,7 +333,7 @@ public class LZWFilter extends Filter
      *
      * @return a value between 9 and 12
      */
-    private int calculateChunk(int tabSize, int earlyChange)
+    private static int calculateChunk(int tabSize, int earlyChange)
     {
         if (tabSize >= 2048 - earlyChange)
         {
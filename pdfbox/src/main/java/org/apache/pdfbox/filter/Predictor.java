@@ -15,9 +15,8 @@
  */
 package org.apache.pdfbox.filter;
 
-import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import org.apache.pdfbox.cos.COSDictionary;
@@ -224,15 +223,15 @@ public final class Predictor
     }
 
     /**
-     * Wraps and <code>OutputStream</code> in a predictor decoding stream as necessary.
+     * Wraps an <code>InputStream</code> in a predictor decoding stream as necessary.
      * If no predictor is specified by the parameters, the original stream is returned as is.
      *
-     * @param out The stream to which decoded data should be written
+     * @param in The stream providing the data to be decoded
      * @param decodeParams Decode parameters for the stream
-     * @return An <code>OutputStream</code> is returned, which will write decoded data
-     * into the given stream. If no predictor is specified, the original stream is returned.
+     * @return An <code>InputStream</code> is returned, which will read the decoded data
+     * from the given stream. If no predictor is specified, the original stream is returned.
      */
-    static OutputStream wrapPredictor(OutputStream out, COSDictionary decodeParams)
+    static InputStream wrapPredictor(InputStream in, COSDictionary decodeParams)
     {
         int predictor = decodeParams.getInt(COSName.PREDICTOR);
         if (predictor > 1)
@@ -241,20 +240,19 @@ public final class Predictor
             int bitsPerPixel = decodeParams.getInt(COSName.BITS_PER_COMPONENT, 8);
             int columns = decodeParams.getInt(COSName.COLUMNS, 1);
 
-            return new PredictorOutputStream(out, predictor, colors, bitsPerPixel, columns);
+            return new PredictorInputStream(in, predictor, colors, bitsPerPixel, columns);
         }
         else
         {
-            return out;
+            return in;
         }
     }
 
     /**
-     * Output stream that implements predictor decoding. Data is buffered until a complete
-     * row is available, which is then decoded and written to the underlying stream.
-     * The previous row is retained for decoding the next row.
+     * Input stream that implements predictor decoding. The data is read and decoded row by row,
+     * the previous row is retained for decoding the next row.
      */
-    private static final class PredictorOutputStream extends FilterOutputStream
+    private static final class PredictorInputStream extends DecodingInputStream
     {
         // current predictor type
         private int predictor;
@@ -270,14 +268,10 @@ public final class Predictor
         // data buffers
         private byte[] currentRow;
         private byte[] lastRow;
-        // amount of data in the current row
-        private int currentRowData = 0;
-        // was the per-row predictor value read for the current row being processed
-        private boolean predictorRead = false;
 
-        PredictorOutputStream(OutputStream out, int predictor, int colors, int bitsPerComponent, int columns)
+        PredictorInputStream(InputStream in, int predictor, int colors, int bitsPerComponent, int columns)
         {
-            super(out);
+            super(in, calculateRowLength(colors, bitsPerComponent, columns));
             this.predictor = predictor;
             this.colors = colors;
             this.bitsPerComponent = bitsPerComponent;
@@ -289,79 +283,42 @@ public final class Predictor
         }
 
         @Override
-        public void write(byte[] bytes) throws IOException
+        protected boolean decode() throws IOException
         {
-            write(bytes, 0, bytes.length);
-        }
-
-        @Override
-        public void write(byte[] bytes, int off, int len) throws IOException
-        {
-            int currentOffset = off;
-            int maxOffset = currentOffset + len;
-            while (currentOffset < maxOffset)
+            if (predictorPerRow)
             {
-                if (predictorPerRow && currentRowData == 0 && !predictorRead)
+                // PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
+                // read per line predictor, add 10 to tread value 0 as 10, 1 as 11, ...
+                int rowPredictor = in.read();
+                if (rowPredictor == -1)
                 {
-                    // PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
-                    // read per line predictor, add 10 to tread value 0 as 10, 1 as 11, ...
-                    predictor = bytes[currentOffset] + 10;
-                    currentOffset++;
-                    predictorRead = true;
+                    return false;
                 }
-                else
+                predictor = (byte) rowPredictor + 10;
+            }
+            int currentRowData = 0;
+            while (currentRowData < rowLength)
+            {
+                int read = in.read(currentRow, currentRowData, rowLength - currentRowData);
+                if (read == -1)
                 {
-                    int toRead = Math.min(rowLength - currentRowData, maxOffset - currentOffset);
-                    System.arraycopy(bytes, currentOffset, currentRow, currentRowData, toRead);
-                    currentRowData += toRead;
-                    currentOffset += toRead;
-
-                    // current row is filled, decode it, write it to underlying stream,
-                    // and reset the state.
-                    if (currentRowData == currentRow.length)
-                    {
-                        decodeAndWriteRow();
-                    }
+                    break;
                 }
+                currentRowData += read;
             }
-        }
-
-        private void decodeAndWriteRow() throws IOException
-        {
+            if (currentRowData == 0)
+            {
+                return false;
+            }
+            // The last row is allowed to be incomplete, and should be completed with zeros.
+            Arrays.fill(currentRow, currentRowData, rowLength, (byte) 0);
             decodePredictorRow(predictor, colors, bitsPerComponent, columns, currentRow, lastRow);
-            out.write(currentRow);
-            flipRows();
-        }
-
-        /**
-         * Flips the row buffers (to avoid copying), and resets the current-row index
-         * and predictorRead flag
-         */
-        private void flipRows()
-        {
+            emit(currentRow, 0, rowLength);
+            // flip the row buffers to avoid copying
             byte[] temp = lastRow;
             lastRow = currentRow;
             currentRow = temp;
-            currentRowData = 0;
-            predictorRead = false;
-        }
-
-        @Override
-        public void flush() throws IOException
-        {
-            // The last row is allowed to be incomplete, and should be completed with zeros.
-            if (currentRowData > 0)
-            {
-                Arrays.fill(currentRow, currentRowData, rowLength, (byte)0);
-                decodeAndWriteRow();
-            }
-            super.flush();
-        }
-
-        @Override
-        public void write(int i) throws IOException
-        {
-            throw new UnsupportedOperationException("Not supported");
+            return currentRowData == rowLength;
         }
     }
 }
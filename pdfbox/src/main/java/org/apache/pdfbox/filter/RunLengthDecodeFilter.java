@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.io.IOUtils;
 
 /**
  * Decompresses data encoded using a byte-oriented run-length encoding algorithm,
@@ -37,41 +38,68 @@ final class RunLengthDecodeFilter extends Filter
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
     {
-        int dupAmount;
-        byte[] buffer = new byte[128];
-        while ((dupAmount = encoded.read()) != -1 && dupAmount != RUN_LENGTH_EOD)
+        IOUtils.copy(createDecodingStream(encoded, parameters, index), decoded);
+        return new DecodeResult(parameters);
+    }
+
+    @Override
+    public InputStream createDecodingStream(InputStream encoded, COSDictionary parameters,
+            int index)
+    {
+        return new RunLengthInputStream(encoded);
+    }
+
+    /**
+     * Decodes the data while it is read, one run at a time.
+     */
+    private static final class RunLengthInputStream extends DecodingInputStream
+    {
+        private final byte[] buffer = new byte[128];
+
+        RunLengthInputStream(InputStream encoded)
+        {
+            super(encoded, 128);
+        }
+
+        @Override
+        protected boolean decode() throws IOException
         {
+            int dupAmount = in.read();
+            if (dupAmount == -1 || dupAmount == RUN_LENGTH_EOD)
+            {
+                return false;
+            }
             if (dupAmount <= 127)
             {
                 int amountToCopy = dupAmount + 1;
                 int compressedRead;
                 while (amountToCopy > 0)
                 {
-                    compressedRead = encoded.read(buffer, 0, amountToCopy);
+                    compressedRead = in.read(buffer, 0, amountToCopy);
                     // EOF reached?
                     if (compressedRead == -1)
                     {
-                        break;
+                        return false;
                     }
-                    decoded.write(buffer, 0, compressedRead);
+                    emit(buffer, 0, compressedRead);
                     amountToCopy -= compressedRead;
                 }
             }
             else
             {
-                int dupByte = encoded.read();
+                int dupByte = in.read();
                 // EOF reached?
                 if (dupByte == -1)
                 {
-                    break;
+                    return false;
                 }
                 for (int i = 0; i < 257 - dupAmount; i++)
                 {
-                    decoded.write(dupByte);
+                    emit(dupByte);
                 }
             }
+            return true;
         }
-        return new DecodeResult(parameters);
     }
 
     @Override
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A bounded pool of direct (off-heap) byte buffers used by {@link ScratchFile} to hold its in-memory pages.
+ *
+ * <p>Pages are allocated lazily in slabs of several pages and are never given back to the operating system,
+ * instead pages released by one {@link ScratchFile} are recycled by the next one. If all pages of the pool are
+ * in use, the scratch file falls back to its temporary file (or to heap memory if no temporary file may be
+ * used).</p>
+ *
+ * <p>A pool is enabled for a scratch file using {@link MemoryUsageSetting#setDirectPagePool(DirectPagePool)}.
+ * The size of the pool shared by the whole JVM ({@link #getSharedInstance()}) can be set in bytes by the system
+ * property <code>pdfbox.scratchfile.directpoolsize</code>, the default is 64 MB.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+public final class DirectPagePool
+{
+    private static final Log LOG = LogFactory.getLog(DirectPagePool.class);
+
+    private static final String DEFAULT_SHARED_POOL_SIZE = "67108864";
+
+    /** number of pages allocated at once to reduce the overhead of direct allocations */
+    private static final int SLAB_PAGE_COUNT = 16;
+
+    private static final DirectPagePool SHARED_INSTANCE;
+
+    static
+    {
+        String s = System.getProperty("pdfbox.scratchfile.directpoolsize", DEFAULT_SHARED_POOL_SIZE);
+        long val;
+        try
+        {
+            val = Long.parseLong(s);
+        }
+        catch (NumberFormatException ex)
+        {
+            LOG.error("Default will be used", ex);
+            val = Long.parseLong(DEFAULT_SHARED_POOL_SIZE);
+        }
+        SHARED_INSTANCE = new DirectPagePool(val);
+    }
+
+    private final int pageSize;
+    private final int maxPageCount;
+    /** released pages ready to be reused; only to be accessed under synchronization of this */
+    private final ArrayDeque<ByteBuffer> freePages = new ArrayDeque<>();
+    private int allocatedPageCount = 0;
+    private int usedPageCount = 0;
+    private int peakUsedPageCount = 0;
+    private long exhaustedCount = 0;
+
+    /**
+     * Creates a pool holding up to the given number of bytes in pages of the size used by {@link ScratchFile}.
+     *
+     * @param maxBytes maximum number of direct memory bytes the pool may allocate
+     */
+    public DirectPagePool(long maxBytes)
+    {
+        this(maxBytes, ScratchFile.PAGE_SIZE);
+    }
+
+    /**
+     * Creates a pool holding up to the given number of bytes in pages of the given size.
+     *
+     * @param maxBytes maximum number of direct memory bytes the pool may allocate
+     * @param pageSize size of a single page in bytes
+     */
+    DirectPagePool(long maxBytes, int pageSize)
+    {
+        if (pageSize <= 0)
+        {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.maxPageCount = (int) Math.min(Integer.MAX_VALUE, Math.max(0, maxBytes / pageSize));
+    }
+
+    /**
+     * Returns the pool shared by all scratch files of this JVM.
+     *
+     * @return the shared pool
+     */
+    public static DirectPagePool getSharedInstance()
+    {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Takes a page out of the pool, allocating new pages if needed and allowed.
+     *
+     * @return a cleared page of {@link #getPageSize()} bytes or <code>null</code> if the pool is exhausted
+     */
+    synchronized ByteBuffer acquire()
+    {
+        ByteBuffer page = freePages.poll();
+        if (page == null)
+        {
+            if (allocatedPageCount >= maxPageCount)
+            {
+                exhaustedCount++;
+                return null;
+            }
+            allocateSlab();
+            page = freePages.poll();
+        }
+        usedPageCount++;
+        peakUsedPageCount = Math.max(peakUsedPageCount, usedPageCount);
+        page.clear();
+        return page;
+    }
+
+    /**
+     * Returns a page to the pool, it must not be used by the caller any more.
+     *
+     * @param page a page obtained by {@link #acquire()}
+     */
+    synchronized void release(ByteBuffer page)
+    {
+        freePages.push(page);
+        usedPageCount--;
+    }
+
+    private void allocateSlab()
+    {
+        int count = Math.min(SLAB_PAGE_COUNT, maxPageCount - allocatedPageCount);
+        ByteBuffer slab = ByteBuffer.allocateDirect(count * pageSize);
+        for (int i = 0; i < count; i++)
+        {
+            slab.limit((i + 1) * pageSize);
+            slab.position(i * pageSize);
+            freePages.add(slab.slice());
+        }
+        allocatedPageCount += count;
+    }
+
+    /**
+     * Returns byte size of a page.
+     *
+     * @return byte size of a page
+     */
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * Returns the maximum number of pages the pool may hold.
+     *
+     * @return the maximum number of pages
+     */
+    public int getMaxPageCount()
+    {
+        return maxPageCount;
+    }
+
+    /**
+     * Returns the number of pages allocated so far, both used and free ones.
+     *
+     * @return the number of allocated pages
+     */
+    public synchronized int getAllocatedPageCount()
+    {
+        return allocatedPageCount;
+    }
+
+    /**
+     * Returns the number of pages currently used by scratch files.
+     *
+     * @return the number of used pages
+     */
+    public synchronized int getUsedPageCount()
+    {
+        return usedPageCount;
+    }
+
+    /**
+     * Returns the highest number of pages used at the same time.
+     *
+     * @return the peak number of used pages
+     */
+    public synchronized int getPeakUsedPageCount()
+    {
+        return peakUsedPageCount;
+    }
+
+    /**
+     * Returns how often a page was requested while all pages were in use, i.e. how often a scratch file had to
+     * fall back to its temporary file or to heap memory.
+     *
+     * @return the number of failed page requests
+     */
+    public synchronized long getExhaustedCount()
+    {
+        return exhaustedCount;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "DirectPagePool{used=" + usedPageCount + ", allocated=" + allocatedPageCount + ", max="
+                + maxPageCount + ", peak=" + peakUsedPageCount + ", exhausted=" + exhaustedCount + "}";
+    }
+}
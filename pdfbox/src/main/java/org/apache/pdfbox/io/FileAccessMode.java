@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Defines how a file is accessed when loading a pdf.
+ */
+public enum FileAccessMode
+{
+    /**
+     * Read the file in cached pages, see {@link RandomAccessReadBufferedFile}. This is the default.
+     */
+    BUFFERED,
+
+    /**
+     * Read the file using positional reads, see {@link RandomAccessReadPositionalFile}. Stream data can be read by
+     * several threads at once.
+     */
+    POSITIONAL,
+
+    /**
+     * Map the file to memory, see {@link RandomAccessReadMemoryMappedFile}. Files bigger than 2 GB are mapped in
+     * several segments.
+     */
+    MEMORY_MAPPED;
+
+    /**
+     * Opens the given file using this access mode.
+     *
+     * @param file the file to be read
+     * @return the random access read for the given file
+     * @throws IOException if the file can't be opened
+     */
+    public RandomAccessRead open(File file) throws IOException
+    {
+        switch (this)
+        {
+            case POSITIONAL:
+                return new RandomAccessReadPositionalFile(file);
+            case MEMORY_MAPPED:
+                return new RandomAccessReadMemoryMappedFile(file);
+            case BUFFERED:
+            default:
+                return new RandomAccessReadBufferedFile(file);
+        }
+    }
+}
@@ -24,6 +24,9 @@ import java.io.File;
  */
 public final class MemoryUsageSetting
 {
+    /** default maximum size of the decoded object streams cached by the parser of a document */
+    public static final long DEFAULT_OBJECT_STREAM_CACHE_BYTES = 1024 * 1024;
+
     private final boolean useMainMemory;
     private final boolean useTempFile;
     
@@ -37,6 +40,15 @@ public final class MemoryUsageSetting
     
     /** directory to be used for scratch file */
     private File tempDir;
+
+    /** pool of direct buffers for in-memory pages; <code>null</code> to use heap memory */
+    private DirectPagePool directPagePool;
+
+    /** governor of the main memory shared with other scratch files; <code>null</code> if not shared */
+    private ScratchMemoryGovernor memoryGovernor;
+
+    /** maximum size of the decoded object streams cached by the parser; <code>0</code> disables the cache */
+    private long objectStreamCacheBytes = DEFAULT_OBJECT_STREAM_CACHE_BYTES;
     
     /**
      * Private constructor for setup buffering memory usage called by one of the setup methods.
@@ -183,6 +195,9 @@ public final class MemoryUsageSetting
         MemoryUsageSetting copy = new MemoryUsageSetting( useMainMemory, useTempFile,
                                                           newMaxMainMemoryBytes, newMaxStorageBytes );
         copy.tempDir = tempDir;
+        copy.directPagePool = directPagePool;
+        copy.memoryGovernor = memoryGovernor;
+        copy.objectStreamCacheBytes = objectStreamCacheBytes;
         
         return copy;
     }
@@ -200,6 +215,86 @@ public final class MemoryUsageSetting
         return this;
     }
     
+    /**
+     * Sets the pool of direct buffers to hold in-memory pages instead of heap memory.
+     * If the pool is exhausted pages are stored in the temporary file if its use is enabled,
+     * otherwise in heap memory. The limits for main-memory apply to the pooled pages as well.
+     * 
+     * @param directPagePool pool to be used, e.g. {@link DirectPagePool#getSharedInstance()};
+     *                       <code>null</code> to use heap memory only
+     * 
+     * @return this instance
+     */
+    public MemoryUsageSetting setDirectPagePool(DirectPagePool directPagePool)
+    {
+        this.directPagePool = directPagePool;
+        return this;
+    }
+    
+    /**
+     * Returns the pool of direct buffers to be used for in-memory pages or <code>null</code>
+     * if heap memory is to be used.
+     */
+    public DirectPagePool getDirectPagePool()
+    {
+        return directPagePool;
+    }
+    
+    /**
+     * Sets a governor limiting the main memory used together with other scratch files. In-memory
+     * pages are spilled to the temporary file if the memory of the governor is exhausted, thus it
+     * is only used if temporary files are enabled, e.g. by {@link #setupMixed(long)}. The limit for
+     * main-memory of this setting still applies, <code>-1</code> leaves it to the governor alone.
+     * 
+     * @param memoryGovernor governor to be used; <code>null</code> to not share the main memory
+     * 
+     * @return this instance
+     */
+    public MemoryUsageSetting setMemoryGovernor(ScratchMemoryGovernor memoryGovernor)
+    {
+        this.memoryGovernor = memoryGovernor;
+        return this;
+    }
+    
+    /**
+     * Returns the governor limiting the main memory used together with other scratch files or
+     * <code>null</code> if the main memory isn't shared.
+     */
+    public ScratchMemoryGovernor getMemoryGovernor()
+    {
+        return memoryGovernor;
+    }
+    
+    /**
+     * Sets the maximum size of the decoded object streams cached by the parser of a document, so that the objects
+     * of an object stream can be parsed without decoding it again. The cache is held as long as the document is
+     * open, the default is {@link #DEFAULT_OBJECT_STREAM_CACHE_BYTES}.
+     * 
+     * @param objectStreamCacheBytes maximum number of bytes of the cached object streams;
+     *                               <code>0</code> disables the cache
+     * 
+     * @return this instance
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public MemoryUsageSetting setObjectStreamCacheBytes(long objectStreamCacheBytes)
+    {
+        if (objectStreamCacheBytes < 0)
+        {
+            throw new IllegalArgumentException("The cache size must not be negative: " + objectStreamCacheBytes);
+        }
+        this.objectStreamCacheBytes = objectStreamCacheBytes;
+        return this;
+    }
+    
+    /**
+     * Returns the maximum size of the decoded object streams cached by the parser of a document,
+     * <code>0</code> if the cache is disabled.
+     */
+    public long getObjectStreamCacheBytes()
+    {
+        return objectStreamCacheBytes;
+    }
+    
     /**
      * Returns <code>true</code> if main-memory is to be used.
      * 
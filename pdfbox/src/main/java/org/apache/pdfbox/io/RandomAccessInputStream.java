@@ -24,6 +24,10 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * An InputStream which reads from a RandomAccessRead.
+ *
+ * <p>Each stream has its own position, several streams may read from the same RandomAccessRead concurrently. The
+ * position of the RandomAccessRead is restored and read while holding its monitor, other code which uses the
+ * RandomAccessRead at the same time has to synchronize on it as well.</p>
  * 
  * @author Ben Litchfield
  * @author John Hewson
@@ -61,47 +65,53 @@ public class RandomAccessInputStream extends InputStream
     @Override
     public int read() throws IOException
     {
-        restorePosition();
-        if (input.isEOF())
-        {
-            return -1;
-        }
-        int b = input.read();
-        if (b != -1)
+        synchronized (input)
         {
-            position += 1;
+            restorePosition();
+            if (input.isEOF())
+            {
+                return -1;
+            }
+            int b = input.read();
+            if (b != -1)
+            {
+                position += 1;
+            }
+            else
+            {
+                // should never happen due to prior isEOF() check
+                // unless there is an unsynchronized concurrent access
+                LOG.error("read() returns -1, assumed position: " +
+                           position + ", actual position: " + input.getPosition());
+            }
+            return b;
         }
-        else
-        {
-            // should never happen due to prior isEOF() check
-            // unless there is an unsynchronized concurrent access
-            LOG.error("read() returns -1, assumed position: " +
-                       position + ", actual position: " + input.getPosition());
-        }
-        return b;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException
     {
-        restorePosition();
-        if (input.isEOF())
-        {
-            return -1;
-        }
-        int n = input.read(b, off, len);
-        if (n != -1)
-        {
-            position += n;
-        }
-        else
+        synchronized (input)
         {
-            // should never happen due to prior isEOF() check
-            // unless there is an unsynchronized concurrent access
-            LOG.error("read() returns -1, assumed position: " +
-                       position + ", actual position: " + input.getPosition());
+            restorePosition();
+            if (input.isEOF())
+            {
+                return -1;
+            }
+            int n = input.read(b, off, len);
+            if (n != -1)
+            {
+                position += n;
+            }
+            else
+            {
+                // should never happen due to prior isEOF() check
+                // unless there is an unsynchronized concurrent access
+                LOG.error("read() returns -1, assumed position: " +
+                           position + ", actual position: " + input.getPosition());
+            }
+            return n;
         }
-        return n;
     }
 
     @Override
@@ -111,8 +121,11 @@ public class RandomAccessInputStream extends InputStream
         {
             return 0;
         }
-        restorePosition();
-        input.seek(position + n);
+        synchronized (input)
+        {
+            restorePosition();
+            input.seek(position + n);
+        }
         position += n;
         return n;
     }
@@ -22,27 +22,43 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
 import java.util.EnumSet;
-import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * An implementation of the RandomAccess interface backed by a memory mapped file channel. The whole file is mapped to
- * memory and the max size is limited to Integer.MAX_VALUE.
+ * An implementation of the RandomAccess interface backed by a memory mapped file channel. The file is mapped to memory
+ * in segments of up to 1 GB, so that files bigger than Integer.MAX_VALUE are supported. Reads crossing the border of
+ * two segments are handled transparently.
+ *
+ * Views created by {@link #createView(long, long)} share the mapped segments without copying any data. All segments
+ * are unmapped when the instance is closed, views can't be used after that.
  */
 public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
 {
+    // default size of a single segment, has to be a power of 2
+    private static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    // mapped segments, every instance uses its own duplicates
+    private final ByteBuffer[] segments;
+
+    private final int segmentShift;
+
+    private final long segmentMask;
 
-    // mapped byte buffer
-    private ByteBuffer mappedByteBuffer;
+    // start offset within the file, greater than 0 for views only
+    private final long startOffset;
 
-    // size of the whole file
+    // size of the whole file or view
     private final long size;
 
-    // file channel of the file to be read
-    private FileChannel fileChannel;
+    private long position = 0;
 
-    // function to unmap the byte buffer
-    private Consumer<? super ByteBuffer> unmapper = IOUtils::unmap;
+    // file channel of the file to be read, null for views
+    private final FileChannel fileChannel;
+
+    // closed state shared by the mapping instance and all its views
+    private final AtomicBoolean unmapped;
+
+    private boolean isClosed = false;
 
     /**
      * Default constructor.
@@ -57,26 +73,58 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
      */
     public RandomAccessReadMemoryMappedFile(File file) throws IOException
     {
+        this(file, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Constructor using the given segment size. Used for testing segments without huge files.
+     *
+     * @param file the file to be read
+     * @param segmentShift the size of a segment as power of 2
+     */
+    RandomAccessReadMemoryMappedFile(File file, int segmentShift) throws IOException
+    {
+        this.segmentShift = segmentShift;
+        segmentMask = (1L << segmentShift) - 1;
         fileChannel = FileChannel.open(file.toPath(), EnumSet.of(StandardOpenOption.READ));
         size = fileChannel.size();
-        // TODO only ints are allowed -> implement paging
-        if (size > Integer.MAX_VALUE)
+        startOffset = 0;
+        unmapped = new AtomicBoolean(false);
+        int numberOfSegments = (int) ((size + segmentMask) >>> segmentShift);
+        segments = new ByteBuffer[numberOfSegments];
+        try
         {
-            throw new IOException(getClass().getName()
-                    + " doesn't yet support files bigger than "
-                    + Integer.MAX_VALUE);
+            for (int i = 0; i < numberOfSegments; i++)
+            {
+                long segmentStart = (long) i << segmentShift;
+                segments[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+                        Math.min(size - segmentStart, 1L << segmentShift));
+            }
+        }
+        catch (IOException exception)
+        {
+            unmapSegments();
+            fileChannel.close();
+            throw exception;
         }
-        // map the whole file to memory
-        mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
     }
 
-    private RandomAccessReadMemoryMappedFile(RandomAccessReadMemoryMappedFile parent)
+    private RandomAccessReadMemoryMappedFile(RandomAccessReadMemoryMappedFile parent,
+            long startPosition, long streamLength)
     {
-        mappedByteBuffer = parent.mappedByteBuffer.duplicate();
-        size = parent.size;
-        mappedByteBuffer.rewind();
-        // unmap doesn't work on duplicate, see Unsafe#invokeCleaner
-        unmapper = null;
+        segmentShift = parent.segmentShift;
+        segmentMask = parent.segmentMask;
+        startOffset = parent.startOffset + Math.min(startPosition, parent.size);
+        // the view can't exceed the data of its parent
+        size = Math.min(streamLength, parent.size - (startOffset - parent.startOffset));
+        segments = new ByteBuffer[parent.segments.length];
+        for (int i = 0; i < segments.length; i++)
+        {
+            // unmap doesn't work on duplicate, see Unsafe#invokeCleaner
+            segments[i] = parent.segments[i].duplicate();
+        }
+        fileChannel = null;
+        unmapped = parent.unmapped;
     }
 
     /**
@@ -88,9 +136,23 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
         if (fileChannel != null)
         {
             fileChannel.close();
+            if (unmapped.compareAndSet(false, true))
+            {
+                unmapSegments();
+            }
+        }
+        isClosed = true;
+    }
+
+    private void unmapSegments()
+    {
+        for (ByteBuffer segment : segments)
+        {
+            if (segment != null)
+            {
+                IOUtils.unmap(segment);
+            }
         }
-        Optional.ofNullable(unmapper).ifPresent(u -> u.accept(mappedByteBuffer));
-        mappedByteBuffer = null;
     }
 
     /**
@@ -106,7 +168,7 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
         }
         // it is allowed to jump beyond the end of the file
         // jump to the end of the reader
-        mappedByteBuffer.position((int) Math.min(position, size));
+        this.position = Math.min(position, size);
     }
 
     /**
@@ -116,9 +178,9 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
     public long getPosition() throws IOException
     {
        checkClosed();
-       return mappedByteBuffer.position();
+       return position;
     }
-    
+
     /**
      * {@inheritDoc}
      */
@@ -129,7 +191,9 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
         {
             return -1;
         }
-        return mappedByteBuffer.get() & 0xff;
+        long filePosition = startOffset + position++;
+        return segments[(int) (filePosition >>> segmentShift)]
+                .get((int) (filePosition & segmentMask)) & 0xff;
     }
 
     /**
@@ -142,9 +206,21 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
         {
             return -1;
         }
-        int remainingBytes = (int)size - mappedByteBuffer.position();
-        mappedByteBuffer.get(b, offset, Math.min(remainingBytes, length));
-        return Math.min(remainingBytes, length);
+        int bytesToRead = (int) Math.min(size - position, length);
+        int readBytes = 0;
+        // a read may cross the border of two or more segments
+        while (readBytes < bytesToRead)
+        {
+            long filePosition = startOffset + position;
+            ByteBuffer segment = segments[(int) (filePosition >>> segmentShift)];
+            int segmentOffset = (int) (filePosition & segmentMask);
+            int chunkLength = Math.min(bytesToRead - readBytes, segment.limit() - segmentOffset);
+            segment.position(segmentOffset);
+            segment.get(b, offset + readBytes, chunkLength);
+            readBytes += chunkLength;
+            position += chunkLength;
+        }
+        return readBytes;
     }
 
     /**
@@ -159,7 +235,7 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
 
     /**
      * Ensure that the RandomAccessReadMemoryMappedFile is not closed
-     * 
+     *
      * @throws IOException If RandomAccessBuffer already closed
      */
     private void checkClosed() throws IOException
@@ -176,7 +252,7 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
     @Override
     public boolean isClosed()
     {
-        return mappedByteBuffer == null;
+        return isClosed || unmapped.get();
     }
 
     /**
@@ -186,13 +262,16 @@ public class RandomAccessReadMemoryMappedFile implements RandomAccessRead
     public boolean isEOF() throws IOException
     {
         checkClosed();
-        return mappedByteBuffer.position() >= size;
+        return position >= size;
     }
 
     @Override
     public RandomAccessReadView createView(long startPosition, long streamLength)
+            throws IOException
     {
-        return new RandomAccessReadView(new RandomAccessReadMemoryMappedFile(this), startPosition,
+        checkClosed();
+        return new RandomAccessReadView(
+                new RandomAccessReadMemoryMappedFile(this, startPosition, streamLength), 0,
                 streamLength, true);
     }
 }
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Provides random access to a file using positional reads. The file is accessed via
+ * {@link FileChannel#read(ByteBuffer, long)} which doesn't depend on the position of the channel.
+ *
+ * Each instance has its own position and read buffer, but the file channel is shared with all views created by
+ * {@link #createView(long, long)}. A single instance must not be used by several threads at once, but all views can
+ * be read concurrently without interfering with each other or with their parent.
+ */
+public class RandomAccessReadPositionalFile implements RandomAccessRead
+{
+    private static final int BUFFER_SIZE = 4096;
+
+    // file channel of the file to be read, shared with all views
+    private final FileChannel fileChannel;
+    // true if this instance owns the channel and has to close it
+    private final boolean isOwner;
+    // start offset of this instance within the file
+    private final long startOffset;
+    // length of the data accessible by this instance
+    private final long length;
+
+    private final ByteBuffer buffer;
+    // position of the first buffered byte, relative to startOffset
+    private long bufferPosition = 0;
+    // number of valid bytes within the buffer
+    private int bufferLength = 0;
+
+    private long position = 0;
+    private boolean isClosed;
+
+    /**
+     * Create a random access positional file instance for the file with the given name.
+     *
+     * @param filename the filename of the file to be read.
+     * @throws IOException if something went wrong while accessing the given file.
+     */
+    public RandomAccessReadPositionalFile(String filename) throws IOException
+    {
+        this(new File(filename));
+    }
+
+    /**
+     * Create a random access positional file instance for the given file.
+     *
+     * @param file the file to be read.
+     * @throws IOException if something went wrong while accessing the given file.
+     */
+    public RandomAccessReadPositionalFile(File file) throws IOException
+    {
+        fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        isOwner = true;
+        startOffset = 0;
+        length = fileChannel.size();
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    private RandomAccessReadPositionalFile(RandomAccessReadPositionalFile parent, long startOffset,
+            long length)
+    {
+        fileChannel = parent.fileChannel;
+        isOwner = false;
+        this.startOffset = parent.startOffset + Math.min(startOffset, parent.length);
+        // the view can't exceed the data of its parent
+        this.length = Math.min(length, parent.length - (this.startOffset - parent.startOffset));
+        buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(this.length, 1)));
+    }
+
+    @Override
+    public long getPosition() throws IOException
+    {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException
+    {
+        checkClosed();
+        if (newPosition < 0)
+        {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        // it is allowed to jump beyond the end of the file
+        // jump to the end of the reader
+        position = Math.min(newPosition, length);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        checkClosed();
+        if (position >= length)
+        {
+            return -1;
+        }
+        if (position < bufferPosition || position >= bufferPosition + bufferLength)
+        {
+            fillBuffer();
+        }
+        return buffer.get((int) (position++ - bufferPosition)) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        checkClosed();
+        if (position >= length)
+        {
+            return -1;
+        }
+        int bytesToRead = (int) Math.min(len, length - position);
+        if (position >= bufferPosition && position + bytesToRead <= bufferPosition + bufferLength)
+        {
+            // all requested bytes are buffered
+            buffer.position((int) (position - bufferPosition));
+            buffer.get(b, off, bytesToRead);
+        }
+        else if (bytesToRead >= buffer.capacity())
+        {
+            // bypass the buffer for large reads
+            bytesToRead = readFully(ByteBuffer.wrap(b, off, bytesToRead), position);
+        }
+        else
+        {
+            fillBuffer();
+            bytesToRead = Math.min(bytesToRead, bufferLength);
+            buffer.position(0);
+            buffer.get(b, off, bytesToRead);
+        }
+        position += bytesToRead;
+        return bytesToRead;
+    }
+
+    /**
+     * Fill the buffer with data starting at the current position.
+     */
+    private void fillBuffer() throws IOException
+    {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), length - position));
+        bufferPosition = position;
+        bufferLength = readFully(buffer, position);
+        if (bufferLength == 0)
+        {
+            throw new IOException("Unexpected end of file at position " + (startOffset + position));
+        }
+    }
+
+    /**
+     * Read until the given buffer is full or the end of the file is reached.
+     *
+     * @return the number of bytes read
+     */
+    private int readFully(ByteBuffer target, long readPosition) throws IOException
+    {
+        int readBytes = 0;
+        while (target.hasRemaining())
+        {
+            int curBytesRead = fileChannel.read(target, startOffset + readPosition + readBytes);
+            if (curBytesRead < 0)
+            {
+                // EOF
+                break;
+            }
+            readBytes += curBytesRead;
+        }
+        return readBytes;
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+        checkClosed();
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (isOwner)
+        {
+            fileChannel.close();
+        }
+        isClosed = true;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return isClosed || !fileChannel.isOpen();
+    }
+
+    /**
+     * Ensure that the RandomAccessReadPositionalFile is not closed
+     *
+     * @throws IOException If RandomAccessReadPositionalFile already closed
+     */
+    private void checkClosed() throws IOException
+    {
+        if (isClosed())
+        {
+            throw new IOException(getClass().getName() + " already closed");
+        }
+    }
+
+    @Override
+    public boolean isEOF() throws IOException
+    {
+        checkClosed();
+        return position >= length;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The view doesn't copy any data. It has its own position and can be read by another thread than the one using
+     * this instance.
+     */
+    @Override
+    public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException
+    {
+        checkClosed();
+        return new RandomAccessReadView(
+                new RandomAccessReadPositionalFile(this, startPosition, streamLength), 0,
+                streamLength, true);
+    }
+}
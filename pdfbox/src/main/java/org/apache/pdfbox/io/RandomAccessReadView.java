@@ -21,6 +21,9 @@ import java.io.IOException;
 /**
  * This class provides a view of a part of a random access read. It clips the section starting at the given start
  * position with the given length into a new random access read.
+ *
+ * <p>Each view has its own position, the position of the underlying random access read is restored and read while
+ * holding its monitor, so that several views of it can be read concurrently.</p>
  * 
  */
 public class RandomAccessReadView implements RandomAccessRead
@@ -101,8 +104,12 @@ public class RandomAccessReadView implements RandomAccessRead
         {
             return -1;
         }
-        restorePosition();
-        int readValue = randomAccessRead.read();
+        int readValue;
+        synchronized (randomAccessRead)
+        {
+            restorePosition();
+            readValue = randomAccessRead.read();
+        }
         if (readValue > -1)
         {
             currentPosition++;
@@ -120,8 +127,12 @@ public class RandomAccessReadView implements RandomAccessRead
         {
             return -1;
         }
-        restorePosition();
-        int readBytes = randomAccessRead.read(b, off, Math.min(len, available()));
+        int readBytes;
+        synchronized (randomAccessRead)
+        {
+            restorePosition();
+            readBytes = randomAccessRead.read(b, off, Math.min(len, available()));
+        }
         currentPosition += readBytes;
         return readBytes;
     }
@@ -165,8 +176,11 @@ public class RandomAccessReadView implements RandomAccessRead
     public void rewind(int bytes) throws IOException
     {
         checkClosed();
-        restorePosition();
-        randomAccessRead.rewind(bytes);
+        synchronized (randomAccessRead)
+        {
+            restorePosition();
+            randomAccessRead.rewind(bytes);
+        }
         currentPosition -= bytes;
     }
 
@@ -181,7 +195,8 @@ public class RandomAccessReadView implements RandomAccessRead
     }
 
     /**
-     * Restore the current position within the underlying random access read.
+     * Restore the current position within the underlying random access read. The caller has to hold the monitor of
+     * the underlying random access read, as other views of it may be read concurrently.
      * 
      * @throws IOException
      */
@@ -20,6 +20,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 
 import org.apache.commons.logging.Log;
@@ -35,6 +36,14 @@ import org.apache.commons.logging.LogFactory;
  * additional ones in temporary file (defined by maximum main memory to
  * be used).</p>
  * 
+ * <p>In-memory pages are held in heap memory by default. If a {@link DirectPagePool} is set
+ * in the {@link MemoryUsageSetting} they are held in direct buffers of that pool instead as long
+ * as the pool isn't exhausted.</p>
+ * 
+ * <p>If a {@link ScratchMemoryGovernor} is set in the {@link MemoryUsageSetting} the main memory
+ * is shared with other scratch files. In-memory pages borrow their memory from the governor and
+ * might be spilled to a temporary file if the memory of the governor is exhausted.</p>
+ * 
  * <p>Pages can be marked as 'free' in order to re-use them. For in-memory pages
  * this will release the used memory while for pages in temporary file this
  * simply marks the area as free to re-use.</p>
@@ -57,7 +66,7 @@ public class ScratchFile implements Closeable
     /** in case of unrestricted main memory usage this is the initial number of pages
      *  {@link #inMemoryPages} is setup for */
     private static final int INIT_UNRESTRICTED_MAINMEM_PAGECOUNT = 100000;
-    private static final int PAGE_SIZE = 4096;
+    static final int PAGE_SIZE = 4096;
     
     private final Object ioLock = new Object();
     private final File scratchFileDirectory;
@@ -71,6 +80,25 @@ public class ScratchFile implements Closeable
      *  main memory, otherwise it is enlarged as needed and first initialized to a size of
      *  {@link #INIT_UNRESTRICTED_MAINMEM_PAGECOUNT} */
     private volatile byte[][] inMemoryPages;
+    /** holds the pooled direct buffers of in-memory pages; same size as {@link #inMemoryPages},
+     *  <code>null</code> if no {@link DirectPagePool} is used */
+    private volatile ByteBuffer[] directPages;
+    private final DirectPagePool directPagePool;
+    /** governor of the main memory shared with other scratch files; <code>null</code> if not shared */
+    private final ScratchMemoryGovernor memoryGovernor;
+    /** memory borrowed from the governor for each in-memory page; same size as {@link #inMemoryPages};
+     *  only to be accessed under synchronization of {@link #ioLock} */
+    private ScratchMemoryGovernor.Page[] governedPages;
+    /** slot + 1 within the spill file for each spilled in-memory page, 0 if the page isn't spilled;
+     *  same size as {@link #inMemoryPages}; only to be accessed under synchronization of {@link #ioLock} */
+    private int[] spillSlots;
+    /** free slots within the spill file; only to be accessed under synchronization of {@link #ioLock} */
+    private final BitSet freeSpillSlots = new BitSet();
+    private int spillSlotCount = 0;
+    /** file holding spilled in-memory pages; only to be accessed under synchronization of {@link #ioLock} */
+    private File spillFile;
+    /** random access to spill file; only to be accessed under synchronization of {@link #ioLock} */
+    private java.io.RandomAccessFile spillRaf;
     private final int inMemoryMaxPageCount;
     private final int maxPageCount;
     private final boolean useScratchFile;
@@ -109,7 +137,10 @@ public class ScratchFile implements Closeable
     {
         maxMainMemoryIsRestricted = (!memUsageSetting.useMainMemory()) || memUsageSetting.isMainMemoryRestricted();
         useScratchFile = maxMainMemoryIsRestricted ? memUsageSetting.useTempFile() : false;
-        scratchFileDirectory = useScratchFile ? memUsageSetting.getTempDir() : null;
+        // in-memory pages can only be spilled if temporary files are enabled
+        boolean useMemoryGovernor = memUsageSetting.getMemoryGovernor() != null && 
+                                    memUsageSetting.useMainMemory() && memUsageSetting.useTempFile();
+        scratchFileDirectory = useScratchFile || useMemoryGovernor ? memUsageSetting.getTempDir() : null;
 
         if ((scratchFileDirectory != null) && (!scratchFileDirectory.isDirectory()))
         {
@@ -127,7 +158,22 @@ public class ScratchFile implements Closeable
                                    0;
         inMemoryPages = new byte[maxMainMemoryIsRestricted ? inMemoryMaxPageCount : INIT_UNRESTRICTED_MAINMEM_PAGECOUNT][];
         
+        directPagePool = inMemoryMaxPageCount > 0 ? memUsageSetting.getDirectPagePool() : null;
+        if (directPagePool != null && directPagePool.getPageSize() != PAGE_SIZE)
+        {
+            throw new IOException("Page size of the direct page pool has to be " + PAGE_SIZE);
+        }
+        directPages = directPagePool != null ? new ByteBuffer[inMemoryPages.length] : null;
+        
         freePages.set(0, inMemoryPages.length);
+
+        memoryGovernor = useMemoryGovernor ? memUsageSetting.getMemoryGovernor() : null;
+        if (memoryGovernor != null)
+        {
+            governedPages = new ScratchMemoryGovernor.Page[inMemoryPages.length];
+            spillSlots = new int[inMemoryPages.length];
+            memoryGovernor.register();
+        }
     }
 
     /**
@@ -177,6 +223,10 @@ public class ScratchFile implements Closeable
      * Returns a new free page, either from free page pool
      * or by enlarging scratch file (may be created).
      * 
+     * <p>If an in-memory page is chosen and a {@link DirectPagePool} is used, a direct buffer
+     * is assigned to the page. If the pool is exhausted a page of the scratch file is
+     * returned instead if possible, otherwise the page is kept in heap memory.</p>
+     * 
      * @return index of new page
      */
     int getNewPage() throws IOException
@@ -196,6 +246,24 @@ public class ScratchFile implements Closeable
                 }
             }
             
+            if (idx < inMemoryMaxPageCount && directPagePool != null)
+            {
+                ByteBuffer directPage = directPagePool.acquire();
+                if (directPage != null)
+                {
+                    directPages[idx] = directPage;
+                }
+                else if (useScratchFile)
+                {
+                    // pool is exhausted, spill to the scratch file
+                    int fileIdx = getNewScratchFilePage();
+                    if (fileIdx >= 0)
+                    {
+                        idx = fileIdx;
+                    }
+                }
+            }
+            
             freePages.clear(idx);
             
             if (idx >= pageCount)
@@ -207,6 +275,25 @@ public class ScratchFile implements Closeable
         }
     }
 
+    /**
+     * Returns the index of a free page stored in the scratch file, enlarging the scratch
+     * file if needed.
+     * 
+     * <p>Only to be called under synchronization on {@link #freePages}.</p>
+     * 
+     * @return index of the free page or -1 if the maximum storage size is reached
+     */
+    private int getNewScratchFilePage() throws IOException
+    {
+        int idx = freePages.nextSetBit(inMemoryMaxPageCount);
+        if (idx < 0)
+        {
+            enlarge();
+            idx = freePages.nextSetBit(inMemoryMaxPageCount);
+        }
+        return idx;
+    }
+
     /**
      * This will provide new free pages by either enlarging the scratch file 
      * by a number of pages defined by {@link #ENLARGE_PAGE_COUNT} - in case
@@ -227,7 +314,9 @@ public class ScratchFile implements Closeable
         {
             checkClosed();
      
-            if (pageCount >= maxPageCount)
+            // in-memory pages might be unused if the direct page pool is exhausted
+            int firstNewPage = useScratchFile ? Math.max(pageCount, inMemoryMaxPageCount) : pageCount;
+            if (firstNewPage >= maxPageCount)
             {
                 return;
             }
@@ -253,7 +342,7 @@ public class ScratchFile implements Closeable
                 }
                 
                 long fileLen = raf.length();
-                long expectedFileLen = ((long)pageCount - inMemoryMaxPageCount) * PAGE_SIZE;
+                long expectedFileLen = ((long)firstNewPage - inMemoryMaxPageCount) * PAGE_SIZE;
                 
                 if (expectedFileLen != fileLen)
                 {
@@ -261,13 +350,13 @@ public class ScratchFile implements Closeable
                 }
                     
                 // enlarge if we do not overflow
-                if (pageCount + ENLARGE_PAGE_COUNT > pageCount)
+                if (firstNewPage + ENLARGE_PAGE_COUNT > firstNewPage)
                 {
                     fileLen += ENLARGE_PAGE_COUNT * PAGE_SIZE;
         
                     raf.setLength(fileLen);
         
-                    freePages.set(pageCount, pageCount + ENLARGE_PAGE_COUNT);
+                    freePages.set(firstNewPage, firstNewPage + ENLARGE_PAGE_COUNT);
                 }
             }
             else if (!maxMainMemoryIsRestricted)
@@ -280,6 +369,21 @@ public class ScratchFile implements Closeable
                     byte[][] newInMemoryPages = new byte[newSize][];
                     System.arraycopy(inMemoryPages, 0, newInMemoryPages, 0, oldSize);
                     inMemoryPages = newInMemoryPages;
+                    if (directPages != null)
+                    {
+                        ByteBuffer[] newDirectPages = new ByteBuffer[newSize];
+                        System.arraycopy(directPages, 0, newDirectPages, 0, oldSize);
+                        directPages = newDirectPages;
+                    }
+                    if (memoryGovernor != null)
+                    {
+                        ScratchMemoryGovernor.Page[] newGovernedPages = new ScratchMemoryGovernor.Page[newSize];
+                        System.arraycopy(governedPages, 0, newGovernedPages, 0, oldSize);
+                        governedPages = newGovernedPages;
+                        int[] newSpillSlots = new int[newSize];
+                        System.arraycopy(spillSlots, 0, newSpillSlots, 0, oldSize);
+                        spillSlots = newSpillSlots;
+                    }
                     
                     freePages.set(oldSize, newSize);
                 }
@@ -297,16 +401,106 @@ public class ScratchFile implements Closeable
         return PAGE_SIZE;
     }
     
+    /**
+     * Returns the heap memory in bytes held by this scratch file, i.e. the used in-memory pages which aren't held in
+     * direct buffers or spilled to disk and the table referencing the in-memory pages. A page written the first time
+     * may still be held by its buffer only, it is included as well.
+     * 
+     * @return the used heap memory in bytes
+     */
+    public long getHeapMemoryUsed()
+    {
+        synchronized (freePages)
+        {
+            synchronized (ioLock)
+            {
+                byte[][] pages = inMemoryPages;
+                ByteBuffer[] direct = directPages;
+                // the references of the page table are assumed to be compressed
+                long used = 4L * pages.length;
+                int count = Math.min(Math.min(pageCount, inMemoryMaxPageCount), pages.length);
+                for (int pageIdx = 0; pageIdx < count; pageIdx++)
+                {
+                    if (!freePages.get(pageIdx) && (direct == null || direct[pageIdx] == null)
+                            && (spillSlots == null || spillSlots[pageIdx] == 0))
+                    {
+                        used += PAGE_SIZE;
+                    }
+                }
+                return used;
+            }
+        }
+    }
+    
+    /**
+     * Returns the memory in bytes of the pooled direct buffers used by this scratch file.
+     * 
+     * @return the used direct memory in bytes, 0 if no {@link DirectPagePool} is used
+     */
+    public long getDirectMemoryUsed()
+    {
+        synchronized (freePages)
+        {
+            ByteBuffer[] pages = directPages;
+            if (pages == null)
+            {
+                return 0;
+            }
+            long used = 0;
+            int count = Math.min(pageCount, pages.length);
+            for (int pageIdx = 0; pageIdx < count; pageIdx++)
+            {
+                if (pages[pageIdx] != null)
+                {
+                    used += PAGE_SIZE;
+                }
+            }
+            return used;
+        }
+    }
+    
+    /**
+     * Returns the number of bytes of the used pages stored in the scratch file, including the in-memory pages which
+     * were spilled to disk by the {@link ScratchMemoryGovernor}.
+     * 
+     * @return the used file space in bytes
+     */
+    public long getFileSpaceUsed()
+    {
+        synchronized (freePages)
+        {
+            long usedPages = 0;
+            for (int pageIdx = inMemoryMaxPageCount; pageIdx < pageCount; pageIdx++)
+            {
+                if (!freePages.get(pageIdx))
+                {
+                    usedPages++;
+                }
+            }
+            synchronized (ioLock)
+            {
+                usedPages += spillSlotCount - freeSpillSlots.cardinality();
+            }
+            return usedPages * PAGE_SIZE;
+        }
+    }
+    
     /**
      * Reads the page with specified index.
      * 
+     * <p>The page data is copied into the given array unless the page is held in heap memory, then
+     * the stored array is returned as is. The given array may therefore be re-used by the caller
+     * for reading other pages.</p>
+     * 
      * @param pageIdx index of page to read
+     * @param page array of size {@link #PAGE_SIZE} to read the page data into
      * 
-     * @return byte array of size {@link #PAGE_SIZE} filled with page data read from file 
+     * @return byte array of size {@link #PAGE_SIZE} filled with page data, either the given one
+     *         or the one of a page held in heap memory
      * 
      * @throws IOException
      */
-    byte[] readPage(int pageIdx) throws IOException
+    byte[] readPage(int pageIdx, byte[] page) throws IOException
     {
         if ((pageIdx < 0) || (pageIdx >= pageCount))
         {
@@ -317,16 +511,11 @@ public class ScratchFile implements Closeable
         // check if we have the page in memory
         if (pageIdx < inMemoryMaxPageCount)
         {
-            byte[] page = inMemoryPages[pageIdx];
-            
-            // handle case that we are closed
-            if (page == null)
+            if (memoryGovernor != null)
             {
-                checkClosed();
-                throw new IOException("Requested page with index " + pageIdx + " was not written before.");
+                return readGovernedPage(pageIdx, page);
             }
-            
-            return page;
+            return readInMemoryPage(pageIdx, page);
         }
         
         synchronized (ioLock)
@@ -337,7 +526,6 @@ public class ScratchFile implements Closeable
                 throw new IOException("Missing scratch file to read page with index " + pageIdx + " from.");
             }
             
-            byte[] page = new byte[PAGE_SIZE];
             raf.seek(((long)pageIdx - inMemoryMaxPageCount) * PAGE_SIZE);
             raf.readFully(page);
             
@@ -345,12 +533,66 @@ public class ScratchFile implements Closeable
         }
     }
     
+    /**
+     * Reads an in-memory page, either from its direct buffer into the given array or from heap
+     * memory.
+     */
+    private byte[] readInMemoryPage(int pageIdx, byte[] page) throws IOException
+    {
+        ByteBuffer directPage = getDirectPage(pageIdx);
+        if (directPage != null)
+        {
+            synchronized (directPage)
+            {
+                checkDirectPage(pageIdx, directPage);
+                directPage.clear();
+                directPage.get(page);
+            }
+            return page;
+        }
+        
+        byte[] heapPage = inMemoryPages[pageIdx];
+        
+        // handle case that we are closed
+        if (heapPage == null)
+        {
+            checkClosed();
+            throw new IOException("Requested page with index " + pageIdx + " was not written before.");
+        }
+        
+        return heapPage;
+    }
+    
+    /**
+     * Reads an in-memory page borrowing its memory from the governor, it may have been spilled.
+     */
+    private byte[] readGovernedPage(int pageIdx, byte[] page) throws IOException
+    {
+        synchronized (ioLock)
+        {
+            checkClosed();
+            if (spillSlots[pageIdx] > 0)
+            {
+                spillRaf.seek((long) (spillSlots[pageIdx] - 1) * PAGE_SIZE);
+                spillRaf.readFully(page);
+                return page;
+            }
+            if (governedPages[pageIdx] != null)
+            {
+                memoryGovernor.touch(governedPages[pageIdx]);
+            }
+            return readInMemoryPage(pageIdx, page);
+        }
+    }
+    
     /**
      * Writes updated page. Page is either kept in-memory if pageIdx &lt; {@link #inMemoryMaxPageCount}
      * or is written to scratch file.
      * 
      * <p>Provided page byte array must not be re-used for other pages since we
-     * store it as is in case of in-memory handling.</p>
+     * store it as is in case of in-memory handling. This doesn't apply to an array
+     * filled by {@link #readPage(int, byte[])}, pages not held in heap memory stay
+     * so and are always copied.</p>
      * 
      * @param pageIdx index of page to write
      * @param page page to write (length has to be {@value #PAGE_SIZE})
@@ -373,17 +615,13 @@ public class ScratchFile implements Closeable
         
         if (pageIdx < inMemoryMaxPageCount)
         {
-            if (maxMainMemoryIsRestricted)
+            if (memoryGovernor != null)
             {
-                inMemoryPages[pageIdx] = page;
+                writeGovernedPage(pageIdx, page);
             }
             else
             {
-                // need synchronization since inMemoryPages may change
-                synchronized (ioLock)
-                {
-                    inMemoryPages[pageIdx] = page;
-                }
+                writeInMemoryPage(pageIdx, page);
             }
             
             // in case we were closed in between throw exception
@@ -400,6 +638,235 @@ public class ScratchFile implements Closeable
         }
     }
     
+    /**
+     * Writes an in-memory page, either to its direct buffer or to heap memory.
+     */
+    private void writeInMemoryPage(int pageIdx, byte[] page) throws IOException
+    {
+        ByteBuffer directPage = getDirectPage(pageIdx);
+        if (directPage != null)
+        {
+            synchronized (directPage)
+            {
+                checkDirectPage(pageIdx, directPage);
+                directPage.clear();
+                directPage.put(page);
+            }
+        }
+        else if (maxMainMemoryIsRestricted)
+        {
+            inMemoryPages[pageIdx] = page;
+        }
+        else
+        {
+            // need synchronization since inMemoryPages may change
+            synchronized (ioLock)
+            {
+                inMemoryPages[pageIdx] = page;
+            }
+        }
+    }
+
+    /**
+     * Writes an in-memory page borrowing its memory from the governor. The memory for a page written
+     * the first time is requested from the governor, which might spill pages of any scratch file
+     * including this one.
+     */
+    private void writeGovernedPage(int pageIdx, byte[] page) throws IOException
+    {
+        synchronized (ioLock)
+        {
+            checkClosed();
+            if (writeExistingGovernedPage(pageIdx, page))
+            {
+                return;
+            }
+        }
+        
+        // not to be requested under ioLock as spilling a page of this scratch file needs the lock
+        ScratchMemoryGovernor.Page governedPage = memoryGovernor.reserve(this, pageIdx);
+        
+        synchronized (ioLock)
+        {
+            if (isClosed || writeExistingGovernedPage(pageIdx, page))
+            {
+                if (governedPage != null)
+                {
+                    memoryGovernor.release(governedPage);
+                }
+                return;
+            }
+            if (governedPage != null)
+            {
+                governedPages[pageIdx] = governedPage;
+                writeInMemoryPage(pageIdx, page);
+            }
+            else
+            {
+                // the governor doesn't have any memory at all
+                writeSpilledPage(pageIdx, page);
+            }
+        }
+    }
+
+    /**
+     * Writes a governed page if it is already held in memory or was spilled. Only to be called
+     * under synchronization of {@link #ioLock}.
+     * 
+     * @return <code>false</code> if the page is written the first time
+     */
+    private boolean writeExistingGovernedPage(int pageIdx, byte[] page) throws IOException
+    {
+        if (spillSlots[pageIdx] > 0)
+        {
+            writeSpilledPage(pageIdx, page);
+            return true;
+        }
+        if (governedPages[pageIdx] != null)
+        {
+            memoryGovernor.touch(governedPages[pageIdx]);
+            writeInMemoryPage(pageIdx, page);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes an in-memory page to the spill file, the spill file is created if needed. Only to be
+     * called under synchronization of {@link #ioLock}.
+     */
+    private void writeSpilledPage(int pageIdx, byte[] page) throws IOException
+    {
+        int spillSlot = spillSlots[pageIdx] - 1;
+        if (spillSlot < 0)
+        {
+            if (spillRaf == null)
+            {
+                spillFile = File.createTempFile("PDFBox", ".tmp", scratchFileDirectory);
+                try
+                {
+                    spillRaf = new java.io.RandomAccessFile(spillFile, "rw");
+                }
+                catch (IOException e)
+                {
+                    if (!spillFile.delete())
+                    {
+                        LOG.warn("Error deleting spill file: " + spillFile.getAbsolutePath());
+                    }
+                    spillFile = null;
+                    throw e;
+                }
+            }
+            spillSlot = freeSpillSlots.nextSetBit(0);
+            if (spillSlot < 0)
+            {
+                spillSlot = spillSlotCount++;
+            }
+            else
+            {
+                freeSpillSlots.clear(spillSlot);
+            }
+        }
+        spillRaf.seek((long) spillSlot * PAGE_SIZE);
+        spillRaf.write(page);
+        spillSlots[pageIdx] = spillSlot + 1;
+    }
+
+    /**
+     * Moves an in-memory page to the spill file and releases its memory, called by the governor
+     * if its memory is exhausted. Nothing happens if the page was released in between.
+     * 
+     * @param governedPage the page to be spilled
+     * 
+     * @throws IOException if the page couldn't be written to the spill file
+     */
+    void spillPage(ScratchMemoryGovernor.Page governedPage) throws IOException
+    {
+        synchronized (ioLock)
+        {
+            int pageIdx = governedPage.pageIdx;
+            if (isClosed || governedPages[pageIdx] != governedPage)
+            {
+                return;
+            }
+            writeSpilledPage(pageIdx, readInMemoryPage(pageIdx, new byte[PAGE_SIZE]));
+            governedPages[pageIdx] = null;
+            releaseDirectPage(pageIdx);
+            inMemoryPages[pageIdx] = null;
+        }
+    }
+
+    /**
+     * Returns the memory of a governed page to the governor and frees its slot in the spill file.
+     * Only to be called under synchronization of {@link #ioLock}.
+     */
+    private void releaseGovernedPage(int pageIdx)
+    {
+        if (governedPages[pageIdx] != null)
+        {
+            memoryGovernor.release(governedPages[pageIdx]);
+            governedPages[pageIdx] = null;
+        }
+        if (spillSlots[pageIdx] > 0)
+        {
+            freeSpillSlots.set(spillSlots[pageIdx] - 1);
+            spillSlots[pageIdx] = 0;
+        }
+    }
+
+    /**
+     * Returns the pooled direct buffer of the given in-memory page.
+     * 
+     * @param pageIdx index of an in-memory page
+     * 
+     * @return the direct buffer or <code>null</code> if the page is held in heap memory
+     */
+    private ByteBuffer getDirectPage(int pageIdx)
+    {
+        ByteBuffer[] pages = directPages;
+        return pages != null && pageIdx < pages.length ? pages[pageIdx] : null;
+    }
+
+    /**
+     * Checks that the given direct buffer still belongs to the page and wasn't returned to the pool,
+     * otherwise it might be in use by another scratch file already. Only to be called under
+     * synchronization of the direct buffer.
+     * 
+     * @throws IOException if the page was released in between
+     */
+    private void checkDirectPage(int pageIdx, ByteBuffer directPage) throws IOException
+    {
+        if (getDirectPage(pageIdx) != directPage)
+        {
+            checkClosed();
+            throw new IOException("Page with index " + pageIdx + " was released in between.");
+        }
+    }
+
+    /**
+     * Returns the pooled direct buffer of the given page to the pool. Only to be called under
+     * synchronization on {@link #freePages} or, if the page is spilled, {@link #ioLock}.
+     * 
+     * @param pageIdx index of the page
+     */
+    private void releaseDirectPage(int pageIdx)
+    {
+        ByteBuffer directPage = getDirectPage(pageIdx);
+        if (directPage != null)
+        {
+            synchronized (directPage)
+            {
+                if (directPages[pageIdx] != directPage)
+                {
+                    // released by another thread in between
+                    return;
+                }
+                directPages[pageIdx] = null;
+            }
+            directPagePool.release(directPage);
+        }
+    }
+
     /**
      * Checks if this page handler has already been closed. If so,
      * an {@link IOException} is thrown.
@@ -469,6 +936,18 @@ public class ScratchFile implements Closeable
                     freePages.set(pageIdx);
                     if (pageIdx < inMemoryMaxPageCount)
                     {
+                        if (memoryGovernor != null)
+                        {
+                            synchronized (ioLock)
+                            {
+                                releaseGovernedPage(pageIdx);
+                                releaseDirectPage(pageIdx);
+                            }
+                        }
+                        else
+                        {
+                            releaseDirectPage(pageIdx);
+                        }
                         inMemoryPages[pageIdx] = null;  // remark: not in ioLock synchronization since behavior won't
                                                         // change even in case of parallel called 'enlarge' method
                     }
@@ -515,10 +994,51 @@ public class ScratchFile implements Closeable
             {
                 ioexc = new IOException("Error deleting scratch file: " + file.getAbsolutePath());
             }
+            
+            if (memoryGovernor != null)
+            {
+                for (int pageIdx = 0; pageIdx < governedPages.length; pageIdx++)
+                {
+                    if (governedPages[pageIdx] != null)
+                    {
+                        memoryGovernor.release(governedPages[pageIdx]);
+                        governedPages[pageIdx] = null;
+                    }
+                }
+                memoryGovernor.unregister();
+            }
+            
+            if (spillRaf != null)
+            {
+                try
+                {
+                    spillRaf.close();
+                }
+                catch (IOException ioe)
+                {
+                    if (ioexc == null)
+                    {
+                        ioexc = ioe;
+                    }
+                }
+            }
+            
+            if (spillFile != null && !spillFile.delete() && spillFile.exists() && ioexc == null)
+            {
+                ioexc = new IOException("Error deleting spill file: " + spillFile.getAbsolutePath());
+            }
         }
         
         synchronized (freePages)
         {
+            if (directPages != null)
+            {
+                int count = Math.min(pageCount, directPages.length);
+                for (int pageIdx = 0; pageIdx < count; pageIdx++)
+                {
+                    releaseDirectPage(pageIdx);
+                }
+            }
             freePages.clear();
             pageCount = 0;
         }
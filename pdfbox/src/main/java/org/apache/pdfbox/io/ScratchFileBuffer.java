@@ -50,6 +50,10 @@ class ScratchFileBuffer implements RandomAccess
      * The current page data.
      */
     private byte[] currentPage;
+    /**
+     * Array the pages not held in heap memory are read into, re-used for all of them.
+     */
+    private byte[] pageBuffer;
     /**
      * The current position (for next read/write) of the buffer as an offset in the current page.
      */
@@ -80,6 +84,7 @@ class ScratchFileBuffer implements RandomAccess
         this.pageHandler = pageHandler;
         
         pageSize = this.pageHandler.getPageSize();
+        pageBuffer = new byte[pageSize];
         
         addPage();
     }
@@ -174,7 +179,8 @@ class ScratchFileBuffer implements RandomAccess
             if (currentPagePositionInPageIndexes+1 < pageCount)
             {
                 // we already have more pages assigned (there was a backward seek before)
-                currentPage = pageHandler.readPage(pageIndexes[++currentPagePositionInPageIndexes]);
+                currentPage = pageHandler.readPage(pageIndexes[++currentPagePositionInPageIndexes],
+                        pageBuffer);
                 currentPageOffset = ((long)currentPagePositionInPageIndexes) * pageSize;
                 positionInPage = 0;
             }
@@ -267,7 +273,7 @@ class ScratchFileBuffer implements RandomAccess
         // change to first page if we are not already there
         if (currentPagePositionInPageIndexes > 0)
         {
-            currentPage = pageHandler.readPage(pageIndexes[0]);
+            currentPage = pageHandler.readPage(pageIndexes[0], pageBuffer);
             currentPagePositionInPageIndexes = 0;
             currentPageOffset = 0;
         }
@@ -329,7 +335,7 @@ class ScratchFileBuffer implements RandomAccess
                 newPagePosition--; // PDFBOX-4756: Prevent seeking a non-yet-existent page...
             }
             
-            currentPage = pageHandler.readPage(pageIndexes[newPagePosition]);
+            currentPage = pageHandler.readPage(pageIndexes[newPagePosition], pageBuffer);
             currentPagePositionInPageIndexes = newPagePosition;
             currentPageOffset = ((long)currentPagePositionInPageIndexes) * pageSize;
             positionInPage = (int) (seekToPosition - currentPageOffset);
@@ -429,6 +435,7 @@ class ScratchFileBuffer implements RandomAccess
             
             pageIndexes = null;
             currentPage = null;
+            pageBuffer = null;
             currentPageOffset = 0;
             currentPagePositionInPageIndexes = -1;
             positionInPage = 0;
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.IOException;
+
+/**
+ * Limits the main memory used by several {@link ScratchFile} instances all together, e.g. by all documents
+ * opened by a server at the same time.
+ *
+ * <p>Scratch files register with a governor if it is set using
+ * {@link MemoryUsageSetting#setMemoryGovernor(ScratchMemoryGovernor)}. Each in-memory page of these scratch
+ * files borrows its memory from the governor and returns it when the page is released or the scratch file is
+ * closed. If the memory of the governor is exhausted, the least recently used page of all registered scratch
+ * files is spilled to the temporary file of its scratch file and its memory is handed over to the requesting
+ * page.</p>
+ *
+ * <p>Contrary to {@link MemoryUsageSetting#getPartitionedCopy(int)} the memory isn't divided in advance, a
+ * single scratch file may use all of it as long as the others don't need it.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+public final class ScratchMemoryGovernor
+{
+    /**
+     * An in-memory page of a registered scratch file, linked in the order of the last access.
+     */
+    static final class Page
+    {
+        final ScratchFile owner;
+        final int pageIdx;
+        private Page previous;
+        private Page next;
+
+        Page(ScratchFile owner, int pageIdx)
+        {
+            this.owner = owner;
+            this.pageIdx = pageIdx;
+        }
+    }
+
+    private final int maxPageCount;
+    /** sentinel of the list of in-memory pages, the least recently used page follows the sentinel */
+    private final Page pages = new Page(null, -1);
+    private int usedPageCount = 0;
+    private int peakUsedPageCount = 0;
+    private long spilledPageCount = 0;
+    private int scratchFileCount = 0;
+
+    /**
+     * Creates a governor limiting the main memory to the given number of bytes.
+     *
+     * @param maxMainMemoryBytes maximum number of main-memory bytes all registered scratch files may use
+     */
+    public ScratchMemoryGovernor(long maxMainMemoryBytes)
+    {
+        maxPageCount = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(0, maxMainMemoryBytes / ScratchFile.PAGE_SIZE));
+        pages.previous = pages;
+        pages.next = pages;
+    }
+
+    synchronized void register()
+    {
+        scratchFileCount++;
+    }
+
+    synchronized void unregister()
+    {
+        scratchFileCount--;
+    }
+
+    /**
+     * Borrows the memory for a new in-memory page. If all memory is in use, the least recently used page of
+     * any registered scratch file is spilled to its temporary file.
+     *
+     * <p>The caller must not hold any lock of a scratch file as spilling a page locks its owner.</p>
+     *
+     * @param owner scratch file of the new page
+     * @param pageIdx index of the new page
+     *
+     * @return the borrowed page or <code>null</code> if the governor has no memory at all
+     *
+     * @throws IOException if the least recently used page couldn't be spilled
+     */
+    Page reserve(ScratchFile owner, int pageIdx) throws IOException
+    {
+        Page page = new Page(owner, pageIdx);
+        Page victim;
+        synchronized (this)
+        {
+            if (usedPageCount < maxPageCount)
+            {
+                usedPageCount++;
+                peakUsedPageCount = Math.max(peakUsedPageCount, usedPageCount);
+                link(page);
+                return page;
+            }
+            victim = pages.next;
+            if (victim == pages)
+            {
+                return null;
+            }
+            // the memory of an unlinked page belongs to the one who unlinked it
+            unlink(victim);
+        }
+        try
+        {
+            victim.owner.spillPage(victim);
+        }
+        catch (IOException ioe)
+        {
+            synchronized (this)
+            {
+                link(victim);
+            }
+            throw ioe;
+        }
+        synchronized (this)
+        {
+            spilledPageCount++;
+            link(page);
+        }
+        return page;
+    }
+
+    /**
+     * Marks the given page as most recently used.
+     *
+     * @param page the accessed page
+     */
+    synchronized void touch(Page page)
+    {
+        if (page.next != null)
+        {
+            unlink(page);
+            link(page);
+        }
+    }
+
+    /**
+     * Returns the memory of the given page, nothing happens if it is being spilled.
+     *
+     * @param page the released page
+     */
+    synchronized void release(Page page)
+    {
+        if (page.next != null)
+        {
+            unlink(page);
+            usedPageCount--;
+        }
+    }
+
+    private void link(Page page)
+    {
+        page.previous = pages.previous;
+        page.next = pages;
+        pages.previous.next = page;
+        pages.previous = page;
+    }
+
+    private void unlink(Page page)
+    {
+        page.previous.next = page.next;
+        page.next.previous = page.previous;
+        page.previous = null;
+        page.next = null;
+    }
+
+    /**
+     * Returns maximum size of main-memory in bytes all registered scratch files may use.
+     *
+     * @return the maximum number of bytes
+     */
+    public long getMaxMainMemoryBytes()
+    {
+        return (long) maxPageCount * ScratchFile.PAGE_SIZE;
+    }
+
+    /**
+     * Returns the number of main-memory bytes currently used by all registered scratch files.
+     *
+     * @return the number of used bytes
+     */
+    public synchronized long getUsedMainMemoryBytes()
+    {
+        return (long) usedPageCount * ScratchFile.PAGE_SIZE;
+    }
+
+    /**
+     * Returns the highest number of main-memory bytes used at the same time.
+     *
+     * @return the peak number of used bytes
+     */
+    public synchronized long getPeakUsedMainMemoryBytes()
+    {
+        return (long) peakUsedPageCount * ScratchFile.PAGE_SIZE;
+    }
+
+    /**
+     * Returns the number of pages spilled to temporary files so far.
+     *
+     * @return the number of spilled pages
+     */
+    public synchronized long getSpilledPageCount()
+    {
+        return spilledPageCount;
+    }
+
+    /**
+     * Returns the number of scratch files currently registered.
+     *
+     * @return the number of open scratch files using this governor
+     */
+    public synchronized int getScratchFileCount()
+    {
+        return scratchFileCount;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "ScratchMemoryGovernor{used=" + getUsedMainMemoryBytes() + ", max=" + getMaxMainMemoryBytes()
+                + ", spilledPages=" + spilledPageCount + ", scratchFiles=" + scratchFileCount + "}";
+    }
+}
@@ -23,6 +23,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSArray;
@@ -30,6 +31,7 @@ import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSBoolean;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSFloat;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
@@ -114,12 +116,21 @@ public abstract class BaseParser
     private static final byte ASCII_ZERO = 48;
     private static final byte ASCII_NINE = 57;
     private static final byte ASCII_SPACE = 32;
+
+    private static final double[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000, 100000, 1000000 };
     
     /**
      * This is the stream that will be read from.
      */
     protected final RandomAccessRead source;
 
+    /**
+     * Scratch buffer holding the bytes of the token being parsed, it is reused for all tokens.
+     */
+    private byte[] tokenBuffer = new byte[32];
+
+    private final TokenCache<COSName> nameCache = new TokenCache<>(256, this::createCOSName);
+
     /**
      * This is the document that will be parsed.
      */
@@ -705,7 +716,7 @@ public abstract class BaseParser
     protected COSName parseCOSName() throws IOException
     {
         readExpectedChar('/');
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int length = 0;
         int c = source.read();
         while (c != -1)
         {
@@ -722,15 +733,7 @@ public abstract class BaseParser
                 // valid hex digits.
                 if (isHexDigit((char)ch1) && isHexDigit((char)ch2))
                 {
-                    String hex = Character.toString((char) ch1) + (char) ch2;
-                    try
-                    {
-                        buffer.write(Integer.parseInt(hex, 16));
-                    }
-                    catch (NumberFormatException e)
-                    {
-                        throw new IOException("Error: expected hex digit, actual='" + hex + "'", e);
-                    }
+                    putTokenByte(length++, Character.digit(ch1, 16) * 16 + Character.digit(ch2, 16));
                     c = source.read();
                 }
                 else
@@ -744,7 +747,7 @@ public abstract class BaseParser
                     }
                     source.rewind(1);
                     c = ch1;
-                    buffer.write(ch);
+                    putTokenByte(length++, ch);
                 }
             }
             else if (isEndOfName(ch))
@@ -753,7 +756,7 @@ public abstract class BaseParser
             }
             else
             {
-                buffer.write(ch);
+                putTokenByte(length++, ch);
                 c = source.read();
             }
         }
@@ -761,17 +764,23 @@ public abstract class BaseParser
         {
             source.rewind(1);
         }
-        
-        byte[] bytes = buffer.toByteArray();
+        return nameCache.get(tokenBuffer, length);
+    }
+
+    /**
+     * Creates the COSName for the given bytes of a name token.
+     */
+    private COSName createCOSName(byte[] bytes, int length)
+    {
         String string;
-        if (isValidUTF8(bytes))
+        if (isValidUTF8(bytes, length))
         {
-            string = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+            string = new String(bytes, 0, length, StandardCharsets.UTF_8);
         }
         else
         {
             // some malformed PDFs don't use UTF-8 see PDFBOX-3347
-            string = new String(buffer.toByteArray(), Charset.forName("Windows-1252"));
+            string = new String(bytes, 0, length, Charset.forName("Windows-1252"));
         }
         return COSName.getPDFName(string);
     }
@@ -779,11 +788,11 @@ public abstract class BaseParser
     /**
      * Returns true if a byte sequence is valid UTF-8.
      */
-    private boolean isValidUTF8(byte[] input)
+    private boolean isValidUTF8(byte[] input, int length)
     {
         try
         {
-            utf8Decoder.decode(ByteBuffer.wrap(input));
+            utf8Decoder.decode(ByteBuffer.wrap(input, 0, length));
             return true;
         }
         catch (CharacterCodingException e)
@@ -869,44 +878,173 @@ public abstract class BaseParser
 
     private COSNumber parseCOSNumber() throws IOException
     {
-        StringBuilder buf = new StringBuilder();
-        int ic = source.read();
-        char c = (char) ic;
-        while (Character.isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'E' || c == 'e')
+        int length = 0;
+        int c = source.read();
+        while (isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'E' || c == 'e')
         {
-            buf.append(c);
-            ic = source.read();
-            c = (char) ic;
+            putTokenByte(length++, c);
+            c = source.read();
         }
-        if (ic != -1)
+        if (c != -1)
         {
             source.rewind(1);
         }
-        return COSNumber.get(buf.toString());
+        return createCOSNumber(length);
     }
 
     /**
-     * This will read the next string from the stream.
+     * Creates the number for the token in the scratch buffer. Integers and plain decimal numbers, which make up
+     * nearly all numbers in real world files, are converted without creating a String. All other tokens are passed to
+     * {@link COSNumber#get(String)}, the result is the same in both cases.
      *
-     * @return The string that was read from the stream, never null.
+     * @param length the length of the token
+     * @return the number
+     * @throws IOException if the token isn't a number
+     */
+    final COSNumber createCOSNumber(int length) throws IOException
+    {
+        byte[] bytes = tokenBuffer;
+        int pos = 0;
+        boolean negative = false;
+        if (length > 1 && (bytes[0] == '-' || bytes[0] == '+'))
+        {
+            negative = bytes[0] == '-';
+            pos = 1;
+        }
+        int start = pos;
+        long value = 0;
+        // 18 digits always fit into a long
+        while (pos < length && pos - start < 18 && isDigit(bytes[pos]))
+        {
+            value = value * 10 + bytes[pos++] - '0';
+        }
+        int integerDigits = pos - start;
+        if (integerDigits > 0 && pos == length)
+        {
+            return COSInteger.get(negative ? -value : value);
+        }
+        // COSFloat keeps the original string if it differs from the formatted value, so that only numbers with up
+        // to 6 significant digits and without a plus sign or superfluous zeros are converted here, float can
+        // represent those exactly enough to be formatted the same way
+        if (integerDigits > 0 && value < 1000000 && pos < length && bytes[pos] == '.'
+                && (integerDigits == 1 || bytes[start] != '0') && bytes[0] != '+')
+        {
+            int fractionStart = ++pos;
+            while (pos < length && pos - fractionStart < POWERS_OF_TEN.length && isDigit(bytes[pos]))
+            {
+                value = value * 10 + bytes[pos++] - '0';
+            }
+            int fractionDigits = pos - fractionStart;
+            if (pos == length && fractionDigits > 0 && fractionDigits < POWERS_OF_TEN.length && value < 1000000
+                    && (fractionDigits == 1 || bytes[length - 1] != '0'))
+            {
+                if (value == 0)
+                {
+                    return new COSFloat(0f);
+                }
+                float floatValue = (float) (value / POWERS_OF_TEN[fractionDigits]);
+                return new COSFloat(negative ? -floatValue : floatValue);
+            }
+        }
+        return COSNumber.get(new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Puts a byte into the scratch buffer at the given index, the buffer grows if needed.
+     *
+     * @param index the index of the byte within the current token
+     * @param b the byte
+     */
+    final void putTokenByte(int index, int b)
+    {
+        if (index == tokenBuffer.length)
+        {
+            tokenBuffer = Arrays.copyOf(tokenBuffer, index * 2);
+        }
+        tokenBuffer[index] = (byte) b;
+    }
+
+    /**
+     * Returns the byte at the given index of the scratch buffer.
+     *
+     * @param index the index of the byte within the current token
+     * @return the byte as unsigned value
+     */
+    final int getTokenByte(int index)
+    {
+        return tokenBuffer[index] & 0xff;
+    }
+
+    /**
+     * Returns the object for the token in the scratch buffer using the given cache.
+     *
+     * @param cache the cache to be used
+     * @param length the length of the token
+     * @return the object for the token
+     * @throws IOException if the object can't be created
+     */
+    final <T> T getCachedToken(TokenCache<T> cache, int length) throws IOException
+    {
+        return cache.get(tokenBuffer, length);
+    }
+
+    /**
+     * Tells whether the token in the scratch buffer equals the given string.
      *
+     * @param length the length of the token
+     * @param expected the expected string, only consisting of ASCII characters
+     * @return true if the token equals the expected string
+     */
+    final boolean isToken(int length, String expected)
+    {
+        if (length != expected.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (tokenBuffer[i] != expected.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next token up to the end of a name into the scratch buffer, leading spaces are skipped.
+     *
+     * @return the length of the token, 0 if there isn't any
      * @throws IOException If there is an error reading from the stream.
      */
-    protected String readString() throws IOException
+    final int readToken() throws IOException
     {
         skipSpaces();
-        StringBuilder buffer = new StringBuilder();
+        int length = 0;
         int c = source.read();
-        while( !isEndOfName((char)c) && c != -1 )
+        while (c != -1 && !isEndOfName(c))
         {
-            buffer.append( (char)c );
+            putTokenByte(length++, c);
             c = source.read();
         }
         if (c != -1)
         {
             source.rewind(1);
         }
-        return buffer.toString();
+        return length;
+    }
+
+    /**
+     * This will read the next string from the stream.
+     *
+     * @return The string that was read from the stream, never null.
+     *
+     * @throws IOException If there is an error reading from the stream.
+     */
+    protected String readString() throws IOException
+    {
+        int length = readToken();
+        return new String(tokenBuffer, 0, length, StandardCharsets.ISO_8859_1);
     }
     
     /**
@@ -1230,24 +1368,17 @@ public abstract class BaseParser
     protected int readInt() throws IOException
     {
         skipSpaces();
-        int retval = 0;
-
-        StringBuilder intBuffer = readStringNumber();
-
-        try
-        {
-            retval = Integer.parseInt( intBuffer.toString() );
-        }
-        catch( NumberFormatException e )
+        int length = readDigits();
+        long retval = parseDigits(length);
+        if (retval < 0 || retval > Integer.MAX_VALUE)
         {
-            source.rewind(intBuffer.toString().getBytes(StandardCharsets.ISO_8859_1).length);
-            throw new IOException("Error: Expected an integer type at offset " +
-                    source.getPosition() +
-                                  ", instead got '" + intBuffer + "'", e);
+            source.rewind(length);
+            throw new IOException("Error: Expected an integer type at offset "
+                    + source.getPosition() + ", instead got '"
+                    + new String(tokenBuffer, 0, length, StandardCharsets.ISO_8859_1) + "'");
         }
-        return retval;
+        return (int) retval;
     }
-    
 
     /**
      * This will read an long from the stream.
@@ -1259,19 +1390,14 @@ public abstract class BaseParser
     protected long readLong() throws IOException
     {
         skipSpaces();
-        long retval = 0;
-
-        StringBuilder longBuffer = readStringNumber();
-
-        try
-        {
-            retval = Long.parseLong( longBuffer.toString() );
-        }
-        catch( NumberFormatException e )
+        int length = readDigits();
+        long retval = parseDigits(length);
+        if (retval < 0)
         {
-            source.rewind(longBuffer.toString().getBytes(StandardCharsets.ISO_8859_1).length);
+            source.rewind(length);
             throw new IOException( "Error: Expected a long type at offset "
-                    + source.getPosition() + ", instead got '" + longBuffer + "'", e);
+                    + source.getPosition() + ", instead got '"
+                    + new String(tokenBuffer, 0, length, StandardCharsets.ISO_8859_1) + "'");
         }
         return retval;
     }
@@ -1285,14 +1411,26 @@ public abstract class BaseParser
      */
     protected final StringBuilder readStringNumber() throws IOException
     {
+        int length = readDigits();
+        return new StringBuilder(new String(tokenBuffer, 0, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Reads the digits of a number into the scratch buffer.
+     *
+     * @return the number of digits
+     * @throws IOException if the number is too long for a long value or if there is an error reading from the stream.
+     */
+    private int readDigits() throws IOException
+    {
+        int length = 0;
         int lastByte;
-        StringBuilder buffer = new StringBuilder();
         while ((lastByte = source.read()) >= '0' && lastByte <= '9')
         {
-            buffer.append( (char)lastByte );
-            if (buffer.length() > MAX_LENGTH_LONG)
+            putTokenByte(length++, lastByte);
+            if (length > MAX_LENGTH_LONG)
             {
-                throw new IOException("Number '" + buffer + 
+                throw new IOException("Number '" + new String(tokenBuffer, 0, length, StandardCharsets.ISO_8859_1) + 
                         "' is getting too long, stop reading at offset " + source.getPosition());
             }
         }
@@ -1300,6 +1438,31 @@ public abstract class BaseParser
         {
             source.rewind(1);
         }
-        return buffer;
+        return length;
+    }
+
+    /**
+     * Converts the digits in the scratch buffer to a long value.
+     *
+     * @param length the number of digits
+     * @return the value or -1 if there aren't any digits or if the value is too big for a long
+     */
+    private long parseDigits(int length)
+    {
+        if (length == 0)
+        {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++)
+        {
+            value = value * 10 + tokenBuffer[i] - '0';
+            if (value < 0)
+            {
+                // overflow
+                return -1;
+            }
+        }
+        return value;
     }
 }
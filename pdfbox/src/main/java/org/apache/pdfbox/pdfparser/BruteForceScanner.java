@@ -0,0 +1,697 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.RandomAccessRead;
+
+/**
+ * Brute force search used to repair damaged pdfs. The file is read in overlapping chunks which are searched
+ * concurrently, the results of the chunks are merged in file order so that the outcome is the same as the one of
+ * a search reading the whole file byte by byte.
+ *
+ * <p>The chunks are searched by a pool of daemon threads private to a single search, which is shut down when the
+ * search is done. The source is only read by the calling thread, so that it doesn't need to be thread safe.</p>
+ */
+final class BruteForceScanner
+{
+    /** default number of bytes searched by a single task */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+    /** default number of threads searching the chunks concurrently */
+    static final int DEFAULT_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /** bytes after the end of a chunk needed to recognize "obj" and "endobj" at the end of the chunk */
+    private static final int OBJECT_LOOKAHEAD = 6;
+
+    /**
+     * bytes before the start of a chunk available to read an object number backwards, longer numbers are read
+     * from the source after the chunks have been searched
+     */
+    private static final int OBJECT_LOOKBEHIND = 64;
+
+    private static final int MAX_LENGTH_LONG = BaseParser.MAX_LENGTH_LONG;
+    private static final long OBJECT_NUMBER_THRESHOLD = 10000000000L;
+
+    private static final int TYPE_OBJECT = 0;
+    private static final int TYPE_END_OF_OBJECT = 1;
+    private static final int TYPE_UNRESOLVED = 2;
+    private static final int TYPE_ERROR = 3;
+
+    private final RandomAccessRead source;
+    private final long minimumOffset;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long length;
+
+    /**
+     * Constructor.
+     *
+     * @param source the pdf to be searched
+     * @param minimumOffset the offset where all searches start
+     * @throws IOException if the length of the source can't be determined
+     */
+    BruteForceScanner(RandomAccessRead source, long minimumOffset) throws IOException
+    {
+        this(source, minimumOffset, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source the pdf to be searched
+     * @param minimumOffset the offset where all searches start
+     * @param chunkSize the number of bytes searched by a single task
+     * @param parallelism the maximum number of threads searching the chunks, 1 to search them in the calling thread
+     * @throws IOException if the length of the source can't be determined
+     */
+    BruteForceScanner(RandomAccessRead source, long minimumOffset, int chunkSize, int parallelism)
+            throws IOException
+    {
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.source = source;
+        this.minimumOffset = minimumOffset;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.length = source.length();
+    }
+
+    /**
+     * Search for every object in the pdf. An object is identified by its "objnr gennr obj" header. The offset of an
+     * object is only added if it is followed by another object, if the file ends with a "%%EOF" marker or if the
+     * last object is closed by an "endobj" marker. If an object number occurs more than once, the last one wins.
+     *
+     * @param lastEOFMarker offset of the last "%%EOF" marker, or {@link Long#MAX_VALUE} if there isn't any
+     * @return the offsets of all objects found
+     * @throws IOException if something went wrong, e.g. an object number is too big
+     */
+    Map<COSObjectKey, Long> searchObjects(final long lastEOFMarker) throws IOException
+    {
+        final Map<COSObjectKey, Long> offsets = new HashMap<>();
+        // the first position is searched even if the %%EOF marker is located before
+        long end = Math.min(length, Math.max(lastEOFMarker, minimumOffset + 1));
+        ChunkReader<List<Event>> reader = new ChunkReader<List<Event>>(OBJECT_LOOKBEHIND, OBJECT_LOOKAHEAD)
+        {
+            private long lastObjectId = Long.MIN_VALUE;
+            private int lastGenID = Integer.MIN_VALUE;
+            private long lastObjOffset = Long.MIN_VALUE;
+            private boolean endOfObjFound = false;
+
+            @Override
+            List<Event> search(Chunk chunk)
+            {
+                return searchObjects(chunk);
+            }
+
+            @Override
+            void merge(List<Event> events) throws IOException
+            {
+                for (Event event : events)
+                {
+                    if (event.type == TYPE_UNRESOLVED)
+                    {
+                        event = readObjectHeader(new SourceBytes(), event.position);
+                        if (event == null)
+                        {
+                            continue;
+                        }
+                    }
+                    switch (event.type)
+                    {
+                        case TYPE_OBJECT:
+                            if (lastObjOffset > 0)
+                            {
+                                // add the former object ID only if there was a subsequent object ID
+                                offsets.put(new COSObjectKey(lastObjectId, lastGenID), lastObjOffset);
+                            }
+                            lastObjectId = event.objectId;
+                            lastGenID = event.genId;
+                            lastObjOffset = event.offset;
+                            endOfObjFound = false;
+                            break;
+                        case TYPE_END_OF_OBJECT:
+                            endOfObjFound = true;
+                            break;
+                        default:
+                            throw new IOException(event.message);
+                    }
+                }
+            }
+
+            @Override
+            void finish()
+            {
+                if ((lastEOFMarker < Long.MAX_VALUE || endOfObjFound) && lastObjOffset > 0)
+                {
+                    // if the pdf wasn't cut off in the middle or if the last object ends with a "endobj" marker
+                    // the last object id has to be added here so that it can't get lost as there isn't any
+                    // subsequent object id
+                    offsets.put(new COSObjectKey(lastObjectId, lastGenID), lastObjOffset);
+                }
+            }
+        };
+        reader.read(minimumOffset, end);
+        return offsets;
+    }
+
+    /**
+     * Search for all occurrences of the given string starting at the minimum offset. Like a sequential search a
+     * match cut off by the end of the file is returned as well.
+     *
+     * <p>The characters of the string have to be distinct, so that occurrences can't overlap.</p>
+     *
+     * @param string the string to be searched
+     * @return the sorted start positions of all occurrences
+     * @throws IOException if something went wrong
+     */
+    List<Long> searchString(char[] string) throws IOException
+    {
+        final byte[] pattern = new byte[string.length];
+        for (int i = 0; i < string.length; i++)
+        {
+            pattern[i] = (byte) string[i];
+        }
+        final int[] shifts = createShiftTable(pattern);
+        final List<Long> positions = new ArrayList<>();
+        ChunkReader<long[]> reader = new ChunkReader<long[]>(0, pattern.length - 1)
+        {
+            @Override
+            long[] search(Chunk chunk)
+            {
+                return searchString(chunk, pattern, shifts);
+            }
+
+            @Override
+            void merge(long[] chunkPositions)
+            {
+                for (long position : chunkPositions)
+                {
+                    positions.add(position);
+                }
+            }
+
+            @Override
+            void finish()
+            {
+            }
+        };
+        reader.read(minimumOffset, length);
+        // the longest prefix of the string at the end of the file
+        int tailLength = (int) Math.min(pattern.length - 1, Math.max(0, length - minimumOffset));
+        if (tailLength > 0)
+        {
+            byte[] tail = new byte[tailLength];
+            readFully(length - tailLength, tail);
+            for (int prefixLength = tailLength; prefixLength > 0; prefixLength--)
+            {
+                if (startsWith(tail, tailLength - prefixLength, pattern, prefixLength))
+                {
+                    positions.add(length - prefixLength);
+                    break;
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Search a single chunk for object headers and "endobj" markers, see the former byte by byte implementation of
+     * {@link COSParser} for the details.
+     */
+    private List<Event> searchObjects(Chunk chunk)
+    {
+        List<Event> events = new ArrayList<>();
+        byte[] bytes = chunk.bytes;
+        int end = (int) (chunk.end - chunk.bufferStart);
+        for (int i = (int) (chunk.start - chunk.bufferStart); i < end; i++)
+        {
+            int c = bytes[i];
+            if (isWhitespace(c))
+            {
+                if (chunk.byteAt(i + 1) == 'o' && chunk.byteAt(i + 2) == 'b' && chunk.byteAt(i + 3) == 'j')
+                {
+                    long position = chunk.bufferStart + i;
+                    Event event;
+                    try
+                    {
+                        event = readObjectHeader(chunk, position);
+                    }
+                    catch (OutsideOfChunkException exception)
+                    {
+                        event = new Event(TYPE_UNRESOLVED, position);
+                    }
+                    catch (IOException exception)
+                    {
+                        // chunks don't throw any other exception
+                        event = new Event(TYPE_ERROR, position);
+                        event.message = exception.getMessage();
+                    }
+                    if (event != null)
+                    {
+                        events.add(event);
+                        i += 2;
+                    }
+                }
+            }
+            // check for "endo" as abbreviation for "endobj", as the pdf may be cut off
+            // in the middle of the keyword, see PDFBOX-3936.
+            else if (c == 'e' && chunk.byteAt(i + 1) == 'n' && chunk.byteAt(i + 2) == 'd'
+                    && chunk.byteAt(i + 3) == 'o')
+            {
+                long position = chunk.bufferStart + i;
+                if (position + 4 >= length
+                        || (chunk.byteAt(i + 4) == 'b' && chunk.byteAt(i + 5) == 'j'))
+                {
+                    events.add(new Event(TYPE_END_OF_OBJECT, position));
+                }
+                i += 3;
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads the object number and the generation number of an object header, the given position is the whitespace
+     * in front of the "obj" keyword.
+     *
+     * @return the header or null if there isn't any valid object number
+     * @throws IOException if the object number is too big or if it can't be read
+     */
+    private Event readObjectHeader(Bytes bytes, long position) throws IOException
+    {
+        int genID = bytes.get(position - 1);
+        if (!isDigit(genID))
+        {
+            return null;
+        }
+        long tempOffset = position - 2;
+        if (!isWhitespace(bytes.get(tempOffset)))
+        {
+            return null;
+        }
+        while (tempOffset > minimumOffset && isWhitespace(bytes.get(tempOffset)))
+        {
+            tempOffset--;
+        }
+        boolean objectIDFound = false;
+        while (tempOffset > minimumOffset && isDigit(bytes.get(tempOffset)))
+        {
+            tempOffset--;
+            objectIDFound = true;
+        }
+        if (!objectIDFound)
+        {
+            return null;
+        }
+        long objectOffset = tempOffset + 1;
+        StringBuilder number = new StringBuilder();
+        int c;
+        for (long i = objectOffset; isDigit(c = bytes.get(i)); i++)
+        {
+            number.append((char) c);
+            if (number.length() > MAX_LENGTH_LONG)
+            {
+                throw new IOException("Number '" + number + "' is getting too long, stop reading at offset "
+                        + (i + 1));
+            }
+        }
+        long objectId;
+        try
+        {
+            objectId = Long.parseLong(number.toString());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Error: Expected a long type at offset " + objectOffset + ", instead got '"
+                    + number + "'", e);
+        }
+        if (objectId >= OBJECT_NUMBER_THRESHOLD)
+        {
+            throw new IOException("Object Number '" + objectId + "' has more than 10 digits or is negative");
+        }
+        Event event = new Event(TYPE_OBJECT, position);
+        event.objectId = objectId;
+        event.genId = genID - '0';
+        event.offset = objectOffset;
+        return event;
+    }
+
+    /**
+     * Search a single chunk for the given string using the Boyer-Moore-Horspool algorithm.
+     */
+    private static long[] searchString(Chunk chunk, byte[] pattern, int[] shifts)
+    {
+        byte[] bytes = chunk.bytes;
+        int last = pattern.length - 1;
+        int end = (int) (chunk.end - chunk.bufferStart);
+        int limit = bytes.length - last;
+        long[] positions = new long[16];
+        int count = 0;
+        int i = (int) (chunk.start - chunk.bufferStart);
+        while (i < end && i < limit)
+        {
+            int j = last;
+            while (j >= 0 && bytes[i + j] == pattern[j])
+            {
+                j--;
+            }
+            if (j < 0)
+            {
+                if (count == positions.length)
+                {
+                    long[] newPositions = new long[count * 2];
+                    System.arraycopy(positions, 0, newPositions, 0, count);
+                    positions = newPositions;
+                }
+                positions[count++] = chunk.bufferStart + i;
+            }
+            i += shifts[bytes[i + last] & 0xff];
+        }
+        long[] result = new long[count];
+        System.arraycopy(positions, 0, result, 0, count);
+        return result;
+    }
+
+    private static int[] createShiftTable(byte[] pattern)
+    {
+        int[] shifts = new int[256];
+        for (int i = 0; i < shifts.length; i++)
+        {
+            shifts[i] = pattern.length;
+        }
+        for (int i = 0; i < pattern.length - 1; i++)
+        {
+            shifts[pattern[i] & 0xff] = pattern.length - 1 - i;
+        }
+        return shifts;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] pattern, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            if (bytes[offset + i] != pattern[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(int c)
+    {
+        return c == 0 || c == 9 || c == 12 || c == 10 || c == 13 || c == 32;
+    }
+
+    private static boolean isDigit(int c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private void readFully(long position, byte[] bytes) throws IOException
+    {
+        source.seek(position);
+        int offset = 0;
+        while (offset < bytes.length)
+        {
+            int read = source.read(bytes, offset, bytes.length - offset);
+            if (read < 0)
+            {
+                throw new EOFException("Premature end of file at offset " + (position + offset));
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Reads the chunks of a range of the file one after another, searches them concurrently and merges the
+     * results in file order. The number of chunks in memory is limited by the parallelism of the scanner.
+     */
+    private abstract class ChunkReader<T>
+    {
+        private final int lookbehind;
+        private final int lookahead;
+
+        ChunkReader(int lookbehind, int lookahead)
+        {
+            this.lookbehind = lookbehind;
+            this.lookahead = lookahead;
+        }
+
+        /**
+         * Searches the given chunk, called concurrently.
+         */
+        abstract T search(Chunk chunk);
+
+        /**
+         * Merges the result of a chunk, called in file order by the thread reading the chunks.
+         */
+        abstract void merge(T result) throws IOException;
+
+        /**
+         * Called after all chunks have been merged.
+         */
+        abstract void finish();
+
+        void read(long start, long end) throws IOException
+        {
+            long originOffset = source.getPosition();
+            try
+            {
+                if (end - start <= chunkSize || parallelism == 1)
+                {
+                    // nothing to be done in parallel
+                    for (long chunkStart = start; chunkStart < end; chunkStart += chunkSize)
+                    {
+                        merge(search(readChunk(chunkStart, Math.min(end, chunkStart + chunkSize))));
+                    }
+                }
+                else
+                {
+                    readConcurrently(start, end);
+                }
+                finish();
+            }
+            finally
+            {
+                source.seek(originOffset);
+            }
+        }
+
+        private void readConcurrently(long start, long end) throws IOException
+        {
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable ->
+            {
+                Thread thread = new Thread(runnable, "PDFBox-BruteForceScanner-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            int maxPendingChunks = parallelism + 1;
+            ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+            try
+            {
+                for (long chunkStart = start; chunkStart < end; chunkStart += chunkSize)
+                {
+                    final Chunk chunk = readChunk(chunkStart, Math.min(end, chunkStart + chunkSize));
+                    pending.add(pool.submit(new Callable<T>()
+                    {
+                        @Override
+                        public T call()
+                        {
+                            return search(chunk);
+                        }
+                    }));
+                    if (pending.size() >= maxPendingChunks)
+                    {
+                        merge(get(pending.poll()));
+                    }
+                }
+                while (!pending.isEmpty())
+                {
+                    merge(get(pending.poll()));
+                }
+            }
+            finally
+            {
+                // discards the chunks still pending in case of an error
+                pool.shutdownNow();
+            }
+        }
+
+        private T get(Future<T> future) throws IOException
+        {
+            try
+            {
+                return future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while searching the pdf");
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        private Chunk readChunk(long start, long end) throws IOException
+        {
+            long bufferStart = Math.max(0, start - lookbehind);
+            long bufferEnd = Math.min(length, end + lookahead);
+            byte[] bytes = new byte[(int) (bufferEnd - bufferStart)];
+            readFully(bufferStart, bytes);
+            return new Chunk(bytes, bufferStart, start, end);
+        }
+    }
+
+    /**
+     * Random access to single bytes of the pdf.
+     */
+    private interface Bytes
+    {
+        /**
+         * @return the byte at the given position or -1 if it is beyond the end of the file
+         */
+        int get(long position) throws IOException;
+    }
+
+    /**
+     * Bytes read from the source, used for the rare cases a chunk doesn't contain enough bytes.
+     */
+    private final class SourceBytes implements Bytes
+    {
+        @Override
+        public int get(long position) throws IOException
+        {
+            source.seek(position);
+            return source.read();
+        }
+    }
+
+    /**
+     * A chunk of the file, the positions from start to end are searched. The buffer may contain some bytes before
+     * and after them.
+     */
+    private final class Chunk implements Bytes
+    {
+        private final byte[] bytes;
+        private final long bufferStart;
+        private final long start;
+        private final long end;
+
+        Chunk(byte[] bytes, long bufferStart, long start, long end)
+        {
+            this.bytes = bytes;
+            this.bufferStart = bufferStart;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the byte at the given index of the buffer or -1 beyond the end of the file
+         */
+        int byteAt(int index)
+        {
+            return index < bytes.length ? bytes[index] & 0xff : -1;
+        }
+
+        @Override
+        public int get(long position) throws OutsideOfChunkException
+        {
+            long index = position - bufferStart;
+            if (index >= 0 && index < bytes.length)
+            {
+                return bytes[(int) index] & 0xff;
+            }
+            if (position >= length)
+            {
+                return -1;
+            }
+            throw OutsideOfChunkException.INSTANCE;
+        }
+    }
+
+    /**
+     * Thrown if an object header needs bytes before the buffer of a chunk.
+     */
+    private static final class OutsideOfChunkException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private static final OutsideOfChunkException INSTANCE = new OutsideOfChunkException();
+
+        private OutsideOfChunkException()
+        {
+            super("Position outside of chunk", null);
+            setStackTrace(new StackTraceElement[0]);
+        }
+    }
+
+    /**
+     * An object header, an "endobj" marker, an object header to be read from the source or an invalid object
+     * number found while searching a chunk.
+     */
+    private static final class Event
+    {
+        private final int type;
+        private final long position;
+        private long objectId;
+        private int genId;
+        private long offset;
+        private String message;
+
+        Event(int type, long position)
+        {
+            this.type = type;
+            this.position = position;
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdfparser;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -29,6 +30,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -159,6 +161,39 @@ public class COSParser extends BaseParser implements ICOSParser
      */
     protected XrefTrailerResolver xrefTrailerResolver = new XrefTrailerResolver();
 
+    /**
+     * Guards the position of the source. Objects are loaded concurrently, each one is locked by its COSObject, but the
+     * source can only be read by one thread at a time.
+     */
+    private final ReentrantLock sourceLock = new ReentrantLock();
+
+    /**
+     * File to store the cross reference information in, <code>null</code> if no index is used.
+     */
+    private File xrefIndexFile = null;
+    private long sourceLastModified = 0;
+
+    /**
+     * Decoded object streams, so that the objects of an object stream can be parsed without decoding the whole
+     * stream for each of them.
+     */
+    private final ObjectStreamCache objectStreamCache = new ObjectStreamCache(
+            ObjectStreamCache.DEFAULT_MAX_BYTES);
+
+    /**
+     * Read only the first page section of the xref of linearized pdfs when parsing.
+     */
+    private boolean firstPageFastPath = false;
+
+    /**
+     * Tells if only the first page section of the xref of a linearized pdf was read so far.
+     */
+    private volatile boolean firstPageXrefOnly = false;
+
+    /**
+     * Guards reading the remaining xref of a linearized pdf. It is acquired before the source lock.
+     */
+    private final ReentrantLock xrefCompletionLock = new ReentrantLock();
 
     /**
      * The prefix for the temp file being used. 
@@ -218,6 +253,86 @@ public class COSParser extends BaseParser implements ICOSParser
         }
     }
 
+    /**
+     * Sets a file to store the cross reference information of the pdf in. If the file contains the information of
+     * the current version of the pdf, it is used instead of parsing the cross reference tables and streams, or
+     * instead of a brute force search if the pdf is damaged. Otherwise the file is written after the cross reference
+     * information was parsed. The index belongs to the pdf as long as the length and the modification time of the
+     * pdf and the hash of its trailing bytes didn't change.
+     * 
+     * @param indexFile the file to store the index in, <code>null</code> to not use an index
+     * @param lastModified the time the pdf was last modified, see {@link File#lastModified()}
+     */
+    public void setXrefIndex(File indexFile, long lastModified)
+    {
+        xrefIndexFile = indexFile;
+        sourceLastModified = lastModified;
+    }
+
+    /**
+     * Enables the fast path for linearized pdfs. If the pdf is linearized and wasn't updated afterwards, only the
+     * cross reference section of the first page is read when parsing the pdf. The remaining cross reference information
+     * is read as soon as an object is needed which isn't part of the first page section. Other pdfs are parsed as
+     * usual.
+     * 
+     * @param enabled true to read only the first page section of linearized pdfs
+     */
+    public void setFirstPageFastPath(boolean enabled)
+    {
+        firstPageFastPath = enabled;
+    }
+
+    /**
+     * Sets the maximum size of the decoded data of all object streams kept in memory. The objects of a cached object
+     * stream are parsed without decoding the stream again. The least recently used object streams are removed from
+     * the cache if the size is exceeded. The cache is held as long as the document is open. The default is
+     * {@link org.apache.pdfbox.io.MemoryUsageSetting#DEFAULT_OBJECT_STREAM_CACHE_BYTES}, it is set by
+     * {@link org.apache.pdfbox.io.MemoryUsageSetting#setObjectStreamCacheBytes(long)} when loading a document. 0
+     * disables the cache.
+     * 
+     * @param maxBytes the maximum number of bytes of all cached object streams
+     */
+    public void setObjectStreamCacheSize(long maxBytes)
+    {
+        objectStreamCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the maximum size of the decoded data of all object streams kept in memory.
+     * 
+     * @return the maximum number of bytes of all cached object streams
+     */
+    public long getObjectStreamCacheSize()
+    {
+        return objectStreamCache.getMaxBytes();
+    }
+
+    /**
+     * Returns how often an object was parsed from a cached object stream.
+     * 
+     * @return the number of cache hits
+     */
+    public long getObjectStreamCacheHitCount()
+    {
+        return objectStreamCache.getHitCount();
+    }
+
+    /**
+     * Returns how often an object stream had to be decoded to parse one of its objects.
+     * 
+     * @return the number of cache misses
+     */
+    public long getObjectStreamCacheMissCount()
+    {
+        return objectStreamCache.getMissCount();
+    }
+
+    @Override
+    public long getCacheMemoryUsed()
+    {
+        return objectStreamCache.getBytes();
+    }
+
     /**
      * Read the trailer information and provide a COSDictionary containing the trailer information.
      * 
@@ -226,6 +341,26 @@ public class COSParser extends BaseParser implements ICOSParser
      */
     protected COSDictionary retrieveTrailer() throws IOException
     {
+        // the remaining xref needs a new resolver later on
+        if (firstPageFastPath && resetTrailerResolver())
+        {
+            COSDictionary trailer = retrieveFirstPageTrailer();
+            if (trailer != null)
+            {
+                return trailer;
+            }
+        }
+        byte[] tailHash = null;
+        // the index doesn't contain the single xref sections needed by the resolver
+        if (xrefIndexFile != null && resetTrailerResolver())
+        {
+            tailHash = XrefIndex.hashTail(source, readTrailBytes);
+            COSDictionary trailer = retrieveTrailerFromIndex(tailHash);
+            if (trailer != null)
+            {
+                return trailer;
+            }
+        }
         COSDictionary trailer = null;
         boolean rebuildTrailer = false;
         try
@@ -271,6 +406,18 @@ public class COSParser extends BaseParser implements ICOSParser
                 bfSearchForObjStreams();
             }
         }
+        if (tailHash != null && trailer != null && trailer.getItem(COSName.ROOT) != null)
+        {
+            try
+            {
+                XrefIndex.write(xrefIndexFile, fileLen, sourceLastModified, tailHash, document,
+                        trailerWasRebuild, isLenient);
+            }
+            catch (IOException exception)
+            {
+                LOG.warn("Xref index " + xrefIndexFile + " couldn't be written", exception);
+            }
+        }
         if (resetTrailerResolver())
         {
             xrefTrailerResolver.reset();
@@ -279,6 +426,263 @@ public class COSParser extends BaseParser implements ICOSParser
         return trailer;
     }
 
+    /**
+     * Takes the cross reference information from the index file, if it belongs to the current version of the pdf.
+     * 
+     * @param tailHash the hash of the trailing bytes of the pdf
+     * @return the trailer or <code>null</code> if the index can't be used
+     * @throws IOException if something went wrong
+     */
+    private COSDictionary retrieveTrailerFromIndex(byte[] tailHash) throws IOException
+    {
+        XrefIndex index = XrefIndex.read(xrefIndexFile, fileLen, sourceLastModified, tailHash,
+                document);
+        // an index written in lenient mode may contain repaired information
+        if (index == null || (index.isLenient() && !isLenient())
+                || index.getTrailer().getItem(COSName.ROOT) == null)
+        {
+            return null;
+        }
+        index.applyTo(document);
+        trailerWasRebuild = index.isTrailerRebuilt();
+        prepareDecryption();
+        xrefTrailerResolver.reset();
+        xrefTrailerResolver = null;
+        return index.getTrailer();
+    }
+
+    /**
+     * Reads the first page section of the xref of a linearized pdf, see {@link #setFirstPageFastPath(boolean)}.
+     * 
+     * @return the trailer of the first page section or <code>null</code> if the pdf has to be parsed as usual
+     * @throws IOException if something went wrong
+     */
+    private COSDictionary retrieveFirstPageTrailer() throws IOException
+    {
+        COSDictionary trailer;
+        try
+        {
+            trailer = parseFirstPageXref();
+        }
+        catch (IOException exception)
+        {
+            LOG.debug("Couldn't read the first page section of the xref", exception);
+            trailer = null;
+        }
+        if (trailer == null)
+        {
+            // start all over again
+            xrefTrailerResolver = new XrefTrailerResolver();
+            return null;
+        }
+        firstPageXrefOnly = true;
+        prepareDecryption();
+        xrefTrailerResolver.reset();
+        xrefTrailerResolver = null;
+        return trailer;
+    }
+
+    private COSDictionary parseFirstPageXref() throws IOException
+    {
+        COSDictionary linearized = parseLinearizationDictionary();
+        if (linearized == null)
+        {
+            return null;
+        }
+        // the first page section follows the linearization dictionary
+        long xrefOffset = source.getPosition();
+        if (source.peek() == X)
+        {
+            if (!parseXrefTable(xrefOffset) || !parseTrailer())
+            {
+                return null;
+            }
+        }
+        else
+        {
+            parseXrefObjStream(xrefOffset, true);
+        }
+        COSDictionary firstPageTrailer = xrefTrailerResolver.getCurrentTrailer();
+        if (firstPageTrailer.getItem(COSName.ROOT) == null
+                || firstPageTrailer.containsKey(COSName.XREF_STM))
+        {
+            return null;
+        }
+        // the section referenced by Prev is read later on
+        COSBase prev = firstPageTrailer.getItem(COSName.PREV);
+        firstPageTrailer.removeItem(COSName.PREV);
+        xrefTrailerResolver.setStartxref(xrefOffset);
+        COSDictionary trailer = xrefTrailerResolver.getTrailer();
+        trailer.setItem(COSName.PREV, prev);
+
+        Map<COSObjectKey, Long> xrefTable = xrefTrailerResolver.getXrefTable();
+        COSObjectKey firstPageKey = new COSObjectKey(linearized.getLong(COSName.O), 0);
+        if (!xrefTable.containsKey(firstPageKey) || (isLenient && !validateXrefOffsets(xrefTable)))
+        {
+            return null;
+        }
+        document.setTrailer(trailer);
+        document.setIsXRefStream(XRefType.STREAM == xrefTrailerResolver.getXrefType());
+        document.addXRefTable(xrefTable);
+        document.setHighestXRefObjectNumber(xrefTable.keySet().stream() //
+                .mapToLong(COSObjectKey::getNumber) //
+                .max().orElse(0));
+        document.setFirstPageKey(firstPageKey);
+        return trailer;
+    }
+
+    /**
+     * Parses the linearization dictionary at the beginning of the pdf.
+     * 
+     * @return the linearization dictionary or <code>null</code> if the pdf isn't linearized or was updated after the
+     * linearization
+     * @throws IOException if something went wrong
+     */
+    private COSDictionary parseLinearizationDictionary() throws IOException
+    {
+        // skip the header comments
+        source.seek(0);
+        skipSpaces();
+        // the linearization dictionary has to be within the first 1024 bytes
+        if (source.getPosition() > 1024)
+        {
+            return null;
+        }
+        readObjectNumber();
+        readGenerationNumber();
+        readExpectedString(OBJ_MARKER, true);
+        COSBase object = parseDirObject();
+        if (!(object instanceof COSDictionary))
+        {
+            return null;
+        }
+        COSDictionary linearized = (COSDictionary) object;
+        // the length doesn't match if the pdf was updated incrementally
+        if (!linearized.containsKey(COSName.LINEARIZED) || linearized.getLong(COSName.L) != fileLen
+                || linearized.getLong(COSName.O) <= 0)
+        {
+            return null;
+        }
+        skipSpaces();
+        readExpectedString(ENDOBJ_STRING.toCharArray(), true);
+        return linearized;
+    }
+
+    /**
+     * Reads the remaining cross reference information, if only the first page section of the xref of a linearized pdf
+     * was read so far. The trailer of the first page section is kept, missing entries are added.
+     * 
+     * @throws IOException if something went wrong
+     */
+    @Override
+    public void completeXrefTable() throws IOException
+    {
+        if (!firstPageXrefOnly)
+        {
+            return;
+        }
+        xrefCompletionLock.lock();
+        try
+        {
+            completeXrefTableLocked();
+        }
+        finally
+        {
+            xrefCompletionLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the remaining xref while the xref completion lock is held by the current thread.
+     */
+    private void completeXrefTableLocked() throws IOException
+    {
+        // objects needed to read the remaining xref are looked up in the first page section only
+        if (!firstPageXrefOnly || xrefCompletionLock.getHoldCount() > 1)
+        {
+            return;
+        }
+        sourceLock.lock();
+        try
+        {
+            parseRemainingXref();
+        }
+        finally
+        {
+            firstPageXrefOnly = false;
+            document.setFirstPageKey(null);
+            sourceLock.unlock();
+        }
+    }
+
+    private void parseRemainingXref() throws IOException
+    {
+        long position = source.getPosition();
+        COSDictionary firstPageTrailer = document.getTrailer();
+        xrefTrailerResolver = new XrefTrailerResolver();
+        try
+        {
+            long startXRefOffset = getStartxrefOffset();
+            if (startXRefOffset < 0)
+            {
+                throw new IOException("Missing startxref");
+            }
+            // the first page section is read again, it is referenced by startxref
+            COSDictionary trailer = parseXref(startXRefOffset);
+            trailer.forEach((key, value) -> {
+                if (!firstPageTrailer.containsKey(key))
+                {
+                    firstPageTrailer.setItem(key, value);
+                }
+            });
+        }
+        finally
+        {
+            document.setTrailer(firstPageTrailer);
+            xrefTrailerResolver.reset();
+            xrefTrailerResolver = null;
+            source.seek(position);
+        }
+    }
+
+    /**
+     * Reads the remaining xref as an object wasn't found in the first page section. Another thread may be reading it
+     * already and needs the source lock to do so, that's why the current thread mustn't hold the source lock while
+     * waiting for it. The source lock is never held while an object is looked up, so this is only a safeguard: if it
+     * is held nevertheless, the xref is only read if no other thread is reading it. The position of the source is
+     * restored.
+     */
+    private void completeXrefTableForObject() throws IOException
+    {
+        if (sourceLock.isHeldByCurrentThread())
+        {
+            if (!xrefCompletionLock.tryLock())
+            {
+                return;
+            }
+        }
+        else
+        {
+            xrefCompletionLock.lock();
+        }
+        try
+        {
+            completeXrefTableLocked();
+        }
+        catch (IOException exception)
+        {
+            if (!isLenient)
+            {
+                throw exception;
+            }
+            LOG.error("Couldn't read the remaining xref of the linearized pdf", exception);
+        }
+        finally
+        {
+            xrefCompletionLock.unlock();
+        }
+    }
+
     /**
      * Indicates whether the xref trailer resolver should be reset or not. Should be overwritten if the xref trailer
      * resolver is needed after the initial parsing.
@@ -572,12 +976,29 @@ public class COSParser extends BaseParser implements ICOSParser
     @Override
     public COSBase dereferenceCOSObject(COSObject obj) throws IOException
     {
-        long currentPos = source.getPosition();
+        long currentPos;
+        sourceLock.lock();
+        try
+        {
+            currentPos = source.getPosition();
+        }
+        finally
+        {
+            sourceLock.unlock();
+        }
         COSBase parsedObj = parseObjectDynamically(obj.getObjectNumber(), obj.getGenerationNumber(),
                 false);
         if (currentPos > 0)
         {
-            source.seek(currentPos);
+            sourceLock.lock();
+            try
+            {
+                source.seek(currentPos);
+            }
+            finally
+            {
+                sourceLock.unlock();
+            }
         }
         return parsedObj;
     }
@@ -586,7 +1007,15 @@ public class COSParser extends BaseParser implements ICOSParser
     public RandomAccessReadView createRandomAccessReadView(long startPosition, long streamLength)
             throws IOException
     {
-        return source.createView(startPosition, streamLength);
+        sourceLock.lock();
+        try
+        {
+            return source.createView(startPosition, streamLength);
+        }
+        finally
+        {
+            sourceLock.unlock();
+        }
     }
 
     /**
@@ -602,7 +1031,7 @@ public class COSParser extends BaseParser implements ICOSParser
      * 
      * @throws IOException If an IO error occurs.
      */
-    protected synchronized COSBase parseObjectDynamically(long objNr, int objGenNr,
+    protected COSBase parseObjectDynamically(long objNr, int objGenNr,
             boolean requireExistingNotCompressedObj) throws IOException
     {
         final COSObjectKey objKey = new COSObjectKey(objNr, objGenNr);
@@ -640,20 +1069,50 @@ public class COSParser extends BaseParser implements ICOSParser
     private Long getObjectOffset(COSObjectKey objKey, boolean requireExistingNotCompressedObj)
             throws IOException
     {
-        // read offset or object stream object number from xref table
-        Long offsetOrObjstmObNr = document.getXrefTable().get(objKey);
+        Long offsetOrObjstmObNr;
+        // the xref table may be updated
+        sourceLock.lock();
+        try
+        {
+            // read offset or object stream object number from xref table
+            offsetOrObjstmObNr = document.getXrefTable().get(objKey);
+        }
+        finally
+        {
+            sourceLock.unlock();
+        }
 
-        // maybe something is wrong with the xref table -> perform brute force search for all objects
-        if (offsetOrObjstmObNr == null && isLenient)
+        // the object isn't part of the first page section of a linearized pdf
+        if (offsetOrObjstmObNr == null && firstPageXrefOnly && !xrefCompletionLock.isHeldByCurrentThread())
         {
-            Map<COSObjectKey, Long> bfCOSObjectKeyOffsets = getBFCOSObjectOffsets();
-            offsetOrObjstmObNr = bfCOSObjectKeyOffsets.get(objKey);
-            if (offsetOrObjstmObNr != null)
+            completeXrefTableForObject();
+        }
+
+        // the xref table may be updated and the brute force search moves the source
+        sourceLock.lock();
+        try
+        {
+            if (offsetOrObjstmObNr == null)
             {
-                LOG.debug("Set missing offset " + offsetOrObjstmObNr + " for object " + objKey);
-                document.getXrefTable().put(objKey, offsetOrObjstmObNr);
+                offsetOrObjstmObNr = document.getXrefTable().get(objKey);
+            }
+
+            // maybe something is wrong with the xref table -> perform brute force search for all objects
+            if (offsetOrObjstmObNr == null && isLenient)
+            {
+                Map<COSObjectKey, Long> bfCOSObjectKeyOffsets = getBFCOSObjectOffsets();
+                offsetOrObjstmObNr = bfCOSObjectKeyOffsets.get(objKey);
+                if (offsetOrObjstmObNr != null)
+                {
+                    LOG.debug("Set missing offset " + offsetOrObjstmObNr + " for object " + objKey);
+                    document.getXrefTable().put(objKey, offsetOrObjstmObNr);
+                }
             }
         }
+        finally
+        {
+            sourceLock.unlock();
+        }
 
         // sanity test to circumvent loops with broken documents
         if (requireExistingNotCompressedObj
@@ -667,6 +1126,20 @@ public class COSParser extends BaseParser implements ICOSParser
 
     private COSBase parseFileObject(Long offsetOrObjstmObNr, final COSObjectKey objKey)
             throws IOException
+    {
+        sourceLock.lock();
+        try
+        {
+            return parseFileObjectLocked(offsetOrObjstmObNr, objKey);
+        }
+        finally
+        {
+            sourceLock.unlock();
+        }
+    }
+
+    private COSBase parseFileObjectLocked(Long offsetOrObjstmObNr, final COSObjectKey objKey)
+            throws IOException
     {
         // ---- go to object start
         source.seek(offsetOrObjstmObNr);
@@ -750,6 +1223,11 @@ public class COSParser extends BaseParser implements ICOSParser
     /**
      * Parse the object with the given key from the object stream with the given number.
      * 
+     * <p>The decoded object stream is cached, but it isn't locked while it is decoded: if several threads load
+     * objects of the same object stream which isn't cached yet, each of them decodes it and the one finishing last
+     * replaces the others in the cache. Decoding runs outside of the source lock, so the threads don't wait for each
+     * other.</p>
+     * 
      * @param objstmObjNr the number of the offset stream
      * @param key the key of the object to be parsed
      * @return the parsed object
@@ -761,12 +1239,22 @@ public class COSParser extends BaseParser implements ICOSParser
         COSBase objectStreamObject = null;
         if (objstmBaseObj instanceof COSStream)
         {
-            // parse object stream
-            PDFObjectStreamParser parser = null;
             try
             {
-                parser = new PDFObjectStreamParser((COSStream) objstmBaseObj, document);
-                objectStreamObject = parser.parseObject(key.getNumber());
+                ObjectStreamCache.Entry objectStream = objectStreamCache.get(objstmObjNr);
+                if (objectStream == null)
+                {
+                    // decode and parse object stream
+                    objectStream = new PDFObjectStreamParser((COSStream) objstmBaseObj, document)
+                            .readDecodedStream();
+                    objectStreamCache.put(objstmObjNr, objectStream);
+                }
+                Integer position = objectStream.getPosition(key.getNumber());
+                if (position != null)
+                {
+                    objectStreamObject = new PDFObjectStreamParser(objectStream.getData(), document)
+                            .parseObjectAt(position);
+                }
                 if (objectStreamObject != null)
                 {
                     objectStreamObject.setKey(key);
@@ -806,7 +1294,7 @@ public class COSParser extends BaseParser implements ICOSParser
         if (lengthBaseObj instanceof COSObject)
         {
             COSObject lengthObj = (COSObject) lengthBaseObj;
-            COSBase length = lengthObj.getObject();
+            COSBase length = dereferenceUnlocked(lengthObj);
             if (length == null)
             {
                 throw new IOException("Length object content was not read.");
@@ -828,6 +1316,34 @@ public class COSParser extends BaseParser implements ICOSParser
                 "Wrong type of length object: " + lengthBaseObj.getClass().getSimpleName());
     }
     
+    /**
+     * Dereferences the given object without holding the source lock. The object may be loaded by another thread at the
+     * same time, which needs the source as well. The source lock is held once by the method parsing the current
+     * object or xref stream and by no caller higher up the stack, only that hold is released. The position of the
+     * source is restored afterwards.
+     */
+    private COSBase dereferenceUnlocked(COSObject object) throws IOException
+    {
+        long position = source.getPosition();
+        boolean locked = sourceLock.isHeldByCurrentThread();
+        if (locked)
+        {
+            sourceLock.unlock();
+        }
+        try
+        {
+            return object.getObject();
+        }
+        finally
+        {
+            if (locked)
+            {
+                sourceLock.lock();
+            }
+            source.seek(position);
+        }
+    }
+
     /**
      * This will read a COSStream from the input stream using length attribute within dictionary. If
      * length attribute is a indirect reference it is first resolved to get the stream length. This
@@ -1271,91 +1787,8 @@ public class COSParser extends BaseParser implements ICOSParser
      */
     private Map<COSObjectKey, Long> bfSearchForObjects() throws IOException
     {
-        Map<COSObjectKey, Long> bfCOSObjectKeyOffsets = new HashMap<>();
         long lastEOFMarker = bfSearchForLastEOFMarker();
-        long originOffset = source.getPosition();
-        long currentOffset = MINIMUM_SEARCH_OFFSET;
-        long lastObjectId = Long.MIN_VALUE;
-        int lastGenID = Integer.MIN_VALUE;
-        long lastObjOffset = Long.MIN_VALUE;
-        char[] endobjString = "ndo".toCharArray();
-        char[] endobjRemainingString = "bj".toCharArray();
-        boolean endOfObjFound = false;
-        do
-        {
-            source.seek(currentOffset);
-            int nextChar = source.read();
-            currentOffset++;
-            if (isWhitespace(nextChar) && isString(OBJ_MARKER))
-            {
-                long tempOffset = currentOffset - 2;
-                source.seek(tempOffset);
-                int genID = source.peek();
-                // is the next char a digit?
-                if (isDigit(genID))
-                {
-                    genID -= 48;
-                    tempOffset--;
-                    source.seek(tempOffset);
-                    if (isWhitespace())
-                    {
-                        while (tempOffset > MINIMUM_SEARCH_OFFSET && isWhitespace())
-                        {
-                            source.seek(--tempOffset);
-                        }
-                        boolean objectIDFound = false;
-                        while (tempOffset > MINIMUM_SEARCH_OFFSET && isDigit())
-                        {
-                            source.seek(--tempOffset);
-                            objectIDFound = true;
-                        }
-                        if (objectIDFound)
-                        {
-                            source.read();
-                            long objectId = readObjectNumber();
-                            if (lastObjOffset > 0)
-                            {
-                                // add the former object ID only if there was a subsequent object ID
-                                bfCOSObjectKeyOffsets.put(
-                                        new COSObjectKey(lastObjectId, lastGenID), lastObjOffset);
-                            }
-                            lastObjectId = objectId;
-                            lastGenID = genID;
-                            lastObjOffset = tempOffset + 1;
-                            currentOffset += OBJ_MARKER.length - 1;
-                            endOfObjFound = false;
-                        }
-                    }
-                }
-            }
-            // check for "endo" as abbreviation for "endobj", as the pdf may be cut off
-            // in the middle of the keyword, see PDFBOX-3936.
-            // We could possibly implement a more intelligent algorithm if necessary
-            else if (nextChar == 'e' && isString(endobjString))
-            {
-                currentOffset += endobjString.length;
-                source.seek(currentOffset);
-                if (source.isEOF())
-                {
-                    endOfObjFound = true;
-                }
-                else if (isString(endobjRemainingString))
-                {
-                    currentOffset += endobjRemainingString.length;
-                    endOfObjFound = true;
-                }
-            }
-        } while (currentOffset < lastEOFMarker && !source.isEOF());
-        if ((lastEOFMarker < Long.MAX_VALUE || endOfObjFound) && lastObjOffset > 0)
-        {
-            // if the pdf wasn't cut off in the middle or if the last object ends with a "endobj" marker
-            // the last object id has to be added here so that it can't get lost as there isn't any subsequent object id
-            bfCOSObjectKeyOffsets.put(new COSObjectKey(lastObjectId, lastGenID),
-                    lastObjOffset);
-        }
-        // reestablish origin position
-        source.seek(originOffset);
-        return bfCOSObjectKeyOffsets;
+        return new BruteForceScanner(source, MINIMUM_SEARCH_OFFSET).searchObjects(lastEOFMarker);
     }
 
     /**
@@ -1640,11 +2073,10 @@ public class COSParser extends BaseParser implements ICOSParser
     private Map<Long, COSObjectKey> bfSearchForObjStreamOffsets() throws IOException
     {
         HashMap<Long, COSObjectKey> bfSearchObjStreamsOffsets = new HashMap<>();
-        source.seek(MINIMUM_SEARCH_OFFSET);
         char[] string = " obj".toCharArray();
         // search for object stream marker
-        long positionObjStream = findString(OBJ_STREAM);
-        while (positionObjStream != -1)
+        for (long positionObjStream : new BruteForceScanner(source, MINIMUM_SEARCH_OFFSET)
+                .searchString(OBJ_STREAM))
         {
             // search backwards for the beginning of the object
             long newOffset = -1;
@@ -1700,8 +2132,6 @@ public class COSParser extends BaseParser implements ICOSParser
                     }
                 }
             }
-            source.seek(positionObjStream + OBJ_STREAM.length);
-            positionObjStream = findString(OBJ_STREAM);
         }
         return bfSearchObjStreamsOffsets;
     }
@@ -1715,10 +2145,8 @@ public class COSParser extends BaseParser implements ICOSParser
     {
         List<Long> bfSearchXRefTablesOffsets = new ArrayList<>();
         // a pdf may contain more than one xref entry
-        source.seek(MINIMUM_SEARCH_OFFSET);
         // search for xref tables
-        long newOffset = findString(XREF_TABLE);
-        while (newOffset != -1)
+        for (long newOffset : new BruteForceScanner(source, MINIMUM_SEARCH_OFFSET).searchString(XREF_TABLE))
         {
             source.seek(newOffset - 1);
             // ensure that we don't read "startxref" instead of "xref"
@@ -1726,8 +2154,6 @@ public class COSParser extends BaseParser implements ICOSParser
             {
                 bfSearchXRefTablesOffsets.add(newOffset);
             }
-            source.seek(newOffset + 4);
-            newOffset = findString(XREF_TABLE);
         }
         return bfSearchXRefTablesOffsets;
     }
@@ -1741,12 +2167,10 @@ public class COSParser extends BaseParser implements ICOSParser
     {
         List<Long> bfSearchXRefStreamsOffsets = new ArrayList<>();
         // a pdf may contain more than one /XRef entry
-        source.seek(MINIMUM_SEARCH_OFFSET);
         // search for XRef streams
         String objString = " obj";
         char[] string = objString.toCharArray();
-        long xrefOffset = findString(XREF_STREAM);
-        while (xrefOffset != -1)
+        for (long xrefOffset : new BruteForceScanner(source, MINIMUM_SEARCH_OFFSET).searchString(XREF_STREAM))
         {
             // search backwards for the beginning of the stream
             long newOffset = -1;
@@ -1802,8 +2226,6 @@ public class COSParser extends BaseParser implements ICOSParser
             {
                 bfSearchXRefStreamsOffsets.add(newOffset);
             }
-            source.seek(xrefOffset + 5);
-            xrefOffset = findString(XREF_STREAM);
         }
         return bfSearchXRefStreamsOffsets;
     }
@@ -1890,6 +2312,15 @@ public class COSParser extends BaseParser implements ICOSParser
      */
     protected void checkPages(COSDictionary root) throws IOException
     {
+        if (firstPageXrefOnly)
+        {
+            // don't read the remaining xref of a linearized pdf just to check the page tree
+            if (root.getItem(COSName.PAGES) == null)
+            {
+                throw new IOException("Page tree root must be a dictionary");
+            }
+            return;
+        }
         if (trailerWasRebuild)
         {
             // check if all page objects are dereferenced
@@ -2359,8 +2790,7 @@ public class COSParser extends BaseParser implements ICOSParser
                         if (currOffset > 0)
                         {
                             int currGenID = Integer.parseInt(splitString[1]);
-                            COSObjectKey objKey = new COSObjectKey(currObjID, currGenID);
-                            xrefTrailerResolver.setXRef(objKey, currOffset);
+                            xrefTrailerResolver.setXRef(currObjID, currGenID, currOffset);
                         }
                     }
                     catch(NumberFormatException e)
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+/**
+ * A cache of decoded object streams, keyed by the object number of the stream. The least recently used streams are
+ * removed if the decoded data of all cached streams exceeds the maximum size.
+ *
+ * <p>This class is thread safe.</p>
+ */
+final class ObjectStreamCache
+{
+    /** default maximum size of the decoded data of all cached object streams */
+    static final long DEFAULT_MAX_BYTES = MemoryUsageSetting.DEFAULT_OBJECT_STREAM_CACHE_BYTES;
+
+    /**
+     * The decoded data of an object stream and the positions of its objects within the data.
+     */
+    static final class Entry
+    {
+        private final byte[] data;
+        private final Map<Long, Integer> positions;
+
+        Entry(byte[] data, Map<Long, Integer> positions)
+        {
+            this.data = data;
+            this.positions = positions;
+        }
+
+        /**
+         * @return the decoded data of the object stream, it must not be changed
+         */
+        byte[] getData()
+        {
+            return data;
+        }
+
+        /**
+         * @param objectNumber the number of an object within the object stream
+         * @return the position of the object within the decoded data or null if there isn't any such object
+         */
+        Integer getPosition(long objectNumber)
+        {
+            return positions.get(objectNumber);
+        }
+    }
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long bytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes maximum size of the decoded data of all cached object streams
+     */
+    ObjectStreamCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached object stream with the given object number.
+     *
+     * @param streamObjectNumber object number of the object stream
+     * @return the decoded object stream or null if it isn't cached
+     */
+    synchronized Entry get(long streamObjectNumber)
+    {
+        Entry entry = entries.get(streamObjectNumber);
+        if (entry != null)
+        {
+            hitCount++;
+        }
+        else
+        {
+            missCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a decoded object stream. Streams bigger than the maximum size aren't cached at all.
+     *
+     * @param streamObjectNumber object number of the object stream
+     * @param entry the decoded object stream
+     */
+    synchronized void put(long streamObjectNumber, Entry entry)
+    {
+        if (entry.data.length > maxBytes)
+        {
+            return;
+        }
+        Entry former = entries.put(streamObjectNumber, entry);
+        if (former != null)
+        {
+            bytes -= former.data.length;
+        }
+        bytes += entry.data.length;
+        evict();
+    }
+
+    /**
+     * Sets the maximum size of the decoded data of all cached object streams, 0 disables the cache.
+     *
+     * @param maxBytes the maximum number of bytes
+     */
+    synchronized void setMaxBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    synchronized long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    private void evict()
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext())
+        {
+            bytes -= iterator.next().data.length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return the size of the decoded data of all cached object streams
+     */
+    synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    synchronized int size()
+    {
+        return entries.size();
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
 
 /**
  * This will parse a PDF 1.5 object stream and extract the object with given object number from the stream.
@@ -69,6 +70,21 @@ public class PDFObjectStreamParser extends BaseParser
         }
     }
 
+    /**
+     * Constructor for an object stream which was decoded before, see {@link ObjectStreamCache}. Only
+     * {@link #parseObjectAt(int)} may be used.
+     *
+     * @param decodedStream the decoded data of the object stream
+     * @param document The document for the current parsing.
+     */
+    PDFObjectStreamParser(byte[] decodedStream, COSDocument document)
+    {
+        super(new RandomAccessReadBuffer(decodedStream));
+        this.document = document;
+        numberOfObjects = 0;
+        firstObject = 0;
+    }
+
     /**
      * Search for/parse the object with the given object number. The stream is closed after parsing the object with the
      * given number.
@@ -104,6 +120,68 @@ public class PDFObjectStreamParser extends BaseParser
         return streamObject;
     }
 
+    /**
+     * Parse the object at the given position of the decoded stream. The stream is closed after parsing the object.
+     *
+     * @param position the position of the object within the decoded stream
+     * @return the parsed object
+     * @throws IOException if there is an error while parsing the stream
+     */
+    COSBase parseObjectAt(int position) throws IOException
+    {
+        try
+        {
+            source.seek(position);
+            return parseDirObject();
+        }
+        finally
+        {
+            source.close();
+            document = null;
+        }
+    }
+
+    /**
+     * Read the whole decoded stream and the positions of all objects within it, so that the objects can be parsed
+     * without decoding the stream again. The stream is closed afterwards.
+     *
+     * @return the decoded object stream
+     * @throws IOException if there is an error while reading the stream
+     */
+    ObjectStreamCache.Entry readDecodedStream() throws IOException
+    {
+        try
+        {
+            Map<Long, Integer> objectNumbers = privateReadObjectNumbers();
+            // the objects start at the offset of the first object, see parseObject()
+            long currentPosition = source.getPosition();
+            long start = firstObject > 0 && currentPosition < firstObject ? firstObject : currentPosition;
+            Map<Long, Integer> positions = new HashMap<>(objectNumbers.size());
+            for (Map.Entry<Long, Integer> entry : objectNumbers.entrySet())
+            {
+                positions.put(entry.getKey(), (int) (start + entry.getValue()));
+            }
+            source.seek(0);
+            byte[] data = new byte[(int) source.length()];
+            int offset = 0;
+            while (offset < data.length)
+            {
+                int read = source.read(data, offset, data.length - offset);
+                if (read < 0)
+                {
+                    throw new IOException("Premature end of object stream at offset " + offset);
+                }
+                offset += read;
+            }
+            return new ObjectStreamCache.Entry(data, positions);
+        }
+        finally
+        {
+            source.close();
+            document = null;
+        }
+    }
+
     private Map<Long, Integer> privateReadObjectNumbers() throws IOException
     {
         // don't initialize map using numberOfObjects as there might by less object numbers than expected
@@ -111,6 +111,10 @@ public class PDFParser extends COSParser
                         + " does not contain an integer value, but: '" + eofLookupRangeStr + "'");
             }
         }
+        if (memUsageSetting != null)
+        {
+            setObjectStreamCacheSize(memUsageSetting.getObjectStreamCacheBytes());
+        }
         document = new COSDocument(memUsageSetting, this);
     }
     
@@ -18,6 +18,7 @@ package org.apache.pdfbox.pdfparser;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.logging.Log;
@@ -30,7 +31,6 @@ import org.apache.pdfbox.cos.COSBoolean;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
 
 /**
@@ -45,8 +45,29 @@ public class PDFStreamParser extends BaseParser
      */
     private static final Log LOG = LogFactory.getLog(PDFStreamParser.class);
 
+    /**
+     * Receives the operators of a content stream together with their operands, see
+     * {@link PDFStreamParser#parse(OperatorHandler)}.
+     */
+    @FunctionalInterface
+    public interface OperatorHandler
+    {
+        /**
+         * Processes an operator of the content stream.
+         *
+         * @param operator the operator
+         * @param operands the operands preceding the operator. The list is reused for the next operator, so that it
+         * is only valid during this call and has to be copied to be kept.
+         * @throws IOException if the operator can't be processed
+         */
+        void processOperator(Operator operator, List<COSBase> operands) throws IOException;
+    }
+
     private static final int MAX_BIN_CHAR_TEST_LENGTH = 10;
     private final byte[] binCharTestArr = new byte[MAX_BIN_CHAR_TEST_LENGTH];
+
+    private final TokenCache<Operator> operatorCache = new TokenCache<>(64,
+            (bytes, length) -> Operator.getOperator(new String(bytes, 0, length, StandardCharsets.ISO_8859_1)));
     
     /**
      * Constructor.
@@ -87,6 +108,32 @@ public class PDFStreamParser extends BaseParser
         return streamObjects;
     }
 
+    /**
+     * This will parse all the tokens in the stream and pass each operator with its operands to the given handler,
+     * without keeping the tokens, so that the memory needed doesn't depend on the size of the stream. Operands
+     * following the last operator are dropped. This will close the stream when it is finished parsing.
+     *
+     * @param handler the handler receiving the operators
+     * @throws IOException If there is an error while parsing the stream or if the handler throws it.
+     */
+    public void parse(OperatorHandler handler) throws IOException
+    {
+        List<COSBase> operands = new ArrayList<>();
+        Object token;
+        while ((token = parseNextToken()) != null)
+        {
+            if (token instanceof Operator)
+            {
+                handler.processOperator((Operator) token, operands);
+                operands.clear();
+            }
+            else
+            {
+                operands.add((COSBase) token);
+            }
+        }
+    }
+
     /**
      * This will parse the next token in the stream.
      *
@@ -134,29 +181,29 @@ public class PDFStreamParser extends BaseParser
                 return parseCOSName();
             case 'n':   
                 // null
-                String nullString = readString();
-                if( nullString.equals( "null") )
+                int nullLength = readToken();
+                if (isToken(nullLength, "null"))
                 {
                     return COSNull.NULL;
                 }
                 else
                 {
-                    return Operator.getOperator(nullString);
+                    return getCachedToken(operatorCache, nullLength);
                 }
             case 't':
             case 'f':
-                String next = readString();
-                if( next.equals( "true" ) )
+                int nextLength = readToken();
+                if (isToken(nextLength, "true"))
                 {
                     return COSBoolean.TRUE;
                 }
-                else if( next.equals( "false" ) )
+                else if (isToken(nextLength, "false"))
                 {
                     return COSBoolean.FALSE;
                 }
                 else
                 {
-                    return Operator.getOperator(next);
+                    return getCachedToken(operatorCache, nextLength);
                 }
             case '0':
             case '1':
@@ -171,10 +218,10 @@ public class PDFStreamParser extends BaseParser
             case '-':
             case '+':
             case '.':
-                /* We will be filling buf with the rest of the number.  Only
+                /* We will be filling the token buffer with the rest of the number.  Only
                  * allow 1 "." and "-" and "+" at start of number. */
-                StringBuilder buf = new StringBuilder();
-                buf.append( c );
+                int length = 0;
+                putTokenByte(length++, c);
                 source.read();
                 
                 // Ignore double negative (this is consistent with Adobe Reader)
@@ -184,51 +231,52 @@ public class PDFStreamParser extends BaseParser
                 }
 
                 boolean dotNotRead = c != '.';
-                while (Character.isDigit(c = (char) source.peek()) || dotNotRead && c == '.'
-                        || c == '-')
+                int next;
+                while (isDigit(next = source.peek()) || dotNotRead && next == '.' || next == '-')
                 {
-                    if (c != '-')
+                    if (next != '-')
                     {
                         // PDFBOX-4064: ignore "-" in the middle of a number
-                        buf.append(c);
+                        putTokenByte(length++, next);
                     }
                     source.read();
 
-                    if (dotNotRead && c == '.')
+                    if (dotNotRead && next == '.')
                     {
                         dotNotRead = false;
                     }
                 }
-                return COSNumber.get(buf.toString());
+                return createCOSNumber(length);
             case 'B':
-                String nextOperator = readString();
-                Operator beginImageOP = Operator.getOperator(nextOperator);
-                if (nextOperator.equals(OperatorName.BEGIN_INLINE_IMAGE))
+                int nextOperatorLength = readToken();
+                if (!isToken(nextOperatorLength, OperatorName.BEGIN_INLINE_IMAGE))
+                {
+                    return getCachedToken(operatorCache, nextOperatorLength);
+                }
+                Operator beginImageOP = Operator.getOperator(OperatorName.BEGIN_INLINE_IMAGE);
+                COSDictionary imageParams = new COSDictionary();
+                beginImageOP.setImageParameters( imageParams );
+                Object nextToken = null;
+                while( (nextToken = parseNextToken()) instanceof COSName )
                 {
-                    COSDictionary imageParams = new COSDictionary();
-                    beginImageOP.setImageParameters( imageParams );
-                    Object nextToken = null;
-                    while( (nextToken = parseNextToken()) instanceof COSName )
+                    Object value = parseNextToken();
+                    if (!(value instanceof COSBase))
                     {
-                        Object value = parseNextToken();
-                        if (!(value instanceof COSBase))
-                        {
-                            LOG.warn("Unexpected token in inline image dictionary at offset " +
-                                    source.getPosition());
-                            break;
-                        }
-                        imageParams.setItem( (COSName)nextToken, (COSBase)value );
+                        LOG.warn("Unexpected token in inline image dictionary at offset " +
+                                source.getPosition());
+                        break;
                     }
-                    //final token will be the image data, maybe??
-                    if (nextToken instanceof Operator)
+                    imageParams.setItem( (COSName)nextToken, (COSBase)value );
+                }
+                //final token will be the image data, maybe??
+                if (nextToken instanceof Operator)
+                {
+                    Operator imageData = (Operator) nextToken;
+                    if (imageData.getImageData() == null || imageData.getImageData().length == 0)
                     {
-                        Operator imageData = (Operator) nextToken;
-                        if (imageData.getImageData() == null || imageData.getImageData().length == 0)
-                        {
-                            LOG.warn("empty inline image at stream offset " + source.getPosition());
-                        }
-                        beginImageOP.setImageData(imageData.getImageData());
+                        LOG.warn("empty inline image at stream offset " + source.getPosition());
                     }
+                    beginImageOP.setImageData(imageData.getImageData());
                 }
                 return beginImageOP;
             case 'I':
@@ -276,10 +324,10 @@ public class PDFStreamParser extends BaseParser
                 return COSNull.NULL;
             default:
                 // we must be an operator
-                String operator = readOperator().trim();
-                if (operator.length() > 0)
+                int operatorLength = readOperator();
+                if (operatorLength > 0)
                 {
-                    return Operator.getOperator(operator);
+                    return getCachedToken(operatorCache, operatorLength);
                 }
         }
         return null;
@@ -359,19 +407,17 @@ public class PDFStreamParser extends BaseParser
     }
 
     /**
-     * This will read an operator from the stream.
+     * This will read an operator from the stream into the token buffer.
      *
-     * @return The operator that was read from the stream.
+     * @return The length of the operator that was read from the stream.
      *
      * @throws IOException If there is an error reading from the stream.
      */
-    private String readOperator() throws IOException
+    private int readOperator() throws IOException
     {
         skipSpaces();
 
-        //average string size is around 2 and the normal string buffer size is
-        //about 16 so lets save some space.
-        StringBuilder buffer = new StringBuilder(4);
+        int length = 0;
         int nextChar = source.peek();
         while(
             nextChar != -1 && // EOF
@@ -384,17 +430,26 @@ public class PDFStreamParser extends BaseParser
             (nextChar < '0' ||
              nextChar > '9' ) )
         {
-            char currentChar = (char) source.read();
+            int currentChar = source.read();
             nextChar = source.peek();
-            buffer.append( currentChar );
+            if (length > 0 || currentChar > ' ')
+            {
+                // leading control characters are dropped
+                putTokenByte(length++, currentChar);
+            }
             // Type3 Glyph description has operators with a number in the name
             if (currentChar == 'd' && (nextChar == '0' || nextChar == '1') ) 
             {
-                buffer.append((char) source.read());
+                putTokenByte(length++, source.read());
                 nextChar = source.peek();
             }
         }
-        return buffer.toString();
+        // drop trailing control characters
+        while (length > 0 && getTokenByte(length - 1) <= ' ')
+        {
+            length--;
+        }
+        return length;
     }
     
     
@@ -28,7 +28,6 @@ import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSStream;
-import org.apache.pdfbox.cos.COSObjectKey;
 
 /**
  * This will parse a PDF 1.5 (or better) Xref stream and
@@ -137,17 +136,16 @@ public class PDFXrefStreamParser extends BaseParser
             long offset = parseValue(currLine, w[0], w[1]);
             // third field holds the generation number for type 1 entries
             int genNum = type == 1 ? (int) parseValue(currLine, w[0] + w[1], w[2]) : 0;
-            COSObjectKey objKey = new COSObjectKey(objID, genNum);
             if (type == 1)
             {
-                resolver.setXRef(objKey, offset);
+                resolver.setXRef(objID, genNum, offset);
             }
             else
             {
                 // For XRef aware parsers we have to know which objects contain object streams. We will store this
                 // information in normal xref mapping table but add object stream number with minus sign in order to
                 // distinguish from file offsets
-                resolver.setXRef(objKey, -offset);
+                resolver.setXRef(objID, genNum, -offset);
             }
         }
         close();
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A small cache mapping the bytes of a token to the object created for it, e.g. a COSName or an operator. The lookup
+ * works on the bytes in the scratch buffer of a parser, so that no String has to be created for tokens which were
+ * seen before. Each token hashes to exactly one slot, a colliding token replaces the cached one.
+ *
+ * @param <T> the type of the cached objects
+ */
+final class TokenCache<T>
+{
+    /**
+     * Creates the object for the bytes of a token if it isn't cached.
+     *
+     * @param <T> the type of the created objects
+     */
+    interface Factory<T>
+    {
+        T create(byte[] bytes, int length) throws IOException;
+    }
+
+    // longer tokens are rare and not worth keeping
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final int mask;
+    private final Factory<T> factory;
+    private byte[][] keys;
+    private Object[] values;
+
+    /**
+     * Constructor.
+     *
+     * @param size the number of slots, must be a power of two
+     * @param factory creates the objects for tokens which aren't cached
+     */
+    TokenCache(int size, Factory<T> factory)
+    {
+        this.mask = size - 1;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the object for the given bytes, it is created and cached if it isn't cached yet.
+     *
+     * @param bytes the buffer holding the token
+     * @param length the length of the token
+     * @return the object for the token
+     * @throws IOException if the object can't be created
+     */
+    @SuppressWarnings("unchecked")
+    T get(byte[] bytes, int length) throws IOException
+    {
+        if (length > MAX_TOKEN_LENGTH)
+        {
+            return factory.create(bytes, length);
+        }
+        int hash = length;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + bytes[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & mask;
+        if (keys == null)
+        {
+            keys = new byte[mask + 1][];
+            values = new Object[mask + 1];
+        }
+        else if (equals(keys[index], bytes, length))
+        {
+            return (T) values[index];
+        }
+        T value = factory.create(bytes, length);
+        keys[index] = Arrays.copyOf(bytes, length);
+        values[index] = value;
+        return value;
+    }
+
+    private static boolean equals(byte[] key, byte[] bytes, int length)
+    {
+        if (key == null || key.length != length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (key[i] != bytes[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.XrefOffsetMap;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.RandomAccessRead;
+
+/**
+ * The cross reference information of a pdf stored in a file next to the pdf, so that it doesn't have to be parsed
+ * (or even rebuilt by a brute force search) again when the pdf is opened the next time.
+ *
+ * <p>The index contains the resolved xref table including the object stream membership of compressed objects and the
+ * trailer. It is only used if the size and the modification time of the pdf as well as the hash of its trailing bytes,
+ * which contain the trailer and the startxref offset, are the same as when the index was written.</p>
+ */
+final class XrefIndex
+{
+    private static final Log LOG = LogFactory.getLog(XrefIndex.class);
+
+    // "PDFBXREF"
+    private static final long MAGIC = 0x5044464258524546L;
+    private static final int VERSION = 1;
+
+    // tags of the serialized trailer values
+    private static final int TAG_NULL = 0;
+    private static final int TAG_BOOLEAN = 1;
+    private static final int TAG_INTEGER = 2;
+    private static final int TAG_FLOAT = 3;
+    private static final int TAG_NAME = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_ARRAY = 6;
+    private static final int TAG_DICTIONARY = 7;
+    private static final int TAG_REFERENCE = 8;
+
+    private final long startXref;
+    private final boolean xrefStream;
+    private final boolean trailerRebuilt;
+    private final boolean lenient;
+    private final long highestXRefObjectNumber;
+    private final Map<COSObjectKey, Long> xrefTable;
+    private final COSDictionary trailer;
+
+    private XrefIndex(long startXref, boolean xrefStream, boolean trailerRebuilt, boolean lenient,
+            long highestXRefObjectNumber, Map<COSObjectKey, Long> xrefTable, COSDictionary trailer)
+    {
+        this.startXref = startXref;
+        this.xrefStream = xrefStream;
+        this.trailerRebuilt = trailerRebuilt;
+        this.lenient = lenient;
+        this.highestXRefObjectNumber = highestXRefObjectNumber;
+        this.xrefTable = xrefTable;
+        this.trailer = trailer;
+    }
+
+    /**
+     * Returns the trailer, indirect objects are taken from the pool of the document given when reading the index.
+     */
+    COSDictionary getTrailer()
+    {
+        return trailer;
+    }
+
+    /**
+     * Returns <code>true</code> if the trailer was rebuilt by a brute force search.
+     */
+    boolean isTrailerRebuilt()
+    {
+        return trailerRebuilt;
+    }
+
+    /**
+     * Returns <code>true</code> if the index was written by a lenient parser, i.e. the cross reference information
+     * might have been repaired.
+     */
+    boolean isLenient()
+    {
+        return lenient;
+    }
+
+    /**
+     * Sets the cross reference information of the index to the given document.
+     *
+     * @param document the document read from the pdf the index belongs to
+     */
+    void applyTo(COSDocument document)
+    {
+        document.setStartXref(startXref);
+        document.setTrailer(trailer);
+        document.setIsXRefStream(xrefStream);
+        document.addXRefTable(xrefTable);
+        document.setHighestXRefObjectNumber(highestXRefObjectNumber);
+    }
+
+    /**
+     * Computes the hash of the trailing bytes of a pdf.
+     *
+     * @param source the pdf
+     * @param tailLength the number of trailing bytes to be hashed
+     * @return the SHA-256 hash of the trailing bytes
+     * @throws IOException if the pdf couldn't be read
+     */
+    static byte[] hashTail(RandomAccessRead source, int tailLength) throws IOException
+    {
+        long length = source.length();
+        int count = (int) Math.min(length, tailLength);
+        byte[] tail = new byte[count];
+        source.seek(length - count);
+        int bytesRead = 0;
+        while (bytesRead < count)
+        {
+            int n = source.read(tail, bytesRead, count - bytesRead);
+            if (n < 0)
+            {
+                throw new IOException("Unexpected end of file at position " + source.getPosition());
+            }
+            bytesRead += n;
+        }
+        try
+        {
+            return MessageDigest.getInstance("SHA-256").digest(tail);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the index if it exists and belongs to the current version of the pdf.
+     *
+     * @param indexFile the index file
+     * @param fileLength the length of the pdf
+     * @param lastModified the time the pdf was last modified
+     * @param tailHash the hash of the trailing bytes of the pdf, see {@link #hashTail(RandomAccessRead, int)}
+     * @param document the document to take the indirect objects of the trailer from
+     * @return the index or <code>null</code> if it doesn't exist, is outdated or can't be read
+     */
+    static XrefIndex read(File indexFile, long fileLength, long lastModified, byte[] tailHash,
+            COSDocument document)
+    {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexFile.toPath()))))
+        {
+            if (input.readLong() != MAGIC || input.readInt() != VERSION
+                    || input.readLong() != fileLength || input.readLong() != lastModified)
+            {
+                LOG.debug("Xref index " + indexFile + " is outdated");
+                return null;
+            }
+            byte[] hash = new byte[input.readUnsignedByte()];
+            input.readFully(hash);
+            if (!Arrays.equals(hash, tailHash))
+            {
+                LOG.debug("Xref index " + indexFile + " is outdated");
+                return null;
+            }
+            long startXref = input.readLong();
+            boolean xrefStream = input.readBoolean();
+            boolean trailerRebuilt = input.readBoolean();
+            boolean lenient = input.readBoolean();
+            long highestXRefObjectNumber = input.readLong();
+            int count = input.readInt();
+            // each entry takes 18 bytes
+            if (count < 0 || count > indexFile.length() / 18)
+            {
+                throw new IOException("Invalid number of xref entries: " + count);
+            }
+            XrefOffsetMap xrefTable = new XrefOffsetMap(count);
+            for (int i = 0; i < count; i++)
+            {
+                long objectNumber = input.readLong();
+                int generation = input.readUnsignedShort();
+                xrefTable.putOffset(objectNumber, generation, input.readLong());
+            }
+            COSBase trailer = readValue(input, document);
+            if (!(trailer instanceof COSDictionary))
+            {
+                throw new IOException("Trailer is missing");
+            }
+            return new XrefIndex(startXref, xrefStream, trailerRebuilt, lenient,
+                    highestXRefObjectNumber, xrefTable, (COSDictionary) trailer);
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Xref index " + indexFile + " couldn't be read, it is ignored", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cross reference information of the given document to the index file. The file is replaced
+     * atomically if supported by the file system, so that concurrent readers don't see a partial index.
+     *
+     * @param indexFile the index file
+     * @param fileLength the length of the pdf
+     * @param lastModified the time the pdf was last modified
+     * @param tailHash the hash of the trailing bytes of the pdf, see {@link #hashTail(RandomAccessRead, int)}
+     * @param document the parsed document
+     * @param trailerRebuilt <code>true</code> if the trailer was rebuilt by a brute force search
+     * @param lenient <code>true</code> if the pdf was parsed in lenient mode
+     * @throws IOException if the index couldn't be written
+     */
+    static void write(File indexFile, long fileLength, long lastModified, byte[] tailHash,
+            COSDocument document, boolean trailerRebuilt, boolean lenient) throws IOException
+    {
+        File directory = indexFile.getAbsoluteFile().getParentFile();
+        File tempFile = File.createTempFile(indexFile.getName(), ".tmp", directory);
+        try
+        {
+            try (OutputStream os = Files.newOutputStream(tempFile.toPath());
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(os)))
+            {
+                output.writeLong(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(fileLength);
+                output.writeLong(lastModified);
+                output.writeByte(tailHash.length);
+                output.write(tailHash);
+                output.writeLong(document.getStartXref());
+                output.writeBoolean(document.isXRefStream());
+                output.writeBoolean(trailerRebuilt);
+                output.writeBoolean(lenient);
+                output.writeLong(document.getHighestXRefObjectNumber());
+                Map<COSObjectKey, Long> xrefTable = document.getXrefTable();
+                output.writeInt(xrefTable.size());
+                for (Map.Entry<COSObjectKey, Long> entry : xrefTable.entrySet())
+                {
+                    output.writeLong(entry.getKey().getNumber());
+                    output.writeShort(entry.getKey().getGeneration());
+                    output.writeLong(entry.getValue());
+                }
+                writeValue(output, document.getTrailer());
+            }
+            try
+            {
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private static void writeValue(DataOutputStream output, COSBase value) throws IOException
+    {
+        if (value == null || value instanceof COSNull)
+        {
+            output.writeByte(TAG_NULL);
+        }
+        else if (value instanceof COSObject)
+        {
+            COSObject object = (COSObject) value;
+            output.writeByte(TAG_REFERENCE);
+            output.writeLong(object.getObjectNumber());
+            output.writeShort(object.getGenerationNumber());
+        }
+        else if (value instanceof COSBoolean)
+        {
+            output.writeByte(TAG_BOOLEAN);
+            output.writeBoolean(((COSBoolean) value).getValue());
+        }
+        else if (value instanceof COSInteger)
+        {
+            output.writeByte(TAG_INTEGER);
+            output.writeLong(((COSInteger) value).longValue());
+        }
+        else if (value instanceof COSFloat)
+        {
+            output.writeByte(TAG_FLOAT);
+            output.writeFloat(((COSFloat) value).floatValue());
+        }
+        else if (value instanceof COSName)
+        {
+            output.writeByte(TAG_NAME);
+            output.writeUTF(((COSName) value).getName());
+        }
+        else if (value instanceof COSString)
+        {
+            COSString string = (COSString) value;
+            output.writeByte(TAG_STRING);
+            output.writeBoolean(string.getForceHexForm());
+            byte[] bytes = string.getBytes();
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        else if (value instanceof COSArray)
+        {
+            COSArray array = (COSArray) value;
+            output.writeByte(TAG_ARRAY);
+            output.writeInt(array.size());
+            for (int i = 0; i < array.size(); i++)
+            {
+                writeValue(output, array.get(i));
+            }
+        }
+        else if (value instanceof COSDictionary && !(value instanceof COSStream))
+        {
+            COSDictionary dictionary = (COSDictionary) value;
+            output.writeByte(TAG_DICTIONARY);
+            output.writeInt(dictionary.size());
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
+            {
+                output.writeUTF(entry.getKey().getName());
+                writeValue(output, entry.getValue());
+            }
+        }
+        else
+        {
+            throw new IOException("Trailer value of type " + value.getClass().getSimpleName()
+                    + " can't be stored");
+        }
+    }
+
+    private static COSBase readValue(DataInputStream input, COSDocument document)
+            throws IOException
+    {
+        int tag = input.readUnsignedByte();
+        switch (tag)
+        {
+            case TAG_NULL:
+                return COSNull.NULL;
+            case TAG_REFERENCE:
+                return document.getObjectFromPool(
+                        new COSObjectKey(input.readLong(), input.readUnsignedShort()));
+            case TAG_BOOLEAN:
+                return COSBoolean.getBoolean(input.readBoolean());
+            case TAG_INTEGER:
+                return COSInteger.get(input.readLong());
+            case TAG_FLOAT:
+                return new COSFloat(input.readFloat());
+            case TAG_NAME:
+                return COSName.getPDFName(input.readUTF());
+            case TAG_STRING:
+            {
+                boolean forceHexForm = input.readBoolean();
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                COSString string = new COSString(bytes);
+                string.setForceHexForm(forceHexForm);
+                return string;
+            }
+            case TAG_ARRAY:
+            {
+                int size = input.readInt();
+                COSArray array = new COSArray();
+                for (int i = 0; i < size; i++)
+                {
+                    array.add(readValue(input, document));
+                }
+                return array;
+            }
+            case TAG_DICTIONARY:
+            {
+                int size = input.readInt();
+                COSDictionary dictionary = new COSDictionary();
+                for (int i = 0; i < size; i++)
+                {
+                    COSName key = COSName.getPDFName(input.readUTF());
+                    dictionary.setItem(key, readValue(input, document));
+                }
+                return dictionary;
+            }
+            default:
+                throw new IOException("Unknown tag " + tag);
+        }
+    }
+}
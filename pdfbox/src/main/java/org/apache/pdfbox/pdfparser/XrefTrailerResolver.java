@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.XrefOffsetMap;
 
 /**
  * This class will collect all XRef/trailer objects and creates correct
@@ -64,7 +65,7 @@ public class XrefTrailerResolver
 
         private XRefType xrefType;
 
-        private final Map<COSObjectKey, Long> xrefTable = new HashMap<>();
+        private final XrefOffsetMap xrefTable = new XrefOffsetMap();
         
         /**
          *  Default constructor.
@@ -173,19 +174,28 @@ public class XrefTrailerResolver
      * @param offset The byte offset in this file
      */
     public void setXRef( COSObjectKey objKey, long offset )
+    {
+        setXRef(objKey.getNumber(), objKey.getGeneration(), offset);
+    }
+
+    /**
+     * Populate XRef HashMap of current XRef object without creating a key object.
+     * Will add an Xreftable entry that maps the given object to a byte offset in the file.
+     * @param objNr the object number
+     * @param genNr the generation number
+     * @param offset The byte offset in this file
+     */
+    public void setXRef( long objNr, int genNr, long offset )
     {
         if ( curXrefTrailerObj == null )
         {
             // should not happen...
-            LOG.warn( "Cannot add XRef entry for '" + objKey.getNumber() + "' because XRef start was not signalled." );
+            LOG.warn( "Cannot add XRef entry for '" + objNr + "' because XRef start was not signalled." );
             return;
         }
         // PDFBOX-3506 check before adding to the map, to avoid entries from the table being 
         // overwritten by obsolete entries in hybrid files (/XRefStm entry)
-        if (!curXrefTrailerObj.xrefTable.containsKey(objKey) )
-        {
-            curXrefTrailerObj.xrefTable.put(objKey, offset);
-        }
+        curXrefTrailerObj.xrefTable.putOffsetIfAbsent(objNr, genNr, offset);
     }
 
     /**
@@ -311,7 +321,8 @@ public class XrefTrailerResolver
 
     /**
      * Gets the resolved xref table. Might return <code>null</code> in case
-     *  {@link #setStartxref(long)} was not called before.
+     *  {@link #setStartxref(long)} was not called before. Null keys and offsets can't be put into the
+     *  table, see {@link XrefOffsetMap}.
      *
      * @return the xrefTable if available
      */
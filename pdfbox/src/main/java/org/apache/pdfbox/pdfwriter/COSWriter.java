@@ -1475,6 +1475,8 @@ public class COSWriter implements ICOSVisitor
 
         pdDocument = doc;
         signatureInterface = signInterface;
+        // the highest object number and the xref table of a partially read linearized pdf aren't final
+        pdDocument.getDocument().completeXrefTable();
         number = pdDocument.getDocument().getHighestXRefObjectNumber();
 
         if(incrementalUpdate)
@@ -0,0 +1,487 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+/**
+ * A thread safe resource cache with a limit for each type of resource. Fonts, color spaces and the other resources are
+ * limited by their number, XObjects by their estimated size in bytes, i.e. the size of the decoded image or the length
+ * of the content stream of a form. If a limit is reached, the least recently used resources of that type are evicted.
+ * Hits, misses and evictions are counted for each type.
+ *
+ * <p>Unlike the {@link DefaultResourceCache}, the resources are held by strong references, so that the cache can be
+ * used by several threads rendering pages of the same document concurrently. The cache can be shared by several
+ * documents, the resources of a document are removed when it is closed. The limits and statistics are those of the
+ * whole cache, while {@link PDDocument#estimateMemoryUsage()} only counts the resources of the document it is called
+ * for.</p>
+ *
+ * <p>The resources are keyed by the indirect objects of their document, so identical resources of different
+ * documents aren't shared: a resource reads its streams from the source of its own document, which may be closed
+ * while the other document is still in use. The parsed embedded fonts, which are the largest part of most fonts, are
+ * shared by content by {@link org.apache.pdfbox.pdmodel.font.EmbeddedFontCache}.</p>
+ *
+ * @see PDDocument#setResourceCache(ResourceCache)
+ */
+public class BoundedResourceCache implements ResourceCache
+{
+    /**
+     * The types of cached resources.
+     */
+    public enum ResourceType
+    {
+        FONT, COLOR_SPACE, XOBJECT, EXT_G_STATE, SHADING, PATTERN, PROPERTY_LIST
+    }
+
+    private static final int DEFAULT_MAX_FONT_COUNT = 500;
+    private static final int DEFAULT_MAX_COLOR_SPACE_COUNT = 500;
+    private static final long DEFAULT_MAX_XOBJECT_BYTES = 128L * 1024 * 1024;
+    private static final int DEFAULT_MAX_ENTRY_COUNT = 1000;
+
+    private final Map<ResourceType, Segment> segments = new EnumMap<>(ResourceType.class);
+
+    /**
+     * Creates a cache for up to 500 fonts and color spaces each, 128 MB of XObjects and 1000 resources of each other
+     * type.
+     */
+    public BoundedResourceCache()
+    {
+        this(DEFAULT_MAX_FONT_COUNT, DEFAULT_MAX_COLOR_SPACE_COUNT, DEFAULT_MAX_XOBJECT_BYTES,
+                DEFAULT_MAX_ENTRY_COUNT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxFontCount the maximum number of cached fonts
+     * @param maxColorSpaceCount the maximum number of cached color spaces
+     * @param maxXObjectBytes the maximum estimated size in bytes of the cached XObjects
+     * @param maxEntryCount the maximum number of cached resources of each other type
+     */
+    public BoundedResourceCache(int maxFontCount, int maxColorSpaceCount, long maxXObjectBytes, int maxEntryCount)
+    {
+        if (maxFontCount < 0 || maxColorSpaceCount < 0 || maxXObjectBytes < 0 || maxEntryCount < 0)
+        {
+            throw new IllegalArgumentException("The limits must not be negative");
+        }
+        for (ResourceType type : ResourceType.values())
+        {
+            segments.put(type, new Segment(maxEntryCount));
+        }
+        segments.put(ResourceType.FONT, new Segment(maxFontCount));
+        segments.put(ResourceType.COLOR_SPACE, new Segment(maxColorSpaceCount));
+        segments.put(ResourceType.XOBJECT, new Segment(maxXObjectBytes));
+    }
+
+    @Override
+    public PDFont getFont(COSObject indirect)
+    {
+        return (PDFont) segments.get(ResourceType.FONT).get(indirect);
+    }
+
+    @Override
+    public PDColorSpace getColorSpace(COSObject indirect)
+    {
+        return (PDColorSpace) segments.get(ResourceType.COLOR_SPACE).get(indirect);
+    }
+
+    @Override
+    public PDExtendedGraphicsState getExtGState(COSObject indirect)
+    {
+        return (PDExtendedGraphicsState) segments.get(ResourceType.EXT_G_STATE).get(indirect);
+    }
+
+    @Override
+    public PDShading getShading(COSObject indirect)
+    {
+        return (PDShading) segments.get(ResourceType.SHADING).get(indirect);
+    }
+
+    @Override
+    public PDAbstractPattern getPattern(COSObject indirect)
+    {
+        return (PDAbstractPattern) segments.get(ResourceType.PATTERN).get(indirect);
+    }
+
+    @Override
+    public PDPropertyList getProperties(COSObject indirect)
+    {
+        return (PDPropertyList) segments.get(ResourceType.PROPERTY_LIST).get(indirect);
+    }
+
+    @Override
+    public PDXObject getXObject(COSObject indirect)
+    {
+        return (PDXObject) segments.get(ResourceType.XOBJECT).get(indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDFont font)
+    {
+        segments.get(ResourceType.FONT).put(indirect, font, 1);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDColorSpace colorSpace)
+    {
+        segments.get(ResourceType.COLOR_SPACE).put(indirect, colorSpace, 1);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDExtendedGraphicsState extGState)
+    {
+        segments.get(ResourceType.EXT_G_STATE).put(indirect, extGState, 1);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDShading shading)
+    {
+        segments.get(ResourceType.SHADING).put(indirect, shading, 1);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDAbstractPattern pattern)
+    {
+        segments.get(ResourceType.PATTERN).put(indirect, pattern, 1);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDPropertyList propertyList)
+    {
+        segments.get(ResourceType.PROPERTY_LIST).put(indirect, propertyList, 1);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDXObject xobject)
+    {
+        segments.get(ResourceType.XOBJECT).put(indirect, xobject, estimateSize(xobject));
+    }
+
+    /**
+     * Estimates the size of an XObject, i.e. the size of the decoded image with 4 bytes per pixel or the length of
+     * the content stream of a form.
+     */
+    private static long estimateSize(PDXObject xobject)
+    {
+        if (xobject instanceof PDImageXObject)
+        {
+            PDImageXObject image = (PDImageXObject) xobject;
+            return Math.max(1, 4L * image.getWidth() * image.getHeight());
+        }
+        COSStream stream = xobject.getCOSObject();
+        return Math.max(1, stream.getLength());
+    }
+
+    @Override
+    public void remove(COSObject indirect)
+    {
+        segments.values().forEach(segment -> segment.remove(indirect));
+    }
+
+    /**
+     * Removes the cached resources of the given document, this is done when the document is closed or when another
+     * cache is set for it.
+     */
+    void removeResources(COSDocument document)
+    {
+        segments.values().forEach(segment -> segment.remove(document));
+    }
+
+    /**
+     * Removes all cached resources. The statistics aren't reset.
+     */
+    public void clear()
+    {
+        segments.values().forEach(Segment::clear);
+    }
+
+    /**
+     * Returns the maximum number of cached resources of the given type, for XObjects the maximum estimated size in
+     * bytes.
+     *
+     * @param type the type of resources
+     * @return the limit of the given type
+     */
+    public long getMaxWeight(ResourceType type)
+    {
+        return segments.get(type).maxWeight;
+    }
+
+    /**
+     * Returns the number of cached resources of the given type, for XObjects their estimated size in bytes.
+     *
+     * @param type the type of resources
+     * @return the current weight of the given type
+     */
+    public long getWeight(ResourceType type)
+    {
+        Segment segment = segments.get(type);
+        synchronized (segment)
+        {
+            return segment.weight;
+        }
+    }
+
+    /**
+     * Returns the number of cached resources of the given type.
+     *
+     * @param type the type of resources
+     * @return the number of cached resources
+     */
+    public int getEntryCount(ResourceType type)
+    {
+        Segment segment = segments.get(type);
+        synchronized (segment)
+        {
+            return segment.entries.size();
+        }
+    }
+
+    /**
+     * Returns how often a resource of the given type was found in the cache.
+     *
+     * @param type the type of resources
+     * @return the number of hits
+     */
+    public long getHitCount(ResourceType type)
+    {
+        Segment segment = segments.get(type);
+        synchronized (segment)
+        {
+            return segment.hitCount;
+        }
+    }
+
+    /**
+     * Returns how often a resource of the given type wasn't found in the cache.
+     *
+     * @param type the type of resources
+     * @return the number of misses
+     */
+    public long getMissCount(ResourceType type)
+    {
+        Segment segment = segments.get(type);
+        synchronized (segment)
+        {
+            return segment.missCount;
+        }
+    }
+
+    /**
+     * Returns the number of resources of the given type evicted because the limit was reached.
+     *
+     * @param type the type of resources
+     * @return the number of evictions
+     */
+    public long getEvictionCount(ResourceType type)
+    {
+        Segment segment = segments.get(type);
+        synchronized (segment)
+        {
+            return segment.evictionCount;
+        }
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups of all types.
+     *
+     * @return the hit rate between 0 and 1, 0 if there wasn't any lookup
+     */
+    public double getHitRate()
+    {
+        long hits = 0;
+        long misses = 0;
+        for (ResourceType type : ResourceType.values())
+        {
+            hits += getHitCount(type);
+            misses += getMissCount(type);
+        }
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Adds the cached resources of the given document to the given memory usage. If the cache is shared by several
+     * documents, the resources of the other documents aren't added, so that they aren't counted more than once.
+     */
+    void estimateMemoryUsage(DocumentMemoryUsage usage, COSDocument document)
+    {
+        for (ResourceType type : ResourceType.values())
+        {
+            for (Object resource : getResources(type, document))
+            {
+                if (resource instanceof PDFont)
+                {
+                    usage.addFont((PDFont) resource);
+                }
+                else if (resource instanceof PDImageXObject)
+                {
+                    usage.addImage((PDImageXObject) resource);
+                }
+                else
+                {
+                    usage.addCacheEntry();
+                }
+            }
+        }
+    }
+
+    private List<Object> getResources(ResourceType type, COSDocument document)
+    {
+        Segment segment = segments.get(type);
+        synchronized (segment)
+        {
+            List<Object> resources = new ArrayList<>();
+            segment.entries.forEach((indirect, entry) ->
+            {
+                if (document.containsObject(indirect))
+                {
+                    resources.add(entry.resource);
+                }
+            });
+            return resources;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("BoundedResourceCache{");
+        for (ResourceType type : ResourceType.values())
+        {
+            Segment segment = segments.get(type);
+            synchronized (segment)
+            {
+                sb.append(type).append("=[entries=").append(segment.entries.size()) //
+                        .append(", weight=").append(segment.weight) //
+                        .append(", hits=").append(segment.hitCount) //
+                        .append(", misses=").append(segment.missCount) //
+                        .append(", evictions=").append(segment.evictionCount).append("], ");
+            }
+        }
+        sb.setLength(sb.length() - 2);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * A cached resource and its weight.
+     */
+    private static final class Entry
+    {
+        final Object resource;
+        final long weight;
+
+        Entry(Object resource, long weight)
+        {
+            this.resource = resource;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The resources of one type in the order of their last use. All fields are guarded by the segment itself.
+     */
+    private static final class Segment
+    {
+        final long maxWeight;
+        final Map<COSObject, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long weight;
+        long hitCount;
+        long missCount;
+        long evictionCount;
+
+        Segment(long maxWeight)
+        {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized Object get(COSObject indirect)
+        {
+            Entry entry = entries.get(indirect);
+            if (entry != null)
+            {
+                hitCount++;
+                return entry.resource;
+            }
+            missCount++;
+            return null;
+        }
+
+        synchronized void put(COSObject indirect, Object resource, long resourceWeight)
+        {
+            remove(indirect);
+            if (resourceWeight > maxWeight)
+            {
+                return;
+            }
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (weight + resourceWeight > maxWeight && iterator.hasNext())
+            {
+                weight -= iterator.next().weight;
+                iterator.remove();
+                evictionCount++;
+            }
+            entries.put(indirect, new Entry(resource, resourceWeight));
+            weight += resourceWeight;
+        }
+
+        synchronized void remove(COSObject indirect)
+        {
+            Entry entry = entries.remove(indirect);
+            if (entry != null)
+            {
+                weight -= entry.weight;
+            }
+        }
+
+        synchronized void remove(COSDocument document)
+        {
+            Iterator<Map.Entry<COSObject, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                Map.Entry<COSObject, Entry> entry = iterator.next();
+                if (document.containsObject(entry.getKey()))
+                {
+                    weight -= entry.getValue().weight;
+                    iterator.remove();
+                }
+            }
+        }
+
+        synchronized void clear()
+        {
+            entries.clear();
+            weight = 0;
+        }
+    }
+}
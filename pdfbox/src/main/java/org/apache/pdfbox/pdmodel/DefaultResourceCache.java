@@ -19,45 +19,51 @@ package org.apache.pdfbox.pdmodel;
 
 import java.io.IOException;
 import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.graphics.PDXObject;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
 import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 
 /**
  * A resource cached based on SoftReference, retains resources until memory pressure causes them
- * to be garbage collected.
+ * to be garbage collected. The cache may be used by several threads rendering the pages of a document
+ * concurrently.
  *
  * @author John Hewson
  */
 public class DefaultResourceCache implements ResourceCache
 {
     private final Map<COSObject, SoftReference<PDFont>> fonts =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
     
     private final Map<COSObject, SoftReference<PDColorSpace>> colorSpaces =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     private final Map<COSObject, SoftReference<PDXObject>> xobjects =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     private final Map<COSObject, SoftReference<PDExtendedGraphicsState>> extGStates =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     private final Map<COSObject, SoftReference<PDShading>> shadings =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     private final Map<COSObject, SoftReference<PDAbstractPattern>> patterns =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     private final Map<COSObject, SoftReference<PDPropertyList>> properties =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     @Override
     public PDFont getFont(COSObject indirect) throws IOException
@@ -177,4 +183,56 @@ public class DefaultResourceCache implements ResourceCache
     {
         xobjects.put(indirect, new SoftReference<>(xobject));
     }
+
+    @Override
+    public void remove(COSObject indirect)
+    {
+        fonts.remove(indirect);
+        colorSpaces.remove(indirect);
+        xobjects.remove(indirect);
+        extGStates.remove(indirect);
+        shadings.remove(indirect);
+        patterns.remove(indirect);
+        properties.remove(indirect);
+    }
+
+    /**
+     * Adds the cached resources of the given document which weren't garbage collected yet to the given memory usage.
+     * If the cache is shared by several documents, the resources of the other documents aren't added.
+     */
+    void estimateMemoryUsage(DocumentMemoryUsage usage, COSDocument document)
+    {
+        forEachCached(fonts, document, usage::addFont);
+        forEachCached(xobjects, document, xobject ->
+        {
+            if (xobject instanceof PDImageXObject)
+            {
+                usage.addImage((PDImageXObject) xobject);
+            }
+            else
+            {
+                usage.addCacheEntry();
+            }
+        });
+        forEachCached(colorSpaces, document, resource -> usage.addCacheEntry());
+        forEachCached(extGStates, document, resource -> usage.addCacheEntry());
+        forEachCached(shadings, document, resource -> usage.addCacheEntry());
+        forEachCached(patterns, document, resource -> usage.addCacheEntry());
+        forEachCached(properties, document, resource -> usage.addCacheEntry());
+    }
+
+    private static <T> void forEachCached(Map<COSObject, SoftReference<T>> map, COSDocument document,
+            Consumer<T> action)
+    {
+        List<Map.Entry<COSObject, SoftReference<T>>> entries = new ArrayList<>(map.entrySet());
+        for (Map.Entry<COSObject, SoftReference<T>> entry : entries)
+        {
+            SoftReference<T> reference = entry.getValue();
+            T resource = reference != null ? reference.get() : null;
+            if (resource != null && document.containsObject(entry.getKey()))
+            {
+                action.accept(resource);
+            }
+        }
+    }
 }
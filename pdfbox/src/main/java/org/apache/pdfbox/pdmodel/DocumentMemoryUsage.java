@@ -0,0 +1,487 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.graphics.image.DecodedImageCache;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * An estimation of the memory retained by a document, broken down by category. The estimation only looks at the
+ * objects which are loaded already, nothing is parsed or decoded, so that it is cheap enough to be done periodically,
+ * e.g. to enforce memory quotas.
+ *
+ * <p>The sizes are rough estimations for a 64 bit JVM with compressed references. Fonts and images are only included if
+ * they are held by a {@link DefaultResourceCache} or a {@link BoundedResourceCache}. If the resource cache is shared by
+ * several documents, only the resources of this document are included. The decoded object streams cached by the parser
+ * and the images of this document held by a {@link DecodedImageCache} are included as well. The caches which aren't
+ * tied to a document aren't included, i.e. the {@link org.apache.pdfbox.contentstream.OperatorCache}, the
+ * {@link org.apache.pdfbox.rendering.FormRasterCache}, the {@link org.apache.pdfbox.rendering.GlyphOutlineCache} and
+ * the {@link org.apache.pdfbox.pdmodel.font.EmbeddedFontCache}.</p>
+ *
+ * <p>The estimation doesn't lock the document, it may be done while another thread uses the document, e.g. renders a
+ * page. In that case the result is less accurate, the dictionaries and arrays which are changed while they are looked
+ * at are skipped.</p>
+ *
+ * @see PDDocument#estimateMemoryUsage()
+ */
+public final class DocumentMemoryUsage
+{
+    private static final Log LOG = LogFactory.getLog(DocumentMemoryUsage.class);
+
+    // the COSObject, its key and the entry of the object pool
+    private static final int INDIRECT_OBJECT_SIZE = 96;
+    // the COSDictionary, its map and the header of the entry table
+    private static final int DICTIONARY_SIZE = 64;
+    // the COSArray, its list and the header of the element array
+    private static final int ARRAY_SIZE = 64;
+    // the COSString and the header of its byte array
+    private static final int STRING_SIZE = 40;
+    private static final int NUMBER_SIZE = 24;
+    // the state of a stream in addition to its dictionary, its data is held by the scratch file or the source
+    private static final int STREAM_SIZE = 48;
+
+    private long objectCount;
+    private long objectBytes;
+    private long sourceBytes;
+    private long streamHeapBytes;
+    private long streamDirectBytes;
+    private long streamFileBytes;
+    private int cacheEntryCount;
+    private int fontCount;
+    private long fontBytes;
+    private int imageCount;
+    private long imageBytes;
+    private long objectStreamBytes;
+    private long decodedImageBytes;
+
+    private DocumentMemoryUsage()
+    {
+    }
+
+    /**
+     * Estimates the memory used by the given document.
+     *
+     * @param document the document
+     * @param source the pdf the document was read from, may be null
+     * @return the estimation
+     */
+    static DocumentMemoryUsage estimate(PDDocument document, RandomAccessRead source)
+    {
+        DocumentMemoryUsage usage = new DocumentMemoryUsage();
+        COSDocument cosDocument = document.getDocument();
+        usage.addObjects(cosDocument);
+
+        if (source instanceof RandomAccessReadBuffer)
+        {
+            try
+            {
+                usage.sourceBytes = source.length();
+            }
+            catch (IOException e)
+            {
+                LOG.debug("Length of the source couldn't be determined", e);
+            }
+        }
+
+        ScratchFile scratchFile = cosDocument.getScratchFile();
+        if (scratchFile != null)
+        {
+            usage.streamHeapBytes = scratchFile.getHeapMemoryUsed();
+            usage.streamDirectBytes = scratchFile.getDirectMemoryUsed();
+            usage.streamFileBytes = scratchFile.getFileSpaceUsed();
+        }
+
+        ResourceCache resourceCache = document.getResourceCache();
+        if (resourceCache instanceof DefaultResourceCache)
+        {
+            ((DefaultResourceCache) resourceCache).estimateMemoryUsage(usage, cosDocument);
+        }
+        else if (resourceCache instanceof BoundedResourceCache)
+        {
+            ((BoundedResourceCache) resourceCache).estimateMemoryUsage(usage, cosDocument);
+        }
+
+        usage.objectStreamBytes = cosDocument.getParserCacheMemoryUsed();
+
+        // the images may be held by the cache of the document and by the cache for all documents
+        DecodedImageCache imageCache = document.getDecodedImageCache();
+        DecodedImageCache sharedImageCache = DecodedImageCache.getInstance();
+        if (imageCache != null)
+        {
+            usage.decodedImageBytes += imageCache.getSize(document);
+        }
+        if (sharedImageCache != null && sharedImageCache != imageCache)
+        {
+            usage.decodedImageBytes += sharedImageCache.getSize(document);
+        }
+        return usage;
+    }
+
+    /**
+     * Adds the loaded objects of the object pool and the objects reachable from the trailer, which are created
+     * directly if the document is a new one. Objects which aren't loaded yet aren't followed.
+     */
+    private void addObjects(COSDocument cosDocument)
+    {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> pending = new ArrayDeque<>(cosDocument.getLoadedObjects());
+        if (cosDocument.getTrailer() != null)
+        {
+            pending.push(cosDocument.getTrailer());
+        }
+        while (!pending.isEmpty())
+        {
+            COSBase base = pending.pop();
+            if (base instanceof COSObject)
+            {
+                COSObject indirect = (COSObject) base;
+                if (!indirect.isObjectNull() && visited.add(indirect))
+                {
+                    objectCount++;
+                    objectBytes += INDIRECT_OBJECT_SIZE;
+                    COSBase object = indirect.getObject();
+                    if (object != null)
+                    {
+                        pending.push(object);
+                    }
+                }
+            }
+            else if (base instanceof COSDictionary)
+            {
+                if (visited.add(base))
+                {
+                    COSDictionary dictionary = (COSDictionary) base;
+                    int size = dictionary.size();
+                    // large dictionaries have a hash index in addition to the entry table
+                    objectBytes += DICTIONARY_SIZE + 8L * size + (size > 16 ? 8L * size : 0);
+                    if (base instanceof COSStream)
+                    {
+                        objectBytes += STREAM_SIZE;
+                    }
+                    pushAll(pending, getValues(dictionary));
+                }
+            }
+            else if (base instanceof COSArray)
+            {
+                if (visited.add(base))
+                {
+                    COSArray array = (COSArray) base;
+                    objectBytes += ARRAY_SIZE + 4L * array.size();
+                    pushAll(pending, getElements(array));
+                }
+            }
+            else if (base instanceof COSString)
+            {
+                objectBytes += STRING_SIZE + ((COSString) base).getBytes().length;
+            }
+            else if (base instanceof COSInteger || base instanceof COSFloat)
+            {
+                objectBytes += NUMBER_SIZE;
+            }
+            // names, booleans and null are shared by all documents
+        }
+    }
+
+    /**
+     * Returns a copy of the values of a dictionary, or an empty list if the dictionary is changed by another thread
+     * while it is copied.
+     */
+    private static List<COSBase> getValues(COSDictionary dictionary)
+    {
+        try
+        {
+            return new ArrayList<>(dictionary.getValues());
+        }
+        catch (ConcurrentModificationException | IndexOutOfBoundsException e)
+        {
+            // the estimation doesn't need to be exact
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns a copy of the elements of an array, or the elements copied so far if the array is changed by another
+     * thread while it is copied.
+     */
+    private static List<COSBase> getElements(COSArray array)
+    {
+        List<COSBase> elements = new ArrayList<>(array.size());
+        try
+        {
+            for (int i = 0; i < array.size(); i++)
+            {
+                elements.add(array.get(i));
+            }
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            // the estimation doesn't need to be exact
+        }
+        return elements;
+    }
+
+    /**
+     * Pushes the given objects, the null slots of a container changed concurrently are skipped.
+     */
+    private static void pushAll(Deque<COSBase> pending, List<COSBase> objects)
+    {
+        for (COSBase object : objects)
+        {
+            if (object != null)
+            {
+                pending.push(object);
+            }
+        }
+    }
+
+    /**
+     * Adds a cached resource which is neither a font nor an image.
+     */
+    void addCacheEntry()
+    {
+        cacheEntryCount++;
+    }
+
+    /**
+     * Adds a cached font, its size is estimated by the length of the embedded font program.
+     */
+    void addFont(PDFont font)
+    {
+        cacheEntryCount++;
+        fontCount++;
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        if (descriptor != null)
+        {
+            fontBytes += getFontFileSize(descriptor.getFontFile())
+                    + getFontFileSize(descriptor.getFontFile2())
+                    + getFontFileSize(descriptor.getFontFile3());
+        }
+    }
+
+    private static long getFontFileSize(PDStream fontFile)
+    {
+        if (fontFile == null)
+        {
+            return 0;
+        }
+        COSStream stream = fontFile.getCOSObject();
+        // the lengths of the decoded font program, if given
+        long decodedLength = (long) stream.getInt(COSName.LENGTH1, 0) + stream.getInt(COSName.LENGTH2, 0)
+                + stream.getInt(COSName.LENGTH3, 0);
+        return Math.max(decodedLength, stream.getLength());
+    }
+
+    /**
+     * Adds a cached image, its size is the size of the decoded image cached by the image, if any.
+     */
+    void addImage(PDImageXObject image)
+    {
+        cacheEntryCount++;
+        imageCount++;
+        imageBytes += image.getCachedImageSize();
+    }
+
+    /**
+     * Returns the number of loaded indirect objects.
+     *
+     * @return the number of loaded objects
+     */
+    public long getObjectCount()
+    {
+        return objectCount;
+    }
+
+    /**
+     * Returns the estimated heap memory used by the loaded objects, i.e. the dictionaries, arrays, strings and numbers
+     * without the data of the streams.
+     *
+     * @return the memory used by the objects in bytes
+     */
+    public long getObjectBytes()
+    {
+        return objectBytes;
+    }
+
+    /**
+     * Returns the heap memory used by the pdf the document was read from, if it is held in memory.
+     *
+     * @return the size of the pdf held in memory in bytes, 0 if it is read from a file
+     */
+    public long getSourceBytes()
+    {
+        return sourceBytes;
+    }
+
+    /**
+     * Returns the heap memory used by the scratch file holding the data of the created and changed streams.
+     *
+     * @return the heap memory used by the stream data in bytes
+     */
+    public long getStreamHeapBytes()
+    {
+        return streamHeapBytes;
+    }
+
+    /**
+     * Returns the direct memory used by the scratch file holding the data of the created and changed streams.
+     *
+     * @return the direct memory used by the stream data in bytes
+     */
+    public long getStreamDirectBytes()
+    {
+        return streamDirectBytes;
+    }
+
+    /**
+     * Returns the disk space used by the scratch file holding the data of the created and changed streams.
+     *
+     * @return the disk space used by the stream data in bytes
+     */
+    public long getStreamFileBytes()
+    {
+        return streamFileBytes;
+    }
+
+    /**
+     * Returns the number of resources held by the resource cache which weren't garbage collected yet.
+     *
+     * @return the number of cached resources, including the fonts and images
+     */
+    public int getCacheEntryCount()
+    {
+        return cacheEntryCount;
+    }
+
+    /**
+     * Returns the number of cached fonts.
+     *
+     * @return the number of cached fonts
+     */
+    public int getFontCount()
+    {
+        return fontCount;
+    }
+
+    /**
+     * Returns the estimated heap memory used by the cached fonts.
+     *
+     * @return the memory used by the fonts in bytes
+     */
+    public long getFontBytes()
+    {
+        return fontBytes;
+    }
+
+    /**
+     * Returns the number of cached images.
+     *
+     * @return the number of cached images
+     */
+    public int getImageCount()
+    {
+        return imageCount;
+    }
+
+    /**
+     * Returns the heap memory used by the decoded images cached by the cached images.
+     *
+     * @return the memory used by the images in bytes
+     */
+    public long getImageBytes()
+    {
+        return imageBytes;
+    }
+
+    /**
+     * Returns the heap memory used by the decoded object streams cached by the parser.
+     *
+     * @return the memory used by the object streams in bytes
+     */
+    public long getObjectStreamBytes()
+    {
+        return objectStreamBytes;
+    }
+
+    /**
+     * Returns the heap memory used by the images of the document held by a {@link DecodedImageCache}.
+     *
+     * @return the memory used by the decoded images in bytes
+     */
+    public long getDecodedImageBytes()
+    {
+        return decodedImageBytes;
+    }
+
+    /**
+     * Returns the estimated heap memory used by the document, i.e. the sum of all categories held in heap memory.
+     *
+     * @return the heap memory used by the document in bytes
+     */
+    public long getHeapBytes()
+    {
+        return objectBytes + sourceBytes + streamHeapBytes + fontBytes + imageBytes + objectStreamBytes
+                + decodedImageBytes;
+    }
+
+    /**
+     * Returns the estimated memory used by the document, i.e. the heap memory and the direct memory.
+     *
+     * @return the memory used by the document in bytes
+     */
+    public long getTotalBytes()
+    {
+        return getHeapBytes() + streamDirectBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DocumentMemoryUsage{total=" + getTotalBytes() + ", objects=" + objectCount + "/" + objectBytes
+                + ", source=" + sourceBytes + ", streamHeap=" + streamHeapBytes + ", streamDirect="
+                + streamDirectBytes + ", streamFile=" + streamFileBytes + ", cacheEntries=" + cacheEntryCount
+                + ", fonts=" + fontCount + "/" + fontBytes + ", images=" + imageCount + "/" + imageBytes
+                + ", objectStreams=" + objectStreamBytes + ", decodedImages=" + decodedImageBytes + "}";
+    }
+}
@@ -28,9 +28,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -44,6 +47,7 @@ import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
 import org.apache.pdfbox.cos.COSUpdateInfo;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.MemoryUsageSetting;
@@ -60,6 +64,7 @@ import org.apache.pdfbox.pdmodel.encryption.SecurityHandler;
 import org.apache.pdfbox.pdmodel.encryption.SecurityHandlerFactory;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.DecodedImageCache;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
@@ -147,6 +152,8 @@ public class PDDocument implements Closeable
     // document-wide cached resources
     private ResourceCache resourceCache = new DefaultResourceCache();
 
+    private DecodedImageCache decodedImageCache;
+
     // to make sure only one signature is added
     private boolean signatureAdded = false;
 
@@ -1152,6 +1159,20 @@ public class PDDocument implements Closeable
      */
     public PDPage getPage(int pageIndex) // todo: REPLACE most calls to this method with BELOW method
     {
+        if (pageIndex == 0)
+        {
+            // the first page of a linearized pdf is known without reading the page tree
+            COSObjectKey firstPageKey = document.getFirstPageKey();
+            if (firstPageKey != null)
+            {
+                COSBase firstPage = document.getObjectFromPool(firstPageKey).getObject();
+                if (firstPage instanceof COSDictionary && COSName.PAGE
+                        .equals(((COSDictionary) firstPage).getCOSName(COSName.TYPE, COSName.PAGE)))
+                {
+                    return new PDPage((COSDictionary) firstPage, getResourceCache());
+                }
+            }
+        }
         return getDocumentCatalog().getPages().get(pageIndex);
     }
 
@@ -1175,6 +1196,72 @@ public class PDDocument implements Closeable
         return getDocumentCatalog().getPages().getCount();
     }
 
+    /**
+     * Releases the content streams and resources of the given page, e.g. fonts and images including their nested
+     * objects, which were loaded from the pdf, so that their memory can be reclaimed. The released objects are loaded
+     * again when they are used the next time. This allows processing large documents page by page without keeping
+     * the objects of all processed pages in memory. Inherited resources and the annotations of the page aren't
+     * released.
+     *
+     * <p>Changes of released objects are lost, so this should only be used for pages which weren't modified. Objects
+     * marked as updated and objects which weren't read from the pdf aren't released. The released objects are removed
+     * from the {@link #getResourceCache() resource cache} as well, so that e.g. a font shared by the following pages
+     * is parsed again.</p>
+     *
+     * @param page the page whose objects are to be released
+     * @return the number of released objects
+     */
+    public int releasePage(PDPage page)
+    {
+        COSDictionary pageDict = page.getCOSObject();
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        return releaseObjects(pageDict.getItem(COSName.CONTENTS), visited)
+                + releaseObjects(pageDict.getItem(COSName.RESOURCES), visited);
+    }
+
+    /**
+     * Releases the loaded indirect objects reachable from the given object, references to parents aren't followed.
+     */
+    private int releaseObjects(COSBase base, Set<COSBase> visited)
+    {
+        int released = 0;
+        if (base instanceof COSObject)
+        {
+            COSObject indirect = (COSObject) base;
+            // don't load objects which aren't loaded yet
+            if (!indirect.isObjectNull() && visited.add(indirect))
+            {
+                released += releaseObjects(indirect.getObject(), visited);
+                if (document.releaseObject(indirect))
+                {
+                    if (resourceCache != null)
+                    {
+                        resourceCache.remove(indirect);
+                    }
+                    released++;
+                }
+            }
+        }
+        else if (base instanceof COSDictionary && visited.add(base))
+        {
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) base).entrySet())
+            {
+                if (!COSName.PARENT.equals(entry.getKey()) && !COSName.P.equals(entry.getKey()))
+                {
+                    released += releaseObjects(entry.getValue(), visited);
+                }
+            }
+        }
+        else if (base instanceof COSArray && visited.add(base))
+        {
+            for (COSBase element : (COSArray) base)
+            {
+                released += releaseObjects(element, visited);
+            }
+        }
+        return released;
+    }
+
     /**
      * This will close the underlying COSDocument object.
      * 
@@ -1192,6 +1279,23 @@ public class PDDocument implements Closeable
 
             IOException firstException = null;
 
+            // drop the decoded images of this document
+            DecodedImageCache sharedImageCache = DecodedImageCache.getInstance();
+            if (sharedImageCache != null)
+            {
+                sharedImageCache.removeImages(this);
+            }
+            if (decodedImageCache != null && decodedImageCache != sharedImageCache)
+            {
+                decodedImageCache.removeImages(this);
+            }
+
+            // drop the cached resources of this document, the cache may be shared with other documents
+            if (resourceCache instanceof BoundedResourceCache)
+            {
+                ((BoundedResourceCache) resourceCache).removeResources(document);
+            }
+
             // close resources and COSWriter
             if (signingSupport != null)
             {
@@ -1381,6 +1485,18 @@ public class PDDocument implements Closeable
         }
     }
 
+    /**
+     * Estimates the memory retained by this document, broken down by category, e.g. the loaded objects, the buffered
+     * stream data and the fonts and images held by the resource cache. Only objects which are loaded already are
+     * looked at, so this is cheap enough to be called periodically, e.g. to enforce memory quotas.
+     *
+     * @return the estimated memory usage
+     */
+    public DocumentMemoryUsage estimateMemoryUsage()
+    {
+        return DocumentMemoryUsage.estimate(this, pdfSource);
+    }
+
     /**
      * Returns the resource cache associated with this document, or null if there is none.
      */
@@ -1390,12 +1506,43 @@ public class PDDocument implements Closeable
     }
 
     /**
-     * Sets the resource cache associated with this document.
+     * Sets the resource cache associated with this document. The resources of this document are removed from a
+     * previous {@link BoundedResourceCache}.
      * 
      * @param resourceCache A resource cache, or null.
      */
     public void setResourceCache(ResourceCache resourceCache)
     {
+        if (this.resourceCache instanceof BoundedResourceCache && this.resourceCache != resourceCache)
+        {
+            ((BoundedResourceCache) this.resourceCache).removeResources(document);
+        }
         this.resourceCache = resourceCache;
     }
+
+    /**
+     * Returns the cache used for the decoded images of this document, or null if there is none.
+     *
+     * @return the decoded image cache or null
+     */
+    public DecodedImageCache getDecodedImageCache()
+    {
+        return decodedImageCache;
+    }
+
+    /**
+     * Sets the cache used for the decoded images of this document when rendering. If this is null, the cache set by
+     * {@link DecodedImageCache#setInstance(DecodedImageCache)} is used, if any. The images of this document are
+     * removed from the previous cache.
+     *
+     * @param decodedImageCache A decoded image cache, or null.
+     */
+    public void setDecodedImageCache(DecodedImageCache decodedImageCache)
+    {
+        if (this.decodedImageCache != null && this.decodedImageCache != decodedImageCache)
+        {
+            this.decodedImageCache.removeImages(this);
+        }
+        this.decodedImageCache = decodedImageCache;
+    }
 }
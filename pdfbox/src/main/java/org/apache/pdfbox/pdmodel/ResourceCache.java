@@ -104,4 +104,11 @@ public interface ResourceCache
      * Puts the given indirect XObject resource in the cache.
      */
     void put(COSObject indirect, PDXObject xobject) throws IOException;
+
+    /**
+     * Removes the resources for the given indirect object from the cache, e.g. because the object was released.
+     */
+    default void remove(COSObject indirect)
+    {
+    }
 }
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.util.Hex;
+
+/**
+ * A JVM wide cache of parsed embedded font programs, which allows documents embedding the same fonts to share the
+ * parsed fonts instead of parsing them again. The font programs are identified by the SHA-256 hash of their decoded
+ * data. The cache is bounded by the total length of the cached font programs, the least recently used fonts are
+ * evicted first. Evicted fonts are still used by the documents which loaded them.
+ *
+ * <p>The cache is disabled by default, it is enabled by {@link #setInstance(EmbeddedFontCache)}. The parsed fonts of
+ * fontbox are thread safe, like the system fonts which are shared by the {@link FontMapper}.</p>
+ */
+public final class EmbeddedFontCache
+{
+    /**
+     * Parses a font program.
+     *
+     * @param <T> the type of the parsed font
+     */
+    @FunctionalInterface
+    interface FontParser<T>
+    {
+        T parse(byte[] bytes) throws IOException;
+    }
+
+    private static volatile EmbeddedFontCache instance;
+
+    private final long maxBytes;
+    private final Map<String, Entry> fonts = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes the maximum total length in bytes of the cached font programs
+     */
+    public EmbeddedFontCache(long maxBytes)
+    {
+        if (maxBytes < 0)
+        {
+            throw new IllegalArgumentException("The maximum size must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache used for all documents.
+     *
+     * @return the cache or null if embedded fonts aren't shared
+     */
+    public static EmbeddedFontCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Sets the cache used for all documents. Fonts which are loaded already aren't affected.
+     *
+     * @param cache the cache or null to disable the sharing of embedded fonts
+     */
+    public static void setInstance(EmbeddedFontCache cache)
+    {
+        instance = cache;
+    }
+
+    /**
+     * Returns the parsed font for the given font program, it is parsed if it isn't cached yet. Fonts which can't be
+     * parsed aren't cached.
+     *
+     * @param type the type of the font, fonts of different types aren't shared even if their data is the same
+     * @param bytes the decoded font program
+     * @param parser the parser used if the font isn't cached
+     * @return the parsed font
+     * @throws IOException if the font can't be parsed
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getFont(String type, byte[] bytes, FontParser<T> parser) throws IOException
+    {
+        String key = type + ':' + Hex.getString(getSHA256().digest(bytes));
+        synchronized (this)
+        {
+            Entry entry = fonts.get(key);
+            if (entry != null)
+            {
+                hitCount++;
+                return (T) entry.font;
+            }
+            missCount++;
+        }
+        // parsed outside of the lock, two threads may parse the same font, only the first one is cached
+        T font = parser.parse(bytes);
+        synchronized (this)
+        {
+            Entry entry = fonts.get(key);
+            if (entry != null)
+            {
+                return (T) entry.font;
+            }
+            if (bytes.length <= maxBytes)
+            {
+                Iterator<Entry> iterator = fonts.values().iterator();
+                while (size + bytes.length > maxBytes && iterator.hasNext())
+                {
+                    size -= iterator.next().length;
+                    iterator.remove();
+                    evictionCount++;
+                }
+                fonts.put(key, new Entry(font, bytes.length));
+                size += bytes.length;
+            }
+        }
+        return font;
+    }
+
+    private static MessageDigest getSHA256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Removes all cached fonts. The statistics aren't reset.
+     */
+    public synchronized void clear()
+    {
+        fonts.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum total length in bytes of the cached font programs.
+     *
+     * @return the maximum size
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the total length in bytes of the cached font programs.
+     *
+     * @return the current size
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached fonts.
+     *
+     * @return the number of cached fonts
+     */
+    public synchronized int getFontCount()
+    {
+        return fonts.size();
+    }
+
+    /**
+     * Returns how often a font was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns how often a font wasn't found in the cache and had to be parsed.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of fonts evicted from the cache because the maximum size was reached.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "EmbeddedFontCache{fonts=" + fonts.size() + ", size=" + size + ", maxBytes=" + maxBytes
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * A cached font and the length of its font program.
+     */
+    private static final class Entry
+    {
+        final Object font;
+        final int length;
+
+        Entry(Object font, int length)
+        {
+            this.font = font;
+            this.length = length;
+        }
+    }
+}
@@ -20,9 +20,9 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.fontbox.FontBoxFont;
@@ -53,7 +53,7 @@ public class PDCIDFontType0 extends PDCIDFont
     private final CFFCIDFont cidFont;  // Top DICT that uses CIDFont operators
     private final FontBoxFont t1Font; // Top DICT that does not use CIDFont operators
     
-    private final Map<Integer, Float> glyphHeights = new HashMap<>();
+    private final Map<Integer, Float> glyphHeights = new ConcurrentHashMap<>();
     private final boolean isEmbedded;
     private final boolean isDamaged;
     private final AffineTransform fontMatrixTransform;
@@ -93,10 +93,19 @@ public class PDCIDFontType0 extends PDCIDFont
         }
         else if (bytes != null)
         {
-            CFFParser cffParser = new CFFParser();
             try
             {
-                cffFont = cffParser.parse(bytes, new FF3ByteSource()).get(0);
+                EmbeddedFontCache cache = EmbeddedFontCache.getInstance();
+                if (cache != null)
+                {
+                    // the shared font reads its data from the cached bytes instead of this document
+                    cffFont = cache.getFont("CFF", bytes, data -> new CFFParser().parse(data, () -> data).get(0));
+                }
+                else
+                {
+                    CFFParser cffParser = new CFFParser();
+                    cffFont = cffParser.parse(bytes, new FF3ByteSource()).get(0);
+                }
             }
             catch (IOException e)
             {
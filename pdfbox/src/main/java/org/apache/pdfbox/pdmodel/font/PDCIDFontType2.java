@@ -18,6 +18,7 @@ package org.apache.pdfbox.pdmodel.font;
 
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
@@ -110,8 +111,18 @@ public class PDCIDFontType2 extends PDCIDFont
                 try
                 {
                     // embedded OTF or TTF
-                    OTFParser otfParser = new OTFParser(true);
-                    OpenTypeFont otf = otfParser.parse(stream.createInputStream());
+                    OpenTypeFont otf;
+                    EmbeddedFontCache cache = EmbeddedFontCache.getInstance();
+                    if (cache != null)
+                    {
+                        otf = cache.getFont("OpenType", stream.toByteArray(),
+                                bytes -> new OTFParser(true).parse(new ByteArrayInputStream(bytes)));
+                    }
+                    else
+                    {
+                        OTFParser otfParser = new OTFParser(true);
+                        otf = otfParser.parse(stream.createInputStream());
+                    }
                     ttfFont = otf;
     
                     if (otf.isPostScript())
@@ -18,6 +18,7 @@ package org.apache.pdfbox.pdmodel.font;
 
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -80,7 +81,7 @@ public class PDTrueTypeFont extends PDSimpleFont implements PDVectorFont
     private CmapSubtable cmapWinUnicode = null;
     private CmapSubtable cmapWinSymbol = null;
     private CmapSubtable cmapMacRoman = null;
-    private boolean cmapInitialized = false;
+    private volatile boolean cmapInitialized = false;
     private Map<Integer, Integer> gidToCode; // for embedding
     private BoundingBox fontBBox;
 
@@ -104,8 +105,17 @@ public class PDTrueTypeFont extends PDSimpleFont implements PDVectorFont
                 try
                 {
                     // embedded
-                    TTFParser ttfParser = new TTFParser(true);
-                    ttfFont = ttfParser.parse(ff2Stream.createInputStream());
+                    EmbeddedFontCache cache = EmbeddedFontCache.getInstance();
+                    if (cache != null)
+                    {
+                        ttfFont = cache.getFont("TrueType", ff2Stream.toByteArray(),
+                                bytes -> new TTFParser(true).parse(new ByteArrayInputStream(bytes)));
+                    }
+                    else
+                    {
+                        TTFParser ttfParser = new TTFParser(true);
+                        ttfFont = ttfParser.parse(ff2Stream.createInputStream());
+                    }
                 }
                 catch (IOException e)
                 {
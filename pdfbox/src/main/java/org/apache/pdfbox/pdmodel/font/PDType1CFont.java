@@ -22,9 +22,9 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.fontbox.EncodedFont;
@@ -54,7 +54,7 @@ public class PDType1CFont extends PDSimpleFont implements PDVectorFont
 {
     private static final Log LOG = LogFactory.getLog(PDType1CFont.class);
 
-    private final Map<String, Float> glyphHeights = new HashMap<>();
+    private final Map<String, Float> glyphHeights = new ConcurrentHashMap<>();
     private final AffineTransform fontMatrixTransform;
     private final CFFType1Font cffFont; // embedded font
     private final FontBoxFont genericFont; // embedded or system font for rendering
@@ -97,8 +97,18 @@ public class PDType1CFont extends PDSimpleFont implements PDVectorFont
             if (bytes != null)
             {
                 // note: this could be an OpenType file, fortunately CFFParser can handle that
-                CFFParser cffParser = new CFFParser();
-                cffEmbedded = (CFFType1Font)cffParser.parse(bytes, new FF3ByteSource()).get(0);
+                EmbeddedFontCache cache = EmbeddedFontCache.getInstance();
+                if (cache != null)
+                {
+                    // the shared font reads its data from the cached bytes instead of this document
+                    cffEmbedded = (CFFType1Font) cache.getFont("CFF", bytes,
+                            data -> new CFFParser().parse(data, () -> data).get(0));
+                }
+                else
+                {
+                    CFFParser cffParser = new CFFParser();
+                    cffEmbedded = (CFFType1Font)cffParser.parse(bytes, new FF3ByteSource()).get(0);
+                }
             }
         }
         catch (IOException e)
@@ -196,7 +196,7 @@ public class PDType1Font extends PDSimpleFont implements PDVectorFont
         isEmbedded = true;
         isDamaged = false;
         fontMatrixTransform = new AffineTransform();
-        codeToBytesMap = new HashMap<>();
+        codeToBytesMap = new ConcurrentHashMap<>();
     }
 
     /**
@@ -209,7 +209,7 @@ public class PDType1Font extends PDSimpleFont implements PDVectorFont
     public PDType1Font(COSDictionary fontDictionary) throws IOException
     {
         super(fontDictionary);
-        codeToBytesMap = new HashMap<>();
+        codeToBytesMap = new ConcurrentHashMap<>();
 
         PDFontDescriptor fd = getFontDescriptor();
         Type1Font t1 = null;
@@ -239,30 +239,18 @@ public class PDType1Font extends PDSimpleFont implements PDVectorFont
                     {
                         throw new IOException("Font data unavailable");
                     }
-                    length1 = repairLength1(bytes, length1);
-                    length2 = repairLength2(bytes, length1, length2);
+                    int repairedLength1 = repairLength1(bytes, length1);
+                    int repairedLength2 = repairLength2(bytes, repairedLength1, length2);
 
-                    if (bytes.length > 0 && (bytes[0] & 0xff) == PFB_START_MARKER)
+                    EmbeddedFontCache cache = EmbeddedFontCache.getInstance();
+                    if (cache != null)
                     {
-                        // some bad files embed the entire PFB, see PDFBOX-2607
-                        t1 = Type1Font.createWithPFB(bytes);
+                        t1 = cache.getFont("Type1:" + repairedLength1 + ':' + repairedLength2, bytes,
+                                data -> parseType1(data, repairedLength1, repairedLength2));
                     }
                     else
                     {
-                        // the PFB embedded as two segments back-to-back
-                        if (length1 < 0 || length1 > length1 + length2)
-                        {
-                            throw new IOException("Invalid length data, actual length: " +
-                                    bytes.length + ", /Length1: " + length1 + ", /Length2: " + length2);
-                        }
-                        byte[] segment1 = Arrays.copyOfRange(bytes, 0, length1);
-                        byte[] segment2 = Arrays.copyOfRange(bytes, length1, length1 + length2);
-
-                        // empty streams are simply ignored
-                        if (length1 > 0 && length2 > 0)
-                        {
-                            t1 = Type1Font.createWithSegments(segment1, segment2);
-                        }
+                        t1 = parseType1(bytes, repairedLength1, repairedLength2);
                     }
                 }
                 catch (DamagedFontException e)
@@ -302,6 +290,39 @@ public class PDType1Font extends PDSimpleFont implements PDVectorFont
         fontMatrixTransform.scale(1000, 1000);
     }
 
+    /**
+     * Parses an embedded Type 1 font, either an entire PFB or the two segments of a PFB back-to-back.
+     *
+     * @param bytes Type 1 stream bytes
+     * @param length1 the repaired Length1
+     * @param length2 the repaired Length2
+     * @return the font or null if a segment is empty
+     */
+    private static Type1Font parseType1(byte[] bytes, int length1, int length2) throws IOException
+    {
+        if (bytes.length > 0 && (bytes[0] & 0xff) == PFB_START_MARKER)
+        {
+            // some bad files embed the entire PFB, see PDFBOX-2607
+            return Type1Font.createWithPFB(bytes);
+        }
+
+        // the PFB embedded as two segments back-to-back
+        if (length1 < 0 || length1 > length1 + length2)
+        {
+            throw new IOException("Invalid length data, actual length: " +
+                    bytes.length + ", /Length1: " + length1 + ", /Length2: " + length2);
+        }
+        byte[] segment1 = Arrays.copyOfRange(bytes, 0, length1);
+        byte[] segment2 = Arrays.copyOfRange(bytes, length1, length1 + length2);
+
+        // empty streams are simply ignored
+        if (length1 > 0 && length2 > 0)
+        {
+            return Type1Font.createWithSegments(segment1, segment2);
+        }
+        return null;
+    }
+
     /**
      * Some Type 1 fonts have an invalid Length1, which causes the binary segment of the font
      * to be truncated, see PDFBOX-2350, PDFBOX-3677.
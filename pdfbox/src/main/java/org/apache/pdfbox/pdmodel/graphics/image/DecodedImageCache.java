@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * A cache of decoded images with a memory budget, which allows the images used by several pages to be decoded only
+ * once, unlike the image cached by {@link PDImageXObject#getImage()} which may be cleared by the garbage collector at
+ * any time and which is replaced when another subsampling is requested. The images are identified by their image
+ * stream, the subsampling and the region. The cache is bounded by the memory of the decoded images, the least
+ * recently used images are evicted first. It may be used by several threads concurrently.
+ *
+ * <p>A cache can be set for a document by {@link PDDocument#setDecodedImageCache(DecodedImageCache)}, or for all
+ * documents by {@link #setInstance(DecodedImageCache)}, both are disabled by default. The cached images must not be
+ * changed, and the cache should be cleared if an image stream is changed after it was decoded.</p>
+ *
+ * <p>As the image streams are compared by identity, images of different documents are never shared, even if they
+ * are identical. A cache for all documents bounds the memory used by the decoded images of all documents together.
+ * The images of a document are removed from its cache and from the cache for all documents when it is closed.</p>
+ */
+public final class DecodedImageCache
+{
+    private static volatile DecodedImageCache instance;
+
+    private final long maxBytes;
+    private final Map<Key, Entry> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes the maximum memory in bytes used by the decoded images
+     */
+    public DecodedImageCache(long maxBytes)
+    {
+        if (maxBytes < 0)
+        {
+            throw new IllegalArgumentException("The maximum size must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache used for all documents without a cache of their own.
+     *
+     * @return the cache or null if decoded images aren't shared
+     */
+    public static DecodedImageCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Sets the cache used for all documents without a cache of their own.
+     *
+     * @param cache the cache or null to disable the sharing of decoded images
+     */
+    public static void setInstance(DecodedImageCache cache)
+    {
+        instance = cache;
+    }
+
+    /**
+     * Returns the cache used for the given document, i.e. its own cache or the cache for all documents.
+     *
+     * @param document the document
+     * @return the cache or null if decoded images aren't shared
+     */
+    public static DecodedImageCache getCache(PDDocument document)
+    {
+        DecodedImageCache cache = document.getDecodedImageCache();
+        return cache != null ? cache : instance;
+    }
+
+    /**
+     * Returns the decoded image of the given image XObject, it is decoded by
+     * {@link PDImageXObject#getImage(Rectangle, int)} if it isn't cached yet. Images larger than the cache aren't
+     * cached.
+     *
+     * @param document the document of the image, its images are removed when it is closed
+     * @param image the image XObject
+     * @param region the region of the image to decode or null for the whole image
+     * @param subsampling the subsampling
+     * @return the decoded image
+     * @throws IOException if the image can't be decoded
+     */
+    public BufferedImage getImage(PDDocument document, PDImageXObject image, Rectangle region, int subsampling)
+            throws IOException
+    {
+        Key key = new Key(image.getCOSObject(), region, subsampling);
+        synchronized (this)
+        {
+            Entry cached = images.get(key);
+            if (cached != null)
+            {
+                hitCount++;
+                return cached.image;
+            }
+            missCount++;
+        }
+        // decoded outside of the lock, two threads may decode the same image, only the first one is cached
+        BufferedImage decoded = image.getImage(region, subsampling);
+        Entry entry = new Entry(decoded, document);
+        synchronized (this)
+        {
+            Entry cached = images.get(key);
+            if (cached != null)
+            {
+                return cached.image;
+            }
+            if (entry.size <= maxBytes)
+            {
+                Iterator<Entry> iterator = images.values().iterator();
+                while (size + entry.size > maxBytes && iterator.hasNext())
+                {
+                    size -= iterator.next().size;
+                    iterator.remove();
+                    evictionCount++;
+                }
+                images.put(key, entry);
+                size += entry.size;
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Removes the images of the given document, this is done when the document is closed.
+     *
+     * @param document the document
+     */
+    public synchronized void removeImages(PDDocument document)
+    {
+        Iterator<Entry> iterator = images.values().iterator();
+        while (iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            if (entry.document == document)
+            {
+                size -= entry.size;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the memory in bytes used by the pixel data of an image.
+     */
+    static long getSize(BufferedImage image)
+    {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8 * dataBuffer.getSize()
+                * dataBuffer.getNumBanks();
+    }
+
+    /**
+     * Removes all cached images. The statistics aren't reset.
+     */
+    public synchronized void clear()
+    {
+        images.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum memory in bytes used by the decoded images.
+     *
+     * @return the maximum size
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the memory in bytes used by the decoded images.
+     *
+     * @return the current size
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the memory in bytes used by the decoded images of the given document.
+     *
+     * @param document the document
+     * @return the size of the images of the document
+     */
+    public synchronized long getSize(PDDocument document)
+    {
+        long documentSize = 0;
+        for (Entry entry : images.values())
+        {
+            if (entry.document == document)
+            {
+                documentSize += entry.size;
+            }
+        }
+        return documentSize;
+    }
+
+    /**
+     * Returns the number of cached images.
+     *
+     * @return the number of images
+     */
+    public synchronized int getImageCount()
+    {
+        return images.size();
+    }
+
+    /**
+     * Returns how often an image was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns how often an image wasn't found in the cache and had to be decoded.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of images evicted from the cache because the maximum size was reached.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "DecodedImageCache{images=" + images.size() + ", size=" + size + ", maxBytes=" + maxBytes
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * A decoded image and the document it belongs to.
+     */
+    private static final class Entry
+    {
+        private final BufferedImage image;
+        private final PDDocument document;
+        private final long size;
+
+        Entry(BufferedImage image, PDDocument document)
+        {
+            this.image = image;
+            this.document = document;
+            this.size = getSize(image);
+        }
+    }
+
+    /**
+     * The image stream, the region and the subsampling of a decoded image.
+     */
+    private static final class Key
+    {
+        private final COSBase stream;
+        private final Rectangle region;
+        private final int subsampling;
+
+        Key(COSBase stream, Rectangle region, int subsampling)
+        {
+            this.stream = stream;
+            this.region = region != null ? new Rectangle(region) : null;
+            this.subsampling = subsampling;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return stream == other.stream && subsampling == other.subsampling
+                    && Objects.equals(region, other.region);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * System.identityHashCode(stream) + Objects.hashCode(region)) + subsampling;
+        }
+    }
+}
@@ -469,6 +469,23 @@ public final class PDImageXObject extends PDXObject implements PDImage
         return image;
     }
 
+    /**
+     * Returns the memory in bytes used by the image cached by {@link #getImage()}, e.g. to estimate the memory used
+     * by a document.
+     *
+     * @return the size of the pixel data of the cached image, 0 if there isn't any
+     */
+    public long getCachedImageSize()
+    {
+        SoftReference<BufferedImage> reference = cachedImage;
+        BufferedImage cached = reference != null ? reference.get() : null;
+        if (cached == null)
+        {
+            return 0;
+        }
+        return DecodedImageCache.getSize(cached);
+    }
+
     @Override
     public BufferedImage getRawImage() throws IOException
     {
@@ -548,8 +548,10 @@ final class SampledImageReader
                 if (currentSubsampling == 1)
                 {
                     // Not the entire region was requested, but if no subsampling should
-                    // be performed, we can still copy the entire part of this row
-                    System.arraycopy(tempBytes, startx * numComponents, bank, y * inputWidth * numComponents, scanWidth * numComponents);
+                    // be performed, we can still copy the entire part of this row into the
+                    // row of the raster, which is as wide as the region
+                    System.arraycopy(tempBytes, startx * numComponents, bank,
+                            (y - starty) * scanWidth * numComponents, scanWidth * numComponents);
                 }
                 else
                 {
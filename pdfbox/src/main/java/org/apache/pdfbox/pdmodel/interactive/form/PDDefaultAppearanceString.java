@@ -17,7 +17,6 @@
 package org.apache.pdfbox.pdmodel.interactive.form;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -95,22 +94,8 @@ class PDDefaultAppearanceString
      */
     private void processAppearanceStringOperators(byte[] content) throws IOException
     {
-        List<COSBase> arguments = new ArrayList<>();
         PDFStreamParser parser = new PDFStreamParser(content);
-        Object token = parser.parseNextToken();
-        while (token != null)
-        {
-            if (token instanceof Operator)
-            {
-                processOperator((Operator) token, arguments);
-                arguments = new ArrayList<>();
-            }
-            else
-            {
-                arguments.add((COSBase) token);
-            }
-            token = parser.parseNextToken();
-        }
+        parser.parse(this::processOperator);
     }
     
     /**
@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.state.PDTextState;
+
+/**
+ * A cache for the rasterized images of form XObjects, which allows a {@link PDFRenderer} to draw a form which is
+ * painted repeatedly, e.g. a stamp, a map symbol or a tile of a background, as an image instead of processing its
+ * content stream every time. The cache may be used by several renderers concurrently.
+ *
+ * <p>A form is rasterized when it is painted the second time with the same scale, rotation and inherited graphics
+ * state, the image is reused when the form is painted again with a transform which differs only by the translation.
+ * The position of the image is rounded to whole pixels and the anti-aliased edges may differ slightly from those
+ * drawn directly, which is why the cache is disabled by default. Forms using patterns, soft masks, blend modes or
+ * transparency groups are always drawn directly, and so are forms larger than the maximum number of pixels.</p>
+ *
+ * <p>The cache is bounded by the memory of the images, if it is exceeded the images used least recently are evicted.
+ * The images depend on the rendering hints and optional content of the renderer, the cache should be cleared if they
+ * are changed.</p>
+ *
+ * @see PDFRenderer#setFormRasterCache(FormRasterCache)
+ */
+public final class FormRasterCache
+{
+    // the key and its map entry
+    private static final int ENTRY_SIZE = 256;
+
+    private final long maxBytes;
+    private final int maxPixels;
+    private final Map<Key, Raster> rasters = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes the maximum memory in bytes used by the cached images
+     * @param maxPixels the maximum number of pixels of the image of a form, larger forms are drawn directly
+     */
+    public FormRasterCache(long maxBytes, int maxPixels)
+    {
+        if (maxBytes < 0)
+        {
+            throw new IllegalArgumentException("The maximum size must not be negative: " + maxBytes);
+        }
+        if (maxPixels < 0)
+        {
+            throw new IllegalArgumentException("The maximum number of pixels must not be negative: " + maxPixels);
+        }
+        this.maxBytes = maxBytes;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Returns the cached raster for the given key. If the form wasn't painted before with this key, this is remembered
+     * and null is returned, the next time {@link Raster#SEEN} is returned and the form should be rasterized.
+     *
+     * @param key the key of the form
+     * @return the raster, {@link Raster#SEEN}, {@link Raster#UNCACHEABLE} or null
+     */
+    synchronized Raster get(Key key)
+    {
+        Raster raster = rasters.get(key);
+        if (raster != null && raster.image != null)
+        {
+            hitCount++;
+            return raster;
+        }
+        missCount++;
+        if (raster == null)
+        {
+            add(key, Raster.SEEN);
+        }
+        return raster;
+    }
+
+    /**
+     * Adds the raster of a form, or {@link Raster#UNCACHEABLE} if the form can't be rasterized. Rasters larger than
+     * the cache are replaced by the latter.
+     *
+     * @param key the key of the form
+     * @param raster the raster
+     */
+    synchronized void put(Key key, Raster raster)
+    {
+        Raster old = rasters.remove(key);
+        if (old != null)
+        {
+            size -= old.getSize();
+        }
+        add(key, raster.getSize() > maxBytes ? Raster.UNCACHEABLE : raster);
+    }
+
+    private void add(Key key, Raster raster)
+    {
+        rasters.put(key, raster);
+        size += raster.getSize();
+        Iterator<Raster> iterator = rasters.values().iterator();
+        while (size > maxBytes && iterator.hasNext())
+        {
+            Raster eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getSize();
+            if (eldest.image != null)
+            {
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Removes all cached images. The statistics aren't reset.
+     */
+    public synchronized void clear()
+    {
+        rasters.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum memory in bytes used by the cached images.
+     *
+     * @return the maximum size
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the maximum number of pixels of the image of a form.
+     *
+     * @return the maximum number of pixels
+     */
+    public int getMaxPixels()
+    {
+        return maxPixels;
+    }
+
+    /**
+     * Returns the memory in bytes used by the cached images, including the bookkeeping of forms which aren't
+     * rasterized.
+     *
+     * @return the current size
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached images.
+     *
+     * @return the number of images
+     */
+    public synchronized int getImageCount()
+    {
+        return (int) rasters.values().stream().filter(raster -> raster.image != null).count();
+    }
+
+    /**
+     * Returns how often a form was drawn from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns how often a form wasn't found in the cache and had to be processed.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of images evicted from the cache because the maximum size was reached.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "FormRasterCache{entries=" + rasters.size() + ", size=" + size + ", maxBytes=" + maxBytes
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * The rasterized image of a form.
+     */
+    static final class Raster
+    {
+        /**
+         * The form was painted once.
+         */
+        static final Raster SEEN = new Raster(null, 0, 0);
+
+        /**
+         * The form can't be rasterized.
+         */
+        static final Raster UNCACHEABLE = new Raster(null, 0, 0);
+
+        private final BufferedImage image;
+        private final double offsetX;
+        private final double offsetY;
+
+        /**
+         * Constructor.
+         *
+         * @param image the ARGB image of the form in device space
+         * @param offsetX the x position of the image relative to the translation of the device transform of the form
+         * @param offsetY the y position of the image relative to the translation of the device transform of the form
+         */
+        Raster(BufferedImage image, double offsetX, double offsetY)
+        {
+            this.image = image;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+        BufferedImage getImage()
+        {
+            return image;
+        }
+
+        /**
+         * Returns the x position of the image in device space, rounded to whole pixels.
+         *
+         * @param transform the device transform of the form
+         */
+        int getX(AffineTransform transform)
+        {
+            return (int) Math.round(transform.getTranslateX() + offsetX);
+        }
+
+        /**
+         * Returns the y position of the image in device space, rounded to whole pixels.
+         *
+         * @param transform the device transform of the form
+         */
+        int getY(AffineTransform transform)
+        {
+            return (int) Math.round(transform.getTranslateY() + offsetY);
+        }
+
+        private long getSize()
+        {
+            return image == null ? ENTRY_SIZE : ENTRY_SIZE + 4L * image.getWidth() * image.getHeight();
+        }
+    }
+
+    /**
+     * The key of a form, consisting of its stream, the device transform without translation and the parts of the
+     * graphics state which the form may inherit.
+     */
+    static final class Key
+    {
+        private final COSBase stream;
+        private final double[] values;
+        private final Object[] objects;
+        private final int hash;
+
+        /**
+         * Constructor.
+         *
+         * @param form the form
+         * @param transform the device transform of the form, i.e. including the CTM and the form matrix
+         * @param state the graphics state at the time the form is painted
+         */
+        Key(PDFormXObject form, AffineTransform transform, PDGraphicsState state)
+        {
+            PDTextState textState = state.getTextState();
+            PDFont font = textState.getFont();
+            stream = form.getCOSObject();
+            values = new double[] {
+                    transform.getScaleX(), transform.getShearY(), transform.getShearX(), transform.getScaleY(),
+                    state.getAlphaConstant(), state.getNonStrokeAlphaConstant(),
+                    state.getLineWidth(), state.getLineCap(), state.getLineJoin(), state.getMiterLimit(),
+                    state.getLineDashPattern().getPhase(),
+                    textState.getCharacterSpacing(), textState.getWordSpacing(),
+                    textState.getHorizontalScaling(), textState.getLeading(), textState.getFontSize(),
+                    textState.getRise() };
+            objects = new Object[] {
+                    getColorSpace(state.getStrokingColor()), state.getStrokingColor().getComponents(),
+                    getColorSpace(state.getNonStrokingColor()), state.getNonStrokingColor().getComponents(),
+                    state.getLineDashPattern().getDashArray(),
+                    font == null ? null : font.getCOSObject(), textState.getRenderingMode(),
+                    state.getTransfer() };
+            hash = 31 * (31 * stream.hashCode() + Arrays.hashCode(values)) + Arrays.deepHashCode(objects);
+        }
+
+        private static COSBase getColorSpace(PDColor color)
+        {
+            return color.getColorSpace() == null ? null : color.getColorSpace().getCOSObject();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return stream == other.stream && hash == other.hash && Arrays.equals(values, other.values)
+                    && Arrays.deepEquals(objects, other.objects);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
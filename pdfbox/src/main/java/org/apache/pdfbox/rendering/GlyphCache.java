@@ -28,7 +28,8 @@ import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.font.PDVectorFont;
 
 /**
- * A simple glyph outline cache.
+ * A simple glyph outline cache, the outlines are either kept for the current page only or in a
+ * {@link GlyphOutlineCache} shared by all pages.
  *
  * @author John Hewson
  */
@@ -38,15 +39,22 @@ final class GlyphCache
     
     private final PDVectorFont font;
     private final Map<Integer, GeneralPath> cache = new HashMap<>();
+    private final GlyphOutlineCache.Glyphs sharedCache;
 
     GlyphCache(PDVectorFont font)
+    {
+        this(font, null);
+    }
+
+    GlyphCache(PDVectorFont font, GlyphOutlineCache.Glyphs sharedCache)
     {
         this.font = font;
+        this.sharedCache = sharedCache;
     }
     
     public GeneralPath getPathForCharacterCode(int code)
     {
-        GeneralPath path = cache.get(code);
+        GeneralPath path = sharedCache != null ? sharedCache.get(code) : cache.get(code);
         if (path != null)
         {
             return path;
@@ -73,7 +81,7 @@ final class GlyphCache
                     {
                         // PDFBOX-4001 return empty path for line feed on std14
                         path = new GeneralPath();
-                        cache.put(code, path);
+                        put(code, path);
                         return path;
                     }
                 }
@@ -84,7 +92,7 @@ final class GlyphCache
             }
 
             path = font.getNormalizedPath(code);
-            cache.put(code, path);
+            put(code, path);
             return path;
         }
         catch (IOException e)
@@ -95,4 +103,16 @@ final class GlyphCache
             return new GeneralPath();
         }
     }
+
+    private void put(int code, GeneralPath path)
+    {
+        if (sharedCache != null)
+        {
+            sharedCache.put(code, path);
+        }
+        else
+        {
+            cache.put(code, path);
+        }
+    }
 }
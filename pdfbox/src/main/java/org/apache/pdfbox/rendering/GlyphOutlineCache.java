@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.pdfbox.cos.COSDictionary;
+
+/**
+ * A cache for the glyph outlines of the fonts of a document, which is used by all pages rendered by a
+ * {@link PDFRenderer}, so that the outlines of a font are only extracted once instead of once per page. The cache may
+ * be used by several renderers concurrently.
+ *
+ * <p>The outlines are cached per font dictionary, as the mapping of character codes to glyphs depends on the
+ * dictionary. The cache is bounded by the estimated memory of the outlines, if it is exceeded the fonts used least
+ * recently are evicted. The glyphs are looked up without locking, only adding a glyph and switching to another font
+ * are synchronized.</p>
+ *
+ * @see PDFRenderer#setGlyphOutlineCache(GlyphOutlineCache)
+ */
+public final class GlyphOutlineCache
+{
+    // the glyph, its map entry and the path object without its arrays
+    private static final int GLYPH_SIZE = 96;
+
+    private final long maxWeight;
+    private final Map<COSDictionary, Glyphs> fonts = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long evictionCount;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param maxWeight the maximum estimated memory in bytes used by the cached outlines
+     */
+    public GlyphOutlineCache(long maxWeight)
+    {
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException("The maximum weight must not be negative: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the glyphs of the given font, a new empty set of glyphs if there isn't any.
+     *
+     * @param font the font dictionary
+     * @return the cached glyphs of the font
+     */
+    synchronized Glyphs getGlyphs(COSDictionary font)
+    {
+        return fonts.computeIfAbsent(font, f -> new Glyphs());
+    }
+
+    /**
+     * Adds a glyph to the given glyphs and evicts the least recently used fonts if the maximum weight is exceeded.
+     */
+    private synchronized void add(Glyphs glyphs, int code, GeneralPath path)
+    {
+        if (glyphs.paths.putIfAbsent(code, path) != null || glyphs.evicted)
+        {
+            return;
+        }
+        long glyphWeight = estimateWeight(path);
+        glyphs.weight += glyphWeight;
+        weight += glyphWeight;
+        Iterator<Glyphs> iterator = fonts.values().iterator();
+        while (weight > maxWeight && iterator.hasNext())
+        {
+            // the glyphs of an evicted font are still used by the pages being rendered
+            Glyphs eldest = iterator.next();
+            iterator.remove();
+            eldest.evicted = true;
+            weight -= eldest.weight;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Estimates the memory used by a glyph, i.e. the segment types and float coordinates of the path.
+     */
+    private static long estimateWeight(GeneralPath path)
+    {
+        long pathWeight = GLYPH_SIZE;
+        float[] coords = new float[6];
+        for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next())
+        {
+            switch (iterator.currentSegment(coords))
+            {
+                case PathIterator.SEG_MOVETO:
+                case PathIterator.SEG_LINETO:
+                    pathWeight += 1 + 2 * 4;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    pathWeight += 1 + 4 * 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    pathWeight += 1 + 6 * 4;
+                    break;
+                default:
+                    pathWeight += 1;
+                    break;
+            }
+        }
+        return pathWeight;
+    }
+
+    /**
+     * Removes all cached outlines. The statistics aren't reset.
+     */
+    public synchronized void clear()
+    {
+        fonts.values().forEach(glyphs -> glyphs.evicted = true);
+        fonts.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the maximum estimated memory in bytes used by the cached outlines.
+     *
+     * @return the maximum weight
+     */
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the cached outlines.
+     *
+     * @return the current weight
+     */
+    public synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Returns the number of fonts with cached outlines.
+     *
+     * @return the number of fonts
+     */
+    public synchronized int getFontCount()
+    {
+        return fonts.size();
+    }
+
+    /**
+     * Returns how often the outline of a glyph was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns how often the outline of a glyph wasn't found in the cache and had to be extracted from the font.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of fonts evicted from the cache because the maximum weight was exceeded.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups.
+     *
+     * @return the hit rate between 0 and 1, 0 if there wasn't any lookup
+     */
+    public double getHitRate()
+    {
+        long hits = hitCount.sum();
+        long lookups = hits + missCount.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "GlyphOutlineCache{fonts=" + fonts.size() + ", weight=" + weight + ", maxWeight=" + maxWeight
+                + ", hits=" + hitCount.sum() + ", misses=" + missCount.sum() + ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * The cached outlines of one font.
+     */
+    final class Glyphs
+    {
+        private final Map<Integer, GeneralPath> paths = new ConcurrentHashMap<>();
+        // guarded by the cache
+        private long weight;
+        private volatile boolean evicted;
+
+        /**
+         * Returns the outline of the glyph for the given character code.
+         *
+         * @param code the character code
+         * @return the outline or null if it isn't cached
+         */
+        GeneralPath get(int code)
+        {
+            GeneralPath path = paths.get(code);
+            if (path != null)
+            {
+                hitCount.increment();
+            }
+            else
+            {
+                missCount.increment();
+            }
+            return path;
+        }
+
+        /**
+         * Adds the outline of the glyph for the given character code.
+         *
+         * @param code the character code
+         * @param path the outline, it must not be changed later
+         */
+        void put(int code, GeneralPath path)
+        {
+            add(this, code, path);
+        }
+    }
+}
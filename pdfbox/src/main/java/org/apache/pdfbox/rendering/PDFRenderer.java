@@ -17,17 +17,28 @@
 package org.apache.pdfbox.rendering;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.DisplayMode;
 import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsDevice;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.contentstream.OperatorCache;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -42,6 +53,10 @@ import org.apache.pdfbox.pdmodel.interactive.annotation.AnnotationFilter;
 /**
  * Renders a PDF document to an AWT BufferedImage.
  * This class may be overridden in order to perform custom rendering.
+ * <p>
+ * Several pages of the document may be rendered concurrently by the same renderer, e.g. with
+ * {@link #renderPagesWithDPI(int, int, float, ImageType, Executor, int, PageImageConsumer) renderPagesWithDPI()},
+ * as long as neither the settings of the renderer nor the document are changed while rendering.
  *
  * @author John Hewson
  */
@@ -63,12 +78,16 @@ public class PDFRenderer
 
     private RenderingHints renderingHints = null;
 
-    private BufferedImage pageImage;
-
     private static boolean kcmsLogged = false;
 
     private float imageDownscalingOptimizationThreshold = 0.5f;
 
+    private OperatorCache operatorCache;
+
+    private GlyphOutlineCache glyphOutlineCache;
+
+    private FormRasterCache formRasterCache;
+
     /**
      * Creates a new PDFRenderer.
      * @param document the document to render
@@ -195,6 +214,74 @@ public class PDFRenderer
         this.imageDownscalingOptimizationThreshold = imageDownscalingOptimizationThreshold;
     }
 
+    /**
+     * Returns the cache used for the parsed operators of form XObjects, tiling patterns and Type 3 glyphs.
+     *
+     * @return the operator cache or null if the operators aren't cached
+     */
+    public OperatorCache getOperatorCache()
+    {
+        return operatorCache;
+    }
+
+    /**
+     * Sets the cache used for the parsed operators of form XObjects, tiling patterns and Type 3 glyphs. This avoids
+     * parsing the same streams again when rendering several pages, the cache may also be shared with a
+     * {@link org.apache.pdfbox.text.PDFTextStripper}. Default is null, i.e. the operators aren't cached.
+     *
+     * @param operatorCache the operator cache or null
+     */
+    public void setOperatorCache(OperatorCache operatorCache)
+    {
+        this.operatorCache = operatorCache;
+    }
+
+    /**
+     * Returns the cache used for the glyph outlines of the fonts.
+     *
+     * @return the glyph outline cache or null if the outlines are cached per page only
+     */
+    public GlyphOutlineCache getGlyphOutlineCache()
+    {
+        return glyphOutlineCache;
+    }
+
+    /**
+     * Sets the cache used for the glyph outlines of the fonts. This avoids extracting the outlines of the same fonts
+     * again for every page, the cache may also be shared by several renderers of the document rendering pages
+     * concurrently. Default is null, i.e. the outlines are cached per page only.
+     *
+     * @param glyphOutlineCache the glyph outline cache or null
+     */
+    public void setGlyphOutlineCache(GlyphOutlineCache glyphOutlineCache)
+    {
+        this.glyphOutlineCache = glyphOutlineCache;
+    }
+
+    /**
+     * Returns the cache used for the rasterized images of form XObjects.
+     *
+     * @return the form raster cache or null if forms are always drawn directly
+     */
+    public FormRasterCache getFormRasterCache()
+    {
+        return formRasterCache;
+    }
+
+    /**
+     * Sets the cache used for the rasterized images of form XObjects. This avoids processing the content stream of a
+     * form which is painted repeatedly at the same scale again, at the cost of a slightly lower fidelity of its
+     * anti-aliased edges. The cache is only used when rendering to an image, not when rendering to a
+     * {@link Graphics2D}, and it may also be shared by several renderers of the document rendering pages
+     * concurrently. Default is null, i.e. forms are always drawn directly.
+     *
+     * @param formRasterCache the form raster cache or null
+     */
+    public void setFormRasterCache(FormRasterCache formRasterCache)
+    {
+        this.formRasterCache = formRasterCache;
+    }
+
     /**
      * Returns the given page as an RGB image at 72 DPI
      * @param pageIndex the zero-based index of the page to be converted.
@@ -256,8 +343,7 @@ public class PDFRenderer
     public BufferedImage renderImage(int pageIndex, float scale, ImageType imageType)
             throws IOException
     {
-        return renderImage(pageIndex, scale, imageType, 
-                           defaultDestination == null ? RenderDestination.EXPORT : defaultDestination);
+        return renderImage(pageIndex, scale, imageType, getDestination());
     }
 
     /**
@@ -274,6 +360,37 @@ public class PDFRenderer
     {
         PDPage page = document.getPage(pageIndex);
 
+        Dimension size = getImageSize(page, scale);
+
+        // PDFBOX-4518 the maximum size (w*h) of a buffered image is limited to Integer.MAX_VALUE
+        if ((long) size.width * (long) size.height > Integer.MAX_VALUE)
+        {
+            PDRectangle cropbBox = page.getCropBox();
+            throw new IOException("Maximum size of image exceeded (w * h * scale ^ 2) = "//
+                    + cropbBox.getWidth() + " * " + cropbBox.getHeight() + " * " + scale + " ^ 2 > "
+                    + Integer.MAX_VALUE);
+        }
+
+        BufferedImage image = createImage(page, size.width, size.height, imageType);
+        renderRegion(page, scale, destination, image, null);
+        return convertImage(image, imageType, null);
+    }
+
+    /**
+     * Returns the size of the image of the given page at the given scale, i.e. the size of the
+     * image returned by {@link #renderImage(int, float)}.
+     *
+     * @param pageIndex the zero-based index of the page
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @return the width and height of the page image in pixels
+     */
+    public Dimension getImageSize(int pageIndex, float scale)
+    {
+        return getImageSize(document.getPage(pageIndex), scale);
+    }
+
+    private static Dimension getImageSize(PDPage page, float scale)
+    {
         PDRectangle cropbBox = page.getCropBox();
         float widthPt = cropbBox.getWidth();
         float heightPt = cropbBox.getHeight();
@@ -282,15 +399,112 @@ public class PDFRenderer
         int widthPx = (int) Math.max(Math.floor(widthPt * scale), 1);
         int heightPx = (int) Math.max(Math.floor(heightPt * scale), 1);
 
-        // PDFBOX-4518 the maximum size (w*h) of a buffered image is limited to Integer.MAX_VALUE
-        if ((long) widthPx * (long) heightPx > Integer.MAX_VALUE)
+        // swap width and height
+        int rotationAngle = page.getRotation();
+        if (rotationAngle == 90 || rotationAngle == 270)
         {
-            throw new IOException("Maximum size of image exceeded (w * h * scale ^ 2) = "//
-                    + widthPt + " * " + heightPt + " * " + scale + " ^ 2 > " + Integer.MAX_VALUE);
+            return new Dimension(heightPx, widthPx);
         }
+        return new Dimension(widthPx, heightPx);
+    }
 
-        int rotationAngle = page.getRotation();
+    /**
+     * Renders a rectangular region of the given page image. The result is the same as the
+     * corresponding part of the image returned by {@link #renderImage(int, float, ImageType)}, but
+     * only the memory for the region is needed. Drawing operations outside of the region, such as
+     * images and forms, are skipped. This allows to render pages at resolutions for which the
+     * whole page image wouldn't fit into memory.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param imageType the type of image to return
+     * @param region the region of the page image in pixels, see {@link #getImageSize(int, float)}
+     * @return the rendered region
+     * @throws IOException if the PDF cannot be read
+     * @throws IllegalArgumentException if the region is empty or not within the page image
+     */
+    public BufferedImage renderImageRegion(int pageIndex, float scale, ImageType imageType,
+            Rectangle region) throws IOException
+    {
+        PDPage page = document.getPage(pageIndex);
+        Dimension size = getImageSize(page, scale);
+        if (region.isEmpty() || !new Rectangle(size).contains(region))
+        {
+            throw new IllegalArgumentException("The region " + region
+                    + " is not within the page image of size " + size);
+        }
+        BufferedImage image = createImage(page, region.width, region.height, imageType);
+        renderRegion(page, scale, getDestination(), image,
+                new Rectangle(-region.x, -region.y, size.width, size.height));
+        return convertImage(image, imageType, null);
+    }
+
+    /**
+     * Renders the given page image in tiles and passes the tiles row by row to the consumer, e.g.
+     * to write a tiled TIFF or an image pyramid without holding the whole page image in memory.
+     * The tiles are rendered like {@link #renderImageRegion(int, float, ImageType, Rectangle)}.
+     * <p>
+     * The image passed to the consumer is reused for the next tile, so it is only valid until the
+     * consumer returns. The tiles in the last column and the last row are smaller if the page
+     * image size isn't a multiple of the tile size.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param imageType the type of the tile images
+     * @param tileWidth the width of the tiles in pixels
+     * @param tileHeight the height of the tiles in pixels
+     * @param consumer the consumer of the rendered tiles
+     * @throws IOException if the PDF cannot be read or the consumer throws an IOException
+     * @throws IllegalArgumentException if the tile size isn't positive
+     */
+    public void renderImageTiles(int pageIndex, float scale, ImageType imageType, int tileWidth,
+            int tileHeight, PageTileConsumer consumer) throws IOException
+    {
+        if (tileWidth < 1 || tileHeight < 1)
+        {
+            throw new IllegalArgumentException(
+                    "The tile size must be positive: " + tileWidth + " x " + tileHeight);
+        }
+        PDPage page = document.getPage(pageIndex);
+        Dimension size = getImageSize(page, scale);
+        RenderDestination destination = getDestination();
+        int width = Math.min(tileWidth, size.width);
+        int height = Math.min(tileHeight, size.height);
+        BufferedImage tile = createImage(page, width, height, imageType);
+        BufferedImage convertedTile = null;
+        if (tile.getType() != imageType.toBufferedImageType())
+        {
+            convertedTile = new BufferedImage(width, height, imageType.toBufferedImageType());
+        }
+        for (int y = 0; y < size.height; y += height)
+        {
+            for (int x = 0; x < size.width; x += width)
+            {
+                int w = Math.min(width, size.width - x);
+                int h = Math.min(height, size.height - y);
+                BufferedImage image = w == width && h == height ? tile : tile.getSubimage(0, 0, w, h);
+                renderRegion(page, scale, destination, image,
+                        new Rectangle(-x, -y, size.width, size.height));
+                if (convertedTile != null)
+                {
+                    image = convertImage(image, imageType, w == width && h == height
+                            ? convertedTile : convertedTile.getSubimage(0, 0, w, h));
+                }
+                consumer.accept(x, y, image);
+            }
+        }
+    }
 
+    private RenderDestination getDestination()
+    {
+        return defaultDestination == null ? RenderDestination.EXPORT : defaultDestination;
+    }
+
+    /**
+     * Creates the image to render the given page to.
+     */
+    private BufferedImage createImage(PDPage page, int width, int height, ImageType imageType)
+    {
         int bimType = imageType.toBufferedImageType();
         if (imageType != ImageType.ARGB && hasBlendMode(page))
         {
@@ -300,20 +514,18 @@ public class PDFRenderer
             // Finally when the page has been rendered, PDF.js draws the RGBA canvas on a white canvas.
             bimType = BufferedImage.TYPE_INT_ARGB;
         }
+        return new BufferedImage(width, height, bimType);
+    }
 
-        // swap width and height
-        BufferedImage image;
-        if (rotationAngle == 90 || rotationAngle == 270)
-        {
-            image = new BufferedImage(heightPx, widthPx, bimType);
-        }
-        else
-        {
-            image = new BufferedImage(widthPx, heightPx, bimType);
-        }
-
-        pageImage = image;
-
+    /**
+     * Renders the page to the given image.
+     *
+     * @param pageImageBounds the bounds of the whole page image relative to the given image, null
+     * if the image is the whole page image
+     */
+    private void renderRegion(PDPage page, float scale, RenderDestination destination,
+            BufferedImage image, Rectangle pageImageBounds) throws IOException
+    {
         // use a transparent background if the image type supports alpha
         Graphics2D g = image.createGraphics();
         if (image.getType() == BufferedImage.TYPE_INT_ARGB)
@@ -325,7 +537,11 @@ public class PDFRenderer
             g.setBackground(Color.WHITE);
         }
         g.clearRect(0, 0, image.getWidth(), image.getHeight());
-        
+
+        if (pageImageBounds != null)
+        {
+            g.translate(pageImageBounds.x, pageImageBounds.y);
+        }
         transform(g, page, scale, scale);
 
         // the end-user may provide a custom PageDrawer
@@ -333,26 +549,159 @@ public class PDFRenderer
                 renderingHints == null ? createDefaultRenderingHints(g) : renderingHints;
         PageDrawerParameters parameters =
                 new PageDrawerParameters(this, page, subsamplingAllowed, destination,
-                        actualRenderingHints, imageDownscalingOptimizationThreshold);
+                        actualRenderingHints, imageDownscalingOptimizationThreshold, image,
+                        pageImageBounds);
         PageDrawer drawer = createPageDrawer(parameters);
         drawer.drawPage(g, page.getCropBox());       
         
         g.dispose();
+    }
 
-        if (image.getType() != imageType.toBufferedImageType())
+    /**
+     * Converts the image to the given image type if it was rendered on a transparent background.
+     *
+     * @param target the image to draw to or null if a new image is to be created
+     */
+    private static BufferedImage convertImage(BufferedImage image, ImageType imageType,
+            BufferedImage target)
+    {
+        if (image.getType() == imageType.toBufferedImageType())
         {
-            // PDFBOX-4095: draw temporary transparent image on white background
-            BufferedImage newImage = 
-                    new BufferedImage(image.getWidth(), image.getHeight(), imageType.toBufferedImageType());
-            Graphics2D dstGraphics = newImage.createGraphics();
-            dstGraphics.setBackground(Color.WHITE);
-            dstGraphics.clearRect(0, 0, image.getWidth(), image.getHeight());
-            dstGraphics.drawImage(image, 0, 0, null);
-            dstGraphics.dispose();
-            image = newImage;
+            return image;
         }
+        // PDFBOX-4095: draw temporary transparent image on white background
+        BufferedImage newImage = target != null ? target
+                : new BufferedImage(image.getWidth(), image.getHeight(), imageType.toBufferedImageType());
+        Graphics2D dstGraphics = newImage.createGraphics();
+        dstGraphics.setBackground(Color.WHITE);
+        dstGraphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+        dstGraphics.drawImage(image, 0, 0, null);
+        dstGraphics.dispose();
+        return newImage;
+    }
 
-        return image;
+    /**
+     * Renders the given range of pages concurrently and passes the images to the consumer in page
+     * order. The pages are rendered by the tasks of the given executor, e.g. a fixed thread pool
+     * with one thread per core, the consumer is called by the calling thread. At most
+     * {@code maxPendingImages} pages are being rendered or waiting to be consumed at the same time,
+     * which bounds the memory used by the images.
+     * <p>
+     * If a page can't be rendered or the consumer fails, the pages which weren't started yet aren't
+     * rendered and the method returns after the pages being rendered are finished.
+     *
+     * @param firstPage the zero-based index of the first page to be converted
+     * @param lastPage the zero-based index of the last page to be converted, inclusive
+     * @param dpi the DPI (dots per inch) to render at
+     * @param imageType the type of image to return
+     * @param executor the executor running the rendering tasks
+     * @param maxPendingImages the maximum number of pages being rendered or waiting to be consumed
+     * @param consumer the consumer of the rendered images
+     * @throws IOException if a page can't be rendered or the consumer throws an IOException
+     * @throws IllegalArgumentException if the page range is invalid or maxPendingImages is less
+     * than 1
+     */
+    public void renderPagesWithDPI(int firstPage, int lastPage, float dpi, ImageType imageType,
+            Executor executor, int maxPendingImages, PageImageConsumer consumer) throws IOException
+    {
+        if (firstPage < 0 || firstPage > lastPage || lastPage >= document.getNumberOfPages())
+        {
+            throw new IllegalArgumentException("Invalid page range: " + firstPage + " - " + lastPage);
+        }
+        if (maxPendingImages < 1)
+        {
+            throw new IllegalArgumentException(
+                    "The number of pending images must be positive: " + maxPendingImages);
+        }
+        float scale = dpi / 72f;
+        RenderDestination destination = getDestination();
+        Deque<PageTask> pending = new ArrayDeque<>();
+        int nextPage = firstPage;
+        try
+        {
+            for (int pageIndex = firstPage; pageIndex <= lastPage; pageIndex++)
+            {
+                while (nextPage <= lastPage && pending.size() < maxPendingImages)
+                {
+                    int index = nextPage++;
+                    PageTask task = new PageTask(() -> renderImage(index, scale, imageType, destination));
+                    executor.execute(task);
+                    pending.add(task);
+                }
+                consumer.accept(pageIndex, getImage(pending.poll()));
+            }
+        }
+        finally
+        {
+            awaitPending(pending);
+        }
+    }
+
+    private static BufferedImage getImage(PageTask task) throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering the pages");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Cancels the pending pages which weren't started yet and waits for the pages being rendered,
+     * so that the document isn't used anymore when returning.
+     */
+    private static void awaitPending(Deque<PageTask> pending)
+    {
+        boolean interrupted = false;
+        for (PageTask task : pending)
+        {
+            if (task.cancelIfNotStarted())
+            {
+                continue;
+            }
+            while (true)
+            {
+                try
+                {
+                    task.get();
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+                catch (ExecutionException e)
+                {
+                    // the first failure was reported already
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -444,7 +793,7 @@ public class PDFRenderer
                 renderingHints == null ? createDefaultRenderingHints(graphics) : renderingHints;
         PageDrawerParameters parameters =
                 new PageDrawerParameters(this, page, subsamplingAllowed, destination,
-                        actualRenderingHints, imageDownscalingOptimizationThreshold);
+                        actualRenderingHints, imageDownscalingOptimizationThreshold, null, null);
         PageDrawer drawer = createPageDrawer(parameters);
         drawer.drawPage(graphics, cropBox);
     }
@@ -561,16 +910,6 @@ public class PDFRenderer
         return false;
     }
 
-    /**
-     * Returns the image to which the current page is being rendered.
-     * May be null if the page is rendered to a Graphics2D object
-     * instead of a BufferedImage.
-     */
-    BufferedImage getPageImage()
-    {
-        return pageImage;
-    }
-
     private static void suggestKCMS()
     {
         String cmmProperty = System.getProperty("sun.java2d.cmm");
@@ -623,4 +962,31 @@ public class PDFRenderer
         }
         return false;
     }
+
+    /**
+     * The rendering task of a page, which can be cancelled as long as it isn't started.
+     */
+    private static final class PageTask extends FutureTask<BufferedImage>
+    {
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        PageTask(Callable<BufferedImage> callable)
+        {
+            super(callable);
+        }
+
+        @Override
+        public void run()
+        {
+            if (started.compareAndSet(false, true))
+            {
+                super.run();
+            }
+        }
+
+        boolean cancelIfNotStarted()
+        {
+            return started.compareAndSet(false, true) && cancel(false);
+        }
+    }
 }
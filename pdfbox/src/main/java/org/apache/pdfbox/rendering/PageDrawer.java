@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.rendering;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
@@ -35,6 +36,7 @@ import java.awt.color.ColorSpace;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
@@ -82,6 +84,7 @@ import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
 import org.apache.pdfbox.pdmodel.graphics.color.PDSeparation;
 import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
+import org.apache.pdfbox.pdmodel.graphics.image.DecodedImageCache;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.optionalcontent.PDOptionalContentGroup;
@@ -162,6 +165,20 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     private final RenderingHints renderingHints;
     private final float imageDownscalingOptimizationThreshold;
 
+    // the image to which the page is rendered, used as backdrop of non-isolated transparency groups
+    private final BufferedImage pageImage;
+
+    // the bounds of the whole page image relative to the page image, null if the whole page is rendered
+    private final Rectangle pageImageBounds;
+
+    // the rendered region of the page in page space, null if the whole page is rendered or while
+    // drawing content which isn't in page space
+    private Rectangle2D regionBounds;
+
+    // the cache for the images of forms, null if forms are drawn directly or while drawing
+    // content which isn't drawn onto the page image
+    private FormRasterCache formRasterCache;
+
     static final int JAVA_VERSION = PageDrawer.getJavaVersion();
 
     /**
@@ -184,6 +201,9 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         this.renderingHints = parameters.getRenderingHints();
         this.imageDownscalingOptimizationThreshold =
                 parameters.getImageDownscalingOptimizationThreshold();
+        this.pageImage = parameters.getPageImage();
+        this.pageImageBounds = parameters.getPageImageBounds();
+        setOperatorCache(renderer.getOperatorCache());
     }
 
     /**
@@ -262,6 +282,13 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         // adjust for non-(0,0) crop box
         graphics.translate(-pageSize.getLowerLeftX(), -pageSize.getLowerLeftY());
 
+        if (pageImageBounds != null && pageImage != null)
+        {
+            regionBounds = getRegionBounds();
+        }
+        // vector output isn't replaced by images
+        formRasterCache = pageImage != null ? renderer.getFormRasterCache() : null;
+
         processPage(getPage());
 
         for (PDAnnotation annotation : getPage().getAnnotations(annotationFilter))
@@ -270,6 +297,56 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
 
         graphics = null;
+        regionBounds = null;
+        formRasterCache = null;
+    }
+
+    /**
+     * Returns the bounds of the rendered region in page space, including a margin of two pixels
+     * for anti-aliasing.
+     */
+    private Rectangle2D getRegionBounds()
+    {
+        AffineTransform transform = graphics.getTransform();
+        Rectangle2D bounds;
+        try
+        {
+            bounds = transform.createInverse().createTransformedShape(
+                    new Rectangle(pageImage.getWidth(), pageImage.getHeight())).getBounds2D();
+        }
+        catch (NoninvertibleTransformException e)
+        {
+            return null;
+        }
+        double margin = 2 / Math.sqrt(Math.abs(transform.getDeterminant()));
+        bounds.setRect(bounds.getX() - margin, bounds.getY() - margin,
+                bounds.getWidth() + 2 * margin, bounds.getHeight() + 2 * margin);
+        return bounds;
+    }
+
+    /**
+     * Returns whether the given bounds in page space are outside of the rendered region, so that
+     * drawing them can be skipped. This is always false if the whole page is rendered.
+     */
+    private boolean isOutsideRegion(Rectangle2D bounds)
+    {
+        return regionBounds != null &&
+                (bounds.getMaxX() < regionBounds.getMinX() || bounds.getMinX() > regionBounds.getMaxX() ||
+                 bounds.getMaxY() < regionBounds.getMinY() || bounds.getMinY() > regionBounds.getMaxY());
+    }
+
+    /**
+     * Returns whether the bounding box of the given form is outside of the rendered region.
+     */
+    private boolean isOutsideRegion(PDFormXObject form)
+    {
+        if (regionBounds == null || form.getBBox() == null)
+        {
+            return false;
+        }
+        Matrix transform = Matrix.concatenate(getGraphicsState().getCurrentTransformationMatrix(),
+                form.getMatrix());
+        return isOutsideRegion(form.getBBox().transform(transform).getBounds2D());
     }
 
     /**
@@ -297,6 +374,11 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         lastClip = null;
         Shape savedInitialClip = initialClip;
         initialClip = null;
+        // the pattern cell isn't drawn in page space
+        Rectangle2D savedRegionBounds = regionBounds;
+        regionBounds = null;
+        FormRasterCache savedFormRasterCache = formRasterCache;
+        formRasterCache = null;
         
         boolean savedFlipTG = flipTG;
         flipTG = true;
@@ -305,6 +387,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         processTilingPattern(pattern, color, colorSpace, patternMatrix);
         
         flipTG = savedFlipTG;
+        regionBounds = savedRegionBounds;
+        formRasterCache = savedFormRasterCache;
         graphics = savedGraphics;
         linePath = savedLinePath;
         lastClip = savedLastClip;
@@ -460,7 +544,10 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         GlyphCache cache = glyphCaches.get(font);
         if (cache == null)
         {
-            cache = new GlyphCache(vectorFont);
+            GlyphOutlineCache outlineCache = renderer.getGlyphOutlineCache();
+            cache = outlineCache != null
+                    ? new GlyphCache(vectorFont, outlineCache.getGlyphs(font.getCOSObject()))
+                    : new GlyphCache(vectorFont);
             glyphCaches.put(font, cache);
         }
 
@@ -499,6 +586,14 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 }
             }
 
+            // skip filled glyphs outside of the rendered region, glyphs used for clipping are
+            // needed even then as they clip the content within the region too
+            if (regionBounds != null && !renderingMode.isStroke() && !renderingMode.isClip() &&
+                    isOutsideRegion(at.createTransformedShape(path.getBounds2D()).getBounds2D()))
+            {
+                return;
+            }
+
             // render glyph
             Shape glyph = at.createTransformedShape(path);
 
@@ -771,9 +866,17 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     @Override
     public void strokePath() throws IOException
     {
+        Stroke stroke = getStroke();
+        if (regionBounds != null && isOutsideRegion(getStrokeBounds(stroke)))
+        {
+            // the stroke is kept as it may be used by the following operations
+            graphics.setStroke(stroke);
+            linePath.reset();
+            return;
+        }
         graphics.setComposite(getGraphicsState().getStrokingJavaComposite());
         graphics.setPaint(getStrokingPaint());
-        graphics.setStroke(getStroke());
+        graphics.setStroke(stroke);
         setClip();
         //TODO bbox of shading pattern should be used here? (see fillPath)
         if (isContentRendered())
@@ -786,6 +889,12 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     @Override
     public void fillPath(int windingRule) throws IOException
     {
+        Rectangle2D bounds = linePath.getBounds2D();
+        if (isOutsideRegion(bounds))
+        {
+            linePath.reset();
+            return;
+        }
         graphics.setComposite(getGraphicsState().getNonStrokingJavaComposite());
         graphics.setPaint(getNonStrokingPaint());
         setClip();
@@ -795,7 +904,6 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         // which occur when solid fills are used to simulate piecewise gradients, see PDFBOX-2302
         // note that we ignore paths with a width/height under 1 as these are fills used as strokes,
         // see PDFBOX-1658 for an example
-        Rectangle2D bounds = linePath.getBounds2D();
         boolean noAntiAlias = isRectangular(linePath) && bounds.getWidth() > 1 &&
                                                          bounds.getHeight() > 1;
         if (noAntiAlias)
@@ -832,6 +940,23 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
     }
 
+    /**
+     * Returns the bounds of the current path when stroked, the miter limit is used to estimate
+     * how far the joins may reach beyond the path.
+     */
+    private Rectangle2D getStrokeBounds(Stroke stroke)
+    {
+        Rectangle2D bounds = linePath.getBounds2D();
+        if (stroke instanceof BasicStroke)
+        {
+            BasicStroke basicStroke = (BasicStroke) stroke;
+            double margin = basicStroke.getLineWidth() / 2 * Math.max(basicStroke.getMiterLimit(), 1.5);
+            bounds.setRect(bounds.getX() - margin, bounds.getY() - margin,
+                    bounds.getWidth() + 2 * margin, bounds.getHeight() + 2 * margin);
+        }
+        return bounds;
+    }
+
     // checks whether this is a shading pattern and if yes,
     // get the transformed BBox and intersect with current paint area
     // need to do it here and not in shading getRaster() because it may have been rotated
@@ -1004,6 +1129,10 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
         Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
         AffineTransform at = ctm.createAffineTransform();
+        if (regionBounds != null && isOutsideRegion(at.createTransformedShape(new Rectangle(1, 1)).getBounds2D()))
+        {
+            return;
+        }
 
         if (!pdImage.getInterpolate())
         {
@@ -1015,11 +1144,11 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             BufferedImage bim;
             if (subsamplingAllowed)
             {
-                bim = pdImage.getImage(null, getSubsampling(pdImage, at));
+                bim = getImage(pdImage, getSubsampling(pdImage, at));
             }
             else
             {
-                bim = pdImage.getImage();
+                bim = getImage(pdImage, 1);
             }
             boolean isScaledUp = bim.getWidth() < Math.round(at.getScaleX()) ||
                                  bim.getHeight() < Math.round(at.getScaleY());
@@ -1073,7 +1202,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 g.dispose();
 
                 // draw the mask
-                BufferedImage mask = pdImage.getImage();
+                BufferedImage mask = getImage(pdImage, 1);
                 BufferedImage renderedMask = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
                 g = (Graphics2D) renderedMask.getGraphics();
                 g.translate(-bounds.getMinX(), -bounds.getMinY());
@@ -1126,12 +1255,12 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             {
                 int subsampling = getSubsampling(pdImage, at);
                 // draw the subsampled image
-                drawBufferedImage(pdImage.getImage(null, subsampling), at);
+                drawBufferedImage(getImage(pdImage, subsampling), at);
             }
             else
             {
                 // subsampling not allowed, draw the image
-                drawBufferedImage(pdImage.getImage(), at);
+                drawBufferedImage(getImage(pdImage, 1), at);
             }
         }
 
@@ -1143,6 +1272,25 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
     }
 
+    /**
+     * Returns the decoded image, taken from the decoded image cache of the document if there is
+     * one, as the same image may be drawn on many pages.
+     *
+     * @param pdImage PDImage to be drawn
+     * @param subsampling the subsampling
+     * @return the decoded image
+     * @throws IOException if the image cannot be decoded
+     */
+    private BufferedImage getImage(PDImage pdImage, int subsampling) throws IOException
+    {
+        DecodedImageCache imageCache = DecodedImageCache.getCache(renderer.document);
+        if (imageCache != null && pdImage instanceof PDImageXObject)
+        {
+            return imageCache.getImage(renderer.document, (PDImageXObject) pdImage, null, subsampling);
+        }
+        return pdImage.getImage(null, subsampling);
+    }
+
     /**
      * Calculated the subsampling frequency for a given PDImage based on the current transformation
      * and its calculated transform
@@ -1440,7 +1588,11 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             //  default user space; the annotation pivots around that point."
             graphics.rotate(Math.toRadians(getCurrentPage().getRotation()),
                     rect.getLowerLeftX(), rect.getUpperRightY());
+            // the annotation isn't drawn in page space
+            Rectangle2D savedRegionBounds = regionBounds;
+            regionBounds = null;
             super.showAnnotation(annotation);
+            regionBounds = savedRegionBounds;
             graphics.setTransform(savedTransform);
         }
         else
@@ -1459,12 +1611,172 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         {
             return;
         }
-        if (isContentRendered())
+        if (isContentRendered() && !isOutsideRegion(form) && !showCachedForm(form))
         {
             super.showForm(form);
         }
     }
 
+    /**
+     * Draws the given form from the form raster cache, rasterizing it if it is painted repeatedly.
+     *
+     * @return true if the form was drawn, false if it must be processed
+     */
+    private boolean showCachedForm(PDFormXObject form) throws IOException
+    {
+        PDGraphicsState state = getGraphicsState();
+        if (formRasterCache == null || form.getBBox() == null ||
+                state.getBlendMode() != BlendMode.NORMAL || state.getSoftMask() != null ||
+                state.getStrokingColor().isPattern() || state.getNonStrokingColor().isPattern())
+        {
+            return false;
+        }
+        Matrix formTransform =
+                Matrix.concatenate(state.getCurrentTransformationMatrix(), form.getMatrix());
+        AffineTransform transform = graphics.getTransform();
+        transform.concatenate(formTransform.createAffineTransform());
+        FormRasterCache.Key key = new FormRasterCache.Key(form, transform, state);
+        FormRasterCache.Raster raster = formRasterCache.get(key);
+        if (raster == FormRasterCache.Raster.SEEN)
+        {
+            // the form is painted the second time, the image is rendered when the whole form is
+            // within the clipping path, as the image is drawn with other clipping paths later
+            if (!isRasterizable(form, getResources(), new HashSet<>()))
+            {
+                formRasterCache.put(key, FormRasterCache.Raster.UNCACHEABLE);
+                return false;
+            }
+            Rectangle2D bounds = form.getBBox().transform(formTransform).getBounds2D();
+            if (!state.getCurrentClippingPath().contains(bounds))
+            {
+                return false;
+            }
+            raster = rasterizeForm(form, transform);
+            formRasterCache.put(key, raster);
+        }
+        if (raster == null || raster.getImage() == null)
+        {
+            return false;
+        }
+        graphics.setComposite(AlphaComposite.SrcOver);
+        setClip();
+        AffineTransform savedTransform = graphics.getTransform();
+        graphics.setTransform(new AffineTransform());
+        graphics.drawImage(raster.getImage(), raster.getX(transform), raster.getY(transform), null);
+        graphics.setTransform(savedTransform);
+        return true;
+    }
+
+    /**
+     * Renders the given form into an ARGB image in device space.
+     *
+     * @param form the form
+     * @param transform the device transform of the form
+     * @return the raster or {@link FormRasterCache.Raster#UNCACHEABLE} if the form is too large
+     */
+    private FormRasterCache.Raster rasterizeForm(PDFormXObject form, AffineTransform transform)
+            throws IOException
+    {
+        Rectangle2D bounds = transform.createTransformedShape(
+                form.getBBox().toGeneralPath()).getBounds2D();
+        // one pixel of margin for anti-aliasing
+        int minX = (int) Math.floor(bounds.getMinX()) - 1;
+        int minY = (int) Math.floor(bounds.getMinY()) - 1;
+        int width = (int) Math.ceil(bounds.getMaxX()) + 1 - minX;
+        int height = (int) Math.ceil(bounds.getMaxY()) + 1 - minY;
+        if ((long) width * height > formRasterCache.getMaxPixels())
+        {
+            return FormRasterCache.Raster.UNCACHEABLE;
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHints(graphics.getRenderingHints());
+        g.translate(-minX, -minY);
+        g.transform(graphics.getTransform());
+
+        Graphics2D savedGraphics = graphics;
+        Area savedLastClip = lastClip;
+        Shape savedInitialClip = initialClip;
+        Rectangle2D savedRegionBounds = regionBounds;
+        FormRasterCache savedFormRasterCache = formRasterCache;
+        graphics = g;
+        lastClip = null;
+        initialClip = null;
+        // the whole form is needed as the image is reused elsewhere
+        regionBounds = null;
+        formRasterCache = null;
+        try
+        {
+            super.showForm(form);
+        }
+        finally
+        {
+            graphics.dispose();
+            graphics = savedGraphics;
+            lastClip = savedLastClip;
+            initialClip = savedInitialClip;
+            regionBounds = savedRegionBounds;
+            formRasterCache = savedFormRasterCache;
+        }
+        return new FormRasterCache.Raster(image, minX - transform.getTranslateX(),
+                minY - transform.getTranslateY());
+    }
+
+    /**
+     * Returns whether a form with the given resources can be drawn as an image, i.e. it doesn't
+     * use patterns, soft masks, blend modes or transparency groups which depend on the position
+     * of the form on the page or on the backdrop.
+     */
+    private boolean isRasterizable(PDFormXObject form, PDResources parentResources,
+            Set<COSBase> formsDone)
+    {
+        if (!formsDone.add(form.getCOSObject()))
+        {
+            return true;
+        }
+        PDResources resources = form.getResources() != null ? form.getResources() : parentResources;
+        if (resources == null)
+        {
+            return true;
+        }
+        if (resources.getPatternNames().iterator().hasNext())
+        {
+            return false;
+        }
+        for (COSName name : resources.getExtGStateNames())
+        {
+            PDExtendedGraphicsState extGState = resources.getExtGState(name);
+            if (extGState != null &&
+                    (extGState.getBlendMode() != BlendMode.NORMAL || extGState.getSoftMask() != null))
+            {
+                return false;
+            }
+        }
+        for (COSName name : resources.getXObjectNames())
+        {
+            PDXObject xObject;
+            try
+            {
+                xObject = resources.getXObject(name);
+            }
+            catch (IOException ex)
+            {
+                // leave the error to the processing of the form
+                return false;
+            }
+            if (xObject instanceof PDTransparencyGroup)
+            {
+                return false;
+            }
+            if (xObject instanceof PDFormXObject &&
+                    !isRasterizable((PDFormXObject) xObject, resources, formsDone))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void showTransparencyGroup(PDTransparencyGroup form) throws IOException
     {
@@ -1472,7 +1784,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         {
             return;
         }
-        if (!isContentRendered())
+        if (!isContentRendered() || isOutsideRegion(form))
         {
             return;
         }
@@ -1592,6 +1904,17 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             // clip the bbox to prevent giant bboxes from consuming all memory
             Area clip = (Area)getGraphicsState().getCurrentClippingPath().clone();
             clip.intersect(new Area(transformedBox));
+            if (regionBounds != null)
+            {
+                // only the part of the group within the rendered region is needed, but a soft mask
+                // outside of the region must not become empty, as empty soft masks are ignored
+                Area regionClip = (Area) clip.clone();
+                regionClip.intersect(new Area(regionBounds));
+                if (!isSoftMask || !regionClip.isEmpty())
+                {
+                    clip = regionClip;
+                }
+            }
             Rectangle2D clipRect = clip.getBounds2D();
             Matrix m = new Matrix(xform);
             scaleX = Math.abs(m.getScalingFactorX());
@@ -1644,10 +1967,16 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 if (transparencyGroupStack.isEmpty())
                 {
                     // Use the current page as the parent group.
-                    backdropImage = renderer.getPageImage();
+                    backdropImage = pageImage;
                     needsBackdrop = backdropImage != null;
                     backdropX = minX;
                     backdropY = (backdropImage != null) ? (backdropImage.getHeight() - maxY) : 0;
+                    if (backdropImage != null && pageImageBounds != null)
+                    {
+                        // the page image is only a region of the whole page image
+                        backdropX += pageImageBounds.x;
+                        backdropY = pageImageBounds.height - maxY + pageImageBounds.y;
+                    }
                 }
                 else
                 {
@@ -1703,6 +2032,9 @@ public class PageDrawer extends PDFGraphicsStreamEngine
 
             graphics = g;
             setRenderingHints();
+            // the group image isn't the page image
+            FormRasterCache savedFormRasterCache = formRasterCache;
+            formRasterCache = null;
             try
             {
                 if (isSoftMask)
@@ -1721,6 +2053,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             }
             finally 
             {
+                formRasterCache = savedFormRasterCache;
                 flipTG = savedFlipTG;
                 lastClip = savedLastClip;
                 graphics.dispose();
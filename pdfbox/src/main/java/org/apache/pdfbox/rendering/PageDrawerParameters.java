@@ -17,7 +17,9 @@
 
 package org.apache.pdfbox.rendering;
 
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 
 import org.apache.pdfbox.pdmodel.PDPage;
 
@@ -36,13 +38,16 @@ public final class PageDrawerParameters
     private final RenderDestination destination; 
     private final RenderingHints renderingHints;
     private final float imageDownscalingOptimizationThreshold;
+    private final BufferedImage pageImage;
+    private final Rectangle pageImageBounds;
 
     /**
      * Package-private constructor.
      */
     PageDrawerParameters(PDFRenderer renderer, PDPage page, boolean subsamplingAllowed,
                          RenderDestination destination, RenderingHints renderingHints,
-                         float imageDownscalingOptimizationThreshold)
+                         float imageDownscalingOptimizationThreshold, BufferedImage pageImage,
+                         Rectangle pageImageBounds)
     {
         this.renderer = renderer;
         this.page = page;
@@ -50,6 +55,8 @@ public final class PageDrawerParameters
         this.destination = destination;
         this.renderingHints = renderingHints;
         this.imageDownscalingOptimizationThreshold = imageDownscalingOptimizationThreshold;
+        this.pageImage = pageImage;
+        this.pageImageBounds = pageImageBounds;
     }
 
     /**
@@ -101,4 +108,22 @@ public final class PageDrawerParameters
     {
         return imageDownscalingOptimizationThreshold;
     }
+
+    /**
+     * Returns the image to which the page is being rendered. May be null if the page is rendered
+     * to a Graphics2D object instead of a BufferedImage.
+     */
+    BufferedImage getPageImage()
+    {
+        return pageImage;
+    }
+
+    /**
+     * Returns the bounds of the whole page image relative to the image returned by
+     * {@link #getPageImage()}. This is null if the whole page is rendered and not only a region.
+     */
+    Rectangle getPageImageBounds()
+    {
+        return pageImageBounds;
+    }
 }
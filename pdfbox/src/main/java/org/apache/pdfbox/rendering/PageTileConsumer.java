@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Receives the tiles of a page image rendered by
+ * {@link PDFRenderer#renderImageTiles(int, float, ImageType, int, int, PageTileConsumer)
+ * PDFRenderer.renderImageTiles}.
+ */
+@FunctionalInterface
+public interface PageTileConsumer
+{
+    /**
+     * Called for each rendered tile, row by row.
+     *
+     * @param x the x position of the tile in the page image
+     * @param y the y position of the tile in the page image
+     * @param tile the rendered tile, it is reused for the next tile and must not be kept
+     * @throws IOException if the tile can't be processed, no further tiles are rendered
+     */
+    void accept(int x, int y, BufferedImage tile) throws IOException;
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the OperatorCache.
+ */
+class OperatorCacheTest
+{
+    /**
+     * Records the names of all processed operators.
+     */
+    private static class OperatorRecorder extends PDFStreamEngine
+    {
+        private final List<String> names = new ArrayList<>();
+
+        OperatorRecorder()
+        {
+            addOperator(new DrawObject());
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException
+        {
+            names.add(operator.getName() + operands.size());
+            super.processOperator(operator, operands);
+        }
+    }
+
+    /**
+     * Decodes all inline images and records their parameters.
+     */
+    private static class InlineImageRecorder extends PDFStreamEngine
+    {
+        private final List<COSDictionary> parameters = new ArrayList<>();
+        private final List<BufferedImage> images = new ArrayList<>();
+
+        InlineImageRecorder()
+        {
+            addOperator(new DrawObject());
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException
+        {
+            if (OperatorName.BEGIN_INLINE_IMAGE.equals(operator.getName()))
+            {
+                PDInlineImage image = new PDInlineImage(operator.getImageParameters(),
+                        operator.getImageData(), getResources());
+                parameters.add(image.getCOSObject());
+                images.add(image.getImage());
+            }
+            super.processOperator(operator, operands);
+        }
+    }
+
+    @Test
+    void testHitsAndMisses() throws IOException
+    {
+        try (PDDocument doc = createDocument(3, 1))
+        {
+            List<String> expected = process(doc, null).names;
+
+            OperatorCache cache = new OperatorCache(1024 * 1024);
+            assertEquals(expected, process(doc, cache).names);
+            assertEquals(1, cache.getMissCount());
+            assertEquals(2, cache.getHitCount());
+            assertEquals(1, cache.getStreamCount());
+            assertEquals(0, cache.getEvictionCount());
+            assertTrue(cache.getSize() > 0);
+            assertEquals(2 / 3.0, cache.getHitRate(), 1e-6);
+
+            // a second engine sharing the cache doesn't parse the form again
+            assertEquals(expected, process(doc, cache).names);
+            assertEquals(1, cache.getMissCount());
+            assertEquals(5, cache.getHitCount());
+
+            cache.clear();
+            assertEquals(0, cache.getStreamCount());
+            assertEquals(0, cache.getSize());
+            assertEquals(expected, process(doc, cache).names);
+            assertEquals(2, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void testEviction() throws IOException
+    {
+        try (PDDocument doc = createDocument(1, 3))
+        {
+            List<String> expected = process(doc, null).names;
+
+            OperatorCache large = new OperatorCache(1024 * 1024);
+            process(doc, large);
+            long formSize = large.getSize() / 3;
+
+            // room for two of the three forms, the least recently used one is evicted
+            OperatorCache cache = new OperatorCache(formSize * 2);
+            assertEquals(expected, process(doc, cache).names);
+            assertEquals(3, cache.getMissCount());
+            assertEquals(1, cache.getEvictionCount());
+            assertEquals(2, cache.getStreamCount());
+            assertTrue(cache.getSize() <= cache.getMaxSize());
+
+            // nothing fits, the operators are still processed
+            OperatorCache empty = new OperatorCache(0);
+            assertEquals(expected, process(doc, empty).names);
+            assertEquals(0, empty.getStreamCount());
+            assertEquals(0, empty.getHitCount());
+        }
+    }
+
+    @Test
+    void testClosedDocumentIsReleased() throws IOException, InterruptedException
+    {
+        OperatorCache cache = new OperatorCache(1024 * 1024);
+        processAndClose(cache);
+        assertEquals(1, cache.getStreamCount());
+
+        // the cache doesn't keep the streams of the closed document alive
+        for (int i = 0; i < 100 && cache.getStreamCount() > 0; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getStreamCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testInlineImageSharedByThreads() throws Exception
+    {
+        try (PDDocument doc = createInlineImageDocument())
+        {
+            OperatorCache cache = new OperatorCache(1024 * 1024);
+            int threadCount = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try
+            {
+                List<Future<InlineImageRecorder>> futures = new ArrayList<>();
+                for (int i = 0; i < threadCount; i++)
+                {
+                    futures.add(executor.submit(() ->
+                    {
+                        InlineImageRecorder recorder = new InlineImageRecorder();
+                        recorder.setOperatorCache(cache);
+                        for (int j = 0; j < 10; j++)
+                        {
+                            recorder.processPage(doc.getPage(0));
+                        }
+                        return recorder;
+                    }));
+                }
+                Set<COSDictionary> parameters = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Future<InlineImageRecorder> future : futures)
+                {
+                    InlineImageRecorder recorder = future.get();
+                    assertEquals(10, recorder.parameters.size());
+                    for (BufferedImage image : recorder.images)
+                    {
+                        assertEquals(16, image.getWidth());
+                        assertEquals(12, image.getHeight());
+                    }
+                    parameters.addAll(recorder.parameters);
+                }
+                // every replay decodes the image with its own parameters
+                assertEquals(threadCount * 10, parameters.size());
+                assertEquals(1, cache.getStreamCount());
+                assertEquals(threadCount * 10, cache.getHitCount() + cache.getMissCount());
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static void processAndClose(OperatorCache cache) throws IOException
+    {
+        try (PDDocument doc = createDocument(2, 1))
+        {
+            process(doc, cache);
+        }
+    }
+
+    private static OperatorRecorder process(PDDocument doc, OperatorCache cache) throws IOException
+    {
+        OperatorRecorder recorder = new OperatorRecorder();
+        recorder.setOperatorCache(cache);
+        for (PDPage page : doc.getPages())
+        {
+            recorder.processPage(page);
+        }
+        return recorder;
+    }
+
+    /**
+     * Creates a document with a page which draws a form containing a DCT encoded inline image.
+     */
+    private static PDDocument createInlineImageDocument() throws IOException
+    {
+        BufferedImage bim = new BufferedImage(16, 12, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bim.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 8, 12);
+        g.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(bim, "jpeg", jpeg);
+
+        PDDocument doc = new PDDocument();
+        PDFormXObject form = new PDFormXObject(doc);
+        form.setBBox(new PDRectangle(100, 100));
+        try (OutputStream out = form.getCOSObject().createOutputStream())
+        {
+            out.write("q 16 0 0 12 10 10 cm BI /W 16 /H 12 /CS /RGB /BPC 8 /F /DCT ID "
+                    .getBytes(StandardCharsets.US_ASCII));
+            jpeg.writeTo(out);
+            out.write("\nEI Q\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        PDPage page = new PDPage();
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+        {
+            cs.drawForm(form);
+        }
+        return doc;
+    }
+
+    /**
+     * Creates a document with the given number of pages, each page draws the same forms.
+     */
+    private static PDDocument createDocument(int pageCount, int formCount) throws IOException
+    {
+        PDDocument doc = new PDDocument();
+        List<PDFormXObject> forms = new ArrayList<>();
+        for (int i = 0; i < formCount; i++)
+        {
+            PDFormXObject form = new PDFormXObject(doc);
+            form.setBBox(new PDRectangle(100, 100));
+            try (PDFormContentStream cs = new PDFormContentStream(form))
+            {
+                cs.addRect(10, 10, 50 + i, 50);
+                cs.moveTo(0, 0);
+                cs.lineTo(100, 100);
+                cs.stroke();
+            }
+            forms.add(form);
+        }
+        for (int i = 0; i < pageCount; i++)
+        {
+            PDPage page = new PDPage();
+            doc.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+            {
+                for (PDFormXObject form : forms)
+                {
+                    cs.drawForm(form);
+                }
+            }
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the dispatching of operators by the PDFStreamEngine.
+ */
+class PDFStreamEngineTest
+{
+    /**
+     * Records the operators processed by its operator processors and the unsupported ones.
+     */
+    private static class OperatorRecorder extends PDFStreamEngine
+    {
+        private final List<String> processed = new ArrayList<>();
+        private final List<String> unsupported = new ArrayList<>();
+
+        OperatorRecorder(String... names)
+        {
+            for (String name : names)
+            {
+                addOperator(new OperatorProcessor()
+                {
+                    @Override
+                    public void process(Operator operator, List<COSBase> operands)
+                    {
+                        processed.add(operator.getName() + operands);
+                    }
+
+                    @Override
+                    public String getName()
+                    {
+                        return name;
+                    }
+                });
+            }
+        }
+
+        @Override
+        protected void unsupportedOperator(Operator operator, List<COSBase> operands)
+        {
+            unsupported.add(operator.getName());
+        }
+    }
+
+    @Test
+    void testKnownAndUnknownOperators() throws IOException
+    {
+        try (PDDocument doc = new PDDocument())
+        {
+            PDPage page = new PDPage();
+            byte[] content = "q 1 myop Q 2 myop 3 other w".getBytes(StandardCharsets.US_ASCII);
+            page.setContents(new PDStream(doc, new ByteArrayInputStream(content)));
+            doc.addPage(page);
+
+            OperatorRecorder recorder = new OperatorRecorder(OperatorName.SAVE, "myop");
+            recorder.processPage(page);
+            assertEquals(Arrays.asList("q[]", "myop[COSInt{1}]", "myop[COSInt{2}]"), recorder.processed);
+            assertEquals(Arrays.asList("Q", "other", "w"), recorder.unsupported);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class COSDictionaryMapTest
+{
+    @Test
+    void testSameAsLinkedHashMap()
+    {
+        Random random = new Random(4711);
+        // few keys to test small maps and the switch between both representations, many for large maps
+        for (int keyCount : new int[] { 5, 20, 300 })
+        {
+            COSDictionaryMap map = new COSDictionaryMap();
+            Map<COSName, COSBase> expected = new LinkedHashMap<>();
+            for (int i = 0; i < 20000; i++)
+            {
+                COSName key = COSName.getPDFName("Key" + random.nextInt(keyCount));
+                COSInteger value = COSInteger.get(random.nextInt(1000));
+                switch (random.nextInt(5))
+                {
+                    case 0:
+                        assertEquals(expected.remove(key), map.remove(key));
+                        break;
+                    case 1:
+                        assertEquals(expected.get(key), map.get(key));
+                        assertEquals(expected.containsKey(key), map.containsKey(key));
+                        break;
+                    default:
+                        assertEquals(expected.put(key, value), map.put(key, value));
+                        break;
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            assertEquals(expected, map);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+            assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+            assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+            assertEquals(expected.hashCode(), map.hashCode());
+        }
+    }
+
+    @Test
+    void testSnapshots()
+    {
+        COSDictionaryMap map = new COSDictionaryMap();
+        for (int i = 0; i < 20; i++)
+        {
+            map.put(COSName.getPDFName("Key" + i), COSInteger.get(i));
+        }
+        Set<COSName> keys = map.keySet();
+        for (COSName key : keys)
+        {
+            map.remove(key);
+        }
+        assertEquals(20, keys.size());
+        assertTrue(map.isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> keys.remove(COSName.getPDFName("Key1")));
+
+        List<COSName> visited = new ArrayList<>();
+        map.put(COSName.A, COSInteger.ONE);
+        map.forEach((key, value) ->
+        {
+            visited.add(key);
+            map.put(COSName.B, value);
+        });
+        assertEquals(1, visited.size());
+        assertEquals(2, map.size());
+
+        // the value of an entry is written through
+        map.entrySet().iterator().next().setValue(COSInteger.TWO);
+        assertEquals(COSInteger.TWO, map.get(COSName.A));
+    }
+
+    @Test
+    void testUnsupportedKeys()
+    {
+        COSDictionaryMap map = new COSDictionaryMap();
+        map.put(COSName.A, COSInteger.ONE);
+        assertNull(map.get("A"));
+        assertNull(map.get(null));
+        assertFalse(map.containsKey(null));
+        assertFalse(map.containsValue(null));
+        assertTrue(map.containsValue(COSInteger.ONE));
+        assertThrows(NullPointerException.class, () -> map.put(null, COSInteger.ONE));
+        assertThrows(NullPointerException.class, () -> map.put(COSName.A, null));
+    }
+}
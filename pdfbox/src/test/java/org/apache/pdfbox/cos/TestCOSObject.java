@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.io.RandomAccessReadView;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the loading and releasing of the object of a {@link COSObject}.
+ */
+class TestCOSObject
+{
+    @Test
+    void testRelease()
+    {
+        CountingParser parser = new CountingParser();
+        COSObject object = new COSObject(new COSObjectKey(1, 0), parser);
+        COSBase loaded = object.getObject();
+        assertEquals(COSInteger.get(1), loaded);
+        assertSame(loaded, object.getObject());
+        assertEquals(1, parser.count.get());
+
+        assertTrue(object.release(parser));
+        assertEquals(COSInteger.get(2), object.getObject());
+        assertEquals(2, parser.count.get());
+
+        // objects marked as updated aren't released
+        object.setNeedToBeUpdated(true);
+        assertFalse(object.release(parser));
+        assertEquals(COSInteger.get(2), object.getObject());
+
+        // objects which weren't loaded by a parser aren't released
+        assertFalse(new COSObject(COSInteger.ONE).release(parser));
+    }
+
+    @Test
+    void testReleaseWhileReading() throws InterruptedException
+    {
+        CountingParser parser = new CountingParser();
+        COSObject object = new COSObject(new COSObjectKey(1, 0), parser);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread releaser = new Thread(() ->
+        {
+            while (!done.get())
+            {
+                object.getObject();
+                object.release(parser);
+            }
+        });
+        releaser.start();
+        try
+        {
+            for (int i = 0; i < 200000; i++)
+            {
+                assertNotNull(object.getObject(), "iteration " + i);
+            }
+        }
+        finally
+        {
+            done.set(true);
+            releaser.join();
+        }
+    }
+
+    /**
+     * A parser which loads the number of the load as object.
+     */
+    private static class CountingParser implements ICOSParser
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public COSBase dereferenceCOSObject(COSObject obj) throws IOException
+        {
+            return COSInteger.get(count.incrementAndGet());
+        }
+
+        @Override
+        public RandomAccessReadView createRandomAccessReadView(long startPosition, long streamLength)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
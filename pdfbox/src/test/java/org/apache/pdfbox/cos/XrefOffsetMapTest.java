@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class XrefOffsetMapTest
+{
+    @Test
+    void testPrimitiveMethods()
+    {
+        XrefOffsetMap map = new XrefOffsetMap();
+        assertFalse(map.containsKey(1, 0));
+        assertEquals(-1, map.getOffset(1, 0, -1));
+        map.putOffset(1, 0, 100);
+        assertTrue(map.putOffsetIfAbsent(2, 65535, -7));
+        assertFalse(map.putOffsetIfAbsent(1, 0, 200));
+        assertEquals(100, map.getOffset(1, 0, -1));
+        map.putOffset(1, 0, 300);
+        assertEquals(300, map.get(new COSObjectKey(1, 0)).longValue());
+        assertEquals(-7, map.get(new COSObjectKey(2, 65535)).longValue());
+        assertNull(map.get(new COSObjectKey(2, 0)));
+        assertNull(map.get("1 0 R"));
+        assertEquals(2, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.putOffset(1, -1, 0));
+    }
+
+    @Test
+    void testSameAsHashMap()
+    {
+        Random random = new Random(4711);
+        XrefOffsetMap map = new XrefOffsetMap();
+        Map<COSObjectKey, Long> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++)
+        {
+            COSObjectKey key = new COSObjectKey(random.nextInt(20000), random.nextInt(3));
+            long value = random.nextLong();
+            switch (random.nextInt(4))
+            {
+                case 0:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 1:
+                    assertEquals(expected.get(key), map.get(key));
+                    break;
+                default:
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+
+        XrefOffsetMap copy = new XrefOffsetMap();
+        copy.putAll(map);
+        assertEquals(expected, copy);
+
+        // remove all odd object numbers using the iterator
+        Iterator<COSObjectKey> iterator = map.keySet().iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().getNumber() % 2 == 1)
+            {
+                iterator.remove();
+            }
+        }
+        expected.keySet().removeIf(key -> key.getNumber() % 2 == 1);
+        assertEquals(expected, map);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    void testNullKeysAndValues()
+    {
+        XrefOffsetMap map = new XrefOffsetMap();
+        COSObjectKey key = new COSObjectKey(1, 0);
+        map.put(key, 100L);
+        assertThrows(IllegalArgumentException.class, () -> map.put(key, null));
+        assertThrows(IllegalArgumentException.class, () -> map.put(new COSObjectKey(2, 0), null));
+        assertThrows(IllegalArgumentException.class, () -> map.put(null, 100L));
+        assertThrows(IllegalArgumentException.class,
+                () -> map.entrySet().iterator().next().setValue(null));
+        Map<COSObjectKey, Long> withNull = new HashMap<>();
+        withNull.put(new COSObjectKey(3, 0), null);
+        assertThrows(IllegalArgumentException.class, () -> map.putAll(withNull));
+
+        // the map is unchanged
+        assertEquals(1, map.size());
+        assertEquals(100, map.get(key).longValue());
+        assertFalse(map.containsKey(null));
+        assertFalse(map.containsValue(null));
+        assertNull(map.get(null));
+        assertNull(map.remove(null));
+    }
+}
@@ -17,18 +17,25 @@
 package org.apache.pdfbox.filter;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import java.util.Random;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -131,6 +138,46 @@ class TestFilters
                 "userpassword1234");
     }
 
+    /**
+     * Test that a stream with several filters is decoded while reading it, with the same result as
+     * decoding one filter after the other.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testFilterChain() throws IOException
+    {
+        byte[] original = new byte[50000];
+        Random random = new Random(4711);
+        for (int i = 0; i < original.length; i++)
+        {
+            original[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt() : i / 100);
+        }
+        COSArray filters = new COSArray();
+        filters.add(COSName.ASCII_HEX_DECODE);
+        filters.add(COSName.ASCII85_DECODE);
+        filters.add(COSName.FLATE_DECODE);
+        filters.add(COSName.LZW_DECODE);
+        filters.add(COSName.RUN_LENGTH_DECODE);
+        try (COSStream stream = new COSStream())
+        {
+            try (OutputStream out = stream.createOutputStream(filters))
+            {
+                out.write(original);
+            }
+            try (InputStream in = stream.createInputStream())
+            {
+                assertArrayEquals(original, IOUtils.toByteArray(in));
+            }
+            try (RandomAccessRead view = stream.createView())
+            {
+                assertEquals(original.length, view.length());
+            }
+        }
+        assertNull(FilterFactory.INSTANCE.getFilter(COSName.DCT_DECODE)
+                .createDecodingStream(new ByteArrayInputStream(original), new COSDictionary(), 0));
+    }
+
     /**
      * This will test the LZW filter with the sequence that failed in PDFBOX-1977.
      * To check that the test itself is legit, revert LZWFilter.java to rev 1571801,
@@ -187,5 +234,14 @@ class TestFilters
         assertArrayEquals(original, decoded.toByteArray(),
                 "Data that is encoded and then decoded through " + filter.getClass()
                         + " does not match the original data");
+
+        InputStream decodingStream = filter.createDecodingStream(
+                new ByteArrayInputStream(encoded.toByteArray()), new COSDictionary(), 0);
+        if (decodingStream != null)
+        {
+            assertArrayEquals(original, IOUtils.toByteArray(decodingStream),
+                    "Data that is encoded and then read through the decoding stream of "
+                            + filter.getClass() + " does not match the original data");
+        }
     }
 }
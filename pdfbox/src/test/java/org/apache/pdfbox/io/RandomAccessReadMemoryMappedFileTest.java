@@ -203,4 +203,56 @@ class RandomAccessReadMemoryMappedFileTest
             assertEquals(3, view.getPosition());
         }
     }
+
+    @Test
+    void testSegments() throws IOException, URISyntaxException
+    {
+        File file = new File(getClass().getResource("RandomAccessReadFile1.txt").toURI());
+        byte[] expected = Files.readAllBytes(file.toPath());
+        // use segments of 8 bytes
+        try (RandomAccessRead randomAccessSource = new RandomAccessReadMemoryMappedFile(file, 3))
+        {
+            assertEquals(expected.length, randomAccessSource.length());
+            for (byte b : expected)
+            {
+                assertEquals(b & 0xff, randomAccessSource.read());
+            }
+            assertEquals(-1, randomAccessSource.read());
+
+            // read across several segments at once
+            randomAccessSource.seek(5);
+            byte[] buffer = new byte[20];
+            assertEquals(buffer.length, randomAccessSource.read(buffer));
+            for (int i = 0; i < buffer.length; i++)
+            {
+                assertEquals(expected[i + 5], buffer[i]);
+            }
+            assertEquals(25, randomAccessSource.getPosition());
+
+            // view across segments
+            try (RandomAccessReadView view = randomAccessSource.createView(6, 12))
+            {
+                assertEquals(12, view.read(buffer, 0, 12));
+                for (int i = 0; i < 12; i++)
+                {
+                    assertEquals(expected[i + 6], buffer[i]);
+                }
+                assertTrue(view.isEOF());
+            }
+            assertEquals(25, randomAccessSource.getPosition());
+        }
+    }
+
+    @Test
+    void testViewAfterClose() throws IOException, URISyntaxException
+    {
+        RandomAccessRead randomAccessSource = new RandomAccessReadMemoryMappedFile(
+                new File(getClass().getResource("RandomAccessReadFile1.txt").toURI()));
+        RandomAccessReadView view = randomAccessSource.createView(3, 10);
+        assertEquals('3', view.read());
+        randomAccessSource.close();
+        assertTrue(view.isClosed());
+        Assertions.assertThrows(IOException.class, () -> view.read(),
+                "checkClosed should have thrown an IOException");
+    }
 }
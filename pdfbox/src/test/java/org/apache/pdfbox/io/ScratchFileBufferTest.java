@@ -16,9 +16,14 @@
  */
 package org.apache.pdfbox.io;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -60,4 +65,149 @@ class ScratchFileBufferTest
             }
         }
     }
+
+    /**
+     * Test that pages are held in a direct page pool, that the scratch file is used if the pool
+     * is exhausted and that all pages are returned to the pool when closing.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testDirectPagePool() throws IOException
+    {
+        DirectPagePool pool = new DirectPagePool(4L * PAGE_SIZE);
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(8L * PAGE_SIZE)
+                .setDirectPagePool(pool);
+        byte[] bytes = new byte[10 * PAGE_SIZE + 123];
+        new Random(4711).nextBytes(bytes);
+        try (ScratchFile scratchFile = new ScratchFile(setting))
+        {
+            ScratchFileBuffer first = new ScratchFileBuffer(scratchFile);
+            first.write(bytes);
+            ScratchFileBuffer second = new ScratchFileBuffer(scratchFile);
+            second.write(bytes);
+            assertEquals(4, pool.getUsedPageCount());
+            assertEquals(4, pool.getAllocatedPageCount());
+            assertTrue(pool.getExhaustedCount() > 0);
+
+            byte[] read = new byte[bytes.length];
+            first.seek(0);
+            assertEquals(bytes.length, first.read(read));
+            assertArrayEquals(bytes, read);
+            second.seek(0);
+            assertEquals(bytes.length, second.read(read));
+            assertArrayEquals(bytes, read);
+
+            first.close();
+            ScratchFileBuffer third = new ScratchFileBuffer(scratchFile);
+            third.write(bytes);
+            third.seek(PAGE_SIZE);
+            assertEquals(bytes[PAGE_SIZE] & 0xff, third.read());
+            assertEquals(4, pool.getUsedPageCount());
+        }
+        assertEquals(0, pool.getUsedPageCount());
+        assertEquals(4, pool.getPeakUsedPageCount());
+    }
+
+    /**
+     * Test that two scratch files share the memory of a governor and that least recently used
+     * pages are spilled if its memory is exhausted.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testMemoryGovernor() throws IOException
+    {
+        ScratchMemoryGovernor governor = new ScratchMemoryGovernor(4L * PAGE_SIZE);
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(-1).setMemoryGovernor(governor);
+        byte[] bytes = new byte[10 * PAGE_SIZE + 123];
+        new Random(4711).nextBytes(bytes);
+        try (ScratchFile first = new ScratchFile(setting);
+             ScratchFile second = new ScratchFile(setting))
+        {
+            assertEquals(2, governor.getScratchFileCount());
+            ScratchFileBuffer firstBuffer = new ScratchFileBuffer(first);
+            firstBuffer.write(bytes);
+            ScratchFileBuffer secondBuffer = new ScratchFileBuffer(second);
+            secondBuffer.write(bytes);
+            assertEquals(4L * PAGE_SIZE, governor.getUsedMainMemoryBytes());
+            assertTrue(governor.getSpilledPageCount() > 0);
+
+            byte[] read = new byte[bytes.length];
+            firstBuffer.seek(0);
+            assertEquals(bytes.length, firstBuffer.read(read));
+            assertArrayEquals(bytes, read);
+            secondBuffer.seek(0);
+            assertEquals(bytes.length, secondBuffer.read(read));
+            assertArrayEquals(bytes, read);
+
+            // overwrite spilled and in-memory pages
+            for (int i = 0; i < bytes.length; i += 1000)
+            {
+                bytes[i]++;
+                firstBuffer.seek(i);
+                firstBuffer.write(bytes[i]);
+            }
+            firstBuffer.seek(0);
+            assertEquals(bytes.length, firstBuffer.read(read));
+            assertArrayEquals(bytes, read);
+
+            firstBuffer.close();
+            assertTrue(governor.getUsedMainMemoryBytes() <= 4L * PAGE_SIZE);
+        }
+        assertEquals(0, governor.getUsedMainMemoryBytes());
+        assertEquals(0, governor.getScratchFileCount());
+    }
+
+    /**
+     * Test that direct and file pages are read into the array given by the caller while heap pages
+     * are returned as is, and that a buffer re-using its page array keeps the content of all pages.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testReadPageIntoGivenArray() throws IOException
+    {
+        DirectPagePool pool = new DirectPagePool(2L * PAGE_SIZE);
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(8L * PAGE_SIZE)
+                .setDirectPagePool(pool);
+        byte[] bytes = new byte[10 * PAGE_SIZE + 123];
+        new Random(4711).nextBytes(bytes);
+        try (ScratchFile scratchFile = new ScratchFile(setting))
+        {
+            byte[] page = new byte[PAGE_SIZE];
+            int directPageIdx = scratchFile.getNewPage();
+            scratchFile.writePage(directPageIdx, Arrays.copyOf(bytes, PAGE_SIZE));
+            assertSame(page, scratchFile.readPage(directPageIdx, page));
+            assertEquals(bytes[0], page[0]);
+            scratchFile.markPagesAsFree(new int[] { directPageIdx }, 0, 1);
+
+            ScratchFileBuffer buffer = new ScratchFileBuffer(scratchFile);
+            buffer.write(bytes);
+
+            // overwrite direct, file and heap pages, each after seeking away from it
+            for (int i = 0; i < bytes.length; i += 1000)
+            {
+                bytes[i]++;
+                buffer.seek(i);
+                buffer.write(bytes[i]);
+                buffer.seek(bytes.length - 1 - i);
+                assertEquals(bytes[bytes.length - 1 - i] & 0xff, buffer.read());
+            }
+            byte[] read = new byte[bytes.length];
+            buffer.seek(0);
+            assertEquals(bytes.length, buffer.read(read));
+            assertArrayEquals(bytes, read);
+            buffer.close();
+        }
+        assertEquals(0, pool.getUsedPageCount());
+
+        try (ScratchFile scratchFile = new ScratchFile(MemoryUsageSetting.setupMainMemoryOnly()))
+        {
+            int heapPageIdx = scratchFile.getNewPage();
+            byte[] heapPage = new byte[PAGE_SIZE];
+            scratchFile.writePage(heapPageIdx, heapPage);
+            assertSame(heapPage, scratchFile.readPage(heapPageIdx, new byte[PAGE_SIZE]));
+        }
+    }
 }
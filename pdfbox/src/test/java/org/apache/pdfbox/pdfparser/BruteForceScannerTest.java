@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.junit.jupiter.api.Test;
+
+class BruteForceScannerTest
+{
+    private static final String PDF = "%PDF-1.4\n"
+            + "1 0 obj\n<< /Type /Catalog >>\nendobj\n"
+            + "12 3 obj\n<< /Type /ObjStm >>\nendobj\n"
+            + "123456789\n          \n                                                            "
+            + "0 obj\n<< /Type /XRef >>\nendobj\n"
+            + "xref\n0 1\n0000000000 65535 f\nstartxref\n9\n"
+            + "1 0 obj\n(last one wins)\nendo";
+
+    @Test
+    void testSearchObjects() throws IOException
+    {
+        byte[] bytes = PDF.getBytes(StandardCharsets.ISO_8859_1);
+        Map<COSObjectKey, Long> expected = search(bytes, Integer.MAX_VALUE);
+        assertEquals(3, expected.size());
+        assertEquals(PDF.lastIndexOf("1 0 obj"), expected.get(new COSObjectKey(1, 0)).longValue());
+        assertEquals(PDF.indexOf("12 3 obj"), expected.get(new COSObjectKey(12, 3)).longValue());
+        assertEquals(PDF.indexOf("123456789"), expected.get(new COSObjectKey(123456789, 0)).longValue());
+        assertEquals(searchByteByByte(bytes, 6, Long.MAX_VALUE), expected);
+
+        // object headers crossing the start of a chunk are read from the source
+        for (int chunkSize = 1; chunkSize < 100; chunkSize++)
+        {
+            assertEquals(expected, search(bytes, chunkSize), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void testSearchObjectsInvalidNumber() throws IOException
+    {
+        byte[] bytes = (PDF + "\n12345678901 0 obj\n").getBytes(StandardCharsets.ISO_8859_1);
+        for (int chunkSize : new int[] { 5, 64, Integer.MAX_VALUE })
+        {
+            assertThrows(IOException.class, () -> search(bytes, chunkSize));
+        }
+    }
+
+    @Test
+    void testSearchString() throws IOException
+    {
+        byte[] bytes = (PDF + "\nxr").getBytes(StandardCharsets.ISO_8859_1);
+        try (RandomAccessRead source = new RandomAccessReadBuffer(bytes))
+        {
+            for (int chunkSize : new int[] { 1, 3, 17, Integer.MAX_VALUE })
+            {
+                BruteForceScanner scanner = new BruteForceScanner(source, 6, chunkSize, 2);
+                // a cut off match at the end of the file is found as well
+                assertEquals(Arrays.asList((long) PDF.indexOf("xref"), (long) PDF.indexOf("startxref") + 5,
+                        (long) bytes.length - 2), scanner.searchString("xref".toCharArray()));
+                assertEquals(Collections.singletonList((long) PDF.indexOf("/ObjStm")),
+                        scanner.searchString("/ObjStm".toCharArray()));
+            }
+        }
+    }
+
+    @Test
+    void testSearchDamagedFile() throws IOException
+    {
+        File file = new File("src/test/resources/org/apache/pdfbox/pdfparser/MissingCatalog.pdf");
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        try (RandomAccessRead source = new RandomAccessReadBufferedFile(file))
+        {
+            for (long lastEOFMarker : new long[] { Long.MAX_VALUE, bytes.length / 2 })
+            {
+                Map<COSObjectKey, Long> expected = searchByteByByte(bytes, 6, lastEOFMarker);
+                assertFalse(expected.isEmpty());
+                assertEquals(expected, new BruteForceScanner(source, 6).searchObjects(lastEOFMarker));
+                for (int chunkSize : new int[] { 7, 37, 100 })
+                {
+                    for (int parallelism : new int[] { 1, 3 })
+                    {
+                        assertEquals(expected, new BruteForceScanner(source, 6, chunkSize, parallelism)
+                                .searchObjects(lastEOFMarker),
+                                "chunk size " + chunkSize + ", parallelism " + parallelism);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidParallelism() throws IOException
+    {
+        try (RandomAccessRead source = new RandomAccessReadBuffer(new byte[0]))
+        {
+            assertThrows(IllegalArgumentException.class, () -> new BruteForceScanner(source, 6, 512, 0));
+        }
+    }
+
+    private static Map<COSObjectKey, Long> search(byte[] bytes, int chunkSize) throws IOException
+    {
+        try (RandomAccessRead source = new RandomAccessReadBuffer(bytes))
+        {
+            return new BruteForceScanner(source, 6, chunkSize, 2).searchObjects(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * The search for objects as done by the parser before the scanner was introduced, reading one byte after
+     * another.
+     */
+    private static Map<COSObjectKey, Long> searchByteByByte(byte[] bytes, long minimumOffset,
+            long lastEOFMarker)
+    {
+        Map<COSObjectKey, Long> offsets = new HashMap<>();
+        long currentOffset = minimumOffset;
+        long lastObjectId = Long.MIN_VALUE;
+        int lastGenID = Integer.MIN_VALUE;
+        long lastObjOffset = Long.MIN_VALUE;
+        boolean endOfObjFound = false;
+        do
+        {
+            int nextChar = byteAt(bytes, currentOffset);
+            currentOffset++;
+            if (isWhitespace(nextChar) && startsWith(bytes, currentOffset, "obj"))
+            {
+                long tempOffset = currentOffset - 2;
+                int genID = byteAt(bytes, tempOffset);
+                if (isDigit(genID))
+                {
+                    genID -= 48;
+                    tempOffset--;
+                    if (isWhitespace(byteAt(bytes, tempOffset)))
+                    {
+                        while (tempOffset > minimumOffset && isWhitespace(byteAt(bytes, tempOffset)))
+                        {
+                            tempOffset--;
+                        }
+                        boolean objectIDFound = false;
+                        while (tempOffset > minimumOffset && isDigit(byteAt(bytes, tempOffset)))
+                        {
+                            tempOffset--;
+                            objectIDFound = true;
+                        }
+                        if (objectIDFound)
+                        {
+                            long objectId = 0;
+                            for (long i = tempOffset + 1; isDigit(byteAt(bytes, i)); i++)
+                            {
+                                objectId = objectId * 10 + byteAt(bytes, i) - '0';
+                            }
+                            if (lastObjOffset > 0)
+                            {
+                                offsets.put(new COSObjectKey(lastObjectId, lastGenID), lastObjOffset);
+                            }
+                            lastObjectId = objectId;
+                            lastGenID = genID;
+                            lastObjOffset = tempOffset + 1;
+                            currentOffset += 2;
+                            endOfObjFound = false;
+                        }
+                    }
+                }
+            }
+            else if (nextChar == 'e' && startsWith(bytes, currentOffset, "ndo"))
+            {
+                currentOffset += 3;
+                if (currentOffset >= bytes.length)
+                {
+                    endOfObjFound = true;
+                }
+                else if (startsWith(bytes, currentOffset, "bj"))
+                {
+                    currentOffset += 2;
+                    endOfObjFound = true;
+                }
+            }
+        } while (currentOffset < lastEOFMarker && currentOffset < bytes.length);
+        if ((lastEOFMarker < Long.MAX_VALUE || endOfObjFound) && lastObjOffset > 0)
+        {
+            offsets.put(new COSObjectKey(lastObjectId, lastGenID), lastObjOffset);
+        }
+        return offsets;
+    }
+
+    private static int byteAt(byte[] bytes, long position)
+    {
+        return position < bytes.length ? bytes[(int) position] & 0xff : -1;
+    }
+
+    private static boolean startsWith(byte[] bytes, long position, String string)
+    {
+        for (int i = 0; i < string.length(); i++)
+        {
+            if (byteAt(bytes, position + i) != string.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(int c)
+    {
+        return c == 0 || c == 9 || c == 10 || c == 12 || c == 13 || c == 32;
+    }
+
+    private static boolean isDigit(int c)
+    {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.pdfparser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -51,4 +52,24 @@ class PDFObjectStreamParserTest
         objectStreamParser = new PDFObjectStreamParser(stream, null);
         assertEquals(COSBoolean.FALSE, objectStreamParser.parseObject(numbers[1]));
     }
+
+    @Test
+    void testDecodedStream() throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setItem(COSName.N, COSInteger.TWO);
+        stream.setItem(COSName.FIRST, COSInteger.get(8));
+        OutputStream outputStream = stream.createOutputStream();
+        outputStream.write("6 0 4 5 true false".getBytes());
+        outputStream.close();
+        ObjectStreamCache.Entry decoded = new PDFObjectStreamParser(stream, null).readDecodedStream();
+        assertEquals(18, decoded.getData().length);
+        assertEquals(8, decoded.getPosition(6).intValue());
+        assertEquals(13, decoded.getPosition(4).intValue());
+        assertNull(decoded.getPosition(5));
+        PDFObjectStreamParser objectStreamParser = new PDFObjectStreamParser(decoded.getData(), null);
+        assertEquals(COSBoolean.TRUE, objectStreamParser.parseObjectAt(decoded.getPosition(6)));
+        objectStreamParser = new PDFObjectStreamParser(decoded.getData(), null);
+        assertEquals(COSBoolean.FALSE, objectStreamParser.parseObjectAt(decoded.getPosition(4)));
+    }
 }
@@ -16,13 +16,28 @@
 package org.apache.pdfbox.pdfparser;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSString;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests for PDFStreamParser.
@@ -89,6 +104,107 @@ class PDFStreamParserTest
         testInlineImage2ops("ID\n12EI5EI          Q   ", "12EI5", "Q");
     }
 
+    /**
+     * Tests that numbers, names and operators are parsed the same way regardless of whether they are converted from
+     * the token bytes directly or using a string.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testTokens() throws IOException
+    {
+        List<Object> tokens = parseTokenString(
+                "0 -12 +7 123456789012345678901 1.5 -0.25 0.10 +1.5 .5 5. 0.000001 1234.567 -0.0 --3 "
+                + "/F1 /F1 /A#20B /#E4 BT Tf d0 null true false f* ");
+        assertEquals(COSInteger.ZERO, tokens.get(0));
+        assertEquals(COSInteger.get(-12), tokens.get(1));
+        assertEquals(COSInteger.get(7), tokens.get(2));
+        assertEquals(Long.MAX_VALUE, ((COSInteger) tokens.get(3)).longValue());
+        String[] floats = { "1.5", "-0.25", "0.10", "+1.5", ".5", "5.", "0.000001", "1234.567", "0.0" };
+        for (int i = 0; i < floats.length; i++)
+        {
+            COSFloat expected = new COSFloat(floats[i]);
+            COSFloat actual = (COSFloat) tokens.get(i + 4);
+            assertEquals(expected, actual);
+            assertEquals(expected.toString(), actual.toString());
+        }
+        assertEquals(COSInteger.get(-3), tokens.get(13));
+        assertSame(COSName.getPDFName("F1"), tokens.get(14));
+        assertSame(tokens.get(14), tokens.get(15));
+        assertEquals(COSName.getPDFName("A B"), tokens.get(16));
+        assertEquals(COSName.getPDFName("\u00e4"), tokens.get(17));
+        assertSame(Operator.getOperator("BT"), tokens.get(18));
+        assertSame(Operator.getOperator("Tf"), tokens.get(19));
+        assertSame(Operator.getOperator("d0"), tokens.get(20));
+        assertSame(COSNull.NULL, tokens.get(21));
+        assertSame(COSBoolean.TRUE, tokens.get(22));
+        assertSame(COSBoolean.FALSE, tokens.get(23));
+        assertSame(Operator.getOperator("f*"), tokens.get(24));
+        assertEquals(25, tokens.size());
+    }
+
+    /**
+     * Tests that the operators are passed to the handler together with their operands.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testParseWithHandler() throws IOException
+    {
+        List<String> operators = new ArrayList<>();
+        List<List<COSBase>> operands = new ArrayList<>();
+        PDFStreamParser parser = new PDFStreamParser(
+                "BT /F1 12 Tf 1 0 0 1 72 700 Tm (Hello) Tj ET q Q 1 2".getBytes(StandardCharsets.US_ASCII));
+        parser.parse((operator, list) ->
+        {
+            operators.add(operator.getName());
+            operands.add(new ArrayList<>(list));
+        });
+        assertEquals(Arrays.asList("BT", "Tf", "Tm", "Tj", "ET", "q", "Q"), operators);
+        assertEquals(Arrays.asList(COSName.getPDFName("F1"), COSInteger.get(12)), operands.get(1));
+        assertEquals(6, operands.get(2).size());
+        assertEquals("Hello", ((COSString) operands.get(3).get(0)).getString());
+        assertTrue(operands.get(6).isEmpty());
+    }
+
+    /**
+     * Tests that all operators with the same name have the same opcode.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testOpcodes() throws IOException, IllegalAccessException
+    {
+        List<Object> tokens = parseTokenString("q Q q");
+        Operator save = (Operator) tokens.get(0);
+        Operator restore = (Operator) tokens.get(1);
+        assertSame(save, tokens.get(2));
+        assertEquals(save.getOpcode(), Operator.getOperator(OperatorName.SAVE).getOpcode());
+        assertTrue(save.getOpcode() != restore.getOpcode());
+
+        // inline images aren't shared, but have the same opcode
+        Operator image1 = (Operator) parseTokenString("BI /W 1 ID\n1EI").get(0);
+        Operator image2 = (Operator) parseTokenString("BI /W 1 ID\n2EI").get(0);
+        assertTrue(image1 != image2);
+        assertEquals(image1.getOpcode(), image2.getOpcode());
+        assertEquals(image1.getOpcode(), Operator.getOperator(OperatorName.BEGIN_INLINE_IMAGE).getOpcode());
+
+        // each operator defined in OperatorName has its own fixed opcode
+        Set<Integer> opcodes = new HashSet<>();
+        for (Field field : OperatorName.class.getFields())
+        {
+            int opcode = Operator.getOperator((String) field.get(null)).getOpcode();
+            assertTrue(opcode >= 0 && opcode < Operator.OPCODE_COUNT, field.getName());
+            assertTrue(opcodes.add(opcode), field.getName());
+        }
+        assertEquals(Operator.OPCODE_COUNT, opcodes.size());
+
+        // all other operators share the unknown opcode
+        Operator unknown = (Operator) parseTokenString("xyz").get(0);
+        assertEquals(Operator.UNKNOWN_OPCODE, unknown.getOpcode());
+        assertEquals(Operator.UNKNOWN_OPCODE, Operator.getOperator("abc").getOpcode());
+    }
+
     // checks whether there are two operators, one inline image and the named operator
     private void testInlineImage2ops(String s, String imageDataString, String opName) throws IOException
     {
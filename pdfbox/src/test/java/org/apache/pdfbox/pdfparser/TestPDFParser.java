@@ -18,13 +18,42 @@
 package org.apache.pdfbox.pdfparser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.FileAccessMode;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
@@ -348,4 +377,266 @@ class TestPDFParser
         }
     }
 
+    /**
+     * Dereference all objects of a document from several threads at once. Every object has to be
+     * loaded exactly once and has to match the result of a single threaded run.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testConcurrentObjectLoading() throws Exception
+    {
+        File pdfFile = new File("src/test/resources/input", "eu-001.pdf");
+        CountingParser parser = new CountingParser(new RandomAccessReadBufferedFile(pdfFile));
+        try (PDDocument serialDoc = Loader.loadPDF(pdfFile);
+                PDDocument concurrentDoc = parser.parse())
+        {
+            COSDocument serialCOSDoc = serialDoc.getDocument();
+            COSDocument concurrentCOSDoc = concurrentDoc.getDocument();
+            List<COSObjectKey> keys = new ArrayList<>(concurrentCOSDoc.getXrefTable().keySet());
+            int numberOfThreads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+            try
+            {
+                List<Future<List<COSBase>>> futures = new ArrayList<>();
+                for (int i = 0; i < numberOfThreads; i++)
+                {
+                    List<COSObjectKey> shuffledKeys = new ArrayList<>(keys);
+                    Collections.shuffle(shuffledKeys, new Random(i));
+                    futures.add(executor.submit(() -> {
+                        // load in random order, but return in key order
+                        shuffledKeys.forEach(k -> concurrentCOSDoc.getObjectFromPool(k).getObject());
+                        List<COSBase> objects = new ArrayList<>();
+                        keys.forEach(k -> objects.add(concurrentCOSDoc.getObjectFromPool(k).getObject()));
+                        return objects;
+                    }));
+                }
+                List<COSBase> first = futures.get(0).get();
+                for (Future<List<COSBase>> future : futures)
+                {
+                    List<COSBase> objects = future.get();
+                    for (int i = 0; i < keys.size(); i++)
+                    {
+                        assertSame(first.get(i), objects.get(i));
+                    }
+                }
+                for (int i = 0; i < keys.size(); i++)
+                {
+                    COSBase serialObject = serialCOSDoc.getObjectFromPool(keys.get(i)).getObject();
+                    assertEquals(serialObject == null ? null : serialObject.getClass(),
+                            first.get(i) == null ? null : first.get(i).getClass());
+                }
+                // every object was parsed by one thread only
+                for (COSObjectKey key : keys)
+                {
+                    assertEquals(1, parser.getParseCount(key), key.toString());
+                }
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Counts how often each object is dereferenced, i.e. parsed and stored in its pooled object.
+     */
+    private static class CountingParser extends PDFParser
+    {
+        private final Map<COSObjectKey, AtomicInteger> parseCounts = new ConcurrentHashMap<>();
+
+        CountingParser(RandomAccessRead source) throws IOException
+        {
+            super(source);
+        }
+
+        @Override
+        public COSBase dereferenceCOSObject(COSObject obj) throws IOException
+        {
+            parseCounts.computeIfAbsent(obj.getKey(), key -> new AtomicInteger()).incrementAndGet();
+            return super.dereferenceCOSObject(obj);
+        }
+
+        int getParseCount(COSObjectKey key)
+        {
+            AtomicInteger count = parseCounts.get(key);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    /**
+     * Test that the xref index contains the cross reference information of the parsed pdf and that
+     * it is only used for the pdf it was written for.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testXrefIndex() throws IOException, URISyntaxException
+    {
+        File outDir = new File("target/test-output");
+        outDir.mkdirs();
+        File[] pdfs = { new File("src/test/resources/input", "eu-001.pdf"),
+                new File(TestPDFParser.class.getResource("MissingCatalog.pdf").toURI()) };
+        for (File pdf : pdfs)
+        {
+            File indexFile = new File(outDir, pdf.getName() + ".xref");
+            indexFile.delete();
+            int pageCount;
+            try (PDDocument doc = Loader.loadPDF(pdf, "", null, null,
+                    MemoryUsageSetting.setupMainMemoryOnly(), FileAccessMode.BUFFERED, indexFile))
+            {
+                pageCount = doc.getNumberOfPages();
+            }
+            assertTrue(indexFile.exists());
+
+            try (RandomAccessReadBufferedFile source = new RandomAccessReadBufferedFile(pdf);
+                 PDDocument doc = Loader.loadPDF(pdf))
+            {
+                COSDocument expected = doc.getDocument();
+                byte[] tailHash = XrefIndex.hashTail(source, 2048);
+                XrefIndex index = XrefIndex.read(indexFile, pdf.length(), pdf.lastModified(),
+                        tailHash, new COSDocument());
+                assertNotNull(index);
+                COSDocument actual = new COSDocument();
+                index.applyTo(actual);
+                assertEquals(expected.getXrefTable(), actual.getXrefTable());
+                assertEquals(expected.getStartXref(), actual.getStartXref());
+                assertEquals(expected.getTrailer().getCOSObject(COSName.ROOT).getObjectNumber(),
+                        actual.getTrailer().getCOSObject(COSName.ROOT).getObjectNumber());
+
+                // outdated index
+                assertNull(XrefIndex.read(indexFile, pdf.length(), pdf.lastModified() + 1,
+                        tailHash, new COSDocument()));
+                assertNull(XrefIndex.read(indexFile, pdf.length(), pdf.lastModified(),
+                        new byte[tailHash.length], new COSDocument()));
+
+                // corrupt number of entries, it follows the tail hash and 4 fields of 19 bytes
+                byte[] data = Files.readAllBytes(indexFile.toPath());
+                int countOffset = 29 + data[28] + 19;
+                File corruptFile = new File(outDir, pdf.getName() + ".corrupt.xref");
+                ByteBuffer.wrap(data).putInt(countOffset, Integer.MAX_VALUE);
+                Files.write(corruptFile.toPath(), data);
+                assertNull(XrefIndex.read(corruptFile, pdf.length(), pdf.lastModified(),
+                        tailHash, new COSDocument()));
+                corruptFile.delete();
+            }
+
+            try (PDDocument doc = Loader.loadPDF(pdf, "", null, null,
+                    MemoryUsageSetting.setupMainMemoryOnly(), FileAccessMode.BUFFERED, indexFile))
+            {
+                assertEquals(pageCount, doc.getNumberOfPages());
+            }
+        }
+    }
+
+    @Test
+    void testObjectStreamCache() throws IOException
+    {
+        File pdf = new File("src/test/resources/org/apache/pdfbox/pdmodel/interactive/form",
+                "AcroFormsBasicFields.pdf");
+        List<String> expected = new ArrayList<>();
+        for (long cacheSize : new long[] { 0, ObjectStreamCache.DEFAULT_MAX_BYTES })
+        {
+            try (RandomAccessReadBufferedFile source = new RandomAccessReadBufferedFile(pdf))
+            {
+                PDFParser parser = new PDFParser(source);
+                parser.setObjectStreamCacheSize(cacheSize);
+                try (PDDocument doc = parser.parse())
+                {
+                    COSDocument cosDocument = doc.getDocument();
+                    List<COSObjectKey> keys = new ArrayList<>(cosDocument.getXrefTable().keySet());
+                    Collections.sort(keys);
+                    Set<Long> objectStreams = new HashSet<>();
+                    int compressedObjects = 0;
+                    List<String> objects = new ArrayList<>();
+                    for (COSObjectKey key : keys)
+                    {
+                        Long offset = cosDocument.getXrefTable().get(key);
+                        if (offset < 0)
+                        {
+                            objectStreams.add(-offset);
+                            compressedObjects++;
+                        }
+                        COSBase object = cosDocument.getObjectFromPool(key).getObject();
+                        objects.add(key + " " + (object instanceof COSDictionary
+                                ? ((COSDictionary) object).keySet() : String.valueOf(object)));
+                    }
+                    if (cacheSize == 0)
+                    {
+                        expected = objects;
+                        assertEquals(0, parser.getObjectStreamCacheHitCount());
+                    }
+                    else
+                    {
+                        assertEquals(expected, objects);
+                        assertTrue(compressedObjects > objectStreams.size());
+                        assertTrue(parser.getObjectStreamCacheMissCount() <= objectStreams.size());
+                        assertTrue(parser.getObjectStreamCacheHitCount() > 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testObjectStreamCacheSetting() throws IOException
+    {
+        File pdf = new File("src/test/resources/org/apache/pdfbox/pdmodel/interactive/form",
+                "AcroFormsBasicFields.pdf");
+        MemoryUsageSetting[] settings = { MemoryUsageSetting.setupMainMemoryOnly(),
+                MemoryUsageSetting.setupMainMemoryOnly().setObjectStreamCacheBytes(0) };
+        for (MemoryUsageSetting setting : settings)
+        {
+            try (PDDocument doc = Loader.loadPDF(pdf, setting))
+            {
+                COSDocument cosDocument = doc.getDocument();
+                cosDocument.getXrefTable().keySet()
+                        .forEach(key -> cosDocument.getObjectFromPool(key).getObject());
+                long cachedBytes = cosDocument.getParserCacheMemoryUsed();
+                if (setting.getObjectStreamCacheBytes() > 0)
+                {
+                    assertTrue(cachedBytes > 0);
+                    assertTrue(cachedBytes <= MemoryUsageSetting.DEFAULT_OBJECT_STREAM_CACHE_BYTES);
+                }
+                else
+                {
+                    assertEquals(0, cachedBytes);
+                }
+                assertEquals(1, doc.getNumberOfPages());
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> MemoryUsageSetting.setupMainMemoryOnly().setObjectStreamCacheBytes(-1));
+    }
+
+    @Test
+    void testLinearizedFirstPage() throws IOException
+    {
+        File pdf = new File("src/test/resources/org/apache/pdfbox/multipdf",
+                "AcrobatMerge-SameNameNode.pdf");
+        try (PDDocument doc = Loader.loadPDFForFirstPage(pdf);
+                PDDocument expected = Loader.loadPDF(pdf))
+        {
+            COSDocument cosDocument = doc.getDocument();
+            assertNotNull(cosDocument.getFirstPageKey());
+            int firstPageSectionSize = cosDocument.getXrefTable().size();
+            assertTrue(firstPageSectionSize < expected.getDocument().getXrefTable().size());
+
+            // the first page is rendered using the first page section only
+            new PDFRenderer(doc).renderImage(0);
+            assertEquals(expected.getPage(0).getCOSObject().keySet(),
+                    doc.getPage(0).getCOSObject().keySet());
+            assertEquals(firstPageSectionSize, cosDocument.getXrefTable().size());
+
+            // the remaining xref is read on demand
+            assertEquals(expected.getNumberOfPages(), doc.getNumberOfPages());
+            assertNull(cosDocument.getFirstPageKey());
+            assertEquals(expected.getDocument().getXrefTable(), cosDocument.getXrefTable());
+            assertEquals(expected.getDocument().getTrailer().keySet(),
+                    cosDocument.getTrailer().keySet());
+            assertEquals(expected.getPage(1).getCOSObject().keySet(),
+                    doc.getPage(1).getCOSObject().keySet());
+        }
+    }
 }
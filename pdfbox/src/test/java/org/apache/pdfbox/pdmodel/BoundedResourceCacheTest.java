@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.BoundedResourceCache.ResourceType;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the BoundedResourceCache.
+ */
+class BoundedResourceCacheTest
+{
+    @Test
+    void testLeastRecentlyUsedIsEvicted()
+    {
+        BoundedResourceCache cache = new BoundedResourceCache(10, 10, 1000, 2);
+        COSObject key1 = new COSObject(null);
+        COSObject key2 = new COSObject(null);
+        COSObject key3 = new COSObject(null);
+        PDExtendedGraphicsState state1 = new PDExtendedGraphicsState();
+        PDExtendedGraphicsState state2 = new PDExtendedGraphicsState();
+        PDExtendedGraphicsState state3 = new PDExtendedGraphicsState();
+
+        cache.put(key1, state1);
+        cache.put(key2, state2);
+        // key1 is used, so key2 is the least recently used one
+        assertSame(state1, cache.getExtGState(key1));
+        cache.put(key3, state3);
+        assertNull(cache.getExtGState(key2));
+        assertSame(state1, cache.getExtGState(key1));
+        assertSame(state3, cache.getExtGState(key3));
+
+        assertEquals(2, cache.getEntryCount(ResourceType.EXT_G_STATE));
+        assertEquals(1, cache.getEvictionCount(ResourceType.EXT_G_STATE));
+        assertEquals(3, cache.getHitCount(ResourceType.EXT_G_STATE));
+        assertEquals(1, cache.getMissCount(ResourceType.EXT_G_STATE));
+        assertEquals(0, cache.getEntryCount(ResourceType.SHADING));
+        assertEquals(0.75, cache.getHitRate(), 1e-6);
+
+        cache.remove(key1);
+        assertNull(cache.getExtGState(key1));
+        assertEquals(1, cache.getWeight(ResourceType.EXT_G_STATE));
+        cache.clear();
+        assertEquals(0, cache.getEntryCount(ResourceType.EXT_G_STATE));
+        assertEquals(3, cache.getHitCount(ResourceType.EXT_G_STATE));
+
+        assertThrows(IllegalArgumentException.class, () -> new BoundedResourceCache(-1, 1, 1, 1));
+    }
+
+    @Test
+    void testXObjectsLimitedBySize() throws IOException
+    {
+        try (PDDocument doc = new PDDocument())
+        {
+            BoundedResourceCache cache = new BoundedResourceCache(10, 10, 100 * 100 * 4 * 2, 10);
+            PDImageXObject[] images = new PDImageXObject[3];
+            COSObject[] keys = new COSObject[3];
+            for (int i = 0; i < images.length; i++)
+            {
+                images[i] = new PDImageXObject(doc);
+                images[i].setWidth(100);
+                images[i].setHeight(100);
+                keys[i] = new COSObject(images[i].getCOSObject());
+                cache.put(keys[i], images[i]);
+            }
+            assertEquals(2, cache.getEntryCount(ResourceType.XOBJECT));
+            assertEquals(100 * 100 * 4 * 2, cache.getWeight(ResourceType.XOBJECT));
+            assertNull(cache.getXObject(keys[0]));
+            assertSame(images[2], cache.getXObject(keys[2]));
+
+            // an image larger than the limit isn't cached at all
+            PDImageXObject large = new PDImageXObject(doc);
+            large.setWidth(1000);
+            large.setHeight(1000);
+            COSObject largeKey = new COSObject(large.getCOSObject());
+            cache.put(largeKey, large);
+            assertNull(cache.getXObject(largeKey));
+            assertEquals(2, cache.getEntryCount(ResourceType.XOBJECT));
+        }
+    }
+
+    @Test
+    void testSameTextAsDefaultCache() throws IOException
+    {
+        File file = new File("src/test/resources/input/rendering/survey.pdf");
+        String expected;
+        try (PDDocument doc = Loader.loadPDF(file))
+        {
+            expected = new PDFTextStripper().getText(doc);
+        }
+        BoundedResourceCache cache = new BoundedResourceCache();
+        try (PDDocument doc = Loader.loadPDF(file))
+        {
+            doc.setResourceCache(cache);
+            assertEquals(expected, new PDFTextStripper().getText(doc));
+            assertTrue(cache.getEntryCount(ResourceType.FONT) > 0);
+            assertTrue(cache.getHitCount(ResourceType.FONT) > 0);
+            assertTrue(doc.estimateMemoryUsage().getFontCount() > 0);
+        }
+    }
+
+    @Test
+    void testSharedCacheMemoryUsage() throws IOException
+    {
+        File file = new File("src/test/resources/input/rendering/survey.pdf");
+        BoundedResourceCache cache = new BoundedResourceCache();
+        try (PDDocument doc1 = Loader.loadPDF(file);
+             PDDocument doc2 = Loader.loadPDF(file))
+        {
+            doc1.setResourceCache(cache);
+            doc2.setResourceCache(cache);
+            new PDFTextStripper().getText(doc1);
+            DocumentMemoryUsage usage = doc1.estimateMemoryUsage();
+            assertTrue(usage.getFontCount() > 0);
+            assertEquals(cache.getEntryCount(ResourceType.FONT), usage.getFontCount());
+            assertEquals(0, doc2.estimateMemoryUsage().getFontCount());
+
+            // the resources of the other document aren't counted
+            new PDFTextStripper().getText(doc2);
+            assertEquals(2 * usage.getFontCount(), cache.getEntryCount(ResourceType.FONT));
+            assertEquals(usage.getFontCount(), doc1.estimateMemoryUsage().getFontCount());
+            assertEquals(usage.getFontCount(), doc2.estimateMemoryUsage().getFontCount());
+            assertEquals(usage.getFontBytes(), doc2.estimateMemoryUsage().getFontBytes());
+        }
+    }
+
+    @Test
+    void testClosedDocumentIsRemoved() throws IOException
+    {
+        File file = new File("src/test/resources/input/rendering/survey.pdf");
+        BoundedResourceCache cache = new BoundedResourceCache();
+        try (PDDocument doc1 = Loader.loadPDF(file))
+        {
+            doc1.setResourceCache(cache);
+            new PDFTextStripper().getText(doc1);
+            int fontCount = cache.getEntryCount(ResourceType.FONT);
+            assertTrue(fontCount > 0);
+            try (PDDocument doc2 = Loader.loadPDF(file))
+            {
+                doc2.setResourceCache(cache);
+                new PDFTextStripper().getText(doc2);
+                assertEquals(2 * fontCount, cache.getEntryCount(ResourceType.FONT));
+            }
+            // the resources of the closed document are removed, those of the other one are kept
+            assertEquals(fontCount, cache.getEntryCount(ResourceType.FONT));
+            assertEquals(0, cache.getEvictionCount(ResourceType.FONT));
+            assertEquals(fontCount, doc1.estimateMemoryUsage().getFontCount());
+
+            // and so are those of a document using another cache
+            doc1.setResourceCache(new BoundedResourceCache());
+            assertEquals(0, cache.getEntryCount(ResourceType.FONT));
+            assertEquals(0, cache.getWeight(ResourceType.FONT));
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdmodel;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -26,11 +27,25 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.graphics.image.DecodedImageCache;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -233,4 +248,224 @@ class TestPDDocument
 
         Locale.setDefault(defaultLocale);
     }
+
+    /**
+     * Test that the objects of processed pages can be released and are loaded again when needed.
+     *
+     * @throws IOException if something went wrong
+     */
+    @Test
+    void testReleasePage() throws IOException
+    {
+        File file = new File("src/test/resources/input/rendering/survey.pdf");
+        try (PDDocument doc = Loader.loadPDF(file))
+        {
+            PDFTextStripper stripper = new PDFTextStripper();
+            StringBuilder expected = new StringBuilder();
+            StringBuilder actual = new StringBuilder();
+            int released = 0;
+            for (int i = 1; i <= doc.getNumberOfPages(); i++)
+            {
+                stripper.setStartPage(i);
+                stripper.setEndPage(i);
+                expected.append(stripper.getText(doc));
+            }
+            for (int i = 1; i <= doc.getNumberOfPages(); i++)
+            {
+                stripper.setStartPage(i);
+                stripper.setEndPage(i);
+                actual.append(stripper.getText(doc));
+
+                PDPage page = doc.getPage(i - 1);
+                COSBase contents = page.getCOSObject().getItem(COSName.CONTENTS);
+                released += doc.releasePage(page);
+                if (contents instanceof COSObject)
+                {
+                    assertTrue(((COSObject) contents).isObjectNull());
+                }
+            }
+            assertTrue(released > 0);
+            // the released objects are loaded again
+            assertEquals(expected.toString(), actual.toString());
+            for (int i = 1; i <= doc.getNumberOfPages(); i++)
+            {
+                stripper.setStartPage(i);
+                stripper.setEndPage(i);
+                actual.append(stripper.getText(doc));
+            }
+            assertEquals(expected.toString() + expected, actual.toString());
+        }
+    }
+
+    /**
+     * Test that changed objects aren't released.
+     *
+     * @throws IOException if something went wrong
+     */
+    @Test
+    void testReleaseUpdatedObject() throws IOException
+    {
+        File file = new File("src/test/resources/input/rendering/survey.pdf");
+        try (PDDocument doc = Loader.loadPDF(file))
+        {
+            PDPage page = doc.getPage(0);
+            COSObject contents = (COSObject) page.getCOSObject().getItem(COSName.CONTENTS);
+            contents.getObject();
+            assertFalse(contents.isObjectNull());
+            contents.setNeedToBeUpdated(true);
+            doc.releasePage(page);
+            assertFalse(contents.isObjectNull());
+
+            // objects created in memory aren't released
+            COSObject created = new COSObject(new PDPage().getCOSObject());
+            assertFalse(doc.getDocument().releaseObject(created));
+        }
+    }
+
+    /**
+     * Test the estimation of the memory used by a loaded document and by a new one.
+     *
+     * @throws IOException if something went wrong
+     */
+    @Test
+    void testEstimateMemoryUsage() throws IOException
+    {
+        byte[] pdf = Files.readAllBytes(new File("src/test/resources/input/rendering/survey.pdf").toPath());
+        try (PDDocument doc = Loader.loadPDF(pdf))
+        {
+            DocumentMemoryUsage before = doc.estimateMemoryUsage();
+            assertEquals(pdf.length, before.getSourceBytes());
+            assertEquals(0, before.getFontCount());
+
+            new PDFTextStripper().getText(doc);
+            DocumentMemoryUsage after = doc.estimateMemoryUsage();
+            assertTrue(after.getObjectCount() > before.getObjectCount());
+            assertTrue(after.getObjectBytes() > before.getObjectBytes());
+            assertTrue(after.getFontCount() > 0);
+            assertTrue(after.getFontBytes() > 0);
+            assertTrue(after.getCacheEntryCount() >= after.getFontCount());
+            assertTrue(after.getHeapBytes() > before.getHeapBytes());
+
+            for (PDPage page : doc.getPages())
+            {
+                doc.releasePage(page);
+            }
+            DocumentMemoryUsage released = doc.estimateMemoryUsage();
+            assertTrue(released.getObjectBytes() < after.getObjectBytes());
+            assertEquals(0, released.getFontCount());
+        }
+
+        try (PDDocument doc = new PDDocument())
+        {
+            DocumentMemoryUsage empty = doc.estimateMemoryUsage();
+            assertEquals(0, empty.getObjectCount());
+            assertEquals(0, empty.getSourceBytes());
+            assertTrue(empty.getObjectBytes() > 0);
+
+            PDPage page = new PDPage();
+            doc.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+            {
+                cs.addRect(10, 10, 100, 100);
+                cs.fill();
+            }
+            DocumentMemoryUsage usage = doc.estimateMemoryUsage();
+            assertTrue(usage.getObjectBytes() > empty.getObjectBytes());
+            assertTrue(usage.getStreamHeapBytes() > empty.getStreamHeapBytes());
+        }
+    }
+
+    /**
+     * Test that the memory usage can be estimated while the document is changed by another thread.
+     *
+     * @throws Exception if something went wrong
+     */
+    @Test
+    void testEstimateMemoryUsageWhileChanged() throws Exception
+    {
+        try (PDDocument doc = new PDDocument())
+        {
+            PDPage page = new PDPage();
+            doc.addPage(page);
+            COSDictionary dictionary = page.getCOSObject();
+            COSArray array = new COSArray();
+            dictionary.setItem(COSName.ANNOTS, array);
+            AtomicBoolean done = new AtomicBoolean();
+            Thread changer = new Thread(() ->
+            {
+                for (int i = 0; !done.get(); i++)
+                {
+                    COSName key = COSName.getPDFName("Key" + i % 1000);
+                    if (i % 2000 < 1000)
+                    {
+                        dictionary.setInt(key, i);
+                        array.add(COSInteger.get(i));
+                    }
+                    else
+                    {
+                        dictionary.removeItem(key);
+                        array.remove(array.size() - 1);
+                    }
+                }
+            });
+            changer.start();
+            try
+            {
+                for (int i = 0; i < 2000; i++)
+                {
+                    assertTrue(doc.estimateMemoryUsage().getObjectBytes() > 0);
+                }
+            }
+            finally
+            {
+                done.set(true);
+                changer.join();
+            }
+        }
+    }
+
+    /**
+     * Test that the estimation includes the decoded object streams and the decoded images of the document.
+     *
+     * @throws IOException if something went wrong
+     */
+    @Test
+    void testEstimateMemoryUsageOfCaches() throws IOException
+    {
+        File pdf = new File("src/test/resources/org/apache/pdfbox/pdmodel/interactive/form",
+                "AcroFormsBasicFields.pdf");
+        try (PDDocument doc = Loader.loadPDF(pdf))
+        {
+            COSDocument cosDocument = doc.getDocument();
+            DocumentMemoryUsage before = doc.estimateMemoryUsage();
+            cosDocument.getXrefTable().keySet().forEach(key -> cosDocument.getObjectFromPool(key).getObject());
+            DocumentMemoryUsage after = doc.estimateMemoryUsage();
+            assertTrue(after.getObjectStreamBytes() > before.getObjectStreamBytes());
+            assertEquals(cosDocument.getParserCacheMemoryUsed(), after.getObjectStreamBytes());
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (PDDocument doc = new PDDocument())
+        {
+            PDImageXObject image = LosslessFactory.createFromImage(doc,
+                    new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB));
+            PDPage page = new PDPage();
+            doc.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+            {
+                cs.drawImage(image, 100, 100);
+            }
+            doc.save(baos);
+        }
+        try (PDDocument doc = Loader.loadPDF(baos.toByteArray()))
+        {
+            DecodedImageCache cache = new DecodedImageCache(16 * 1024 * 1024);
+            doc.setDecodedImageCache(cache);
+            assertEquals(0, doc.estimateMemoryUsage().getDecodedImageBytes());
+            new PDFRenderer(doc).renderImage(0);
+            DocumentMemoryUsage usage = doc.estimateMemoryUsage();
+            assertEquals(200 * 150 * 4, usage.getDecodedImageBytes());
+            assertTrue(usage.getHeapBytes() >= usage.getObjectBytes() + usage.getDecodedImageBytes());
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the EmbeddedFontCache.
+ */
+class EmbeddedFontCacheTest
+{
+    // embedded TrueType, Type 1, Type 1C, CIDFontType0 and CIDFontType2 fonts
+    private static final String[] FILES = {
+            "src/test/resources/org/apache/pdfbox/text/BidiSample.pdf",
+            "src/test/resources/input/PDFBOX-3038-001033-p2.pdf",
+            "src/test/resources/input/PDFBOX-3044-010197-p5-ligatures.pdf",
+            "src/test/resources/input/PDFBOX-3833-reduced.pdf",
+            "src/test/resources/org/apache/pdfbox/pdmodel/test.unc.pdf" };
+
+    @Test
+    void testFontsSharedBetweenDocuments() throws IOException
+    {
+        EmbeddedFontCache cache = new EmbeddedFontCache(100 * 1024 * 1024);
+        for (String name : FILES)
+        {
+            File file = findFile(name);
+            String expected;
+            try (PDDocument doc = Loader.loadPDF(file))
+            {
+                expected = new PDFTextStripper().getText(doc);
+            }
+
+            EmbeddedFontCache.setInstance(cache);
+            try (PDDocument doc1 = Loader.loadPDF(file); PDDocument doc2 = Loader.loadPDF(file))
+            {
+                List<Object> fonts1 = getEmbeddedFonts(doc1);
+                List<Object> fonts2 = getEmbeddedFonts(doc2);
+                assertFalse(fonts1.isEmpty(), name);
+                assertEquals(fonts1.size(), fonts2.size());
+                for (int i = 0; i < fonts1.size(); i++)
+                {
+                    assertSame(fonts1.get(i), fonts2.get(i), name);
+                }
+                assertEquals(expected, new PDFTextStripper().getText(doc1), name);
+                assertEquals(expected, new PDFTextStripper().getText(doc2), name);
+            }
+            finally
+            {
+                EmbeddedFontCache.setInstance(null);
+            }
+        }
+        assertTrue(cache.getHitCount() >= cache.getFontCount());
+        assertTrue(cache.getSize() > 0);
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void testEviction() throws IOException
+    {
+        EmbeddedFontCache cache = new EmbeddedFontCache(10);
+        assertEquals("a", cache.getFont("test", new byte[] { 1, 2, 3, 4, 5, 6 }, bytes -> "a"));
+        assertEquals("b", cache.getFont("test", new byte[] { 1, 2, 3, 4, 5 }, bytes -> "b"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(5, cache.getSize());
+        assertEquals("b", cache.getFont("test", new byte[] { 1, 2, 3, 4, 5 }, bytes -> "c"));
+        // the same data of another type is a different font
+        assertEquals("d", cache.getFont("other", new byte[] { 1, 2, 3, 4, 5 }, bytes -> "d"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        // fonts larger than the cache aren't cached
+        assertEquals("e", cache.getFont("test", new byte[11], bytes -> "e"));
+        assertEquals(2, cache.getFontCount());
+        cache.clear();
+        assertEquals(0, cache.getFontCount());
+        assertEquals(0, cache.getSize());
+
+        assertThrows(IllegalArgumentException.class, () -> new EmbeddedFontCache(-1));
+    }
+
+    private static File findFile(String name)
+    {
+        File file = new File(name);
+        assertTrue(file.exists(), name);
+        return file;
+    }
+
+    /**
+     * Returns the parsed font programs of the embedded fonts of the first page.
+     */
+    private static List<Object> getEmbeddedFonts(PDDocument doc) throws IOException
+    {
+        List<Object> fonts = new ArrayList<>();
+        PDResources resources = doc.getPage(0).getResources();
+        for (COSName name : resources.getFontNames())
+        {
+            PDFont font = resources.getFont(name);
+            if (!font.isEmbedded())
+            {
+                continue;
+            }
+            if (font instanceof PDType0Font)
+            {
+                PDCIDFont descendant = ((PDType0Font) font).getDescendantFont();
+                fonts.add(descendant instanceof PDCIDFontType2
+                        ? ((PDCIDFontType2) descendant).getTrueTypeFont()
+                        : ((PDCIDFontType0) descendant).getFontBoxFont());
+            }
+            else if (font instanceof PDSimpleFont)
+            {
+                fonts.add(((PDSimpleFont) font).getFontBoxFont());
+            }
+        }
+        return fonts;
+    }
+}
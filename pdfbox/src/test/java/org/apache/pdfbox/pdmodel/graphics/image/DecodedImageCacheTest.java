@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the DecodedImageCache.
+ */
+class DecodedImageCacheTest
+{
+    @Test
+    void testImageSharedByPages() throws IOException
+    {
+        try (PDDocument doc = Loader.loadPDF(createDocument()))
+        {
+            // without a resource cache every page has its own image XObject
+            doc.setResourceCache(null);
+            List<int[]> expected = render(doc, 1);
+
+            DecodedImageCache cache = new DecodedImageCache(16 * 1024 * 1024);
+            doc.setDecodedImageCache(cache);
+            assertSame(cache, DecodedImageCache.getCache(doc));
+            assertImagesEqual(expected, render(doc, 1));
+            assertEquals(1, cache.getImageCount());
+            assertEquals(1, cache.getMissCount());
+            assertTrue(cache.getHitCount() >= 3);
+            assertEquals(200 * 150 * 4, cache.getSize());
+
+            // another subsampling is cached separately
+            render(doc, 0.25f);
+            assertEquals(2, cache.getImageCount());
+            assertEquals(0, cache.getEvictionCount());
+
+            cache.clear();
+            assertEquals(0, cache.getImageCount());
+            assertEquals(0, cache.getSize());
+        }
+    }
+
+    @Test
+    void testSharedInstance() throws IOException
+    {
+        DecodedImageCache cache = new DecodedImageCache(16 * 1024 * 1024);
+        DecodedImageCache.setInstance(cache);
+        DecodedImageCache documentCache = new DecodedImageCache(16 * 1024 * 1024);
+        byte[] pdf = createDocument();
+        try (PDDocument doc = Loader.loadPDF(pdf);
+             PDDocument other = Loader.loadPDF(pdf))
+        {
+            assertSame(cache, DecodedImageCache.getCache(doc));
+            render(doc, 1);
+            assertEquals(1, cache.getImageCount());
+
+            // the same image of another document isn't shared
+            render(other, 1);
+            assertEquals(2, cache.getImageCount());
+
+            // the cache of the document is preferred
+            doc.setDecodedImageCache(documentCache);
+            assertSame(documentCache, DecodedImageCache.getCache(doc));
+            render(doc, 1);
+            assertEquals(1, documentCache.getImageCount());
+
+            // the images of a closed document are removed from both caches
+            doc.close();
+            assertEquals(1, cache.getImageCount());
+            assertEquals(200 * 150 * 4, cache.getSize());
+            assertEquals(0, documentCache.getImageCount());
+            assertEquals(0, documentCache.getSize());
+            assertEquals(0, cache.getEvictionCount());
+        }
+        finally
+        {
+            DecodedImageCache.setInstance(null);
+        }
+        assertEquals(0, cache.getImageCount());
+    }
+
+    @Test
+    void testEviction() throws IOException
+    {
+        try (PDDocument doc = Loader.loadPDF(createDocument()))
+        {
+            PDImageXObject image = getImage(doc);
+            // room for one image without subsampling only
+            DecodedImageCache cache = new DecodedImageCache(200 * 150 * 4);
+            BufferedImage region = cache.getImage(doc, image, new Rectangle(10, 10, 20, 20), 1);
+            assertEquals(20, region.getWidth());
+            assertSame(region, cache.getImage(doc, image, new Rectangle(10, 10, 20, 20), 1));
+
+            BufferedImage full = cache.getImage(doc, image, null, 1);
+            assertTrue(Arrays.equals(full.getRGB(10, 10, 20, 20, null, 0, 20),
+                    region.getRGB(0, 0, 20, 20, null, 0, 20)));
+            assertEquals(1, cache.getEvictionCount());
+            assertEquals(1, cache.getImageCount());
+            assertSame(full, cache.getImage(doc, image, null, 1));
+            assertNotSame(region, cache.getImage(doc, image, new Rectangle(10, 10, 20, 20), 1));
+            assertEquals(2, cache.getHitCount());
+            assertEquals(3, cache.getMissCount());
+
+            // images larger than the cache aren't cached
+            cache = new DecodedImageCache(1000);
+            cache.getImage(doc, image, null, 1);
+            assertEquals(0, cache.getImageCount());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new DecodedImageCache(-1));
+    }
+
+    /**
+     * Creates a document with three pages drawing the same image.
+     */
+    private static byte[] createDocument() throws IOException
+    {
+        BufferedImage bim = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bim.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 200, 150);
+        g.setColor(Color.BLUE);
+        g.fillOval(20, 20, 160, 110);
+        g.dispose();
+        try (PDDocument doc = new PDDocument())
+        {
+            PDImageXObject image = LosslessFactory.createFromImage(doc, bim);
+            for (int i = 0; i < 3; i++)
+            {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+                {
+                    cs.drawImage(image, 50 + i * 100, 300, 200, 150);
+                }
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            doc.save(baos);
+            return baos.toByteArray();
+        }
+    }
+
+    private static PDImageXObject getImage(PDDocument doc) throws IOException
+    {
+        PDPage page = doc.getPage(0);
+        return (PDImageXObject) page.getResources()
+                .getXObject(page.getResources().getXObjectNames().iterator().next());
+    }
+
+    private static List<int[]> render(PDDocument doc, float scale) throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(doc);
+        renderer.setSubsamplingAllowed(true);
+        List<int[]> images = new ArrayList<>();
+        for (int i = 0; i < doc.getNumberOfPages(); i++)
+        {
+            BufferedImage image = renderer.renderImage(i, scale);
+            images.add(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+        }
+        return images;
+    }
+
+    private static void assertImagesEqual(List<int[]> expected, List<int[]> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertTrue(Arrays.equals(expected.get(i), actual.get(i)), "page " + i);
+        }
+    }
+}
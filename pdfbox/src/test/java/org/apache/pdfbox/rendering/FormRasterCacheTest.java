@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.blend.BlendMode;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the FormRasterCache.
+ */
+class FormRasterCacheTest
+{
+    @Test
+    void testRepeatedForm() throws IOException
+    {
+        try (PDDocument doc = createDocument(null))
+        {
+            BufferedImage expected = new PDFRenderer(doc).renderImage(0);
+
+            FormRasterCache cache = new FormRasterCache(16 * 1024 * 1024, 100000);
+            PDFRenderer renderer = new PDFRenderer(doc);
+            renderer.setFormRasterCache(cache);
+            assertSimilar(expected, renderer.renderImage(0));
+            // the form is drawn directly the first time, rasterized the second time and the remaining
+            // 38 paints, including the clipped one, are drawn from the cached image
+            assertEquals(1, cache.getImageCount());
+            assertEquals(38, cache.getHitCount());
+            assertTrue(cache.getSize() > 0);
+
+            assertSimilar(expected, renderer.renderImage(0));
+            assertEquals(78, cache.getHitCount());
+
+            // only used when rendering to an image
+            renderer.renderPageToGraphics(0, expected.createGraphics());
+            assertEquals(78, cache.getHitCount());
+
+            cache.clear();
+            assertEquals(0, cache.getImageCount());
+            assertEquals(0, cache.getSize());
+        }
+    }
+
+    @Test
+    void testUncacheableForm() throws IOException
+    {
+        PDExtendedGraphicsState extGState = new PDExtendedGraphicsState();
+        extGState.setBlendMode(BlendMode.MULTIPLY);
+        try (PDDocument doc = createDocument(extGState))
+        {
+            BufferedImage expected = new PDFRenderer(doc).renderImage(0);
+
+            FormRasterCache cache = new FormRasterCache(16 * 1024 * 1024, 100000);
+            PDFRenderer renderer = new PDFRenderer(doc);
+            renderer.setFormRasterCache(cache);
+            assertSimilar(expected, renderer.renderImage(0));
+            assertEquals(0, cache.getImageCount());
+            assertEquals(0, cache.getHitCount());
+        }
+    }
+
+    @Test
+    void testLimits() throws IOException
+    {
+        try (PDDocument doc = createDocument(null))
+        {
+            // images of forms larger than the maximum number of pixels aren't created
+            FormRasterCache cache = new FormRasterCache(16 * 1024 * 1024, 100);
+            PDFRenderer renderer = new PDFRenderer(doc);
+            renderer.setFormRasterCache(cache);
+            renderer.renderImage(0);
+            assertEquals(0, cache.getImageCount());
+
+            // images larger than the cache aren't cached
+            cache = new FormRasterCache(1000, 100000);
+            renderer.setFormRasterCache(cache);
+            renderer.renderImage(0);
+            assertEquals(0, cache.getImageCount());
+            assertTrue(cache.getSize() <= cache.getMaxBytes());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new FormRasterCache(-1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new FormRasterCache(100, -1));
+    }
+
+    /**
+     * Creates a document with a page painting the same form 40 times, the last one is clipped.
+     */
+    private static PDDocument createDocument(PDExtendedGraphicsState extGState) throws IOException
+    {
+        PDDocument doc = new PDDocument();
+        PDFormXObject form = new PDFormXObject(doc);
+        form.setBBox(new PDRectangle(60, 60));
+        form.setResources(new PDResources());
+        try (PDFormContentStream cs = new PDFormContentStream(form))
+        {
+            if (extGState != null)
+            {
+                cs.setGraphicsStateParameters(extGState);
+            }
+            cs.setNonStrokingColor(Color.ORANGE);
+            cs.moveTo(30, 0);
+            cs.curveTo(50, 0, 60, 10, 60, 30);
+            cs.curveTo(60, 50, 50, 60, 30, 60);
+            cs.curveTo(10, 60, 0, 50, 0, 30);
+            cs.closeAndFillAndStroke();
+            cs.beginText();
+            cs.setFont(PDType1Font.HELVETICA_BOLD, 12);
+            cs.newLineAtOffset(8, 26);
+            cs.showText("Stamp");
+            cs.endText();
+        }
+        PDPage page = new PDPage();
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+        {
+            for (int i = 0; i < 40; i++)
+            {
+                cs.saveGraphicsState();
+                if (i == 39)
+                {
+                    cs.addRect(500, 700, 30, 30);
+                    cs.clip();
+                    cs.transform(Matrix.getTranslateInstance(500, 700));
+                }
+                else
+                {
+                    cs.transform(Matrix.getTranslateInstance(10 + i % 8 * 70, 10 + i / 8 * 70));
+                }
+                cs.drawForm(form);
+                cs.restoreGraphicsState();
+            }
+        }
+        return doc;
+    }
+
+    /**
+     * Asserts that the images only differ by the rounding of anti-aliased pixels, as the forms are
+     * positioned at whole pixels.
+     */
+    private static void assertSimilar(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                int expectedRGB = expected.getRGB(x, y);
+                int actualRGB = actual.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8)
+                {
+                    int difference = ((expectedRGB >> shift) & 0xff) - ((actualRGB >> shift) & 0xff);
+                    assertTrue(Math.abs(difference) <= 2, "pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the GlyphOutlineCache.
+ */
+class GlyphOutlineCacheTest
+{
+    private static final File FILE = new File("src/test/resources/input/rendering/survey.pdf");
+
+    @Test
+    void testSharedByAllPages() throws IOException
+    {
+        try (PDDocument doc = Loader.loadPDF(FILE))
+        {
+            List<int[]> expected = render(doc, null);
+
+            GlyphOutlineCache cache = new GlyphOutlineCache(16 * 1024 * 1024);
+            assertImagesEqual(expected, render(doc, cache));
+            long misses = cache.getMissCount();
+            assertTrue(cache.getHitCount() > misses);
+            assertTrue(cache.getFontCount() > 0);
+            assertTrue(cache.getWeight() > 0);
+            assertEquals(0, cache.getEvictionCount());
+
+            // all glyphs are cached already
+            assertImagesEqual(expected, render(doc, cache));
+            assertEquals(misses, cache.getMissCount());
+
+            cache.clear();
+            assertEquals(0, cache.getFontCount());
+            assertEquals(0, cache.getWeight());
+        }
+    }
+
+    @Test
+    void testEviction() throws IOException
+    {
+        try (PDDocument doc = Loader.loadPDF(FILE))
+        {
+            List<int[]> expected = render(doc, null);
+
+            // too small for all fonts, the pages are rendered the same way nevertheless
+            GlyphOutlineCache cache = new GlyphOutlineCache(1000);
+            assertImagesEqual(expected, render(doc, cache));
+            assertTrue(cache.getEvictionCount() > 0);
+            assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new GlyphOutlineCache(-1));
+    }
+
+    private static List<int[]> render(PDDocument doc, GlyphOutlineCache cache) throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(doc);
+        renderer.setGlyphOutlineCache(cache);
+        List<int[]> images = new ArrayList<>();
+        for (int i = 0; i < doc.getNumberOfPages(); i++)
+        {
+            BufferedImage image = renderer.renderImage(i, 0.5f);
+            images.add(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+        }
+        return images;
+    }
+
+    private static void assertImagesEqual(List<int[]> expected, List<int[]> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertTrue(Arrays.equals(expected.get(i), actual.get(i)), "page " + i);
+        }
+    }
+}
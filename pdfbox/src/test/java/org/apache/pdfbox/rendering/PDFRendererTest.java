@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the rendering of page ranges and page regions by the PDFRenderer.
+ */
+class PDFRendererTest
+{
+    private static final File FILE = new File("src/test/resources/input/rendering/survey.pdf");
+
+    @Test
+    void testRenderPagesConcurrently() throws IOException
+    {
+        // the expected images are rendered by another instance of the document, so that the
+        // concurrently rendered pages don't find any cached resources
+        List<int[]> expected = new ArrayList<>();
+        try (PDDocument doc = Loader.loadPDF(FILE))
+        {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            for (int i = 0; i < doc.getNumberOfPages(); i++)
+            {
+                expected.add(getRGB(renderer.renderImageWithDPI(i, 36, ImageType.GRAY)));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (PDDocument doc = Loader.loadPDF(FILE))
+        {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            int pageCount = doc.getNumberOfPages();
+            List<Integer> pages = new ArrayList<>();
+            renderer.renderPagesWithDPI(0, pageCount - 1, 36, ImageType.GRAY, executor, 3,
+                    (pageIndex, image) ->
+                    {
+                        assertEquals(BufferedImage.TYPE_BYTE_GRAY, image.getType());
+                        assertTrue(Arrays.equals(expected.get(pageIndex), getRGB(image)), "page " + pageIndex);
+                        pages.add(pageIndex);
+                    });
+            List<Integer> expectedPages = new ArrayList<>();
+            for (int i = 0; i < pageCount; i++)
+            {
+                expectedPages.add(i);
+            }
+            assertEquals(expectedPages, pages);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Renders pages which share an image, a form and a font concurrently, i.e. the same streams are
+     * read by several threads at the same time.
+     */
+    @Test
+    void testRenderSharedResourcesConcurrently() throws IOException
+    {
+        byte[] pdf = createSharedResourcesDocument(16);
+        List<int[]> expected = new ArrayList<>();
+        try (PDDocument doc = Loader.loadPDF(pdf))
+        {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            for (int i = 0; i < doc.getNumberOfPages(); i++)
+            {
+                expected.add(getRGB(renderer.renderImage(i, 0.5f, ImageType.RGB)));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            for (int run = 0; run < 5; run++)
+            {
+                try (PDDocument doc = Loader.loadPDF(pdf))
+                {
+                    // without a resource cache every page decodes the shared streams itself
+                    doc.setResourceCache(null);
+                    new PDFRenderer(doc).renderPagesWithDPI(0, doc.getNumberOfPages() - 1, 36,
+                            ImageType.RGB, executor, 8, (pageIndex, image) ->
+                                    assertTrue(Arrays.equals(expected.get(pageIndex), getRGB(image)),
+                                            "page " + pageIndex));
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRenderPagesFailure() throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (PDDocument doc = Loader.loadPDF(FILE))
+        {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            List<Integer> pages = new ArrayList<>();
+            IOException exception = assertThrows(IOException.class,
+                    () -> renderer.renderPagesWithDPI(0, doc.getNumberOfPages() - 1, 18, ImageType.RGB,
+                            executor, 2, (pageIndex, image) ->
+                            {
+                                pages.add(pageIndex);
+                                if (pageIndex == 1)
+                                {
+                                    throw new IOException("stop");
+                                }
+                            }));
+            assertEquals("stop", exception.getMessage());
+            assertEquals(Arrays.asList(0, 1), pages);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.renderPagesWithDPI(1, 0, 72, ImageType.RGB, executor, 1, (i, image) -> {}));
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.renderPagesWithDPI(0, doc.getNumberOfPages(), 72, ImageType.RGB, executor, 1,
+                            (i, image) -> {}));
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.renderPagesWithDPI(0, 0, 72, ImageType.RGB, executor, 0, (i, image) -> {}));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRenderImageTiles() throws IOException
+    {
+        try (PDDocument doc = Loader.loadPDF(FILE))
+        {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            for (int i = 0; i < doc.getNumberOfPages(); i++)
+            {
+                BufferedImage expected = renderer.renderImage(i, 0.75f, ImageType.RGB);
+                Dimension size = renderer.getImageSize(i, 0.75f);
+                assertEquals(expected.getWidth(), size.width);
+                assertEquals(expected.getHeight(), size.height);
+
+                int[] tileCount = new int[1];
+                int page = i;
+                renderer.renderImageTiles(i, 0.75f, ImageType.RGB, 150, 200, (x, y, tile) ->
+                {
+                    assertEquals(BufferedImage.TYPE_INT_RGB, tile.getType());
+                    assertEquals(Math.min(150, size.width - x), tile.getWidth());
+                    assertEquals(Math.min(200, size.height - y), tile.getHeight());
+                    BufferedImage expectedTile =
+                            expected.getSubimage(x, y, tile.getWidth(), tile.getHeight());
+                    assertSimilar(expectedTile, tile, "page " + page + " tile " + x + "," + y);
+                    tileCount[0]++;
+                });
+                assertEquals(((size.width + 149) / 150) * ((size.height + 199) / 200), tileCount[0]);
+
+                Rectangle region = new Rectangle(size.width / 3, size.height / 4, size.width / 2, 10);
+                BufferedImage image = renderer.renderImageRegion(i, 0.75f, ImageType.RGB, region);
+                assertSimilar(expected.getSubimage(region.x, region.y, region.width, region.height),
+                        image, "page " + i);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderImageRegion(0, 1,
+                    ImageType.RGB, new Rectangle(-1, 0, 10, 10)));
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderImageRegion(0, 1,
+                    ImageType.RGB, new Rectangle(0, 0, 0, 10)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.renderImageTiles(0, 1, ImageType.RGB, 0, 10, (x, y, tile) -> {}));
+        }
+    }
+
+    /**
+     * Creates a document whose pages all paint the same image and the same form, which shows text
+     * in an embedded font.
+     */
+    private static byte[] createSharedResourcesDocument(int pageCount) throws IOException
+    {
+        BufferedImage bim = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bim.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.YELLOW, 300, 200, Color.BLUE));
+        g.fillRect(0, 0, 300, 200);
+        g.dispose();
+        try (PDDocument doc = new PDDocument())
+        {
+            PDImageXObject image = LosslessFactory.createFromImage(doc, bim);
+            PDFont font;
+            try (InputStream input = PDFRendererTest.class.getResourceAsStream(
+                    "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf"))
+            {
+                font = PDType0Font.load(doc, input);
+            }
+            PDFormXObject form = new PDFormXObject(doc);
+            form.setBBox(new PDRectangle(400, 100));
+            form.setResources(new PDResources());
+            try (PDFormContentStream cs = new PDFormContentStream(form))
+            {
+                cs.addRect(0, 0, 400, 100);
+                cs.stroke();
+                cs.beginText();
+                cs.setFont(font, 24);
+                cs.newLineAtOffset(10, 40);
+                cs.showText("The quick brown fox jumps over the lazy dog");
+                cs.endText();
+            }
+            for (int i = 0; i < pageCount; i++)
+            {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page))
+                {
+                    cs.drawImage(image, 50 + i * 10, 400, 300, 200);
+                    cs.saveGraphicsState();
+                    cs.transform(Matrix.getTranslateInstance(50, 100 + i * 10));
+                    cs.drawForm(form);
+                    cs.restoreGraphicsState();
+                }
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            doc.save(baos);
+            return baos.toByteArray();
+        }
+    }
+
+    /**
+     * Checks that the images are the same, except for a few pixels of anti-aliased edges which may
+     * be rasterized slightly differently at another position of the device.
+     */
+    private static void assertSimilar(BufferedImage expected, BufferedImage actual, String message)
+    {
+        int[] expectedRGB = getRGB(expected);
+        int[] actualRGB = getRGB(actual);
+        assertEquals(expectedRGB.length, actualRGB.length, message);
+        int differences = 0;
+        for (int i = 0; i < expectedRGB.length; i++)
+        {
+            if (expectedRGB[i] != actualRGB[i])
+            {
+                differences++;
+            }
+        }
+        assertTrue(differences <= expectedRGB.length / 100, message + ": " + differences + " pixels differ");
+    }
+
+    private static int[] getRGB(BufferedImage image)
+    {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}